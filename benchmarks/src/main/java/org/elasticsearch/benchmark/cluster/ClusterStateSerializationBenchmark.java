@@ -0,0 +1,185 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.cluster;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.ClusterModule;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.Diff;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.metadata.MetaData;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.node.DiscoveryNodes;
+import org.elasticsearch.common.UUIDs;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.compress.CompressorFactory;
+import org.elasticsearch.common.io.stream.NamedWriteableAwareStreamInput;
+import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.transport.TransportAddress;
+import org.elasticsearch.discovery.zen.PublishClusterStateAction;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long it takes to serialize the cluster state of a cluster with many indices and to apply it on a receiving node,
+ * both for a full cluster state and for a diff that updates the settings of a single index. The serialized sizes are reported
+ * as the secondary results {@code fullStateBytes} and {@code diffBytes}.
+ *
+ * Indices are created from a configurable number of distinct templates, so that clusters where all indices share their
+ * settings can be compared to clusters where every index has different settings.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class ClusterStateSerializationBenchmark {
+
+    @Param({
+        // indices| templates
+        "     1000|         1",
+        "     1000|      1000",
+        "    20000|         1",
+        "    20000|        10",
+        "    20000|     20000"
+    })
+    public String indicesTemplates = "1000|1";
+
+    private NamedWriteableRegistry namedWriteableRegistry;
+    private DiscoveryNode localNode;
+    private ClusterState clusterState;
+    private BytesReference fullState;
+    private BytesReference diff;
+
+    @Setup
+    public void setUp() throws Exception {
+        final String[] params = indicesTemplates.split("\\|");
+        final int numIndices = Integer.parseInt(params[0].trim());
+        final int numTemplates = Integer.parseInt(params[1].trim());
+
+        namedWriteableRegistry = new NamedWriteableRegistry(ClusterModule.getNamedWriteables());
+        localNode = new DiscoveryNode("node", new TransportAddress(TransportAddress.META_ADDRESS, 9300), Version.CURRENT);
+
+        MetaData.Builder metaData = MetaData.builder();
+        for (int i = 0; i < numIndices; i++) {
+            metaData.put(IndexMetaData.builder("index_" + i)
+                .settings(templateSettings(i % numTemplates)
+                    .put(IndexMetaData.SETTING_INDEX_UUID, UUIDs.randomBase64UUID())
+                    .put(IndexMetaData.SETTING_INDEX_PROVIDED_NAME, "<index-{now/d}>")
+                    .put(IndexMetaData.SETTING_CREATION_DATE, System.currentTimeMillis())));
+        }
+        clusterState = ClusterState.builder(ClusterName.CLUSTER_NAME_SETTING.getDefault(Settings.EMPTY))
+            .nodes(DiscoveryNodes.builder().add(localNode).localNodeId(localNode.getId()).masterNodeId(localNode.getId()))
+            .metaData(metaData)
+            .build();
+
+        IndexMetaData updatedIndex = IndexMetaData.builder(clusterState.metaData().index("index_0"))
+            .settings(Settings.builder().put(clusterState.metaData().index("index_0").getSettings())
+                .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 2))
+            .build();
+        ClusterState updatedState = ClusterState.builder(clusterState)
+            .metaData(MetaData.builder(clusterState.metaData()).put(updatedIndex, true))
+            .incrementVersion()
+            .build();
+
+        fullState = PublishClusterStateAction.serializeFullClusterState(clusterState, Version.CURRENT);
+        diff = PublishClusterStateAction.serializeDiffClusterState(updatedState.diff(clusterState), Version.CURRENT);
+    }
+
+    private static Settings.Builder templateSettings(int template) {
+        return Settings.builder()
+            .put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT)
+            .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 5)
+            .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 1)
+            .put("index.refresh_interval", "30s")
+            .put("index.translog.durability", "async")
+            .put("index.codec", "best_compression")
+            .put("index.mapping.total_fields.limit", 5000)
+            .put("index.routing.allocation.include._tier", "hot")
+            .put("index.query.default_field", "message")
+            .put("index.analysis.analyzer.default.type", "standard")
+            .putList("index.analysis.analyzer.default.stopwords", "_english_", "template_" + template);
+    }
+
+    private StreamInput input(BytesReference bytes) throws IOException {
+        StreamInput in = CompressorFactory.compressor(bytes).streamInput(bytes.streamInput());
+        in = new NamedWriteableAwareStreamInput(in, namedWriteableRegistry);
+        in.setVersion(Version.CURRENT);
+        return in;
+    }
+
+    /**
+     * Reports the serialized sizes alongside the timings of the benchmarks that use it
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class SerializedSize {
+        public long fullStateBytes;
+        public long diffBytes;
+
+        @Setup(Level.Iteration)
+        public void setUp(ClusterStateSerializationBenchmark benchmark) {
+            fullStateBytes = benchmark.fullState.length();
+            diffBytes = benchmark.diff.length();
+        }
+    }
+
+    @Benchmark
+    public BytesReference serializeFullState(SerializedSize size) throws IOException {
+        return PublishClusterStateAction.serializeFullClusterState(clusterState, Version.CURRENT);
+    }
+
+    @Benchmark
+    public ClusterState applyFullState(SerializedSize size) throws IOException {
+        try (StreamInput in = input(fullState)) {
+            in.readBoolean();
+            return ClusterState.readFrom(in, localNode);
+        }
+    }
+
+    @Benchmark
+    public ClusterState applyDiff(SerializedSize size) throws IOException {
+        try (StreamInput in = input(diff)) {
+            in.readBoolean();
+            Diff<ClusterState> clusterStateDiff = ClusterState.readDiffFrom(in, localNode);
+            return clusterStateDiff.apply(clusterState);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.benchmark.rounding;
+
+import org.elasticsearch.common.rounding.DateTimeUnit;
+import org.elasticsearch.common.rounding.Rounding;
+import org.elasticsearch.common.unit.TimeValue;
+import org.joda.time.DateTimeZone;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long it takes to round the timestamps of 90 days of documents, as a date histogram does for every collected
+ * document, with a plain {@link Rounding} and with a rounding that was prepared for the range of the timestamps.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class RoundingBenchmark {
+
+    private static final int NUM_VALUES = 1_000_000;
+
+    @Param({"UTC", "Europe/Berlin"})
+    public String timeZone = "UTC";
+
+    @Param({"minute", "hour", "day", "month", "15m"})
+    public String interval = "minute";
+
+    private long[] values;
+    private Rounding rounding;
+    private Rounding.Prepared prepared;
+
+    @Setup
+    public void setUp() {
+        DateTimeZone tz = DateTimeZone.forID(timeZone);
+        switch (interval) {
+            case "minute":
+                rounding = Rounding.builder(DateTimeUnit.MINUTES_OF_HOUR).timeZone(tz).build();
+                break;
+            case "hour":
+                rounding = Rounding.builder(DateTimeUnit.HOUR_OF_DAY).timeZone(tz).build();
+                break;
+            case "day":
+                rounding = Rounding.builder(DateTimeUnit.DAY_OF_MONTH).timeZone(tz).build();
+                break;
+            case "month":
+                rounding = Rounding.builder(DateTimeUnit.MONTH_OF_YEAR).timeZone(tz).build();
+                break;
+            default:
+                rounding = Rounding.builder(TimeValue.parseTimeValue(interval, "interval")).timeZone(tz).build();
+                break;
+        }
+        // 90 days that include the dst transition at the end of march
+        long min = 1488326400000L; // 2017-03-01T00:00:00Z
+        long max = min + TimeUnit.DAYS.toMillis(90);
+        Random random = new Random(0);
+        values = new long[NUM_VALUES];
+        for (int i = 0; i < NUM_VALUES; i++) {
+            values[i] = min + (long) (random.nextDouble() * (max - min));
+        }
+        prepared = rounding.prepare(min, max);
+    }
+
+    @Benchmark
+    public long round() {
+        long sum = 0;
+        for (long value : values) {
+            sum += rounding.round(value);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long roundPrepared() {
+        long sum = 0;
+        for (long value : values) {
+            sum += prepared.round(value);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.benchmark.search.aggregations;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.NumericUtils;
+import org.elasticsearch.index.fielddata.FieldData;
+import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
+import org.elasticsearch.search.aggregations.metrics.DoubleValuesBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reading the values of a double field and summing them doc by doc, like metric aggregations do in
+ * {@code collect(int, long)}, with decoding them into a {@link DoubleValuesBuffer} one block of docs at a time and
+ * accumulating over the buffer, like they do when documents are collected in blocks. Every other doc matches so that
+ * doc values have to skip docs, like they do under a selective query.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class DoubleValuesBufferBenchmark {
+
+    private static final String FIELD = "value";
+
+    @Param({"1000000"})
+    public int numDocs = 1000000;
+
+    @Param({"1", "3"})
+    public int valuesPerDoc = 1;
+
+    @Param({"128"})
+    public int blockSize = 128;
+
+    private Directory directory;
+    private DirectoryReader reader;
+    private LeafReader leafReader;
+    private int[] docs;
+    private final DoubleValuesBuffer buffer = new DoubleValuesBuffer();
+
+    @Setup
+    public void setUp() throws IOException {
+        final Random random = new Random(0);
+        directory = new RAMDirectory();
+        try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig())) {
+            for (int i = 0; i < numDocs; ++i) {
+                final Document doc = new Document();
+                for (int j = 0; j < valuesPerDoc; ++j) {
+                    doc.add(new SortedNumericDocValuesField(FIELD, NumericUtils.doubleToSortableLong(random.nextGaussian())));
+                }
+                writer.addDocument(doc);
+            }
+            writer.forceMerge(1);
+        }
+        reader = DirectoryReader.open(directory);
+        leafReader = reader.leaves().get(0).reader();
+        docs = new int[leafReader.maxDoc() / 2];
+        for (int i = 0; i < docs.length; ++i) {
+            docs[i] = i * 2;
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        reader.close();
+        directory.close();
+    }
+
+    private SortedNumericDoubleValues values() throws IOException {
+        return FieldData.sortableLongBitsToDoubles(DocValues.getSortedNumeric(leafReader, FIELD));
+    }
+
+    @Benchmark
+    public double perDoc() throws IOException {
+        final SortedNumericDoubleValues values = values();
+        double sum = 0;
+        for (int doc : docs) {
+            if (values.advanceExact(doc)) {
+                final int valueCount = values.docValueCount();
+                for (int i = 0; i < valueCount; ++i) {
+                    sum += values.nextValue();
+                }
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double blocks() throws IOException {
+        final SortedNumericDoubleValues values = values();
+        final int[] block = new int[blockSize];
+        double sum = 0;
+        for (int start = 0; start < docs.length; start += blockSize) {
+            final int count = Math.min(blockSize, docs.length - start);
+            System.arraycopy(docs, start, block, 0, count);
+            final int valueCount = buffer.read(values, block, count);
+            final double[] buffered = buffer.values();
+            for (int i = 0; i < valueCount; ++i) {
+                sum += buffered[i];
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.benchmark.search.aggregations;
+
+import com.carrotsearch.hppc.BitMixer;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.search.aggregations.metrics.cardinality.HyperLogLogPlusPlus;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long it takes to collect hashes into many buckets of a {@link HyperLogLogPlusPlus}, like a cardinality
+ * aggregation under a terms aggregation does, and to compute the cardinality of every bucket. The memory used per bucket
+ * and the mean relative error of the cardinalities are reported next to the timings.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class HyperLogLogPlusPlusBenchmark {
+
+    @Param({
+        // buckets| distinct values per bucket
+        "    50000|        10",
+        "    50000|       100",
+        "     1000|      1000",
+        "      100|    100000"
+    })
+    public String bucketsValues = "50000|10";
+
+    @Param({"14"})
+    public int precision = HyperLogLogPlusPlus.DEFAULT_PRECISION;
+
+    private long[] buckets;
+    private long[] hashes;
+    private int numBuckets;
+    private int numValues;
+
+    @Setup
+    public void setUp() {
+        final String[] params = bucketsValues.split("\\|");
+        numBuckets = Integer.parseInt(params[0].trim());
+        numValues = Integer.parseInt(params[1].trim());
+
+        // every value is collected twice, in random order
+        final Random random = new Random(0);
+        final int numHashes = Math.toIntExact(2L * numBuckets * numValues);
+        buckets = new long[numHashes];
+        hashes = new long[numHashes];
+        for (int i = 0; i < numHashes; ++i) {
+            final int value = i >> 1;
+            buckets[i] = value / numValues;
+            hashes[i] = BitMixer.mix64(value);
+        }
+        for (int i = numHashes - 1; i > 0; --i) {
+            final int j = random.nextInt(i + 1);
+            final long bucket = buckets[i];
+            buckets[i] = buckets[j];
+            buckets[j] = bucket;
+            final long hash = hashes[i];
+            hashes[i] = hashes[j];
+            hashes[j] = hash;
+        }
+    }
+
+    private HyperLogLogPlusPlus collect() {
+        final HyperLogLogPlusPlus counts = new HyperLogLogPlusPlus(precision, BigArrays.NON_RECYCLING_INSTANCE, 1);
+        for (int i = 0; i < hashes.length; ++i) {
+            counts.collect(buckets[i], hashes[i]);
+        }
+        return counts;
+    }
+
+    /**
+     * Reports the memory used per bucket and the accuracy of the counts alongside the timings of the benchmarks that use it
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Accuracy {
+        public long bytesPerBucket;
+        public double meanRelativeError;
+
+        @Setup(Level.Iteration)
+        public void setUp(HyperLogLogPlusPlusBenchmark benchmark) {
+            try (HyperLogLogPlusPlus counts = benchmark.collect()) {
+                double errorSum = 0;
+                for (int bucket = 0; bucket < benchmark.numBuckets; ++bucket) {
+                    errorSum += Math.abs(counts.cardinality(bucket) - benchmark.numValues) / (double) benchmark.numValues;
+                }
+                bytesPerBucket = counts.ramBytesUsed() / benchmark.numBuckets;
+                meanRelativeError = errorSum / benchmark.numBuckets;
+            }
+        }
+    }
+
+    @Benchmark
+    public long collectAndCount(Accuracy accuracy) {
+        long sum = 0;
+        try (HyperLogLogPlusPlus counts = collect()) {
+            for (int bucket = 0; bucket < numBuckets; ++bucket) {
+                sum += counts.cardinality(bucket);
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.benchmark.search.aggregations;
+
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.search.aggregations.metrics.percentiles.tdigest.MergingTDigests;
+import org.elasticsearch.search.aggregations.metrics.percentiles.tdigest.TDigestState;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a {@link TDigestState} per bucket with {@link MergingTDigests} when collecting values into many buckets, like a
+ * percentiles aggregation under a terms aggregation does, and when merging the digests of all buckets into a single
+ * {@link TDigestState}, like the reduce phase does. The memory used per bucket by the digests collected during setup is
+ * reported next to the timings, it is estimated by walking the objects of the trees for {@code tree}.
+ */
+@Fork(3)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("unused") //invoked by benchmarking framework
+public class TDigestBenchmark {
+
+    @Param({
+        // buckets| values per bucket
+        "    50000|        10",
+        "    10000|       100",
+        "     1000|     10000"
+    })
+    public String bucketsValues = "50000|10";
+
+    @Param({"tree", "merging"})
+    public String impl = "merging";
+
+    @Param({"100"})
+    public double compression = 100;
+
+    private long[] buckets;
+    private double[] values;
+    private int numBuckets;
+
+    private TDigestState[] trees;
+    private MergingTDigests digests;
+
+    @Setup
+    public void setUp() {
+        final String[] params = bucketsValues.split("\\|");
+        numBuckets = Integer.parseInt(params[0].trim());
+        final int numValues = Integer.parseInt(params[1].trim());
+
+        final Random random = new Random(0);
+        final int length = Math.toIntExact((long) numBuckets * numValues);
+        buckets = new long[length];
+        values = new double[length];
+        for (int i = 0; i < length; ++i) {
+            buckets[i] = i % numBuckets;
+            values[i] = random.nextGaussian();
+        }
+
+        if (impl.equals("tree")) {
+            trees = collectTrees();
+        } else {
+            digests = collectDigests();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (digests != null) {
+            digests.close();
+        }
+    }
+
+    private TDigestState[] collectTrees() {
+        final TDigestState[] trees = new TDigestState[numBuckets];
+        for (int i = 0; i < values.length; ++i) {
+            final int bucket = (int) buckets[i];
+            if (trees[bucket] == null) {
+                trees[bucket] = new TDigestState(compression);
+            }
+            trees[bucket].add(values[i]);
+        }
+        return trees;
+    }
+
+    /**
+     * Estimates the memory of the objects that are reachable from the trees, only the shallow size of JDK objects is counted.
+     */
+    private long treesRamBytesUsed() {
+        final Set<Object> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        final Deque<Object> stack = new ArrayDeque<>();
+        stack.push(trees);
+        long ramBytesUsed = 0;
+        while (stack.isEmpty() == false) {
+            final Object o = stack.pop();
+            if (seen.add(o) == false) {
+                continue;
+            }
+            ramBytesUsed += RamUsageEstimator.shallowSizeOf(o);
+            final Class<?> clazz = o.getClass();
+            if (clazz.isArray()) {
+                if (clazz.getComponentType().isPrimitive() == false) {
+                    for (int i = 0; i < Array.getLength(o); ++i) {
+                        final Object element = Array.get(o, i);
+                        if (element != null) {
+                            stack.push(element);
+                        }
+                    }
+                }
+            } else if (clazz.getName().startsWith("java.") == false) {
+                for (Class<?> c = clazz; c != null; c = c.getSuperclass()) {
+                    for (Field field : c.getDeclaredFields()) {
+                        if (Modifier.isStatic(field.getModifiers()) == false && field.getType().isPrimitive() == false) {
+                            field.setAccessible(true);
+                            final Object value;
+                            try {
+                                value = field.get(o);
+                            } catch (IllegalAccessException e) {
+                                throw new AssertionError(e);
+                            }
+                            if (value != null) {
+                                stack.push(value);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return ramBytesUsed;
+    }
+
+    private MergingTDigests collectDigests() {
+        final MergingTDigests digests = new MergingTDigests(compression, BigArrays.NON_RECYCLING_INSTANCE, 1);
+        for (int i = 0; i < values.length; ++i) {
+            digests.add(buckets[i], values[i]);
+        }
+        return digests;
+    }
+
+    /**
+     * Reports the memory used per bucket alongside the timings of the benchmarks that use it
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Memory {
+        public long bytesPerBucket;
+
+        @Setup(Level.Iteration)
+        public void setUp(TDigestBenchmark benchmark) {
+            final long ramBytesUsed = benchmark.impl.equals("tree") ? benchmark.treesRamBytesUsed() : benchmark.digests.ramBytesUsed();
+            bytesPerBucket = ramBytesUsed / benchmark.numBuckets;
+        }
+    }
+
+    @Benchmark
+    public double collectAndMedian(Memory memory) {
+        double sum = 0;
+        if (impl.equals("tree")) {
+            final TDigestState[] trees = collectTrees();
+            for (TDigestState tree : trees) {
+                if (tree != null) {
+                    sum += tree.quantile(0.5);
+                }
+            }
+        } else {
+            try (MergingTDigests digests = collectDigests()) {
+                for (int bucket = 0; bucket < numBuckets; ++bucket) {
+                    sum += digests.toTDigestState(bucket).quantile(0.5);
+                }
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public double merge(Memory memory) {
+        final TDigestState merged = new TDigestState(compression);
+        for (int bucket = 0; bucket < numBuckets; ++bucket) {
+            if (impl.equals("tree")) {
+                if (trees[bucket] != null) {
+                    merged.add(trees[bucket]);
+                }
+            } else {
+                merged.add(digests.toTDigestState(bucket));
+            }
+        }
+        return merged.quantile(0.5);
+    }
+}
@@ -19,8 +19,10 @@
 package org.elasticsearch.client.benchmark;
 
 import org.elasticsearch.client.benchmark.rest.RestClientBenchmark;
+import org.elasticsearch.client.benchmark.rest.RestHighLevelClientBenchmark;
 import org.elasticsearch.client.benchmark.transport.TransportClientBenchmark;
 import org.elasticsearch.common.SuppressForbidden;
+import org.elasticsearch.common.xcontent.XContentType;
 
 import java.util.Arrays;
 
@@ -36,6 +38,18 @@ public class BenchmarkMain {
             case "rest":
                 benchmark = new RestClientBenchmark();
                 break;
+            case "rest-pipelined":
+                benchmark = new RestClientBenchmark(true);
+                break;
+            case "rest-high-level":
+                benchmark = new RestHighLevelClientBenchmark(XContentType.JSON);
+                break;
+            case "rest-high-level-smile":
+                benchmark = new RestHighLevelClientBenchmark(XContentType.SMILE);
+                break;
+            case "rest-high-level-cbor":
+                benchmark = new RestHighLevelClientBenchmark(XContentType.CBOR);
+                break;
             default:
                 System.err.println("Unknown client type [" + type + "]");
                 System.exit(1);
@@ -25,7 +25,7 @@ import java.util.List;
 /**
  * Stores measurement samples.
  *
- * This class is NOT threadsafe.
+ * Samples may be added concurrently by several benchmark clients.
  */
 public final class SampleRecorder {
     private final List<Sample> samples;
@@ -34,11 +34,11 @@ public final class SampleRecorder {
         this.samples = new ArrayList<>(iterations);
     }
 
-    public void addSample(Sample sample) {
+    public synchronized void addSample(Sample sample) {
         samples.add(sample);
     }
 
-    public List<Sample> getSamples() {
-        return Collections.unmodifiableList(samples);
+    public synchronized List<Sample> getSamples() {
+        return Collections.unmodifiableList(new ArrayList<>(samples));
     }
 }
@@ -22,6 +22,8 @@ import org.elasticsearch.client.benchmark.BenchmarkTask;
 import org.elasticsearch.client.benchmark.metrics.Sample;
 import org.elasticsearch.client.benchmark.metrics.SampleRecorder;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 public class SearchBenchmarkTask implements BenchmarkTask {
@@ -30,16 +32,30 @@ public class SearchBenchmarkTask implements BenchmarkTask {
     private final int warmupIterations;
     private final int measurementIterations;
     private final int targetThroughput;
+    private final int clients;
 
     private SampleRecorder sampleRecorder;
 
     public SearchBenchmarkTask(SearchRequestExecutor searchRequestExecutor, String body, int warmupIterations,
                                int measurementIterations, int targetThroughput) {
+        this(searchRequestExecutor, body, warmupIterations, measurementIterations, targetThroughput, 1);
+    }
+
+    /**
+     * Creates a task that spreads the iterations and the target throughput evenly across <code>clients</code> concurrent
+     * clients, which all share the same {@link SearchRequestExecutor}.
+     */
+    public SearchBenchmarkTask(SearchRequestExecutor searchRequestExecutor, String body, int warmupIterations,
+                               int measurementIterations, int targetThroughput, int clients) {
+        if (clients < 1) {
+            throw new IllegalArgumentException("clients must be greater than 0 but was [" + clients + "]");
+        }
         this.searchRequestExecutor = searchRequestExecutor;
         this.searchRequestBody = body;
         this.warmupIterations = warmupIterations;
         this.measurementIterations = measurementIterations;
         this.targetThroughput = targetThroughput;
+        this.clients = clients;
     }
 
     @Override
@@ -53,8 +69,27 @@ public class SearchBenchmarkTask implements BenchmarkTask {
         runIterations(measurementIterations, true);
     }
 
-    private void runIterations(int iterations, boolean addSample) {
-        long interval = TimeUnit.SECONDS.toNanos(1L) / targetThroughput;
+    private void runIterations(int iterations, boolean addSample) throws InterruptedException {
+        if (clients == 1) {
+            runIterations(iterations, targetThroughput, addSample);
+            return;
+        }
+        List<Thread> threads = new ArrayList<>(clients);
+        for (int client = 0; client < clients; client++) {
+            // distribute the remainder so that the total number of iterations is unchanged
+            int clientIterations = iterations / clients + (client < iterations % clients ? 1 : 0);
+            int clientThroughput = Math.max(1, targetThroughput / clients);
+            Thread thread = new Thread(() -> runIterations(clientIterations, clientThroughput, addSample), "search-client-" + client);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    private void runIterations(int iterations, int throughput, boolean addSample) {
+        long interval = TimeUnit.SECONDS.toNanos(1L) / throughput;
 
         long totalStart = System.nanoTime();
         for (int iteration = 0; iteration < iterations; iteration++) {
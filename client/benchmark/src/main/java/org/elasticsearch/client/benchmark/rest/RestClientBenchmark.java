@@ -44,6 +44,20 @@ import java.util.List;
 import java.util.Locale;
 
 public final class RestClientBenchmark extends AbstractBenchmark<RestClient> {
+    private final boolean pipelining;
+
+    public RestClientBenchmark() {
+        this(false);
+    }
+
+    /**
+     * @param pipelining whether requests are pipelined on a bounded number of connections per host instead of
+     *                   being sent one at a time per connection
+     */
+    public RestClientBenchmark(boolean pipelining) {
+        this.pipelining = pipelining;
+    }
+
     public static void main(String[] args) throws Exception {
         RestClientBenchmark b = new RestClientBenchmark();
         b.run(args);
@@ -51,8 +65,12 @@ public final class RestClientBenchmark extends AbstractBenchmark<RestClient> {
 
     @Override
     protected RestClient client(String benchmarkTargetHost) {
-        return RestClient
-            .builder(new HttpHost(benchmarkTargetHost, 9200))
+        RestClientBuilder builder = RestClient.builder(new HttpHost(benchmarkTargetHost, 9200));
+        if (pipelining) {
+            // the pipelining client cannot be customized with a HttpClientConfigCallback, hence no gzip compression here
+            return builder.setPipelining(true).build();
+        }
+        return builder
             .setHttpClientConfigCallback(b -> b.setDefaultHeaders(
                 Collections.singleton(new BasicHeader(HttpHeaders.ACCEPT_ENCODING, "gzip"))))
             .setRequestConfigCallback(b -> b.setContentCompressionEnabled(true))
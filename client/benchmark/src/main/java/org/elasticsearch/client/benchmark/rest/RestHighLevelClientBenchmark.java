@@ -0,0 +1,121 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.client.benchmark.rest;
+
+import org.apache.http.HttpHost;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.client.benchmark.AbstractBenchmark;
+import org.elasticsearch.client.benchmark.ops.bulk.BulkRequestExecutor;
+import org.elasticsearch.client.benchmark.ops.search.SearchRequestExecutor;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Benchmarks the high-level REST client against the regular bulk and search endpoints, using the given content type
+ * to encode request bodies and to negotiate the format of responses.
+ */
+public final class RestHighLevelClientBenchmark extends AbstractBenchmark<RestHighLevelClient> {
+    private final XContentType xContentType;
+
+    public RestHighLevelClientBenchmark(XContentType xContentType) {
+        this.xContentType = xContentType;
+    }
+
+    public static void main(String[] args) throws Exception {
+        RestHighLevelClientBenchmark b = new RestHighLevelClientBenchmark(XContentType.JSON);
+        b.run(args);
+    }
+
+    @Override
+    protected RestHighLevelClient client(String benchmarkTargetHost) {
+        return new RestHighLevelClient(RestClient.builder(new HttpHost(benchmarkTargetHost, 9200)), xContentType);
+    }
+
+    @Override
+    protected BulkRequestExecutor bulkRequestExecutor(RestHighLevelClient client, String indexName, String typeName) {
+        return new RestHighLevelBulkRequestExecutor(client, indexName, typeName);
+    }
+
+    @Override
+    protected SearchRequestExecutor searchRequestExecutor(RestHighLevelClient client, String indexName) {
+        return new RestHighLevelSearchRequestExecutor(client, indexName);
+    }
+
+    private static final class RestHighLevelBulkRequestExecutor implements BulkRequestExecutor {
+        private final RestHighLevelClient client;
+        private final String indexName;
+        private final String typeName;
+
+        RestHighLevelBulkRequestExecutor(RestHighLevelClient client, String indexName, String typeName) {
+            this.client = client;
+            this.indexName = indexName;
+            this.typeName = typeName;
+        }
+
+        @Override
+        public boolean bulkIndex(List<String> bulkData) {
+            BulkRequest bulkRequest = new BulkRequest();
+            for (String bulkItem : bulkData) {
+                bulkRequest.add(new IndexRequest(indexName, typeName).source(bulkItem.getBytes(StandardCharsets.UTF_8), XContentType.JSON));
+            }
+            try {
+                BulkResponse bulkResponse = client.bulk(bulkRequest);
+                return bulkResponse.hasFailures() == false;
+            } catch (IOException e) {
+                throw new ElasticsearchException(e);
+            }
+        }
+    }
+
+    private static final class RestHighLevelSearchRequestExecutor implements SearchRequestExecutor {
+        private final RestHighLevelClient client;
+        private final String indexName;
+
+        private RestHighLevelSearchRequestExecutor(RestHighLevelClient client, String indexName) {
+            this.client = client;
+            this.indexName = indexName;
+        }
+
+        @Override
+        public boolean search(String source) {
+            SearchRequest searchRequest = new SearchRequest(indexName);
+            searchRequest.source(new SearchSourceBuilder().query(QueryBuilders.wrapperQuery(source)));
+            try {
+                SearchResponse response = client.search(searchRequest);
+                return response.status() == RestStatus.OK;
+            } catch (IOException e) {
+                throw new ElasticsearchException(e);
+            }
+        }
+    }
+}
@@ -140,14 +140,32 @@ public final class Request {
     }
 
     static Request bulk(BulkRequest bulkRequest) throws IOException {
+        return bulk(bulkRequest, null);
+    }
+
+    /**
+     * Converts a {@link BulkRequest} into a {@link Request}.
+     *
+     * @param bulkContentType the content type of the request body, either JSON or SMILE. All the documents are re-encoded to it
+     *                        regardless of their own content type. If {@code null}, all the documents must have the same content
+     *                        type, which is then used for the request body.
+     */
+    static Request bulk(BulkRequest bulkRequest, @Nullable XContentType bulkContentType) throws IOException {
         Params parameters = Params.builder();
         parameters.withTimeout(bulkRequest.timeout());
         parameters.withRefreshPolicy(bulkRequest.getRefreshPolicy());
 
+        if (bulkContentType != null) {
+            if (bulkContentType != XContentType.JSON && bulkContentType != XContentType.SMILE) {
+                throw new IllegalArgumentException("Unsupported content-type [" + bulkContentType
+                    + "] for bulk requests, only JSON and SMILE are supported");
+            }
+            return createBulkRequest(bulkRequest, bulkContentType, parameters);
+        }
+
         // Bulk API only supports newline delimited JSON or Smile. Before executing
         // the bulk, we need to check that all requests have the same content-type
         // and this content-type is supported by the Bulk API.
-        XContentType bulkContentType = null;
         for (int i = 0; i < bulkRequest.numberOfActions(); i++) {
             DocWriteRequest<?> request = bulkRequest.requests().get(i);
 
@@ -169,7 +187,10 @@ public final class Request {
         if (bulkContentType == null) {
             bulkContentType = XContentType.JSON;
         }
+        return createBulkRequest(bulkRequest, bulkContentType, parameters);
+    }
 
+    private static Request createBulkRequest(BulkRequest bulkRequest, XContentType bulkContentType, Params parameters) throws IOException {
         final byte separator = bulkContentType.xContent().streamSeparator();
         final ContentType requestContentType = createContentType(bulkContentType);
 
@@ -350,6 +371,10 @@ public final class Request {
     }
 
     static Request search(SearchRequest searchRequest) throws IOException {
+        return search(searchRequest, REQUEST_BODY_CONTENT_TYPE);
+    }
+
+    static Request search(SearchRequest searchRequest, XContentType xContentType) throws IOException {
         String endpoint = endpoint(searchRequest.indices(), searchRequest.types(), "_search");
         Params params = Params.builder();
         params.putParam(RestSearchAction.TYPED_KEYS_PARAM, "true");
@@ -366,18 +391,26 @@ public final class Request {
         }
         HttpEntity entity = null;
         if (searchRequest.source() != null) {
-            entity = createEntity(searchRequest.source(), REQUEST_BODY_CONTENT_TYPE);
+            entity = createEntity(searchRequest.source(), xContentType);
         }
         return new Request(HttpGet.METHOD_NAME, endpoint, params.getParams(), entity);
     }
 
     static Request searchScroll(SearchScrollRequest searchScrollRequest) throws IOException {
-        HttpEntity entity = createEntity(searchScrollRequest, REQUEST_BODY_CONTENT_TYPE);
+        return searchScroll(searchScrollRequest, REQUEST_BODY_CONTENT_TYPE);
+    }
+
+    static Request searchScroll(SearchScrollRequest searchScrollRequest, XContentType xContentType) throws IOException {
+        HttpEntity entity = createEntity(searchScrollRequest, xContentType);
         return new Request("GET", "/_search/scroll", Collections.emptyMap(), entity);
     }
 
     static Request clearScroll(ClearScrollRequest clearScrollRequest) throws IOException {
-        HttpEntity entity = createEntity(clearScrollRequest, REQUEST_BODY_CONTENT_TYPE);
+        return clearScroll(clearScrollRequest, REQUEST_BODY_CONTENT_TYPE);
+    }
+
+    static Request clearScroll(ClearScrollRequest clearScrollRequest, XContentType xContentType) throws IOException {
+        HttpEntity entity = createEntity(clearScrollRequest, xContentType);
         return new Request("DELETE", "/_search/scroll", Collections.emptyMap(), entity);
     }
 
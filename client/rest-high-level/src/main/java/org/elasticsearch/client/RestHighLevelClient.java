@@ -21,6 +21,8 @@ package org.elasticsearch.client;
 
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.message.BasicHeader;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.ElasticsearchStatusException;
 import org.elasticsearch.action.ActionListener;
@@ -45,6 +47,7 @@ import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.action.update.UpdateResponse;
 import org.elasticsearch.common.CheckedConsumer;
 import org.elasticsearch.common.CheckedFunction;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.ParseField;
 import org.elasticsearch.common.xcontent.ContextParser;
 import org.elasticsearch.common.xcontent.NamedXContentRegistry;
@@ -83,7 +86,9 @@ import org.elasticsearch.search.aggregations.bucket.range.ParsedGeoDistance;
 import org.elasticsearch.search.aggregations.bucket.range.ParsedRange;
 import org.elasticsearch.search.aggregations.bucket.range.RangeAggregationBuilder;
 import org.elasticsearch.search.aggregations.bucket.sampler.InternalSampler;
+import org.elasticsearch.search.aggregations.bucket.sampler.ParsedRandomSampler;
 import org.elasticsearch.search.aggregations.bucket.sampler.ParsedSampler;
+import org.elasticsearch.search.aggregations.bucket.sampler.RandomSamplerAggregationBuilder;
 import org.elasticsearch.search.aggregations.bucket.significant.ParsedSignificantLongTerms;
 import org.elasticsearch.search.aggregations.bucket.significant.ParsedSignificantStringTerms;
 import org.elasticsearch.search.aggregations.bucket.significant.SignificantLongTerms;
@@ -146,6 +151,7 @@ import org.elasticsearch.search.suggest.term.TermSuggestion;
 import java.io.Closeable;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -169,12 +175,20 @@ import static java.util.stream.Collectors.toList;
  * {@link #RestHighLevelClient(RestClient, CheckedConsumer, List)}  constructor can be used.
  * This class can also be sub-classed to expose additional client methods that make use of endpoints added to Elasticsearch through
  * plugins, or to add support for custom response sections, again added to Elasticsearch through plugins.
+ * <p>
+ * Requests and responses are encoded as JSON by default. A binary content type, SMILE or CBOR, can be provided at creation time, in
+ * which case it is used for the search, scroll and bulk request bodies and requested through the {@code Accept} header for all the
+ * responses, which saves on both encoding and parsing. Bulk requests only support JSON and SMILE, they are sent as JSON when CBOR is
+ * configured.
  */
 public class RestHighLevelClient implements Closeable {
 
     private final RestClient client;
     private final NamedXContentRegistry registry;
     private final CheckedConsumer<RestClient, IOException> doClose;
+    private final XContentType xContentType;
+    @Nullable
+    private final Header acceptHeader;
 
     private final IndicesClient indicesClient = new IndicesClient(this);
 
@@ -186,6 +200,15 @@ public class RestHighLevelClient implements Closeable {
         this(restClientBuilder, Collections.emptyList());
     }
 
+    /**
+     * Creates a {@link RestHighLevelClient} given the low level {@link RestClientBuilder} that allows to build the
+     * {@link RestClient} to be used to perform requests, and the content type to use for request bodies and responses: JSON,
+     * SMILE or CBOR.
+     */
+    public RestHighLevelClient(RestClientBuilder restClientBuilder, XContentType xContentType) {
+        this(restClientBuilder.build(), RestClient::close, Collections.emptyList(), xContentType);
+    }
+
     /**
      * Creates a {@link RestHighLevelClient} given the low level {@link RestClientBuilder} that allows to build the
      * {@link RestClient} to be used to perform requests and parsers for custom response sections added to Elasticsearch through plugins.
@@ -203,8 +226,24 @@ public class RestHighLevelClient implements Closeable {
      */
     protected RestHighLevelClient(RestClient restClient, CheckedConsumer<RestClient, IOException> doClose,
                                   List<NamedXContentRegistry.Entry> namedXContentEntries) {
+        this(restClient, doClose, namedXContentEntries, XContentType.JSON);
+    }
+
+    /**
+     * Same as {@link #RestHighLevelClient(RestClient, CheckedConsumer, List)}, also accepts the content type to use for request
+     * bodies and responses: JSON, SMILE or CBOR.
+     */
+    protected RestHighLevelClient(RestClient restClient, CheckedConsumer<RestClient, IOException> doClose,
+                                  List<NamedXContentRegistry.Entry> namedXContentEntries, XContentType xContentType) {
         this.client = Objects.requireNonNull(restClient, "restClient must not be null");
         this.doClose = Objects.requireNonNull(doClose, "doClose consumer must not be null");
+        this.xContentType = Objects.requireNonNull(xContentType, "xContentType must not be null");
+        if (xContentType != XContentType.JSON && xContentType != XContentType.SMILE && xContentType != XContentType.CBOR) {
+            throw new IllegalArgumentException("Unsupported content-type [" + xContentType + "], only JSON, SMILE and CBOR are supported");
+        }
+        // JSON is what Elasticsearch returns when no other format is asked for
+        this.acceptHeader = xContentType == XContentType.JSON ? null
+            : new BasicHeader(HttpHeaders.ACCEPT, xContentType.mediaTypeWithoutParameters());
         this.registry = new NamedXContentRegistry(
                 Stream.of(getDefaultNamedXContents().stream(), getProvidedNamedXContents().stream(), namedXContentEntries.stream())
                     .flatMap(Function.identity()).collect(toList()));
@@ -222,6 +261,13 @@ public class RestHighLevelClient implements Closeable {
         doClose.accept(client);
     }
 
+    /**
+     * Returns the content type used for request bodies and responses
+     */
+    public final XContentType getXContentType() {
+        return xContentType;
+    }
+
     /**
      * Provides an {@link IndicesClient} which can be used to access the Indices API.
      *
@@ -237,7 +283,7 @@ public class RestHighLevelClient implements Closeable {
      * See <a href="https://www.elastic.co/guide/en/elasticsearch/reference/current/docs-bulk.html">Bulk API on elastic.co</a>
      */
     public final BulkResponse bulk(BulkRequest bulkRequest, Header... headers) throws IOException {
-        return performRequestAndParseEntity(bulkRequest, Request::bulk, BulkResponse::fromXContent, emptySet(), headers);
+        return performRequestAndParseEntity(bulkRequest, this::convertBulkRequest, BulkResponse::fromXContent, emptySet(), headers);
     }
 
     /**
@@ -246,7 +292,7 @@ public class RestHighLevelClient implements Closeable {
      * See <a href="https://www.elastic.co/guide/en/elasticsearch/reference/current/docs-bulk.html">Bulk API on elastic.co</a>
      */
     public final void bulkAsync(BulkRequest bulkRequest, ActionListener<BulkResponse> listener, Header... headers) {
-        performRequestAsyncAndParseEntity(bulkRequest, Request::bulk, BulkResponse::fromXContent, listener, emptySet(), headers);
+        performRequestAsyncAndParseEntity(bulkRequest, this::convertBulkRequest, BulkResponse::fromXContent, listener, emptySet(), headers);
     }
 
     /**
@@ -363,7 +409,7 @@ public class RestHighLevelClient implements Closeable {
      * See <a href="https://www.elastic.co/guide/en/elasticsearch/reference/current/search-search.html">Search API on elastic.co</a>
      */
     public final SearchResponse search(SearchRequest searchRequest, Header... headers) throws IOException {
-        return performRequestAndParseEntity(searchRequest, Request::search, SearchResponse::fromXContent, emptySet(), headers);
+        return performRequestAndParseEntity(searchRequest, this::convertSearchRequest, SearchResponse::fromXContent, emptySet(), headers);
     }
 
     /**
@@ -372,7 +418,8 @@ public class RestHighLevelClient implements Closeable {
      * See <a href="https://www.elastic.co/guide/en/elasticsearch/reference/current/search-search.html">Search API on elastic.co</a>
      */
     public final void searchAsync(SearchRequest searchRequest, ActionListener<SearchResponse> listener, Header... headers) {
-        performRequestAsyncAndParseEntity(searchRequest, Request::search, SearchResponse::fromXContent, listener, emptySet(), headers);
+        performRequestAsyncAndParseEntity(searchRequest, this::convertSearchRequest, SearchResponse::fromXContent, listener, emptySet(),
+                headers);
     }
 
     /**
@@ -382,7 +429,8 @@ public class RestHighLevelClient implements Closeable {
      * API on elastic.co</a>
      */
     public final SearchResponse searchScroll(SearchScrollRequest searchScrollRequest, Header... headers) throws IOException {
-        return performRequestAndParseEntity(searchScrollRequest, Request::searchScroll, SearchResponse::fromXContent, emptySet(), headers);
+        return performRequestAndParseEntity(searchScrollRequest, this::convertSearchScrollRequest, SearchResponse::fromXContent,
+                emptySet(), headers);
     }
 
     /**
@@ -393,7 +441,7 @@ public class RestHighLevelClient implements Closeable {
      */
     public final void searchScrollAsync(SearchScrollRequest searchScrollRequest,
                                         ActionListener<SearchResponse> listener, Header... headers) {
-        performRequestAsyncAndParseEntity(searchScrollRequest, Request::searchScroll, SearchResponse::fromXContent,
+        performRequestAsyncAndParseEntity(searchScrollRequest, this::convertSearchScrollRequest, SearchResponse::fromXContent,
                 listener, emptySet(), headers);
     }
 
@@ -404,7 +452,7 @@ public class RestHighLevelClient implements Closeable {
      * Clear Scroll API on elastic.co</a>
      */
     public final ClearScrollResponse clearScroll(ClearScrollRequest clearScrollRequest, Header... headers) throws IOException {
-        return performRequestAndParseEntity(clearScrollRequest, Request::clearScroll, ClearScrollResponse::fromXContent,
+        return performRequestAndParseEntity(clearScrollRequest, this::convertClearScrollRequest, ClearScrollResponse::fromXContent,
                 emptySet(), headers);
     }
 
@@ -416,7 +464,7 @@ public class RestHighLevelClient implements Closeable {
      */
     public final void clearScrollAsync(ClearScrollRequest clearScrollRequest,
                                        ActionListener<ClearScrollResponse> listener, Header... headers) {
-        performRequestAsyncAndParseEntity(clearScrollRequest, Request::clearScroll, ClearScrollResponse::fromXContent,
+        performRequestAsyncAndParseEntity(clearScrollRequest, this::convertClearScrollRequest, ClearScrollResponse::fromXContent,
                 listener, emptySet(), headers);
     }
 
@@ -438,7 +486,8 @@ public class RestHighLevelClient implements Closeable {
         Request req = requestConverter.apply(request);
         Response response;
         try {
-            response = client.performRequest(req.getMethod(), req.getEndpoint(), req.getParameters(), req.getEntity(), headers);
+            response = client.performRequest(req.getMethod(), req.getEndpoint(), req.getParameters(), req.getEntity(),
+                withAcceptHeader(headers));
         } catch (ResponseException e) {
             if (ignores.contains(e.getResponse().getStatusLine().getStatusCode())) {
                 try {
@@ -487,7 +536,43 @@ public class RestHighLevelClient implements Closeable {
         }
 
         ResponseListener responseListener = wrapResponseListener(responseConverter, listener, ignores);
-        client.performRequestAsync(req.getMethod(), req.getEndpoint(), req.getParameters(), req.getEntity(), responseListener, headers);
+        client.performRequestAsync(req.getMethod(), req.getEndpoint(), req.getParameters(), req.getEntity(), responseListener,
+            withAcceptHeader(headers));
+    }
+
+    private Request convertSearchRequest(SearchRequest searchRequest) throws IOException {
+        return Request.search(searchRequest, xContentType);
+    }
+
+    private Request convertSearchScrollRequest(SearchScrollRequest searchScrollRequest) throws IOException {
+        return Request.searchScroll(searchScrollRequest, xContentType);
+    }
+
+    private Request convertClearScrollRequest(ClearScrollRequest clearScrollRequest) throws IOException {
+        return Request.clearScroll(clearScrollRequest, xContentType);
+    }
+
+    private Request convertBulkRequest(BulkRequest bulkRequest) throws IOException {
+        // SMILE is the only binary format supported by the bulk api, documents are re-encoded to it
+        return Request.bulk(bulkRequest, xContentType == XContentType.SMILE ? XContentType.SMILE : null);
+    }
+
+    /**
+     * Adds the {@code Accept} header that asks for the configured content type, unless provided headers already contain one
+     */
+    private Header[] withAcceptHeader(Header[] headers) {
+        if (acceptHeader == null) {
+            return headers;
+        }
+        Objects.requireNonNull(headers, "request headers must not be null");
+        for (Header header : headers) {
+            if (HttpHeaders.ACCEPT.equalsIgnoreCase(header.getName())) {
+                return headers;
+            }
+        }
+        Header[] withAcceptHeader = Arrays.copyOf(headers, headers.length + 1);
+        withAcceptHeader[headers.length] = acceptHeader;
+        return withAcceptHeader;
     }
 
     final <Resp> ResponseListener wrapResponseListener(CheckedFunction<Response, Resp, IOException> responseConverter,
@@ -610,6 +695,7 @@ public class RestHighLevelClient implements Closeable {
         map.put(GlobalAggregationBuilder.NAME, (p, c) -> ParsedGlobal.fromXContent(p, (String) c));
         map.put(FilterAggregationBuilder.NAME, (p, c) -> ParsedFilter.fromXContent(p, (String) c));
         map.put(InternalSampler.PARSER_NAME, (p, c) -> ParsedSampler.fromXContent(p, (String) c));
+        map.put(RandomSamplerAggregationBuilder.NAME, (p, c) -> ParsedRandomSampler.fromXContent(p, (String) c));
         map.put(GeoGridAggregationBuilder.NAME, (p, c) -> ParsedGeoHashGrid.fromXContent(p, (String) c));
         map.put(RangeAggregationBuilder.NAME, (p, c) -> ParsedRange.fromXContent(p, (String) c));
         map.put(DateRangeAggregationBuilder.NAME, (p, c) -> ParsedDateRange.fromXContent(p, (String) c));
@@ -665,6 +665,47 @@ public class RequestTests extends ESTestCase {
         }
     }
 
+    public void testBulkWithExplicitContentType() throws IOException {
+        {
+            BulkRequest bulkRequest = new BulkRequest();
+            bulkRequest.add(new IndexRequest("index", "type", "0").source(singletonMap("field", "value"), XContentType.SMILE));
+            bulkRequest.add(new DeleteRequest("index", "type", "1"));
+            bulkRequest.add(new IndexRequest("index", "type", "2").source(singletonMap("field", "value"), XContentType.JSON));
+            bulkRequest.add(new UpdateRequest("index", "type", "3")
+                    .doc(new IndexRequest().source(singletonMap("field", "value"), XContentType.CBOR)));
+
+            XContentType xContentType = randomFrom(XContentType.JSON, XContentType.SMILE);
+            Request request = Request.bulk(bulkRequest, xContentType);
+            assertEquals(xContentType.mediaTypeWithoutParameters(), request.getEntity().getContentType().getValue());
+
+            byte[] content = EntityUtils.toByteArray(request.getEntity());
+            byte separator = xContentType.xContent().streamSeparator();
+            int lines = 0;
+            for (byte b : content) {
+                if (b == separator) {
+                    lines++;
+                }
+            }
+            // one action line per request plus one source line per index and update request
+            assertEquals(7, lines);
+            BulkRequest parsedBulkRequest = new BulkRequest();
+            parsedBulkRequest.add(content, 0, content.length, xContentType);
+            assertEquals(bulkRequest.numberOfActions(), parsedBulkRequest.numberOfActions());
+            IndexRequest parsedIndexRequest = (IndexRequest) parsedBulkRequest.requests().get(0);
+            assertEquals(xContentType, parsedIndexRequest.getContentType());
+            assertEquals(singletonMap("field", "value"), parsedIndexRequest.sourceAsMap());
+        }
+        {
+            XContentType xContentType = randomFrom(XContentType.CBOR, XContentType.YAML);
+            BulkRequest bulkRequest = new BulkRequest();
+            bulkRequest.add(new DeleteRequest("index", "type", "0"));
+            IllegalArgumentException exception = expectThrows(IllegalArgumentException.class,
+                    () -> Request.bulk(bulkRequest, xContentType));
+            assertEquals("Unsupported content-type [" + xContentType + "] for bulk requests, only JSON and SMILE are supported",
+                    exception.getMessage());
+        }
+    }
+
     public void testSearch() throws Exception {
         SearchRequest searchRequest = new SearchRequest();
         int numIndices = randomIntBetween(0, 5);
@@ -799,9 +840,40 @@ public class RequestTests extends ESTestCase {
         assertEquals(Request.REQUEST_BODY_CONTENT_TYPE.mediaTypeWithoutParameters(), request.getEntity().getContentType().getValue());
     }
 
+    public void testSearchWithContentType() throws IOException {
+        XContentType xContentType = randomFrom(XContentType.values());
+        SearchSourceBuilder searchSourceBuilder = new SearchSourceBuilder();
+        searchSourceBuilder.size(randomIntBetween(0, Integer.MAX_VALUE));
+        searchSourceBuilder.query(new TermQueryBuilder(randomAlphaOfLengthBetween(3, 10), randomAlphaOfLengthBetween(3, 10)));
+        SearchRequest searchRequest = new SearchRequest().source(searchSourceBuilder);
+        Request request = Request.search(searchRequest, xContentType);
+        assertToXContentBody(searchSourceBuilder, xContentType, request.getEntity());
+    }
+
+    public void testSearchScrollWithContentType() throws IOException {
+        XContentType xContentType = randomFrom(XContentType.values());
+        SearchScrollRequest searchScrollRequest = new SearchScrollRequest(randomAlphaOfLengthBetween(5, 10));
+        searchScrollRequest.scroll(randomPositiveTimeValue());
+        Request request = Request.searchScroll(searchScrollRequest, xContentType);
+        assertToXContentBody(searchScrollRequest, xContentType, request.getEntity());
+    }
+
+    public void testClearScrollWithContentType() throws IOException {
+        XContentType xContentType = randomFrom(XContentType.values());
+        ClearScrollRequest clearScrollRequest = new ClearScrollRequest();
+        clearScrollRequest.addScrollId(randomAlphaOfLengthBetween(5, 10));
+        Request request = Request.clearScroll(clearScrollRequest, xContentType);
+        assertToXContentBody(clearScrollRequest, xContentType, request.getEntity());
+    }
+
     private static void assertToXContentBody(ToXContent expectedBody, HttpEntity actualEntity) throws IOException {
-        BytesReference expectedBytes = XContentHelper.toXContent(expectedBody, Request.REQUEST_BODY_CONTENT_TYPE, false);
-        assertEquals(XContentType.JSON.mediaTypeWithoutParameters(), actualEntity.getContentType().getValue());
+        assertToXContentBody(expectedBody, Request.REQUEST_BODY_CONTENT_TYPE, actualEntity);
+    }
+
+    private static void assertToXContentBody(ToXContent expectedBody, XContentType xContentType,
+                                             HttpEntity actualEntity) throws IOException {
+        BytesReference expectedBytes = XContentHelper.toXContent(expectedBody, xContentType, false);
+        assertEquals(xContentType.mediaTypeWithoutParameters(), actualEntity.getContentType().getValue());
         assertEquals(expectedBytes, new BytesArray(EntityUtils.toByteArray(actualEntity)));
     }
 
@@ -37,6 +37,7 @@ import org.elasticsearch.action.search.SearchScrollRequest;
 import org.elasticsearch.action.search.ShardSearchFailure;
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
 import org.apache.http.HttpHost;
 import org.apache.http.HttpResponse;
 import org.apache.http.ProtocolVersion;
@@ -45,6 +46,7 @@ import org.apache.http.StatusLine;
 import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHeader;
 import org.apache.http.message.BasicHttpResponse;
 import org.apache.http.message.BasicRequestLine;
 import org.apache.http.message.BasicStatusLine;
@@ -55,6 +57,7 @@ import org.elasticsearch.common.xcontent.NamedXContentRegistry;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.common.xcontent.cbor.CborXContent;
 import org.elasticsearch.common.xcontent.smile.SmileXContent;
 import org.elasticsearch.join.aggregations.ChildrenAggregationBuilder;
@@ -74,6 +77,7 @@ import org.mockito.internal.matchers.VarargMatcher;
 import java.io.IOException;
 import java.net.SocketTimeoutException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -191,6 +195,40 @@ public class RestHighLevelClientTests extends ESTestCase {
                 isNotNull(HttpEntity.class), argThat(new HeadersVarargMatcher(headers)));
     }
 
+    public void testUnsupportedContentType() {
+        XContentType xContentType = XContentType.YAML;
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+                () -> new RestHighLevelClient(restClient, RestClient::close, Collections.emptyList(), xContentType));
+        assertEquals("Unsupported content-type [YAML], only JSON, SMILE and CBOR are supported", e.getMessage());
+    }
+
+    public void testAcceptHeader() throws IOException {
+        XContentType xContentType = randomFrom(XContentType.SMILE, XContentType.CBOR);
+        RestHighLevelClient binaryClient = new RestHighLevelClient(restClient, RestClient::close, Collections.emptyList(), xContentType);
+        assertEquals(xContentType, binaryClient.getXContentType());
+        Header[] headers = randomHeaders(random(), "Header");
+        Response response = mock(Response.class);
+        when(response.getStatusLine()).thenReturn(newStatusLine(RestStatus.OK));
+        when(restClient.performRequest(anyString(), anyString(), anyMapOf(String.class, String.class),
+                anyObject(), anyVararg())).thenReturn(response);
+        assertTrue(binaryClient.ping(headers));
+        verify(restClient).performRequest(eq("HEAD"), eq("/"), eq(Collections.emptyMap()),
+                isNull(HttpEntity.class), argThat(new AcceptHeaderVarargMatcher(xContentType, headers)));
+    }
+
+    public void testAcceptHeaderNotOverridden() throws IOException {
+        RestHighLevelClient binaryClient = new RestHighLevelClient(restClient, RestClient::close, Collections.emptyList(),
+                XContentType.SMILE);
+        Header[] headers = new Header[] {new BasicHeader(HttpHeaders.ACCEPT, XContentType.JSON.mediaTypeWithoutParameters())};
+        Response response = mock(Response.class);
+        when(response.getStatusLine()).thenReturn(newStatusLine(RestStatus.OK));
+        when(restClient.performRequest(anyString(), anyString(), anyMapOf(String.class, String.class),
+                anyObject(), anyVararg())).thenReturn(response);
+        assertTrue(binaryClient.ping(headers));
+        verify(restClient).performRequest(eq("HEAD"), eq("/"), eq(Collections.emptyMap()),
+                isNull(HttpEntity.class), argThat(new HeadersVarargMatcher(headers)));
+    }
+
     private void mockResponse(ToXContent toXContent) throws IOException {
         Response response = mock(Response.class);
         ContentType contentType = ContentType.parse(Request.REQUEST_BODY_CONTENT_TYPE.mediaType());
@@ -695,6 +733,31 @@ public class RestHighLevelClientTests extends ESTestCase {
         }
     }
 
+    private static class AcceptHeaderVarargMatcher extends ArgumentMatcher<Header[]> implements VarargMatcher {
+        private final XContentType xContentType;
+        private final Header[] expectedHeaders;
+
+        AcceptHeaderVarargMatcher(XContentType xContentType, Header... expectedHeaders) {
+            this.xContentType = xContentType;
+            this.expectedHeaders = expectedHeaders;
+        }
+
+        @Override
+        public boolean matches(Object varargArgument) {
+            if (varargArgument instanceof Header[]) {
+                Header[] actualHeaders = (Header[]) varargArgument;
+                if (actualHeaders.length != expectedHeaders.length + 1) {
+                    return false;
+                }
+                Header acceptHeader = actualHeaders[expectedHeaders.length];
+                return new ArrayEquals(expectedHeaders).matches(Arrays.copyOf(actualHeaders, expectedHeaders.length))
+                        && HttpHeaders.ACCEPT.equals(acceptHeader.getName())
+                        && xContentType.mediaTypeWithoutParameters().equals(acceptHeader.getValue());
+            }
+            return false;
+        }
+    }
+
     private static StatusLine newStatusLine(RestStatus restStatus) {
         return new BasicStatusLine(HTTP_PROTOCOL, restStatus.getStatus(), restStatus.name());
     }
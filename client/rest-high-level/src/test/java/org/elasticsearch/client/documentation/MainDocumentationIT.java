@@ -27,6 +27,7 @@ import org.elasticsearch.client.ESRestHighLevelClientTestCase;
 import org.elasticsearch.client.RestClient;
 import org.elasticsearch.client.RestHighLevelClient;
 import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.common.xcontent.XContentType;
 
 import java.io.IOException;
 
@@ -80,4 +81,14 @@ public class MainDocumentationIT extends ESRestHighLevelClientTestCase {
         client.close();
         //end::rest-high-level-client-close
     }
+
+    public void testInitializationWithContentType() throws IOException {
+        //tag::rest-high-level-client-init-content-type
+        RestHighLevelClient client = new RestHighLevelClient(
+                RestClient.builder(new HttpHost("localhost", 9200, "http")),
+                XContentType.SMILE); // <1>
+        //end::rest-high-level-client-init-content-type
+        assertEquals(XContentType.SMILE, client.getXContentType());
+        client.close();
+    }
 }
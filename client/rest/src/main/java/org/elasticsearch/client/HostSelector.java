@@ -0,0 +1,59 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.client;
+
+import org.apache.http.HttpHost;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decides the order in which the hosts that are currently considered alive are tried for a request. The first host returned is
+ * the one the request is sent to, the following ones are used in order to retry the request in case of failures.
+ * Set through {@link RestClientBuilder#setHostSelector(HostSelector)}.
+ */
+public interface HostSelector {
+
+    /**
+     * Default selector that uses the hosts in the order they are provided, which rotates them in a round-robin fashion.
+     */
+    HostSelector ROUND_ROBIN = new HostSelector() {
+        @Override
+        public List<HttpHost> select(List<HttpHost> hosts, Map<HttpHost, HostStats> hostStats) {
+            return hosts;
+        }
+
+        @Override
+        public String toString() {
+            return "ROUND_ROBIN";
+        }
+    };
+
+    /**
+     * Orders the provided hosts.
+     *
+     * @param hosts the hosts that are currently alive, never empty, rotated in a round-robin fashion at each invocation
+     * @param hostStats the current load statistics of the hosts, the statistics of a host may be missing if it never received
+     *                  any request
+     * @return the hosts to try in order, must not be empty
+     */
+    List<HttpHost> select(List<HttpHost> hosts, Map<HttpHost, HostStats> hostStats);
+}
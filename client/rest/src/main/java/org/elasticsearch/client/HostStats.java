@@ -0,0 +1,129 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.client;
+
+import org.apache.http.HttpHost;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load statistics of a single host, maintained by {@link RestClient} for each of the hosts it sends requests to.
+ * Keeps track of the requests currently in flight to the host and of an exponentially weighted moving average (EWMA)
+ * of the time it takes for the host to answer them. Can be read concurrently while being updated.
+ */
+public final class HostStats {
+
+    /**
+     * Weight given to each new latency sample, the higher the value the quicker the average reacts to changes.
+     */
+    static final double EWMA_ALPHA = 0.3;
+
+    private static final long NO_LATENCY = Double.doubleToLongBits(-1d);
+
+    private final HttpHost host;
+    private final AtomicInteger inFlightRequests = new AtomicInteger();
+    private final AtomicLong completedRequests = new AtomicLong();
+    private final AtomicLong failedRequests = new AtomicLong();
+    private final AtomicLong latencyEwmaNanosBits = new AtomicLong(NO_LATENCY);
+
+    HostStats(HttpHost host) {
+        this.host = host;
+    }
+
+    /**
+     * Called when a request is sent to the host.
+     */
+    void onRequestStart() {
+        inFlightRequests.incrementAndGet();
+    }
+
+    /**
+     * Called when a request sent to the host completes, either successfully or not.
+     * Only responses contribute to the latency average, as failures may have been returned well before any timeout.
+     */
+    void onRequestEnd(long tookNanos, boolean success) {
+        inFlightRequests.decrementAndGet();
+        if (success) {
+            completedRequests.incrementAndGet();
+            while (true) {
+                long currentBits = latencyEwmaNanosBits.get();
+                double current = Double.longBitsToDouble(currentBits);
+                double updated = current < 0 ? tookNanos : EWMA_ALPHA * tookNanos + (1 - EWMA_ALPHA) * current;
+                if (latencyEwmaNanosBits.compareAndSet(currentBits, Double.doubleToLongBits(updated))) {
+                    break;
+                }
+            }
+        } else {
+            failedRequests.incrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the host these statistics refer to.
+     */
+    public HttpHost getHost() {
+        return host;
+    }
+
+    /**
+     * Returns the number of requests that have been sent to the host and not completed yet.
+     */
+    public int getInFlightRequests() {
+        return inFlightRequests.get();
+    }
+
+    /**
+     * Returns the number of requests that the host answered with a response.
+     */
+    public long getCompletedRequests() {
+        return completedRequests.get();
+    }
+
+    /**
+     * Returns the number of requests that failed against the host, which includes the responses with a status code that
+     * caused the request to be retried on another host.
+     */
+    public long getFailedRequests() {
+        return failedRequests.get();
+    }
+
+    /**
+     * Returns the moving average of the response time of the host in nanoseconds, or a negative value if the host has not
+     * returned any response yet.
+     */
+    public double getLatencyEwmaNanos() {
+        return Double.longBitsToDouble(latencyEwmaNanosBits.get());
+    }
+
+    @Override
+    public String toString() {
+        double latencyEwmaNanos = getLatencyEwmaNanos();
+        return "HostStats{" +
+                "host=" + host +
+                ", inFlightRequests=" + getInFlightRequests() +
+                ", completedRequests=" + getCompletedRequests() +
+                ", failedRequests=" + getFailedRequests() +
+                ", latencyEwmaMillis=" + (latencyEwmaNanos < 0 ? "n/a" : latencyEwmaNanos / TimeUnit.MILLISECONDS.toNanos(1)) +
+                '}';
+    }
+}
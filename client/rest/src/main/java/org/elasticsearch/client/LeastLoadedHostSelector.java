@@ -0,0 +1,129 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.client;
+
+import org.apache.http.HttpHost;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link HostSelector} that sends each request to the least loaded host, which is the one with the lowest
+ * number of requests in flight weighted by the moving average of its response time (see {@link HostStats}). Hosts that have not
+ * returned any response yet are assumed to be as fast as the fastest known host, so that they get probed.
+ * <p>
+ * Optionally, a set of preferred hosts can be provided, in which case the preferred hosts are always tried before the
+ * other ones, the load being only used to order hosts within each group. This is typically used to send search traffic to
+ * coordinating only nodes, see {@code ElasticsearchHostsSniffer#sniffHostsAndRoles()} for a way to find them. Requests fall back
+ * to the other hosts only when all the preferred ones are dead.
+ * <p>
+ * Ties are broken by the round-robin order of the hosts provided, so that equally loaded hosts share the load.
+ */
+public final class LeastLoadedHostSelector implements HostSelector {
+
+    private volatile Set<HttpHost> preferredHosts = Collections.emptySet();
+
+    /**
+     * Replaces the hosts that are tried first, may be called at any time, for instance every time the hosts are sniffed.
+     *
+     * @throws NullPointerException if {@code preferredHosts} is {@code null}
+     */
+    public void setPreferredHosts(Collection<HttpHost> preferredHosts) {
+        this.preferredHosts = Collections.unmodifiableSet(new HashSet<>(preferredHosts));
+    }
+
+    /**
+     * Returns the hosts that are tried first.
+     */
+    public Set<HttpHost> getPreferredHosts() {
+        return preferredHosts;
+    }
+
+    @Override
+    public List<HttpHost> select(List<HttpHost> hosts, Map<HttpHost, HostStats> hostStats) {
+        double fastestLatency = Double.MAX_VALUE;
+        for (HttpHost host : hosts) {
+            HostStats stats = hostStats.get(host);
+            if (stats != null) {
+                double latency = stats.getLatencyEwmaNanos();
+                if (latency >= 0) {
+                    fastestLatency = Math.min(fastestLatency, latency);
+                }
+            }
+        }
+        if (fastestLatency == Double.MAX_VALUE) {
+            // no response received so far, rely on the number of requests in flight only
+            fastestLatency = 1;
+        }
+        final Set<HttpHost> preferredHosts = this.preferredHosts;
+        // stats change concurrently, hence the scores are computed once upfront to keep the comparator consistent
+        List<ScoredHost> scoredHosts = new ArrayList<>(hosts.size());
+        for (HttpHost host : hosts) {
+            HostStats stats = hostStats.get(host);
+            double score;
+            if (stats == null) {
+                score = fastestLatency;
+            } else {
+                double latency = stats.getLatencyEwmaNanos();
+                score = (stats.getInFlightRequests() + 1) * (latency < 0 ? fastestLatency : Math.max(latency, 1));
+            }
+            scoredHosts.add(new ScoredHost(host, preferredHosts.contains(host), score));
+        }
+        // the sort is stable, equally loaded hosts keep their round-robin order
+        Collections.sort(scoredHosts, new Comparator<ScoredHost>() {
+            @Override
+            public int compare(ScoredHost o1, ScoredHost o2) {
+                if (o1.preferred != o2.preferred) {
+                    return o1.preferred ? -1 : 1;
+                }
+                return Double.compare(o1.score, o2.score);
+            }
+        });
+        List<HttpHost> selectedHosts = new ArrayList<>(scoredHosts.size());
+        for (ScoredHost scoredHost : scoredHosts) {
+            selectedHosts.add(scoredHost.host);
+        }
+        return selectedHosts;
+    }
+
+    @Override
+    public String toString() {
+        return "LeastLoadedHostSelector{preferredHosts=" + preferredHosts + '}';
+    }
+
+    private static final class ScoredHost {
+        private final HttpHost host;
+        private final boolean preferred;
+        private final double score;
+
+        ScoredHost(HttpHost host, boolean preferred, double score) {
+            this.host = host;
+            this.preferred = preferred;
+            this.score = score;
+        }
+    }
+}
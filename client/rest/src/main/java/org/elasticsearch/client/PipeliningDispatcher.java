@@ -0,0 +1,298 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.client;
+
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.client.CloseableHttpPipeliningClient;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.protocol.HttpAsyncRequestProducer;
+import org.apache.http.nio.protocol.HttpAsyncResponseConsumer;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Sends requests through a {@link CloseableHttpPipeliningClient}. Requests to the same host are queued and sent in batches, each batch
+ * over a single connection without waiting for the responses to the earlier requests of the batch. At most
+ * {@code maxConnectionsPerHost} batches are sent to a host at the same time, so that every batch gets a connection without waiting
+ * for the pool. Requests that arrive while all connections are busy wait in the queue of their host and are pipelined together
+ * onto the next connection that frees up. At most {@code maxInFlightRequestsPerHost} requests are in flight per host at any time.
+ * Each request is notified as soon as its own response has been consumed, rather than when the whole batch has completed.
+ */
+final class PipeliningDispatcher {
+
+    private final CloseableHttpPipeliningClient client;
+    private final RequestConfig requestConfig;
+    private final int maxConnectionsPerHost;
+    private final int maxInFlightRequestsPerHost;
+    private final int maxPipelinedRequestsPerConnection;
+    private final ConcurrentMap<HttpHost, HostQueue> queues = new ConcurrentHashMap<>();
+
+    PipeliningDispatcher(CloseableHttpPipeliningClient client, RequestConfig requestConfig, int maxConnectionsPerHost,
+                         int maxInFlightRequestsPerHost, int maxPipelinedRequestsPerConnection) {
+        this.client = client;
+        this.requestConfig = requestConfig;
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        this.maxInFlightRequestsPerHost = maxInFlightRequestsPerHost;
+        this.maxPipelinedRequestsPerConnection = maxPipelinedRequestsPerConnection;
+    }
+
+    /**
+     * Queues the request for the given host and sends it once a connection to that host is available and the number of requests
+     * in flight to that host allows for it.
+     */
+    void execute(HttpHost host, HttpAsyncRequestProducer requestProducer, HttpAsyncResponseConsumer<HttpResponse> responseConsumer,
+                 HttpClientContext context, FutureCallback<HttpResponse> callback) {
+        HostQueue queue = queues.get(host);
+        if (queue == null) {
+            HostQueue newQueue = new HostQueue(host);
+            queue = queues.putIfAbsent(host, newQueue);
+            if (queue == null) {
+                queue = newQueue;
+            }
+        }
+        queue.add(new PendingRequest(queue, requestProducer, responseConsumer, context, callback));
+    }
+
+    /**
+     * Returns the number of requests to the given host that have been sent but not completed yet. Package private for testing.
+     */
+    int inFlightRequests(HttpHost host) {
+        HostQueue queue = queues.get(host);
+        return queue == null ? 0 : queue.inFlightRequests();
+    }
+
+    /**
+     * Returns the number of batches, and so of connections, to the given host that have not completed yet. Package private for
+     * testing.
+     */
+    int inFlightBatches(HttpHost host) {
+        HostQueue queue = queues.get(host);
+        return queue == null ? 0 : queue.inFlightBatches();
+    }
+
+    private final class HostQueue {
+
+        private final HttpHost host;
+        private final Deque<PendingRequest> queued = new ArrayDeque<>();
+        private int inFlight;
+        private int batches;
+
+        HostQueue(HttpHost host) {
+            this.host = host;
+        }
+
+        void add(PendingRequest request) {
+            synchronized (this) {
+                queued.add(request);
+            }
+            dispatch();
+        }
+
+        void onCompleted() {
+            synchronized (this) {
+                inFlight--;
+            }
+            dispatch();
+        }
+
+        void onBatchCompleted() {
+            synchronized (this) {
+                batches--;
+            }
+            dispatch();
+        }
+
+        synchronized int inFlightRequests() {
+            return inFlight;
+        }
+
+        synchronized int inFlightBatches() {
+            return batches;
+        }
+
+        private void dispatch() {
+            while (true) {
+                final List<PendingRequest> batch;
+                synchronized (this) {
+                    int available = Math.min(maxInFlightRequestsPerHost - inFlight, maxPipelinedRequestsPerConnection);
+                    if (batches >= maxConnectionsPerHost || available <= 0 || queued.isEmpty()) {
+                        return;
+                    }
+                    batch = new ArrayList<>(Math.min(available, queued.size()));
+                    while (batch.size() < available && queued.isEmpty() == false) {
+                        batch.add(queued.poll());
+                    }
+                    inFlight += batch.size();
+                    batches++;
+                }
+                send(batch);
+            }
+        }
+
+        private void send(final List<PendingRequest> batch) {
+            List<HttpAsyncRequestProducer> requestProducers = new ArrayList<>(batch.size());
+            for (PendingRequest request : batch) {
+                requestProducers.add(request.requestProducer);
+            }
+            HttpClientContext context = batch.get(0).context;
+            context.setRequestConfig(requestConfig);
+            try {
+                client.execute(host, requestProducers, batch, context, new FutureCallback<List<HttpResponse>>() {
+                    @Override
+                    public void completed(List<HttpResponse> result) {
+                        // every request was notified when its own response was consumed
+                        for (PendingRequest request : batch) {
+                            request.onFailure(new IllegalStateException("no response was received"));
+                        }
+                        onBatchCompleted();
+                    }
+
+                    @Override
+                    public void failed(Exception ex) {
+                        for (PendingRequest request : batch) {
+                            request.onFailure(ex);
+                        }
+                        onBatchCompleted();
+                    }
+
+                    @Override
+                    public void cancelled() {
+                        for (PendingRequest request : batch) {
+                            request.onCancelled();
+                        }
+                        onBatchCompleted();
+                    }
+                });
+            } catch (RuntimeException e) {
+                for (PendingRequest request : batch) {
+                    request.onFailure(e);
+                }
+                onBatchCompleted();
+            }
+        }
+    }
+
+    /**
+     * A queued request, which also consumes its response on behalf of the consumer it was submitted with so that it can notify the
+     * caller as soon as the response is complete.
+     */
+    private static final class PendingRequest implements HttpAsyncResponseConsumer<HttpResponse> {
+
+        private final HostQueue queue;
+        private final HttpAsyncRequestProducer requestProducer;
+        private final HttpAsyncResponseConsumer<HttpResponse> responseConsumer;
+        private final HttpClientContext context;
+        private final FutureCallback<HttpResponse> callback;
+        private final AtomicBoolean completed = new AtomicBoolean();
+
+        PendingRequest(HostQueue queue, HttpAsyncRequestProducer requestProducer, HttpAsyncResponseConsumer<HttpResponse> responseConsumer,
+                       HttpClientContext context, FutureCallback<HttpResponse> callback) {
+            this.queue = queue;
+            this.requestProducer = requestProducer;
+            this.responseConsumer = responseConsumer;
+            this.context = context;
+            this.callback = callback;
+        }
+
+        @Override
+        public void responseReceived(HttpResponse response) throws IOException, HttpException {
+            responseConsumer.responseReceived(response);
+        }
+
+        @Override
+        public void consumeContent(ContentDecoder decoder, IOControl ioctrl) throws IOException {
+            responseConsumer.consumeContent(decoder, ioctrl);
+        }
+
+        @Override
+        public void responseCompleted(HttpContext context) {
+            responseConsumer.responseCompleted(context);
+            if (completed.compareAndSet(false, true)) {
+                queue.onCompleted();
+                Exception exception = responseConsumer.getException();
+                if (exception == null) {
+                    callback.completed(responseConsumer.getResult());
+                } else {
+                    callback.failed(exception);
+                }
+            }
+        }
+
+        @Override
+        public void failed(Exception ex) {
+            responseConsumer.failed(ex);
+            onFailure(ex);
+        }
+
+        void onFailure(Exception ex) {
+            if (completed.compareAndSet(false, true)) {
+                queue.onCompleted();
+                callback.failed(ex);
+            }
+        }
+
+        void onCancelled() {
+            if (completed.compareAndSet(false, true)) {
+                queue.onCompleted();
+                callback.cancelled();
+            }
+        }
+
+        @Override
+        public Exception getException() {
+            return responseConsumer.getException();
+        }
+
+        @Override
+        public HttpResponse getResult() {
+            return responseConsumer.getResult();
+        }
+
+        @Override
+        public boolean isDone() {
+            return responseConsumer.isDone();
+        }
+
+        @Override
+        public void close() throws IOException {
+            responseConsumer.close();
+        }
+
+        @Override
+        public boolean cancel() {
+            return responseConsumer.cancel();
+        }
+    }
+}
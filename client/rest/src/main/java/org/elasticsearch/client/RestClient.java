@@ -78,13 +78,16 @@ import java.util.concurrent.atomic.AtomicReference;
  * by calling {@link #setHosts(HttpHost...)}.
  * <p>
  * The method {@link #performRequest(String, String, Map, HttpEntity, Header...)} allows to send a request to the cluster. When
- * sending a request, a host gets selected out of the provided ones in a round-robin fashion. Failing hosts are marked dead and
+ * sending a request, a host gets selected out of the provided ones in a round-robin fashion, unless a different
+ * {@link HostSelector} is configured through {@link RestClientBuilder#setHostSelector(HostSelector)}. Failing hosts are marked dead and
  * retried after a certain amount of time (minimum 1 minute, maximum 30 minutes), depending on how many times they previously
  * failed (the more failures, the later they will be retried). In case of failures all of the alive nodes (or dead nodes that
  * deserve a retry) are retried until one responds or none of them does, in which case an {@link IOException} will be thrown.
  * <p>
  * Requests can be either synchronous or asynchronous. The asynchronous variants all end with {@code Async}.
  * <p>
+ * Requests can optionally be sent using HTTP pipelining, see {@link RestClientBuilder#setPipelining(boolean)}.
+ * <p>
  * Requests can be traced by enabling trace logging for "tracer". The trace logger outputs requests and responses in curl format.
  */
 public class RestClient implements Closeable {
@@ -100,11 +103,22 @@ public class RestClient implements Closeable {
     private final AtomicInteger lastHostIndex = new AtomicInteger(0);
     private volatile HostTuple<Set<HttpHost>> hostTuple;
     private final ConcurrentMap<HttpHost, DeadHostState> blacklist = new ConcurrentHashMap<>();
+    private final ConcurrentMap<HttpHost, HostStats> hostStats = new ConcurrentHashMap<>();
     private final FailureListener failureListener;
+    private final PipeliningDispatcher pipeliningDispatcher;
+    private final HostSelector hostSelector;
 
     RestClient(CloseableHttpAsyncClient client, long maxRetryTimeoutMillis, Header[] defaultHeaders,
                HttpHost[] hosts, String pathPrefix, FailureListener failureListener) {
+        this(client, maxRetryTimeoutMillis, defaultHeaders, hosts, pathPrefix, failureListener, null, HostSelector.ROUND_ROBIN);
+    }
+
+    RestClient(CloseableHttpAsyncClient client, long maxRetryTimeoutMillis, Header[] defaultHeaders,
+               HttpHost[] hosts, String pathPrefix, FailureListener failureListener, PipeliningDispatcher pipeliningDispatcher,
+               HostSelector hostSelector) {
         this.client = client;
+        this.pipeliningDispatcher = pipeliningDispatcher;
+        this.hostSelector = hostSelector;
         this.maxRetryTimeoutMillis = maxRetryTimeoutMillis;
         this.defaultHeaders = Collections.unmodifiableList(Arrays.asList(defaultHeaders));
         this.failureListener = failureListener;
@@ -137,6 +151,17 @@ public class RestClient implements Closeable {
         }
         this.hostTuple = new HostTuple<>(Collections.unmodifiableSet(httpHosts), authCache);
         this.blacklist.clear();
+        // keep the statistics of the hosts that are still there, requests in flight to removed hosts update detached stats
+        this.hostStats.keySet().retainAll(httpHosts);
+    }
+
+    /**
+     * Returns the load statistics of the hosts that the client sent requests to, keyed by host. The returned map is a read-only
+     * view, its values are updated as requests are performed.
+     * @see HostStats
+     */
+    public Map<HttpHost, HostStats> getHostStats() {
+        return Collections.unmodifiableMap(hostStats);
     }
 
     /**
@@ -337,18 +362,21 @@ public class RestClient implements Closeable {
                                      final HttpAsyncResponseConsumerFactory httpAsyncResponseConsumerFactory,
                                      final FailureTrackingResponseListener listener) {
         final HttpHost host = hostTuple.hosts.next();
+        final HostStats stats = getOrCreateHostStats(host);
         //we stream the request body if the entity allows for it
         final HttpAsyncRequestProducer requestProducer = HttpAsyncMethods.create(host, request);
         final HttpAsyncResponseConsumer<HttpResponse> asyncResponseConsumer =
             httpAsyncResponseConsumerFactory.createHttpAsyncResponseConsumer();
         final HttpClientContext context = HttpClientContext.create();
         context.setAuthCache(hostTuple.authCache);
-        client.execute(requestProducer, asyncResponseConsumer, context, new FutureCallback<HttpResponse>() {
+        final long attemptStartTime = System.nanoTime();
+        final FutureCallback<HttpResponse> callback = new FutureCallback<HttpResponse>() {
             @Override
             public void completed(HttpResponse httpResponse) {
+                int statusCode = httpResponse.getStatusLine().getStatusCode();
+                stats.onRequestEnd(System.nanoTime() - attemptStartTime, isRetryStatus(statusCode) == false);
                 try {
                     RequestLogger.logResponse(logger, request, host, httpResponse);
-                    int statusCode = httpResponse.getStatusLine().getStatusCode();
                     Response response = new Response(request.getRequestLine(), host, httpResponse);
                     if (isSuccessfulResponse(statusCode) || ignoreErrorCodes.contains(response.getStatusLine().getStatusCode())) {
                         onResponse(host);
@@ -372,6 +400,7 @@ public class RestClient implements Closeable {
 
             @Override
             public void failed(Exception failure) {
+                stats.onRequestEnd(System.nanoTime() - attemptStartTime, false);
                 try {
                     RequestLogger.logFailedRequest(logger, request, host, failure);
                     onFailure(host);
@@ -402,9 +431,22 @@ public class RestClient implements Closeable {
 
             @Override
             public void cancelled() {
+                stats.onRequestEnd(System.nanoTime() - attemptStartTime, false);
                 listener.onDefinitiveFailure(new ExecutionException("request was cancelled", null));
             }
-        });
+        };
+        stats.onRequestStart();
+        try {
+            if (pipeliningDispatcher == null) {
+                client.execute(requestProducer, asyncResponseConsumer, context, callback);
+            } else {
+                pipeliningDispatcher.execute(host, requestProducer, asyncResponseConsumer, context, callback);
+            }
+        } catch (RuntimeException e) {
+            //the callback won't be notified, e.g. when the client is already closed
+            stats.onRequestEnd(System.nanoTime() - attemptStartTime, false);
+            throw e;
+        }
     }
 
     private void setHeaders(HttpRequest httpRequest, Header[] requestHeaders) {
@@ -458,12 +500,27 @@ public class RestClient implements Closeable {
             } else {
                 List<HttpHost> rotatedHosts = new ArrayList<>(filteredHosts);
                 Collections.rotate(rotatedHosts, rotatedHosts.size() - lastHostIndex.getAndIncrement());
-                nextHosts = rotatedHosts;
+                nextHosts = hostSelector.select(Collections.unmodifiableList(rotatedHosts), getHostStats());
+                if (nextHosts == null || nextHosts.isEmpty()) {
+                    throw new IllegalStateException("host selector [" + hostSelector + "] returned no hosts out of " + rotatedHosts);
+                }
             }
         } while(nextHosts.isEmpty());
         return new HostTuple<>(nextHosts.iterator(), hostTuple.authCache);
     }
 
+    private HostStats getOrCreateHostStats(HttpHost host) {
+        HostStats stats = hostStats.get(host);
+        if (stats == null) {
+            HostStats newStats = new HostStats(host);
+            stats = hostStats.putIfAbsent(host, newStats);
+            if (stats == null) {
+                stats = newStats;
+            }
+        }
+        return stats;
+    }
+
     /**
      * Called after each successful request call.
      * Receives as an argument the host that was used for the successful request.
@@ -25,8 +25,13 @@ import org.apache.http.client.config.RequestConfig;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.CloseableHttpPipeliningClient;
 import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
 import org.apache.http.nio.conn.SchemeIOSessionStrategy;
+import org.apache.http.nio.reactor.IOReactorException;
 
 import java.security.AccessController;
 import java.security.PrivilegedAction;
@@ -44,6 +49,7 @@ public final class RestClientBuilder {
     public static final int DEFAULT_CONNECTION_REQUEST_TIMEOUT_MILLIS = 500;
     public static final int DEFAULT_MAX_CONN_PER_ROUTE = 10;
     public static final int DEFAULT_MAX_CONN_TOTAL = 30;
+    public static final int DEFAULT_MAX_IN_FLIGHT_REQUESTS_PER_HOST = 100;
 
     private static final Header[] EMPTY_HEADERS = new Header[0];
 
@@ -54,6 +60,9 @@ public final class RestClientBuilder {
     private HttpClientConfigCallback httpClientConfigCallback;
     private RequestConfigCallback requestConfigCallback;
     private String pathPrefix;
+    private boolean pipelining = false;
+    private int maxInFlightRequestsPerHost = DEFAULT_MAX_IN_FLIGHT_REQUESTS_PER_HOST;
+    private HostSelector hostSelector = HostSelector.ROUND_ROBIN;
 
     /**
      * Creates a new builder instance and sets the hosts that the client will send requests to.
@@ -172,25 +181,95 @@ public final class RestClientBuilder {
         return this;
     }
 
+    /**
+     * Sets whether requests are sent using HTTP pipelining, {@code false} if not specified.
+     * <p>
+     * When enabled, requests to the same host are sent in batches, each batch over a single connection without waiting for the
+     * responses to the earlier requests of the batch. This allows for a high number of concurrent requests with far fewer
+     * connections than when each connection carries a single request at a time. The number of requests in flight per host is
+     * limited by {@link #setMaxInFlightRequestsPerHost(int)}, further requests are queued until earlier ones complete.
+     * <p>
+     * Pipelined requests are sent by a minimal http client that supports neither authentication nor content decompression, and
+     * that can not be customized through {@link #setHttpClientConfigCallback(HttpClientConfigCallback)}.
+     */
+    public RestClientBuilder setPipelining(boolean pipelining) {
+        this.pipelining = pipelining;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of requests that can be in flight to a single host when pipelining is enabled.
+     * {@link #DEFAULT_MAX_IN_FLIGHT_REQUESTS_PER_HOST} if not specified.
+     *
+     * @throws IllegalArgumentException if {@code maxInFlightRequestsPerHost} is not greater than 0
+     * @see #setPipelining(boolean)
+     */
+    public RestClientBuilder setMaxInFlightRequestsPerHost(int maxInFlightRequestsPerHost) {
+        if (maxInFlightRequestsPerHost <= 0) {
+            throw new IllegalArgumentException("maxInFlightRequestsPerHost must be greater than 0");
+        }
+        this.maxInFlightRequestsPerHost = maxInFlightRequestsPerHost;
+        return this;
+    }
+
+    /**
+     * Sets the {@link HostSelector} that decides which host each request is sent to among the ones that are alive.
+     * {@link HostSelector#ROUND_ROBIN} if not specified.
+     *
+     * @throws NullPointerException if {@code hostSelector} is {@code null}.
+     * @see LeastLoadedHostSelector
+     */
+    public RestClientBuilder setHostSelector(HostSelector hostSelector) {
+        Objects.requireNonNull(hostSelector, "hostSelector must not be null");
+        this.hostSelector = hostSelector;
+        return this;
+    }
+
     /**
      * Creates a new {@link RestClient} based on the provided configuration.
+     *
+     * @throws IllegalArgumentException if pipelining is enabled together with a {@link HttpClientConfigCallback}
      */
     public RestClient build() {
         if (failureListener == null) {
             failureListener = new RestClient.FailureListener();
         }
-        CloseableHttpAsyncClient httpClient = AccessController.doPrivileged(new PrivilegedAction<CloseableHttpAsyncClient>() {
-            @Override
-            public CloseableHttpAsyncClient run() {
-                return createHttpClient();
-            }
-        });
-        RestClient restClient = new RestClient(httpClient, maxRetryTimeout, defaultHeaders, hosts, pathPrefix, failureListener);
-        httpClient.start();
+        if (pipelining && httpClientConfigCallback != null) {
+            throw new IllegalArgumentException("httpClientConfigCallback is not supported when pipelining is enabled");
+        }
+        final RequestConfig requestConfig = createRequestConfig();
+        final RestClient restClient;
+        if (pipelining) {
+            CloseableHttpPipeliningClient httpClient = AccessController.doPrivileged(
+                new PrivilegedAction<CloseableHttpPipeliningClient>() {
+                    @Override
+                    public CloseableHttpPipeliningClient run() {
+                        return createPipeliningHttpClient();
+                    }
+                });
+            // spread the requests in flight over the connections that can be opened to a single host
+            int maxPipelinedRequestsPerConnection =
+                (maxInFlightRequestsPerHost + DEFAULT_MAX_CONN_PER_ROUTE - 1) / DEFAULT_MAX_CONN_PER_ROUTE;
+            PipeliningDispatcher pipeliningDispatcher = new PipeliningDispatcher(httpClient, requestConfig, DEFAULT_MAX_CONN_PER_ROUTE,
+                maxInFlightRequestsPerHost, maxPipelinedRequestsPerConnection);
+            restClient = new RestClient(httpClient, maxRetryTimeout, defaultHeaders, hosts, pathPrefix, failureListener,
+                pipeliningDispatcher, hostSelector);
+            httpClient.start();
+        } else {
+            CloseableHttpAsyncClient httpClient = AccessController.doPrivileged(new PrivilegedAction<CloseableHttpAsyncClient>() {
+                @Override
+                public CloseableHttpAsyncClient run() {
+                    return createHttpClient(requestConfig);
+                }
+            });
+            restClient = new RestClient(httpClient, maxRetryTimeout, defaultHeaders, hosts, pathPrefix, failureListener, null,
+                hostSelector);
+            httpClient.start();
+        }
         return restClient;
     }
 
-    private CloseableHttpAsyncClient createHttpClient() {
+    private RequestConfig createRequestConfig() {
         //default timeouts are all infinite
         RequestConfig.Builder requestConfigBuilder = RequestConfig.custom()
                 .setConnectTimeout(DEFAULT_CONNECT_TIMEOUT_MILLIS)
@@ -199,8 +278,23 @@ public final class RestClientBuilder {
         if (requestConfigCallback != null) {
             requestConfigBuilder = requestConfigCallback.customizeRequestConfig(requestConfigBuilder);
         }
+        return requestConfigBuilder.build();
+    }
+
+    private CloseableHttpPipeliningClient createPipeliningHttpClient() {
+        final PoolingNHttpClientConnectionManager connectionManager;
+        try {
+            connectionManager = new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor());
+        } catch (IOReactorException e) {
+            throw new IllegalStateException("failed to create the I/O reactor", e);
+        }
+        connectionManager.setDefaultMaxPerRoute(DEFAULT_MAX_CONN_PER_ROUTE);
+        connectionManager.setMaxTotal(DEFAULT_MAX_CONN_TOTAL);
+        return HttpAsyncClients.createPipelining(connectionManager);
+    }
 
-        HttpAsyncClientBuilder httpClientBuilder = HttpAsyncClientBuilder.create().setDefaultRequestConfig(requestConfigBuilder.build())
+    private CloseableHttpAsyncClient createHttpClient(RequestConfig requestConfig) {
+        HttpAsyncClientBuilder httpClientBuilder = HttpAsyncClientBuilder.create().setDefaultRequestConfig(requestConfig)
                 //default settings for connection pooling may be too constraining
                 .setMaxConnPerRoute(DEFAULT_MAX_CONN_PER_ROUTE).setMaxConnTotal(DEFAULT_MAX_CONN_TOTAL).useSystemProperties();
         if (httpClientConfigCallback != null) {
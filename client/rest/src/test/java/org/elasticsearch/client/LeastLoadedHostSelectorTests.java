@@ -0,0 +1,128 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.client;
+
+import org.apache.http.HttpHost;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LeastLoadedHostSelectorTests extends RestClientTestCase {
+
+    private static final HttpHost HOST_1 = new HttpHost("host1", 9200);
+    private static final HttpHost HOST_2 = new HttpHost("host2", 9200);
+    private static final HttpHost HOST_3 = new HttpHost("host3", 9200);
+
+    public void testHostStats() {
+        HostStats hostStats = new HostStats(HOST_1);
+        assertEquals(HOST_1, hostStats.getHost());
+        assertTrue(hostStats.getLatencyEwmaNanos() < 0);
+        hostStats.onRequestStart();
+        hostStats.onRequestStart();
+        hostStats.onRequestStart();
+        assertEquals(3, hostStats.getInFlightRequests());
+        hostStats.onRequestEnd(100, true);
+        assertEquals(100d, hostStats.getLatencyEwmaNanos(), 0d);
+        hostStats.onRequestEnd(200, true);
+        assertEquals(HostStats.EWMA_ALPHA * 200 + (1 - HostStats.EWMA_ALPHA) * 100, hostStats.getLatencyEwmaNanos(), 0.0001d);
+        double latency = hostStats.getLatencyEwmaNanos();
+        hostStats.onRequestEnd(randomLongBetween(0, 100_000), false);
+        // failures don't count towards the latency
+        assertEquals(latency, hostStats.getLatencyEwmaNanos(), 0d);
+        assertEquals(0, hostStats.getInFlightRequests());
+        assertEquals(2, hostStats.getCompletedRequests());
+        assertEquals(1, hostStats.getFailedRequests());
+    }
+
+    public void testRoundRobinKeepsOrder() {
+        List<HttpHost> hosts = randomHosts();
+        assertEquals(hosts, HostSelector.ROUND_ROBIN.select(hosts, Collections.<HttpHost, HostStats>emptyMap()));
+    }
+
+    public void testWithoutStatsKeepsOrder() {
+        List<HttpHost> hosts = randomHosts();
+        assertEquals(hosts, new LeastLoadedHostSelector().select(hosts, Collections.<HttpHost, HostStats>emptyMap()));
+    }
+
+    public void testPrefersLeastInFlightRequests() {
+        Map<HttpHost, HostStats> stats = new HashMap<>();
+        stats.put(HOST_1, stats(HOST_1, 3, 1000));
+        stats.put(HOST_2, stats(HOST_2, 0, 1000));
+        stats.put(HOST_3, stats(HOST_3, 1, 1000));
+        assertEquals(Arrays.asList(HOST_2, HOST_3, HOST_1), new LeastLoadedHostSelector().select(randomHosts(), stats));
+    }
+
+    public void testPrefersLowestLatency() {
+        Map<HttpHost, HostStats> stats = new HashMap<>();
+        stats.put(HOST_1, stats(HOST_1, 0, 3000));
+        stats.put(HOST_2, stats(HOST_2, 0, 2000));
+        stats.put(HOST_3, stats(HOST_3, 0, 1000));
+        assertEquals(Arrays.asList(HOST_3, HOST_2, HOST_1), new LeastLoadedHostSelector().select(randomHosts(), stats));
+        // a slow host with no requests in flight beats a fast host that is busy
+        stats.put(HOST_3, stats(HOST_3, 5, 1000));
+        assertEquals(Arrays.asList(HOST_2, HOST_1, HOST_3), new LeastLoadedHostSelector().select(randomHosts(), stats));
+    }
+
+    public void testUnknownHostsAreProbed() {
+        Map<HttpHost, HostStats> stats = new HashMap<>();
+        stats.put(HOST_1, stats(HOST_1, 1, 1000));
+        stats.put(HOST_2, stats(HOST_2, 0, 5000));
+        // HOST_3 never received a request, it is assumed to be as fast as the fastest host
+        assertEquals(Arrays.asList(HOST_3, HOST_1, HOST_2), new LeastLoadedHostSelector().select(randomHosts(), stats));
+    }
+
+    public void testPreferredHostsComeFirst() {
+        Map<HttpHost, HostStats> stats = new HashMap<>();
+        stats.put(HOST_1, stats(HOST_1, 0, 1000));
+        stats.put(HOST_2, stats(HOST_2, 2, 1000));
+        stats.put(HOST_3, stats(HOST_3, 1, 1000));
+        LeastLoadedHostSelector selector = new LeastLoadedHostSelector();
+        selector.setPreferredHosts(Arrays.asList(HOST_2, HOST_3));
+        assertEquals(Arrays.asList(HOST_3, HOST_2, HOST_1), selector.select(randomHosts(), stats));
+        // the other hosts are still used when no preferred host is alive
+        assertEquals(Collections.singletonList(HOST_1), selector.select(Collections.singletonList(HOST_1), stats));
+        selector.setPreferredHosts(Collections.<HttpHost>emptyList());
+        assertEquals(Arrays.asList(HOST_1, HOST_3, HOST_2), selector.select(randomHosts(), stats));
+    }
+
+    private static HostStats stats(HttpHost host, int inFlightRequests, long latencyNanos) {
+        HostStats hostStats = new HostStats(host);
+        hostStats.onRequestStart();
+        hostStats.onRequestEnd(latencyNanos, true);
+        for (int i = 0; i < inFlightRequests; i++) {
+            hostStats.onRequestStart();
+        }
+        return hostStats;
+    }
+
+    private static List<HttpHost> randomHosts() {
+        List<HttpHost> hosts = new ArrayList<>(Arrays.asList(HOST_1, HOST_2, HOST_3));
+        Collections.shuffle(hosts, getRandom());
+        return hosts;
+    }
+}
@@ -104,13 +104,27 @@ public class RestClientBuilderTests extends RestClientTestCase {
             assertEquals("requestConfigCallback must not be null", e.getMessage());
         }
 
+        try {
+            RestClient.builder(new HttpHost("localhost", 9200))
+                    .setMaxInFlightRequestsPerHost(randomIntBetween(Integer.MIN_VALUE, 0));
+            fail("should have failed");
+        } catch(IllegalArgumentException e) {
+            assertEquals("maxInFlightRequestsPerHost must be greater than 0", e.getMessage());
+        }
+
         int numNodes = randomIntBetween(1, 5);
         HttpHost[] hosts = new HttpHost[numNodes];
         for (int i = 0; i < numNodes; i++) {
             hosts[i] = new HttpHost("localhost", 9200 + i);
         }
         RestClientBuilder builder = RestClient.builder(hosts);
-        if (randomBoolean()) {
+        boolean pipelining = randomBoolean();
+        if (pipelining) {
+            builder.setPipelining(true);
+            if (randomBoolean()) {
+                builder.setMaxInFlightRequestsPerHost(randomIntBetween(1, 1000));
+            }
+        } else if (randomBoolean()) {
             builder.setHttpClientConfigCallback(new RestClientBuilder.HttpClientConfigCallback() {
                 @Override
                 public HttpAsyncClientBuilder customizeHttpClient(HttpAsyncClientBuilder httpClientBuilder) {
@@ -149,6 +163,22 @@ public class RestClientBuilderTests extends RestClientTestCase {
         }
     }
 
+    public void testPipeliningDoesNotSupportHttpClientConfigCallback() {
+        RestClientBuilder builder = RestClient.builder(new HttpHost("localhost", 9200)).setPipelining(true)
+                .setHttpClientConfigCallback(new RestClientBuilder.HttpClientConfigCallback() {
+                    @Override
+                    public HttpAsyncClientBuilder customizeHttpClient(HttpAsyncClientBuilder httpClientBuilder) {
+                        return httpClientBuilder;
+                    }
+                });
+        try {
+            builder.build();
+            fail("should have failed");
+        } catch(IllegalArgumentException e) {
+            assertEquals("httpClientConfigCallback is not supported when pipelining is enabled", e.getMessage());
+        }
+    }
+
     public void testSetPathPrefixNull() {
         try {
             RestClient.builder(new HttpHost("localhost", 9200)).setPathPrefix(null);
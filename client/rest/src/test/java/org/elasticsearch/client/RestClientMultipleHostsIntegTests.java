@@ -41,7 +41,9 @@ import java.util.concurrent.TimeUnit;
 import static org.elasticsearch.client.RestClientTestUtil.getAllStatusCodes;
 import static org.elasticsearch.client.RestClientTestUtil.randomErrorNoRetryStatusCode;
 import static org.elasticsearch.client.RestClientTestUtil.randomOkStatusCode;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -187,6 +189,34 @@ public class RestClientMultipleHostsIntegTests extends RestClientTestCase {
         }
     }
 
+    public void testHostStatsWithLeastLoadedHostSelector() throws IOException {
+        HttpHost[] httpHosts = new HttpHost[httpServers.length];
+        for (int i = 0; i < httpServers.length; i++) {
+            httpHosts[i] = new HttpHost(httpServers[i].getAddress().getHostString(), httpServers[i].getAddress().getPort());
+        }
+        RestClientBuilder restClientBuilder = RestClient.builder(httpHosts).setHostSelector(new LeastLoadedHostSelector());
+        if (pathPrefix.length() > 0) {
+            restClientBuilder.setPathPrefix(pathPrefix);
+        }
+        try (RestClient leastLoadedRestClient = restClientBuilder.build()) {
+            int numRequests = randomIntBetween(5, 20);
+            for (int i = 0; i < numRequests; i++) {
+                int statusCode = randomOkStatusCode(getRandom());
+                Response response = leastLoadedRestClient.performRequest(RestClientTestUtil.randomHttpMethod(getRandom()),
+                        "/" + statusCode);
+                assertEquals(statusCode, response.getStatusLine().getStatusCode());
+            }
+            long completedRequests = 0;
+            for (HostStats hostStats : leastLoadedRestClient.getHostStats().values()) {
+                assertEquals(0, hostStats.getInFlightRequests());
+                assertEquals(0, hostStats.getFailedRequests());
+                assertThat(hostStats.getLatencyEwmaNanos(), greaterThanOrEqualTo(0d));
+                completedRequests += hostStats.getCompletedRequests();
+            }
+            assertEquals(numRequests, completedRequests);
+        }
+    }
+
     private static class TestResponse {
         private final String method;
         private final int statusCode;
@@ -0,0 +1,144 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.client;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.Consts;
+import org.apache.http.HttpHost;
+import org.apache.http.util.EntityUtils;
+import org.codehaus.mojo.animal_sniffer.IgnoreJRERequirement;
+import org.elasticsearch.mocksocket.MockHttpServer;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Integration test to check interaction between {@link RestClient} and the pipelining
+ * {@link org.apache.http.nio.client.HttpPipeliningClient}. Works against a real http server, one single host.
+ */
+//animal-sniffer doesn't like our usage of com.sun.net.httpserver.* classes
+@IgnoreJRERequirement
+public class RestClientPipeliningIntegTests extends RestClientTestCase {
+
+    private static HttpServer httpServer;
+    private static RestClient restClient;
+    // the remote address of every connection the server received requests on
+    private static final Set<InetSocketAddress> connections =
+        Collections.newSetFromMap(new ConcurrentHashMap<InetSocketAddress, Boolean>());
+
+    @BeforeClass
+    public static void startHttpServer() throws Exception {
+        httpServer = MockHttpServer.createHttp(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        httpServer.start();
+        httpServer.createContext("/", new EchoPathHandler());
+        restClient = RestClient.builder(new HttpHost(httpServer.getAddress().getHostString(), httpServer.getAddress().getPort()))
+            .setPipelining(true)
+            .setMaxInFlightRequestsPerHost(randomIntBetween(1, 50))
+            .build();
+    }
+
+    //animal-sniffer doesn't like our usage of com.sun.net.httpserver.* classes
+    @IgnoreJRERequirement
+    private static class EchoPathHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange httpExchange) throws IOException {
+            connections.add(httpExchange.getRemoteAddress());
+            httpExchange.getRequestBody().close();
+            byte[] body = httpExchange.getRequestURI().getPath().getBytes(Consts.UTF_8);
+            httpExchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = httpExchange.getResponseBody()) {
+                out.write(body);
+            }
+            httpExchange.close();
+        }
+    }
+
+    @AfterClass
+    public static void stopHttpServer() throws IOException {
+        restClient.close();
+        restClient = null;
+        httpServer.stop(0);
+        httpServer = null;
+    }
+
+    public void testSyncRequests() throws IOException {
+        int numRequests = randomIntBetween(1, 20);
+        for (int i = 0; i < numRequests; i++) {
+            Response response = restClient.performRequest("GET", "/" + i);
+            assertEquals(200, response.getStatusLine().getStatusCode());
+            assertEquals("/" + i, EntityUtils.toString(response.getEntity()));
+        }
+    }
+
+    /**
+     * Sends many concurrent requests, which are pipelined over a few connections, and checks that each request gets its own
+     * response back and that no more connections were opened than the pool allows per host.
+     */
+    public void testConcurrentAsyncRequests() throws Exception {
+        connections.clear();
+        int numRequests = randomIntBetween(50, 500);
+        final CountDownLatch latch = new CountDownLatch(numRequests);
+        final Map<Integer, Object> responses = new ConcurrentHashMap<>();
+        for (int i = 0; i < numRequests; i++) {
+            final int id = i;
+            restClient.performRequestAsync("GET", "/" + id, new ResponseListener() {
+                @Override
+                public void onSuccess(Response response) {
+                    try {
+                        responses.put(id, EntityUtils.toString(response.getEntity()));
+                    } catch (IOException e) {
+                        responses.put(id, e);
+                    }
+                    latch.countDown();
+                }
+
+                @Override
+                public void onFailure(Exception exception) {
+                    responses.put(id, exception);
+                    latch.countDown();
+                }
+            });
+        }
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+        assertEquals(numRequests, responses.size());
+        for (Map.Entry<Integer, Object> response : responses.entrySet()) {
+            assertEquals("/" + response.getKey(), response.getValue());
+        }
+        assertThat(connections.size(), lessThanOrEqualTo(RestClientBuilder.DEFAULT_MAX_CONN_PER_ROUTE));
+    }
+}
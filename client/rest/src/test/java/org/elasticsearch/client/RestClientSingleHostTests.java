@@ -112,6 +112,8 @@ public class RestClientSingleHostTests extends RestClientTestCase {
                             futureCallback.failed(new SocketTimeoutException());
                         } else if (request.getURI().getPath().equals("/coe")) {
                             futureCallback.failed(new ConnectTimeoutException());
+                        } else if (request.getURI().getPath().equals("/ise")) {
+                            throw new IllegalStateException("request cannot be executed");
                         } else {
                             int statusCode = Integer.parseInt(request.getURI().getPath().substring(1));
                             StatusLine statusLine = new BasicStatusLine(new ProtocolVersion("http", 1, 1), statusCode, "");
@@ -288,6 +290,20 @@ public class RestClientSingleHostTests extends RestClientTestCase {
         }
     }
 
+    public void testExecuteFailureIsNotLeftInFlight() throws IOException {
+        for (String method : getHttpMethods()) {
+            try {
+                performRequest(method, "/ise");
+                fail("request should have failed");
+            } catch(IllegalStateException e) {
+                assertEquals("request cannot be executed", e.getMessage());
+            }
+            HostStats stats = restClient.getHostStats().get(httpHost);
+            assertEquals(0, stats.getInFlightRequests());
+        }
+        assertEquals(getHttpMethods().length, restClient.getHostStats().get(httpHost).getFailedRequests());
+    }
+
     /**
      * End to end test for request and response body. Exercises the mock http client ability to send back
      * whatever body it has received.
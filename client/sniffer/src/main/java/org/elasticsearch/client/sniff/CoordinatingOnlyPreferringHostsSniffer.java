@@ -0,0 +1,62 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.client.sniff;
+
+import org.apache.http.HttpHost;
+import org.elasticsearch.client.LeastLoadedHostSelector;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * {@link HostsSniffer} implementation that relies on {@link ElasticsearchHostsSniffer} to sniff the hosts and makes the
+ * provided {@link LeastLoadedHostSelector} prefer the coordinating only nodes among them, so that requests are sent to the least
+ * loaded coordinating only node, or to the least loaded node of the cluster when no coordinating only node is available.
+ * Meant to be provided to {@link SnifferBuilder#setHostsSniffer(HostsSniffer)}, typically for a client dedicated to search traffic
+ * that was built with the same selector through {@link org.elasticsearch.client.RestClientBuilder#setHostSelector}.
+ */
+public final class CoordinatingOnlyPreferringHostsSniffer implements HostsSniffer {
+
+    private final ElasticsearchHostsSniffer hostsSniffer;
+    private final LeastLoadedHostSelector hostSelector;
+
+    public CoordinatingOnlyPreferringHostsSniffer(ElasticsearchHostsSniffer hostsSniffer, LeastLoadedHostSelector hostSelector) {
+        this.hostsSniffer = Objects.requireNonNull(hostsSniffer, "hostsSniffer cannot be null");
+        this.hostSelector = Objects.requireNonNull(hostSelector, "hostSelector cannot be null");
+    }
+
+    @Override
+    public List<HttpHost> sniffHosts() throws IOException {
+        Map<HttpHost, Set<String>> hostsAndRoles = hostsSniffer.sniffHostsAndRoles();
+        List<HttpHost> coordinatingOnlyHosts = new ArrayList<>();
+        for (Map.Entry<HttpHost, Set<String>> entry : hostsAndRoles.entrySet()) {
+            if (entry.getValue() != null && entry.getValue().isEmpty()) {
+                coordinatingOnlyHosts.add(entry.getKey());
+            }
+        }
+        hostSelector.setPreferredHosts(coordinatingOnlyHosts);
+        return new ArrayList<>(hostsAndRoles.keySet());
+    }
+}
@@ -34,9 +34,12 @@ import java.io.InputStream;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -90,17 +93,26 @@ public final class ElasticsearchHostsSniffer implements HostsSniffer {
      * Calls the elasticsearch nodes info api, parses the response and returns all the found http hosts
      */
     public List<HttpHost> sniffHosts() throws IOException {
+        return new ArrayList<>(sniffHostsAndRoles().keySet());
+    }
+
+    /**
+     * Calls the elasticsearch nodes info api, parses the response and returns all the found http hosts, in the same order as
+     * {@link #sniffHosts()}, together with the roles of their nodes (e.g. {@code master}, {@code data}, {@code ingest}).
+     * Coordinating only nodes have no roles. Hosts of nodes that don't expose their roles (2.x nodes) are mapped to {@code null}.
+     */
+    public Map<HttpHost, Set<String>> sniffHostsAndRoles() throws IOException {
         Response response = restClient.performRequest("get", "/_nodes/http", sniffRequestParams);
         return readHosts(response.getEntity());
     }
 
-    private List<HttpHost> readHosts(HttpEntity entity) throws IOException {
+    private Map<HttpHost, Set<String>> readHosts(HttpEntity entity) throws IOException {
         try (InputStream inputStream = entity.getContent()) {
             JsonParser parser = jsonFactory.createParser(inputStream);
             if (parser.nextToken() != JsonToken.START_OBJECT) {
                 throw new IOException("expected data to start with an object");
             }
-            List<HttpHost> hosts = new ArrayList<>();
+            Map<HttpHost, Set<String>> hosts = new LinkedHashMap<>();
             while (parser.nextToken() != JsonToken.END_OBJECT) {
                 if (parser.getCurrentToken() == JsonToken.START_OBJECT) {
                     if ("nodes".equals(parser.getCurrentName())) {
@@ -108,11 +120,7 @@ public final class ElasticsearchHostsSniffer implements HostsSniffer {
                             JsonToken token = parser.nextToken();
                             assert token == JsonToken.START_OBJECT;
                             String nodeId = parser.getCurrentName();
-                            HttpHost sniffedHost = readHost(nodeId, parser, this.scheme);
-                            if (sniffedHost != null) {
-                                logger.trace("adding node [" + nodeId + "]");
-                                hosts.add(sniffedHost);
-                            }
+                            readHost(nodeId, parser, this.scheme, hosts);
                         }
                     } else {
                         parser.skipChildren();
@@ -123,12 +131,22 @@ public final class ElasticsearchHostsSniffer implements HostsSniffer {
         }
     }
 
-    private static HttpHost readHost(String nodeId, JsonParser parser, Scheme scheme) throws IOException {
+    private static void readHost(String nodeId, JsonParser parser, Scheme scheme, Map<HttpHost, Set<String>> hosts) throws IOException {
         HttpHost httpHost = null;
+        Set<String> roles = null;
         String fieldName = null;
         while (parser.nextToken() != JsonToken.END_OBJECT) {
             if (parser.getCurrentToken() == JsonToken.FIELD_NAME) {
                 fieldName = parser.getCurrentName();
+            } else if (parser.getCurrentToken() == JsonToken.START_ARRAY && "roles".equals(fieldName)) {
+                roles = new HashSet<>();
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    if (parser.getCurrentToken() == JsonToken.VALUE_STRING) {
+                        roles.add(parser.getValueAsString());
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
             } else if (parser.getCurrentToken() == JsonToken.START_OBJECT) {
                 if ("http".equals(fieldName)) {
                     while (parser.nextToken() != JsonToken.END_OBJECT) {
@@ -148,9 +166,10 @@ public final class ElasticsearchHostsSniffer implements HostsSniffer {
         //http section is not present if http is not enabled on the node, ignore such nodes
         if (httpHost == null) {
             logger.debug("skipping node [" + nodeId + "] with http disabled");
-            return null;
+            return;
         }
-        return httpHost;
+        logger.trace("adding node [" + nodeId + "]");
+        hosts.put(httpHost, roles == null ? null : Collections.unmodifiableSet(roles));
     }
 
     public enum Scheme {
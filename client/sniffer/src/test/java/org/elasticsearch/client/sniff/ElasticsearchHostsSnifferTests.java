@@ -31,6 +31,7 @@ import org.apache.http.Consts;
 import org.apache.http.HttpHost;
 import org.apache.http.client.methods.HttpGet;
 import org.codehaus.mojo.animal_sniffer.IgnoreJRERequirement;
+import org.elasticsearch.client.LeastLoadedHostSelector;
 import org.elasticsearch.client.Response;
 import org.elasticsearch.client.ResponseException;
 import org.elasticsearch.client.RestClient;
@@ -126,6 +127,19 @@ public class ElasticsearchHostsSnifferTests extends RestClientTestCase {
                 for (HttpHost sniffedHost : sniffedHosts) {
                     assertEquals(sniffedHost, responseHostsIterator.next());
                 }
+                Map<HttpHost, Set<String>> sniffedHostsAndRoles = sniffer.sniffHostsAndRoles();
+                assertEquals(sniffedHosts, new ArrayList<>(sniffedHostsAndRoles.keySet()));
+                assertEquals(sniffResponse.roles, sniffedHostsAndRoles);
+
+                LeastLoadedHostSelector hostSelector = new LeastLoadedHostSelector();
+                assertEquals(sniffedHosts, new CoordinatingOnlyPreferringHostsSniffer(sniffer, hostSelector).sniffHosts());
+                Set<HttpHost> coordinatingOnlyHosts = new HashSet<>();
+                for (Map.Entry<HttpHost, Set<String>> entry : sniffResponse.roles.entrySet()) {
+                    if (entry.getValue() != null && entry.getValue().isEmpty()) {
+                        coordinatingOnlyHosts.add(entry.getKey());
+                    }
+                }
+                assertEquals(coordinatingOnlyHosts, hostSelector.getPreferredHosts());
             } catch(ResponseException e) {
                 Response response = e.getResponse();
                 if (sniffResponse.isFailure) {
@@ -181,6 +195,7 @@ public class ElasticsearchHostsSnifferTests extends RestClientTestCase {
     private static SniffResponse buildSniffResponse(ElasticsearchHostsSniffer.Scheme scheme) throws IOException {
         int numNodes = RandomNumbers.randomIntBetween(getRandom(), 1, 5);
         List<HttpHost> hosts = new ArrayList<>(numNodes);
+        Map<HttpHost, Set<String>> hostsRoles = new HashMap<>(numNodes);
         JsonFactory jsonFactory = new JsonFactory();
         StringWriter writer = new StringWriter();
         JsonGenerator generator = jsonFactory.createGenerator(writer);
@@ -207,11 +222,13 @@ public class ElasticsearchHostsSnifferTests extends RestClientTestCase {
                 generator.writeEndArray();
             }
             boolean isHttpEnabled = rarely() == false;
+            HttpHost httpHost = null;
             if (isHttpEnabled) {
                 String host = "host" + i;
                 int port = RandomNumbers.randomIntBetween(getRandom(), 9200, 9299);
-                HttpHost httpHost = new HttpHost(host, port, scheme.toString());
+                httpHost = new HttpHost(host, port, scheme.toString());
                 hosts.add(httpHost);
+                hostsRoles.put(httpHost, null);
                 generator.writeObjectFieldStart("http");
                 if (getRandom().nextBoolean()) {
                     generator.writeArrayFieldStart("bound_address");
@@ -245,6 +262,9 @@ public class ElasticsearchHostsSnifferTests extends RestClientTestCase {
                     generator.writeString(nodeRole);
                 }
                 generator.writeEndArray();
+                if (httpHost != null) {
+                    hostsRoles.put(httpHost, nodeRoles);
+                }
             }
             int numAttributes = RandomNumbers.randomIntBetween(getRandom(), 0, 3);
             Map<String, String> attributes = new HashMap<>(numAttributes);
@@ -265,18 +285,20 @@ public class ElasticsearchHostsSnifferTests extends RestClientTestCase {
         generator.writeEndObject();
         generator.writeEndObject();
         generator.close();
-        return SniffResponse.buildResponse(writer.toString(), hosts);
+        return SniffResponse.buildResponse(writer.toString(), hosts, hostsRoles);
     }
 
     private static class SniffResponse {
         private final String nodesInfoBody;
         private final int nodesInfoResponseCode;
         private final List<HttpHost> hosts;
+        private final Map<HttpHost, Set<String>> roles;
         private final boolean isFailure;
 
-        SniffResponse(String nodesInfoBody, List<HttpHost> hosts, boolean isFailure) {
+        SniffResponse(String nodesInfoBody, List<HttpHost> hosts, Map<HttpHost, Set<String>> roles, boolean isFailure) {
             this.nodesInfoBody = nodesInfoBody;
             this.hosts = hosts;
+            this.roles = roles;
             this.isFailure = isFailure;
             if (isFailure) {
                 this.nodesInfoResponseCode = randomErrorResponseCode();
@@ -286,11 +308,11 @@ public class ElasticsearchHostsSnifferTests extends RestClientTestCase {
         }
 
         static SniffResponse buildFailure() {
-            return new SniffResponse("", Collections.<HttpHost>emptyList(), true);
+            return new SniffResponse("", Collections.<HttpHost>emptyList(), Collections.<HttpHost, Set<String>>emptyMap(), true);
         }
 
-        static SniffResponse buildResponse(String nodesInfoBody, List<HttpHost> hosts) {
-            return new SniffResponse(nodesInfoBody, hosts, false);
+        static SniffResponse buildResponse(String nodesInfoBody, List<HttpHost> hosts, Map<HttpHost, Set<String>> roles) {
+            return new SniffResponse(nodesInfoBody, hosts, roles, false);
         }
     }
 
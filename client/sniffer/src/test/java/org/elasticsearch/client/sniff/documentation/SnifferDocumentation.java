@@ -20,7 +20,9 @@
 package org.elasticsearch.client.sniff.documentation;
 
 import org.apache.http.HttpHost;
+import org.elasticsearch.client.LeastLoadedHostSelector;
 import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.sniff.CoordinatingOnlyPreferringHostsSniffer;
 import org.elasticsearch.client.sniff.ElasticsearchHostsSniffer;
 import org.elasticsearch.client.sniff.HostsSniffer;
 import org.elasticsearch.client.sniff.SniffOnFailureListener;
@@ -127,5 +129,18 @@ public class SnifferDocumentation {
                     .setHostsSniffer(hostsSniffer).build();
             //end::custom-hosts-sniffer
         }
+        {
+            //tag::coordinating-only-hosts-sniffer
+            LeastLoadedHostSelector hostSelector = new LeastLoadedHostSelector();
+            RestClient restClient = RestClient.builder(
+                    new HttpHost("localhost", 9200, "http"))
+                    .setHostSelector(hostSelector) // <1>
+                    .build();
+            HostsSniffer hostsSniffer = new CoordinatingOnlyPreferringHostsSniffer(
+                    new ElasticsearchHostsSniffer(restClient), hostSelector); // <2>
+            Sniffer sniffer = Sniffer.builder(restClient)
+                    .setHostsSniffer(hostsSniffer).build();
+            //end::coordinating-only-hosts-sniffer
+        }
     }
 }
@@ -142,4 +142,12 @@ public class NodesStatsRequestBuilder extends NodesOperationRequestBuilder<Nodes
         request.ingest(ingest);
         return this;
     }
+
+    /**
+     * Should shard fetch and store metadata cache statistics be returned.
+     */
+    public NodesStatsRequestBuilder setGateway(boolean gateway) {
+        request.gateway(gateway);
+        return this;
+    }
 }
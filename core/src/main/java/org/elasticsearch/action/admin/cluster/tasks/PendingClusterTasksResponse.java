@@ -23,6 +23,7 @@ import org.elasticsearch.action.ActionResponse;
 import org.elasticsearch.cluster.service.PendingClusterTask;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.ToXContentObject;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 
@@ -30,6 +31,8 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 public class PendingClusterTasksResponse extends ActionResponse implements Iterable<PendingClusterTask>, ToXContentObject {
 
@@ -84,10 +87,49 @@ public class PendingClusterTasksResponse extends ActionResponse implements Itera
             builder.endObject();
         }
         builder.endArray();
+        builder.startObject(Fields.SOURCES);
+        for (Map.Entry<String, SourceSummary> entry : summarizeBySource().entrySet()) {
+            builder.startObject(entry.getKey());
+            builder.field(Fields.COUNT, entry.getValue().count);
+            builder.field(Fields.MAX_TIME_IN_QUEUE_MILLIS, entry.getValue().maxTimeInQueue);
+            builder.field(Fields.MAX_TIME_IN_QUEUE, new TimeValue(entry.getValue().maxTimeInQueue));
+            builder.endObject();
+        }
+        builder.endObject();
         builder.endObject();
         return builder;
     }
 
+    /**
+     * Groups the pending tasks by the kind of their source, which is the leading part of the source up to the first
+     * space or bracket, e.g. {@code shard-started} or {@code create-index}.
+     */
+    Map<String, SourceSummary> summarizeBySource() {
+        final Map<String, SourceSummary> summaries = new TreeMap<>();
+        for (PendingClusterTask pendingClusterTask : this) {
+            SourceSummary summary = summaries.computeIfAbsent(sourceKind(pendingClusterTask.getSource().string()),
+                k -> new SourceSummary());
+            summary.count++;
+            summary.maxTimeInQueue = Math.max(summary.maxTimeInQueue, pendingClusterTask.getTimeInQueueInMillis());
+        }
+        return summaries;
+    }
+
+    static String sourceKind(String source) {
+        for (int i = 0; i < source.length(); i++) {
+            char c = source.charAt(i);
+            if (Character.isWhitespace(c) || c == '[' || c == '(' || c == '{') {
+                return i == 0 ? source : source.substring(0, i);
+            }
+        }
+        return source;
+    }
+
+    static final class SourceSummary {
+        int count;
+        long maxTimeInQueue;
+    }
+
     static final class Fields {
 
         static final String TASKS = "tasks";
@@ -97,6 +139,10 @@ public class PendingClusterTasksResponse extends ActionResponse implements Itera
         static final String SOURCE = "source";
         static final String TIME_IN_QUEUE_MILLIS = "time_in_queue_millis";
         static final String TIME_IN_QUEUE = "time_in_queue";
+        static final String SOURCES = "sources";
+        static final String COUNT = "count";
+        static final String MAX_TIME_IN_QUEUE_MILLIS = "max_time_in_queue_millis";
+        static final String MAX_TIME_IN_QUEUE = "max_time_in_queue";
 
     }
 
@@ -0,0 +1,120 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.action.bulk;
+
+import org.elasticsearch.common.unit.TimeValue;
+
+/**
+ * Tunes the number of actions per bulk request and the number of concurrent bulk requests of a {@link BulkProcessor}
+ * based on the outcome of each bulk attempt, following an additive increase / multiplicative decrease scheme:
+ * <ul>
+ *     <li>items rejected because of a full queue halve the bulk size and remove one concurrent request</li>
+ *     <li>a took time over the target shrinks the bulk size</li>
+ *     <li>a response latency that exceeds the took time by more than the target, meaning that requests wait before being processed,
+ *     removes one concurrent request</li>
+ *     <li>otherwise the bulk size grows by 10% while the took time is below half the target, then the concurrency grows one
+ *     request at a time</li>
+ * </ul>
+ */
+final class AdaptiveBulkSizing {
+
+    static final int MIN_BULK_ACTIONS = 10;
+
+    private final int minBulkActions;
+    private final int maxBulkActions;
+    private final int maxConcurrentRequests;
+    private final long targetTookNanos;
+
+    private volatile int bulkActions;
+    private volatile int concurrentRequests;
+
+    AdaptiveBulkSizing(int initialBulkActions, int maxBulkActions, int initialConcurrentRequests, int maxConcurrentRequests,
+                       TimeValue targetTook) {
+        if (initialBulkActions <= 0) {
+            throw new IllegalArgumentException("adaptive sizing requires the number of bulk actions to be set");
+        }
+        if (maxBulkActions < initialBulkActions) {
+            throw new IllegalArgumentException("maxBulkActions [" + maxBulkActions + "] must be greater than or equal to bulkActions ["
+                + initialBulkActions + "]");
+        }
+        if (maxConcurrentRequests < Math.max(1, initialConcurrentRequests)) {
+            throw new IllegalArgumentException("maxConcurrentRequests [" + maxConcurrentRequests
+                + "] must be greater than or equal to concurrentRequests [" + initialConcurrentRequests + "] and greater than 0");
+        }
+        if (targetTook.nanos() <= 0) {
+            throw new IllegalArgumentException("targetTook must be positive but was [" + targetTook + "]");
+        }
+        this.minBulkActions = Math.min(MIN_BULK_ACTIONS, initialBulkActions);
+        this.maxBulkActions = maxBulkActions;
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.targetTookNanos = targetTook.nanos();
+        this.bulkActions = initialBulkActions;
+        // adaptive concurrency needs at least one request to be executed asynchronously
+        this.concurrentRequests = Math.max(1, initialConcurrentRequests);
+    }
+
+    /**
+     * The number of actions that triggers the execution of a bulk request.
+     */
+    int bulkActions() {
+        return bulkActions;
+    }
+
+    /**
+     * The number of bulk requests that can be executed concurrently.
+     */
+    int concurrentRequests() {
+        return concurrentRequests;
+    }
+
+    /**
+     * Called for each bulk attempt that returned a response, including the retries of rejected items.
+     *
+     * @param rejectedItems the number of items that were rejected because of a full queue
+     * @param latencyNanos  the time between sending the request and receiving its response
+     */
+    synchronized void onResponse(BulkResponse response, int rejectedItems, long latencyNanos) {
+        final long tookNanos = response.getTook().nanos();
+        if (rejectedItems > 0) {
+            backOff();
+        } else if (tookNanos > targetTookNanos) {
+            bulkActions = Math.max(minBulkActions, bulkActions - bulkActions / 4);
+        } else if (latencyNanos - tookNanos > targetTookNanos) {
+            concurrentRequests = Math.max(1, concurrentRequests - 1);
+        } else if (tookNanos < targetTookNanos / 2 && bulkActions < maxBulkActions) {
+            bulkActions = Math.min(maxBulkActions, bulkActions + Math.max(1, bulkActions / 10));
+        } else if (concurrentRequests < maxConcurrentRequests) {
+            concurrentRequests++;
+        }
+    }
+
+    /**
+     * Called when a whole bulk attempt was rejected.
+     */
+    synchronized void onRejected() {
+        backOff();
+    }
+
+    private void backOff() {
+        bulkActions = Math.max(minBulkActions, bulkActions / 2);
+        concurrentRequests = Math.max(1, concurrentRequests - 1);
+    }
+}
@@ -88,6 +88,9 @@ public class BulkProcessor implements Closeable {
         private ByteSizeValue bulkSize = new ByteSizeValue(5, ByteSizeUnit.MB);
         private TimeValue flushInterval = null;
         private BackoffPolicy backoffPolicy = BackoffPolicy.exponentialBackoff();
+        private TimeValue adaptiveTargetTook = null;
+        private int adaptiveMaxBulkActions;
+        private int adaptiveMaxConcurrentRequests;
 
         private Builder(BiConsumer<BulkRequest, ActionListener<BulkResponse>> consumer, Listener listener,
                         Scheduler scheduler, Runnable onClose) {
@@ -152,12 +155,38 @@ public class BulkProcessor implements Closeable {
             return this;
         }
 
+        /**
+         * Enables adaptive sizing: the number of actions per bulk request and the number of concurrent requests, which start at
+         * {@link #setBulkActions(int)} and {@link #setConcurrentRequests(int)}, are then tuned after each bulk attempt based on its
+         * took time, its response latency and the number of items rejected because of a full queue. The bulk size grows as long as
+         * the took time stays well below <code>targetTook</code>, and shrinks quickly on rejections or when the took time goes over
+         * it. Concurrency is lowered on rejections and when responses wait longer than <code>targetTook</code> on top of their took
+         * time. {@link #setBulkSize(ByteSizeValue)} and {@link #setFlushInterval(TimeValue)} still trigger flushes. Disabled by
+         * default.
+         *
+         * @param targetTook            the took time that a single bulk request should not exceed
+         * @param maxBulkActions        the maximum number of actions per bulk request
+         * @param maxConcurrentRequests the maximum number of concurrent bulk requests, at least 1
+         * @see BulkProcessor#stats()
+         */
+        public Builder setAdaptiveSizing(TimeValue targetTook, int maxBulkActions, int maxConcurrentRequests) {
+            this.adaptiveTargetTook = Objects.requireNonNull(targetTook, "targetTook");
+            this.adaptiveMaxBulkActions = maxBulkActions;
+            this.adaptiveMaxConcurrentRequests = maxConcurrentRequests;
+            return this;
+        }
+
         /**
          * Builds a new bulk processor.
          */
         public BulkProcessor build() {
+            AdaptiveBulkSizing adaptiveSizing = null;
+            if (adaptiveTargetTook != null) {
+                adaptiveSizing = new AdaptiveBulkSizing(bulkActions, adaptiveMaxBulkActions, concurrentRequests,
+                    adaptiveMaxConcurrentRequests, adaptiveTargetTook);
+            }
             return new BulkProcessor(consumer, backoffPolicy, listener, concurrentRequests, bulkActions, bulkSize, flushInterval,
-                    scheduler, onClose);
+                    scheduler, onClose, adaptiveSizing);
         }
     }
 
@@ -187,17 +216,26 @@ public class BulkProcessor implements Closeable {
     private final BulkRequestHandler bulkRequestHandler;
     private final Scheduler scheduler;
     private final Runnable onClose;
+    private final boolean adaptive;
 
     private volatile boolean closed = false;
 
     BulkProcessor(BiConsumer<BulkRequest, ActionListener<BulkResponse>> consumer, BackoffPolicy backoffPolicy, Listener listener,
                   int concurrentRequests, int bulkActions, ByteSizeValue bulkSize, @Nullable TimeValue flushInterval,
                   Scheduler scheduler, Runnable onClose) {
+        this(consumer, backoffPolicy, listener, concurrentRequests, bulkActions, bulkSize, flushInterval, scheduler, onClose, null);
+    }
+
+    BulkProcessor(BiConsumer<BulkRequest, ActionListener<BulkResponse>> consumer, BackoffPolicy backoffPolicy, Listener listener,
+                  int concurrentRequests, int bulkActions, ByteSizeValue bulkSize, @Nullable TimeValue flushInterval,
+                  Scheduler scheduler, Runnable onClose, @Nullable AdaptiveBulkSizing adaptiveSizing) {
         this.bulkActions = bulkActions;
         this.bulkSize = bulkSize.getBytes();
         this.bulkRequest = new BulkRequest();
         this.scheduler = scheduler;
-        this.bulkRequestHandler = new BulkRequestHandler(consumer, backoffPolicy, listener, scheduler, concurrentRequests);
+        this.adaptive = adaptiveSizing != null;
+        this.bulkRequestHandler = new BulkRequestHandler(consumer, backoffPolicy, listener, scheduler, concurrentRequests,
+            adaptiveSizing);
         // Start period flushing task after everything is setup
         this.cancellableFlushTask = startFlushTask(flushInterval, scheduler);
         this.onClose = onClose;
@@ -336,7 +374,12 @@ public class BulkProcessor implements Closeable {
         this.bulkRequestHandler.execute(bulkRequest, executionId);
     }
 
+    private int currentBulkActions() {
+        return adaptive ? bulkRequestHandler.adaptiveBulkActions() : bulkActions;
+    }
+
     private boolean isOverTheLimit() {
+        final int bulkActions = currentBulkActions();
         if (bulkActions != -1 && bulkRequest.numberOfActions() >= bulkActions) {
             return true;
         }
@@ -356,6 +399,121 @@ public class BulkProcessor implements Closeable {
         }
     }
 
+    /**
+     * Returns whether all the bulk requests that can be executed concurrently are in flight. Adding actions to a saturated processor
+     * blocks the caller as soon as they trigger the execution of a new bulk request, until one of the requests in flight completes.
+     * Producers that can't afford to block can check this method and slow down instead.
+     */
+    public boolean isSaturated() {
+        return bulkRequestHandler.isSaturated();
+    }
+
+    /**
+     * Returns statistics about the bulk requests executed so far, including the current bulk size and concurrency when adaptive
+     * sizing is enabled.
+     */
+    public Stats stats() {
+        return bulkRequestHandler.stats(currentBulkActions());
+    }
+
+    /**
+     * Point in time statistics of a {@link BulkProcessor}.
+     */
+    public static final class Stats {
+        private final int bulkActions;
+        private final int concurrentRequests;
+        private final int inFlightRequests;
+        private final long completedBulks;
+        private final long succeededItems;
+        private final long failedItems;
+        private final long rejectedItems;
+        private final double docsPerSecond;
+
+        Stats(int bulkActions, int concurrentRequests, int inFlightRequests, long completedBulks, long succeededItems,
+              long failedItems, long rejectedItems, double docsPerSecond) {
+            this.bulkActions = bulkActions;
+            this.concurrentRequests = concurrentRequests;
+            this.inFlightRequests = inFlightRequests;
+            this.completedBulks = completedBulks;
+            this.succeededItems = succeededItems;
+            this.failedItems = failedItems;
+            this.rejectedItems = rejectedItems;
+            this.docsPerSecond = docsPerSecond;
+        }
+
+        /**
+         * The number of actions that currently triggers the execution of a bulk request, <code>-1</code> if disabled.
+         */
+        public int getBulkActions() {
+            return bulkActions;
+        }
+
+        /**
+         * The number of bulk requests that can currently be executed concurrently.
+         */
+        public int getConcurrentRequests() {
+            return concurrentRequests;
+        }
+
+        /**
+         * The number of bulk requests being executed.
+         */
+        public int getInFlightRequests() {
+            return inFlightRequests;
+        }
+
+        /**
+         * The number of bulk requests that completed, successfully or not.
+         */
+        public long getCompletedBulks() {
+            return completedBulks;
+        }
+
+        /**
+         * The number of actions that were successfully executed.
+         */
+        public long getSucceededItems() {
+            return succeededItems;
+        }
+
+        /**
+         * The number of actions that eventually failed, after retries.
+         */
+        public long getFailedItems() {
+            return failedItems;
+        }
+
+        /**
+         * The number of times an action was rejected because of a full queue, including the rejections that were later retried
+         * successfully.
+         */
+        public long getRejectedItems() {
+            return rejectedItems;
+        }
+
+        /**
+         * The number of actions successfully executed per second, between the start of the first bulk request and the completion
+         * of the last one.
+         */
+        public double getDocsPerSecond() {
+            return docsPerSecond;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats{" +
+                "bulkActions=" + bulkActions +
+                ", concurrentRequests=" + concurrentRequests +
+                ", inFlightRequests=" + inFlightRequests +
+                ", completedBulks=" + completedBulks +
+                ", succeededItems=" + succeededItems +
+                ", failedItems=" + failedItems +
+                ", rejectedItems=" + rejectedItems +
+                ", docsPerSecond=" + docsPerSecond +
+                '}';
+        }
+    }
+
     class Flush implements Runnable {
 
         @Override
@@ -21,7 +21,9 @@ package org.elasticsearch.action.bulk;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.message.ParameterizedMessage;
 import org.apache.logging.log4j.util.Supplier;
+import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.logging.Loggers;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
@@ -30,6 +32,8 @@ import org.elasticsearch.threadpool.Scheduler;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiConsumer;
 
 /**
@@ -39,19 +43,141 @@ public final class BulkRequestHandler {
     private final Logger logger;
     private final BiConsumer<BulkRequest, ActionListener<BulkResponse>> consumer;
     private final BulkProcessor.Listener listener;
-    private final Semaphore semaphore;
+    private final ResizableSemaphore semaphore;
     private final Retry retry;
-    private final int concurrentRequests;
+    @Nullable
+    private final AdaptiveBulkSizing adaptiveSizing;
+    private final boolean synchronous;
+    // guarded by this, the number of permits of the semaphore, which changes with adaptive sizing
+    private int concurrentRequests;
+    private boolean closing = false;
+
+    private final AtomicInteger inFlightRequests = new AtomicInteger();
+    private final AtomicLong completedBulks = new AtomicLong();
+    private final AtomicLong succeededItems = new AtomicLong();
+    private final AtomicLong failedItems = new AtomicLong();
+    private final AtomicLong rejectedItems = new AtomicLong();
+    private final AtomicLong firstBulkStartNanos = new AtomicLong(-1);
+    private volatile long lastBulkEndNanos = -1;
 
     BulkRequestHandler(BiConsumer<BulkRequest, ActionListener<BulkResponse>> consumer, BackoffPolicy backoffPolicy,
                        BulkProcessor.Listener listener, Scheduler scheduler, int concurrentRequests) {
+        this(consumer, backoffPolicy, listener, scheduler, concurrentRequests, null);
+    }
+
+    BulkRequestHandler(BiConsumer<BulkRequest, ActionListener<BulkResponse>> consumer, BackoffPolicy backoffPolicy,
+                       BulkProcessor.Listener listener, Scheduler scheduler, int concurrentRequests,
+                       @Nullable AdaptiveBulkSizing adaptiveSizing) {
         assert concurrentRequests >= 0;
         this.logger = Loggers.getLogger(getClass());
-        this.consumer = consumer;
+        this.consumer = observeAttempts(consumer);
         this.listener = listener;
-        this.concurrentRequests = concurrentRequests;
+        this.adaptiveSizing = adaptiveSizing;
+        this.synchronous = concurrentRequests == 0 && adaptiveSizing == null;
+        this.concurrentRequests = adaptiveSizing == null ? concurrentRequests : adaptiveSizing.concurrentRequests();
         this.retry = new Retry(EsRejectedExecutionException.class, backoffPolicy, scheduler);
-        this.semaphore = new Semaphore(concurrentRequests > 0 ? concurrentRequests : 1);
+        this.semaphore = new ResizableSemaphore(this.concurrentRequests > 0 ? this.concurrentRequests : 1);
+    }
+
+    /**
+     * Wraps the consumer so that every attempt, including the retries of rejected items, feeds the statistics and adaptive sizing.
+     */
+    private BiConsumer<BulkRequest, ActionListener<BulkResponse>> observeAttempts(
+            BiConsumer<BulkRequest, ActionListener<BulkResponse>> consumer) {
+        return (bulkRequest, actionListener) -> {
+            final long startNanos = System.nanoTime();
+            consumer.accept(bulkRequest, new ActionListener<BulkResponse>() {
+                @Override
+                public void onResponse(BulkResponse response) {
+                    onAttemptResponse(response, System.nanoTime() - startNanos);
+                    actionListener.onResponse(response);
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    onAttemptFailure(e);
+                    actionListener.onFailure(e);
+                }
+            });
+        };
+    }
+
+    private void onAttemptResponse(BulkResponse response, long latencyNanos) {
+        int rejected = 0;
+        for (BulkItemResponse item : response) {
+            if (item.isFailed() && ExceptionsHelper.unwrapCause(item.getFailure().getCause()) instanceof EsRejectedExecutionException) {
+                rejected++;
+            }
+        }
+        rejectedItems.addAndGet(rejected);
+        if (adaptiveSizing != null) {
+            adaptiveSizing.onResponse(response, rejected, latencyNanos);
+            updateConcurrentRequests(adaptiveSizing.concurrentRequests());
+        }
+    }
+
+    private void onAttemptFailure(Exception e) {
+        if (adaptiveSizing != null && ExceptionsHelper.unwrapCause(e) instanceof EsRejectedExecutionException) {
+            adaptiveSizing.onRejected();
+            updateConcurrentRequests(adaptiveSizing.concurrentRequests());
+        }
+    }
+
+    private synchronized void updateConcurrentRequests(int newConcurrentRequests) {
+        if (closing || newConcurrentRequests == concurrentRequests) {
+            return;
+        }
+        if (newConcurrentRequests > concurrentRequests) {
+            semaphore.release(newConcurrentRequests - concurrentRequests);
+        } else {
+            // permits may go negative, requests in flight then have to complete before new ones can be executed
+            semaphore.reducePermits(concurrentRequests - newConcurrentRequests);
+        }
+        concurrentRequests = newConcurrentRequests;
+    }
+
+    private void onBulkCompleted(BulkRequest bulkRequest, @Nullable BulkResponse response) {
+        inFlightRequests.decrementAndGet();
+        completedBulks.incrementAndGet();
+        if (response == null) {
+            failedItems.addAndGet(bulkRequest.numberOfActions());
+        } else {
+            long failed = 0;
+            for (BulkItemResponse item : response) {
+                if (item.isFailed()) {
+                    failed++;
+                }
+            }
+            failedItems.addAndGet(failed);
+            succeededItems.addAndGet(response.getItems().length - failed);
+        }
+        lastBulkEndNanos = System.nanoTime();
+    }
+
+    /**
+     * The number of actions that triggers the execution of a bulk request when adaptive sizing is enabled.
+     */
+    int adaptiveBulkActions() {
+        assert adaptiveSizing != null;
+        return adaptiveSizing.bulkActions();
+    }
+
+    BulkProcessor.Stats stats(int bulkActions) {
+        final int concurrentRequests;
+        synchronized (this) {
+            concurrentRequests = this.concurrentRequests;
+        }
+        final long firstStart = firstBulkStartNanos.get();
+        final long lastEnd = lastBulkEndNanos;
+        final long succeeded = succeededItems.get();
+        final double docsPerSecond;
+        if (firstStart == -1 || lastEnd <= firstStart) {
+            docsPerSecond = 0;
+        } else {
+            docsPerSecond = succeeded / ((double) (lastEnd - firstStart) / TimeUnit.SECONDS.toNanos(1));
+        }
+        return new BulkProcessor.Stats(bulkActions, concurrentRequests, inFlightRequests.get(), completedBulks.get(), succeeded,
+            failedItems.get(), rejectedItems.get(), docsPerSecond);
     }
 
     public void execute(BulkRequest bulkRequest, long executionId) {
@@ -60,11 +186,17 @@ public final class BulkRequestHandler {
         try {
             listener.beforeBulk(executionId, bulkRequest);
             semaphore.acquire();
-            toRelease = semaphore::release;
+            inFlightRequests.incrementAndGet();
+            firstBulkStartNanos.compareAndSet(-1, System.nanoTime());
+            toRelease = () -> {
+                inFlightRequests.decrementAndGet();
+                semaphore.release();
+            };
             CountDownLatch latch = new CountDownLatch(1);
             retry.withBackoff(consumer, bulkRequest, new ActionListener<BulkResponse>() {
                 @Override
                 public void onResponse(BulkResponse response) {
+                    onBulkCompleted(bulkRequest, response);
                     try {
                         listener.afterBulk(executionId, bulkRequest, response);
                     } finally {
@@ -75,6 +207,7 @@ public final class BulkRequestHandler {
 
                 @Override
                 public void onFailure(Exception e) {
+                    onBulkCompleted(bulkRequest, null);
                     try {
                         listener.afterBulk(executionId, bulkRequest, e);
                     } finally {
@@ -84,7 +217,7 @@ public final class BulkRequestHandler {
                 }
             }, Settings.EMPTY);
             bulkRequestSetupSuccessful = true;
-            if (concurrentRequests == 0) {
+            if (synchronous) {
                 latch.await();
             }
         } catch (InterruptedException e) {
@@ -102,10 +235,38 @@ public final class BulkRequestHandler {
     }
 
     boolean awaitClose(long timeout, TimeUnit unit) throws InterruptedException {
-        if (semaphore.tryAcquire(this.concurrentRequests, timeout, unit)) {
-            semaphore.release(this.concurrentRequests);
+        final int concurrentRequests;
+        synchronized (this) {
+            // freeze the number of permits so that all of them can be acquired
+            closing = true;
+            concurrentRequests = this.concurrentRequests;
+        }
+        if (semaphore.tryAcquire(concurrentRequests, timeout, unit)) {
+            semaphore.release(concurrentRequests);
             return true;
         }
         return false;
     }
+
+    /**
+     * Whether all the bulk requests that can be executed concurrently are in flight, in which case the next bulk request blocks
+     * the caller until one of them completes.
+     */
+    boolean isSaturated() {
+        return semaphore.availablePermits() <= 0;
+    }
+
+    /**
+     * A {@link Semaphore} whose number of permits can be reduced, for adaptive concurrency.
+     */
+    private static final class ResizableSemaphore extends Semaphore {
+        ResizableSemaphore(int permits) {
+            super(permits);
+        }
+
+        @Override
+        protected void reducePermits(int reduction) {
+            super.reducePermits(reduction);
+        }
+    }
 }
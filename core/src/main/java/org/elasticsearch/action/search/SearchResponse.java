@@ -24,10 +24,13 @@ import org.elasticsearch.action.ActionResponse;
 import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.ParseField;
 import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.collect.Iterators;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.ChunkedToXContent;
 import org.elasticsearch.common.xcontent.StatusToXContentObject;
+import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.rest.RestStatus;
@@ -41,6 +44,8 @@ import org.elasticsearch.search.suggest.Suggest;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -51,7 +56,7 @@ import static org.elasticsearch.common.xcontent.XContentParserUtils.ensureExpect
 /**
  * A response of a search request.
  */
-public class SearchResponse extends ActionResponse implements StatusToXContentObject {
+public class SearchResponse extends ActionResponse implements StatusToXContentObject, ChunkedToXContent {
 
     private static final ParseField SCROLL_ID = new ParseField("_scroll_id");
     private static final ParseField TOOK = new ParseField("took");
@@ -208,6 +213,24 @@ public class SearchResponse extends ActionResponse implements StatusToXContentOb
     }
 
     public XContentBuilder innerToXContent(XContentBuilder builder, Params params) throws IOException {
+        headerToXContent(builder, params);
+        internalResponse.toXContent(builder, params);
+        return builder;
+    }
+
+    /**
+     * Renders the response like {@link #toXContent(XContentBuilder, Params)} but with every search hit as a separate piece
+     */
+    @Override
+    public Iterator<? extends ToXContent> toXContentChunked() {
+        return Iterators.<ToXContent>concat(
+            Collections.singletonList((ToXContent) (builder, params) -> headerToXContent(builder.startObject(), params)).iterator(),
+            internalResponse.hits().toXContentChunked(),
+            Collections.singletonList((ToXContent) (builder, params) ->
+                internalResponse.sectionsAfterHitsToXContent(builder, params).endObject()).iterator());
+    }
+
+    private XContentBuilder headerToXContent(XContentBuilder builder, Params params) throws IOException {
         if (scrollId != null) {
             builder.field(SCROLL_ID.getPreferredName(), scrollId);
         }
@@ -221,7 +244,6 @@ public class SearchResponse extends ActionResponse implements StatusToXContentOb
         }
         RestActions.buildBroadcastShardsHeader(builder, params, getTotalShards(), getSuccessfulShards(), getSkippedShards(),
             getFailedShards(), getShardFailures());
-        internalResponse.toXContent(builder, params);
         return builder;
     }
 
@@ -104,6 +104,13 @@ public class SearchResponseSections implements ToXContentFragment {
     @Override
     public final XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         hits.toXContent(builder, params);
+        return sectionsAfterHitsToXContent(builder, params);
+    }
+
+    /**
+     * Renders all sections but the hits, which come first in {@link #toXContent(XContentBuilder, Params)}
+     */
+    final XContentBuilder sectionsAfterHitsToXContent(XContentBuilder builder, Params params) throws IOException {
         if (aggregations != null) {
             aggregations.toXContent(builder, params);
         }
@@ -21,6 +21,7 @@ package org.elasticsearch.cluster;
 
 import com.carrotsearch.hppc.cursors.ObjectObjectCursor;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.common.collect.ImmutableOpenMap;
 import org.elasticsearch.common.io.stream.StreamInput;
@@ -43,11 +44,23 @@ public class ClusterInfo implements ToXContentFragment, Writeable {
     final ImmutableOpenMap<String, Long> shardSizes;
     public static final ClusterInfo EMPTY = new ClusterInfo();
     final ImmutableOpenMap<ShardRouting, String> routingToDataPath;
+    final ImmutableOpenMap<String, Double> shardGrowthRates;
 
     protected ClusterInfo() {
        this(ImmutableOpenMap.of(), ImmutableOpenMap.of(), ImmutableOpenMap.of(), ImmutableOpenMap.of());
     }
 
+    /**
+     * Creates a new ClusterInfo instance without any shard growth rates.
+     *
+     * @see #ClusterInfo(ImmutableOpenMap, ImmutableOpenMap, ImmutableOpenMap, ImmutableOpenMap, ImmutableOpenMap)
+     */
+    public ClusterInfo(ImmutableOpenMap<String, DiskUsage> leastAvailableSpaceUsage,
+            ImmutableOpenMap<String, DiskUsage> mostAvailableSpaceUsage, ImmutableOpenMap<String, Long> shardSizes,
+            ImmutableOpenMap<ShardRouting, String> routingToDataPath) {
+        this(leastAvailableSpaceUsage, mostAvailableSpaceUsage, shardSizes, routingToDataPath, ImmutableOpenMap.of());
+    }
+
     /**
      * Creates a new ClusterInfo instance.
      *
@@ -55,15 +68,17 @@ public class ClusterInfo implements ToXContentFragment, Writeable {
      * @param mostAvailableSpaceUsage  a node id to disk usage mapping for the path that has the most available space on the node.
      * @param shardSizes a shardkey to size in bytes mapping per shard.
      * @param routingToDataPath the shard routing to datapath mapping
+     * @param shardGrowthRates a shardkey to growth rate in bytes per second mapping per shard.
      * @see #shardIdentifierFromRouting
      */
     public ClusterInfo(ImmutableOpenMap<String, DiskUsage> leastAvailableSpaceUsage,
             ImmutableOpenMap<String, DiskUsage> mostAvailableSpaceUsage, ImmutableOpenMap<String, Long> shardSizes,
-            ImmutableOpenMap<ShardRouting, String> routingToDataPath) {
+            ImmutableOpenMap<ShardRouting, String> routingToDataPath, ImmutableOpenMap<String, Double> shardGrowthRates) {
         this.leastAvailableSpaceUsage = leastAvailableSpaceUsage;
         this.shardSizes = shardSizes;
         this.mostAvailableSpaceUsage = mostAvailableSpaceUsage;
         this.routingToDataPath = routingToDataPath;
+        this.shardGrowthRates = shardGrowthRates;
     }
 
     public ClusterInfo(StreamInput in) throws IOException {
@@ -80,6 +95,13 @@ public class ClusterInfo implements ToXContentFragment, Writeable {
         this.shardSizes = sizeBuilder.putAll(sizeMap).build();
         ImmutableOpenMap.Builder<ShardRouting, String> routingBuilder = ImmutableOpenMap.builder();
         this.routingToDataPath = routingBuilder.putAll(routingMap).build();
+        if (in.getVersion().onOrAfter(Version.V_7_0_0_alpha1)) {
+            Map<String, Double> growthMap = in.readMap(StreamInput::readString, StreamInput::readDouble);
+            ImmutableOpenMap.Builder<String, Double> growthBuilder = ImmutableOpenMap.builder();
+            this.shardGrowthRates = growthBuilder.putAll(growthMap).build();
+        } else {
+            this.shardGrowthRates = ImmutableOpenMap.of();
+        }
     }
 
     @Override
@@ -108,6 +130,13 @@ public class ClusterInfo implements ToXContentFragment, Writeable {
             c.key.writeTo(out);
             out.writeString(c.value);
         }
+        if (out.getVersion().onOrAfter(Version.V_7_0_0_alpha1)) {
+            out.writeVInt(this.shardGrowthRates.size());
+            for (ObjectObjectCursor<String, Double> c : this.shardGrowthRates) {
+                out.writeString(c.key);
+                out.writeDouble(c.value);
+            }
+        }
     }
 
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
@@ -143,6 +172,12 @@ public class ClusterInfo implements ToXContentFragment, Writeable {
             }
         }
         builder.endObject(); // end "shard_paths"
+        builder.startObject("shard_growth_rates"); {
+            for (ObjectObjectCursor<String, Double> c : this.shardGrowthRates) {
+                builder.field(c.key + "_bytes_per_second", c.value);
+            }
+        }
+        builder.endObject(); // end "shard_growth_rates"
         return builder;
     }
 
@@ -182,6 +217,15 @@ public class ClusterInfo implements ToXContentFragment, Writeable {
         return shardSize == null ? defaultValue : shardSize;
     }
 
+    /**
+     * Returns the rate in bytes per second at which the given shard grew recently or <code>defaultValue</code> if that metric
+     * is not available. The rate may be negative if the shard shrank, e.g. due to merges.
+     */
+    public double getShardGrowthRate(ShardRouting shardRouting, double defaultValue) {
+        Double growthRate = shardGrowthRates.get(shardIdentifierFromRouting(shardRouting));
+        return growthRate == null ? defaultValue : growthRate;
+    }
+
     /**
      * Method that incorporates the ShardId for the shard into a string that
      * includes a 'p' or 'r' depending on whether the shard is a primary.
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.cluster;
 
+import com.carrotsearch.hppc.cursors.ObjectObjectCursor;
 import org.apache.logging.log4j.Logger;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.action.LatchedActionListener;
@@ -63,7 +64,8 @@ import java.util.function.Consumer;
  * ClusterInfoUpdateJob if a node has been added.
  *
  * Every time the timer runs, gathers information about the disk usage and
- * shard sizes across the cluster.
+ * shard sizes across the cluster. The shard sizes of consecutive runs are
+ * compared to maintain a smoothed growth rate per shard.
  */
 public class InternalClusterInfoService extends AbstractComponent
     implements ClusterInfoService, LocalNodeMasterListener, ClusterStateListener {
@@ -75,12 +77,19 @@ public class InternalClusterInfoService extends AbstractComponent
         Setting.positiveTimeSetting("cluster.info.update.timeout", TimeValue.timeValueSeconds(15),
             Property.Dynamic, Property.NodeScope);
 
+    /**
+     * The weight given to the most recent observation when updating the exponentially weighted growth rate of a shard.
+     */
+    static final double GROWTH_RATE_SMOOTHING_FACTOR = 0.3;
+
     private volatile TimeValue updateFrequency;
 
     private volatile ImmutableOpenMap<String, DiskUsage> leastAvailableSpaceUsages;
     private volatile ImmutableOpenMap<String, DiskUsage> mostAvailableSpaceUsages;
     private volatile ImmutableOpenMap<ShardRouting, String> shardRoutingToDataPath;
     private volatile ImmutableOpenMap<String, Long> shardSizes;
+    private volatile ImmutableOpenMap<String, Double> shardGrowthRates;
+    private volatile long shardSizesTimestampMillis;
     private volatile boolean isMaster = false;
     private volatile boolean enabled;
     private volatile TimeValue fetchTimeout;
@@ -96,6 +105,7 @@ public class InternalClusterInfoService extends AbstractComponent
         this.mostAvailableSpaceUsages = ImmutableOpenMap.of();
         this.shardRoutingToDataPath = ImmutableOpenMap.of();
         this.shardSizes = ImmutableOpenMap.of();
+        this.shardGrowthRates = ImmutableOpenMap.of();
         this.clusterService = clusterService;
         this.threadPool = threadPool;
         this.client = client;
@@ -201,7 +211,8 @@ public class InternalClusterInfoService extends AbstractComponent
 
     @Override
     public ClusterInfo getClusterInfo() {
-        return new ClusterInfo(leastAvailableSpaceUsages, mostAvailableSpaceUsages, shardSizes, shardRoutingToDataPath);
+        return new ClusterInfo(leastAvailableSpaceUsages, mostAvailableSpaceUsages, shardSizes, shardRoutingToDataPath,
+            shardGrowthRates);
     }
 
     /**
@@ -323,7 +334,12 @@ public class InternalClusterInfoService extends AbstractComponent
                 ImmutableOpenMap.Builder<String, Long> newShardSizes = ImmutableOpenMap.builder();
                 ImmutableOpenMap.Builder<ShardRouting, String> newShardRoutingToDataPath = ImmutableOpenMap.builder();
                 buildShardLevelInfo(logger, stats, newShardSizes, newShardRoutingToDataPath, clusterService.state());
-                shardSizes = newShardSizes.build();
+                final long nowMillis = threadPool.relativeTimeInMillis();
+                final ImmutableOpenMap<String, Long> currentShardSizes = newShardSizes.build();
+                shardGrowthRates = updateShardGrowthRates(shardSizes, currentShardSizes, nowMillis - shardSizesTimestampMillis,
+                    shardGrowthRates);
+                shardSizes = currentShardSizes;
+                shardSizesTimestampMillis = nowMillis;
                 shardRoutingToDataPath = newShardRoutingToDataPath.build();
             }
 
@@ -341,6 +357,7 @@ public class InternalClusterInfoService extends AbstractComponent
                     }
                     // we empty the usages list, to be safe - we don't know what's going on.
                     shardSizes = ImmutableOpenMap.of();
+                    shardGrowthRates = ImmutableOpenMap.of();
                     shardRoutingToDataPath = ImmutableOpenMap.of();
                 }
             }
@@ -381,6 +398,34 @@ public class InternalClusterInfoService extends AbstractComponent
         }
     }
 
+    /**
+     * Computes the growth rate in bytes per second of every shard that is present in both the previous and the current shard
+     * sizes, smoothing it with the previously computed rate of the shard if there is one.
+     */
+    static ImmutableOpenMap<String, Double> updateShardGrowthRates(ImmutableOpenMap<String, Long> previousShardSizes,
+                                                                   ImmutableOpenMap<String, Long> currentShardSizes,
+                                                                   long elapsedMillis,
+                                                                   ImmutableOpenMap<String, Double> previousGrowthRates) {
+        if (elapsedMillis <= 0 || previousShardSizes.isEmpty()) {
+            return previousGrowthRates;
+        }
+        ImmutableOpenMap.Builder<String, Double> newGrowthRates = ImmutableOpenMap.builder();
+        for (ObjectObjectCursor<String, Long> c : currentShardSizes) {
+            final Long previousSize = previousShardSizes.get(c.key);
+            if (previousSize == null) {
+                continue;
+            }
+            final double observedRate = (c.value - previousSize) * 1000.0d / elapsedMillis;
+            final Double previousRate = previousGrowthRates.get(c.key);
+            if (previousRate == null) {
+                newGrowthRates.put(c.key, observedRate);
+            } else {
+                newGrowthRates.put(c.key, previousRate + GROWTH_RATE_SMOOTHING_FACTOR * (observedRate - previousRate));
+            }
+        }
+        return newGrowthRates.build();
+    }
+
     static void fillDiskUsagePerNode(Logger logger, List<NodeStats> nodeStatsArray,
             ImmutableOpenMap.Builder<String, DiskUsage> newLeastAvaiableUsages,
             ImmutableOpenMap.Builder<String, DiskUsage> newMostAvaiableUsages) {
@@ -1000,7 +1000,8 @@ public class IndexMetaData implements Diffable<IndexMetaData>, ToXContentFragmen
 
         public IndexMetaData build() {
             ImmutableOpenMap.Builder<String, AliasMetaData> tmpAliases = aliases;
-            Settings tmpSettings = settings;
+            // indices created from the same templates share all settings that are not unique to the index
+            Settings tmpSettings = IndexSettingsInterner.intern(settings);
 
             // update default mapping on the MappingMetaData
             if (mappings.containsKey(MapperService.DEFAULT_MAPPING)) {
@@ -0,0 +1,80 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.cluster.metadata;
+
+import org.elasticsearch.common.settings.Settings;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Lets the settings of indices that were created from the same templates share their memory. Settings that are unique to
+ * each index, like the uuid or the creation date, are split off and overlaid on a canonical instance of the remaining
+ * settings, see {@link Settings#overlay(Settings, Settings)}.
+ *
+ * Canonical instances are only weakly referenced and disappear once no index metadata refers to them anymore.
+ */
+final class IndexSettingsInterner {
+
+    /** Settings that are unique to each index and are never shared. */
+    static final Set<String> PER_INDEX_SETTINGS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+        IndexMetaData.SETTING_INDEX_UUID,
+        IndexMetaData.SETTING_INDEX_PROVIDED_NAME,
+        IndexMetaData.SETTING_CREATION_DATE,
+        IndexMetaData.SETTING_VERSION_CREATED,
+        IndexMetaData.SETTING_VERSION_UPGRADED)));
+
+    private static final Map<Settings, WeakReference<Settings>> SHARED_SETTINGS = new WeakHashMap<>();
+
+    private IndexSettingsInterner() {}
+
+    /**
+     * Returns settings that are equal to the given index settings but share all settings that are not unique to the index
+     * with other indices.
+     */
+    static Settings intern(Settings settings) {
+        // filtered settings are views over the full settings, copy them so that neither part retains the full settings
+        final Settings shared = internShared(
+            Settings.builder().put(settings.filter(key -> PER_INDEX_SETTINGS.contains(key) == false)).build());
+        if (shared == settings.getOverlayBase()) {
+            // already shares the canonical instance
+            return settings;
+        }
+        return Settings.overlay(shared, Settings.builder().put(settings.filter(PER_INDEX_SETTINGS::contains)).build());
+    }
+
+    private static Settings internShared(Settings shared) {
+        synchronized (SHARED_SETTINGS) {
+            WeakReference<Settings> ref = SHARED_SETTINGS.get(shared);
+            Settings existing = ref == null ? null : ref.get();
+            if (existing != null) {
+                return existing;
+            }
+            SHARED_SETTINGS.put(shared, new WeakReference<>(shared));
+            return shared;
+        }
+    }
+}
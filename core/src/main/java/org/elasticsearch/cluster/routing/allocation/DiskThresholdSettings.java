@@ -60,6 +60,9 @@ public class DiskThresholdSettings {
     public static final Setting<TimeValue> CLUSTER_ROUTING_ALLOCATION_REROUTE_INTERVAL_SETTING =
         Setting.positiveTimeSetting("cluster.routing.allocation.disk.reroute_interval", TimeValue.timeValueSeconds(60),
             Setting.Property.Dynamic, Setting.Property.NodeScope);
+    public static final Setting<TimeValue> CLUSTER_ROUTING_ALLOCATION_DISK_FORECAST_HORIZON_SETTING =
+        Setting.positiveTimeSetting("cluster.routing.allocation.disk.forecast_horizon", TimeValue.ZERO,
+            Setting.Property.Dynamic, Setting.Property.NodeScope);
 
     private volatile String lowWatermarkRaw;
     private volatile String highWatermarkRaw;
@@ -73,6 +76,7 @@ public class DiskThresholdSettings {
     private volatile String floodStageRaw;
     private volatile Double freeDiskThresholdFloodStage;
     private volatile ByteSizeValue freeBytesThresholdFloodStage;
+    private volatile TimeValue forecastHorizon;
 
     public DiskThresholdSettings(Settings settings, ClusterSettings clusterSettings) {
         final String lowWatermark = CLUSTER_ROUTING_ALLOCATION_LOW_DISK_WATERMARK_SETTING.get(settings);
@@ -84,12 +88,14 @@ public class DiskThresholdSettings {
         this.includeRelocations = CLUSTER_ROUTING_ALLOCATION_INCLUDE_RELOCATIONS_SETTING.get(settings);
         this.rerouteInterval = CLUSTER_ROUTING_ALLOCATION_REROUTE_INTERVAL_SETTING.get(settings);
         this.enabled = CLUSTER_ROUTING_ALLOCATION_DISK_THRESHOLD_ENABLED_SETTING.get(settings);
+        this.forecastHorizon = CLUSTER_ROUTING_ALLOCATION_DISK_FORECAST_HORIZON_SETTING.get(settings);
         clusterSettings.addSettingsUpdateConsumer(CLUSTER_ROUTING_ALLOCATION_LOW_DISK_WATERMARK_SETTING, this::setLowWatermark);
         clusterSettings.addSettingsUpdateConsumer(CLUSTER_ROUTING_ALLOCATION_HIGH_DISK_WATERMARK_SETTING, this::setHighWatermark);
         clusterSettings.addSettingsUpdateConsumer(CLUSTER_ROUTING_ALLOCATION_DISK_FLOOD_STAGE_WATERMARK_SETTING, this::setFloodStageRaw);
         clusterSettings.addSettingsUpdateConsumer(CLUSTER_ROUTING_ALLOCATION_INCLUDE_RELOCATIONS_SETTING, this::setIncludeRelocations);
         clusterSettings.addSettingsUpdateConsumer(CLUSTER_ROUTING_ALLOCATION_REROUTE_INTERVAL_SETTING, this::setRerouteInterval);
         clusterSettings.addSettingsUpdateConsumer(CLUSTER_ROUTING_ALLOCATION_DISK_THRESHOLD_ENABLED_SETTING, this::setEnabled);
+        clusterSettings.addSettingsUpdateConsumer(CLUSTER_ROUTING_ALLOCATION_DISK_FORECAST_HORIZON_SETTING, this::setForecastHorizon);
     }
 
     static final class LowDiskWatermarkValidator implements Setting.Validator<String> {
@@ -210,6 +216,10 @@ public class DiskThresholdSettings {
         this.rerouteInterval = rerouteInterval;
     }
 
+    private void setForecastHorizon(TimeValue forecastHorizon) {
+        this.forecastHorizon = forecastHorizon;
+    }
+
     private void setEnabled(boolean enabled) {
         this.enabled = enabled;
     }
@@ -288,6 +298,14 @@ public class DiskThresholdSettings {
         return enabled;
     }
 
+    /**
+     * Returns how far ahead the disk usage of a node is projected based on the growth rates of its shards. A value of zero
+     * disables the projection and only the current disk usage is taken into account.
+     */
+    public TimeValue getForecastHorizon() {
+        return forecastHorizon;
+    }
+
     public TimeValue getRerouteInterval() {
         return rerouteInterval;
     }
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.cluster.routing.allocation.decider;
 
+import java.util.Arrays;
 import java.util.Set;
 
 import com.carrotsearch.hppc.cursors.ObjectCursor;
@@ -37,9 +38,11 @@ import org.elasticsearch.common.collect.ImmutableOpenMap;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.shard.ShardId;
 
+import static org.elasticsearch.cluster.routing.allocation.DiskThresholdSettings.CLUSTER_ROUTING_ALLOCATION_DISK_FORECAST_HORIZON_SETTING;
 import static org.elasticsearch.cluster.routing.allocation.DiskThresholdSettings.CLUSTER_ROUTING_ALLOCATION_HIGH_DISK_WATERMARK_SETTING;
 import static org.elasticsearch.cluster.routing.allocation.DiskThresholdSettings.CLUSTER_ROUTING_ALLOCATION_LOW_DISK_WATERMARK_SETTING;
 
@@ -65,6 +68,11 @@ import static org.elasticsearch.cluster.routing.allocation.DiskThresholdSettings
  *
  * <code>cluster.routing.allocation.disk.threshold_enabled</code> is used to
  * enable or disable this decider. It defaults to false (disabled).
+ *
+ * <code>cluster.routing.allocation.disk.forecast_horizon</code> makes the
+ * decider check the watermarks against the disk usage a node is expected to
+ * reach after its shards kept growing at their recent rate for this long.
+ * It defaults to 0, which disables the forecast.
  */
 public class DiskThresholdDecider extends AllocationDecider {
 
@@ -116,6 +124,10 @@ public class DiskThresholdDecider extends AllocationDecider {
         // subtractLeavingShards is passed as false here, because they still use disk space, and therefore should we should be extra careful
         // and take the size into account
         DiskUsage usage = getDiskUsage(node, allocation, usages, false);
+        // when forecasting, judge the node by the disk usage it is expected to reach once its shards kept growing for a while
+        final TimeValue forecastHorizon = diskThresholdSettings.getForecastHorizon();
+        final long forecastGrowth = forecastShardGrowth(node, allocation, usage.getPath(), forecastHorizon);
+        usage = usageAfterGrowth(usage, forecastGrowth);
         // First, check that the node currently over the low watermark
         double freeDiskPercentage = usage.getFreeDiskAsPercentage();
         // Cache the used disk percentage for displaying disk percentages consistent with documentation
@@ -137,7 +149,7 @@ public class DiskThresholdDecider extends AllocationDecider {
                     logger.debug("less than the required {} free bytes threshold ({} bytes free) on node {}, preventing allocation",
                             diskThresholdSettings.getFreeBytesThresholdLow(), freeBytes, node.nodeId());
                 }
-                return allocation.decision(Decision.NO, NAME,
+                return decision(allocation, Decision.NO, forecastHorizon, forecastGrowth,
                     "the node is above the low watermark cluster setting [%s=%s], having less than the minimum required [%s] free " +
                     "space, actual free: [%s]",
                     CLUSTER_ROUTING_ALLOCATION_LOW_DISK_WATERMARK_SETTING.getKey(),
@@ -151,7 +163,7 @@ public class DiskThresholdDecider extends AllocationDecider {
                                     "but allowing allocation because primary has never been allocated",
                             diskThresholdSettings.getFreeBytesThresholdLow(), freeBytes, node.nodeId());
                 }
-                return allocation.decision(Decision.YES, NAME,
+                return decision(allocation, Decision.YES, forecastHorizon, forecastGrowth,
                         "the node is above the low watermark, but less than the high watermark, and this primary shard has " +
                         "never been allocated before");
             } else {
@@ -162,7 +174,7 @@ public class DiskThresholdDecider extends AllocationDecider {
                                     "preventing allocation even though primary has never been allocated",
                             diskThresholdSettings.getFreeBytesThresholdHigh(), freeBytes, node.nodeId());
                 }
-                return allocation.decision(Decision.NO, NAME,
+                return decision(allocation, Decision.NO, forecastHorizon, forecastGrowth,
                     "the node is above the high watermark cluster setting [%s=%s], having less than the minimum required [%s] free " +
                     "space, actual free: [%s]",
                     CLUSTER_ROUTING_ALLOCATION_HIGH_DISK_WATERMARK_SETTING.getKey(),
@@ -180,7 +192,7 @@ public class DiskThresholdDecider extends AllocationDecider {
                             Strings.format1Decimals(usedDiskThresholdLow, "%"),
                             Strings.format1Decimals(usedDiskPercentage, "%"), node.nodeId());
                 }
-                return allocation.decision(Decision.NO, NAME,
+                return decision(allocation, Decision.NO, forecastHorizon, forecastGrowth,
                     "the node is above the low watermark cluster setting [%s=%s], using more disk space than the maximum allowed " +
                     "[%s%%], actual free: [%s%%]",
                     CLUSTER_ROUTING_ALLOCATION_LOW_DISK_WATERMARK_SETTING.getKey(),
@@ -194,7 +206,7 @@ public class DiskThresholdDecider extends AllocationDecider {
                             Strings.format1Decimals(usedDiskThresholdLow, "%"),
                             Strings.format1Decimals(usedDiskPercentage, "%"), node.nodeId());
                 }
-                return allocation.decision(Decision.YES, NAME,
+                return decision(allocation, Decision.YES, forecastHorizon, forecastGrowth,
                     "the node is above the low watermark, but less than the high watermark, and this primary shard has " +
                     "never been allocated before");
             } else {
@@ -206,7 +218,7 @@ public class DiskThresholdDecider extends AllocationDecider {
                             Strings.format1Decimals(diskThresholdSettings.getFreeDiskThresholdHigh(), "%"),
                             Strings.format1Decimals(freeDiskPercentage, "%"), node.nodeId());
                 }
-                return allocation.decision(Decision.NO, NAME,
+                return decision(allocation, Decision.NO, forecastHorizon, forecastGrowth,
                     "the node is above the high watermark cluster setting [%s=%s], using more disk space than the maximum allowed " +
                     "[%s%%], actual free: [%s%%]",
                     CLUSTER_ROUTING_ALLOCATION_HIGH_DISK_WATERMARK_SETTING.getKey(),
@@ -215,14 +227,15 @@ public class DiskThresholdDecider extends AllocationDecider {
         }
 
         // Secondly, check that allocating the shard to this node doesn't put it above the high watermark
-        final long shardSize = getExpectedShardSize(shardRouting, allocation, 0);
+        final long shardSize = getExpectedShardSize(shardRouting, allocation, 0)
+            + forecastShardGrowth(shardRouting, clusterInfo, forecastHorizon);
         double freeSpaceAfterShard = freeDiskPercentageAfterShardAssigned(usage, shardSize);
         long freeBytesAfterShard = freeBytes - shardSize;
         if (freeBytesAfterShard < diskThresholdSettings.getFreeBytesThresholdHigh().getBytes()) {
             logger.warn("after allocating, node [{}] would have less than the required " +
                     "{} free bytes threshold ({} bytes free), preventing allocation",
                     node.nodeId(), diskThresholdSettings.getFreeBytesThresholdHigh(), freeBytesAfterShard);
-            return allocation.decision(Decision.NO, NAME,
+            return decision(allocation, Decision.NO, forecastHorizon, forecastGrowth,
                 "allocating the shard to this node will bring the node above the high watermark cluster setting [%s=%s] " +
                     "and cause it to have less than the minimum required [%s] of free space (free bytes after shard added: [%s])",
                 CLUSTER_ROUTING_ALLOCATION_HIGH_DISK_WATERMARK_SETTING.getKey(),
@@ -234,14 +247,14 @@ public class DiskThresholdDecider extends AllocationDecider {
                             "{} free disk threshold ({} free), preventing allocation",
                     node.nodeId(), Strings.format1Decimals(diskThresholdSettings.getFreeDiskThresholdHigh(), "%"),
                                                            Strings.format1Decimals(freeSpaceAfterShard, "%"));
-            return allocation.decision(Decision.NO, NAME,
+            return decision(allocation, Decision.NO, forecastHorizon, forecastGrowth,
                 "allocating the shard to this node will bring the node above the high watermark cluster setting [%s=%s] " +
                     "and cause it to use more disk space than the maximum allowed [%s%%] (free space after shard added: [%s%%])",
                 CLUSTER_ROUTING_ALLOCATION_HIGH_DISK_WATERMARK_SETTING.getKey(),
                 diskThresholdSettings.getHighWatermarkRaw(), usedDiskThresholdHigh, freeSpaceAfterShard);
         }
 
-        return allocation.decision(Decision.YES, NAME,
+        return decision(allocation, Decision.YES, forecastHorizon, forecastGrowth,
                 "enough disk for shard on node, free: [%s], shard size: [%s], free after allocating shard: [%s]",
                 new ByteSizeValue(freeBytes),
                 new ByteSizeValue(shardSize),
@@ -262,7 +275,10 @@ public class DiskThresholdDecider extends AllocationDecider {
 
         // subtractLeavingShards is passed as true here, since this is only for shards remaining, we will *eventually* have enough disk
         // since shards are moving away. No new shards will be incoming since in canAllocate we pass false for this check.
-        final DiskUsage usage = getDiskUsage(node, allocation, usages, true);
+        final DiskUsage currentUsage = getDiskUsage(node, allocation, usages, true);
+        final TimeValue forecastHorizon = diskThresholdSettings.getForecastHorizon();
+        final long forecastGrowth = forecastShardGrowth(node, allocation, currentUsage.getPath(), forecastHorizon);
+        final DiskUsage usage = usageAfterGrowth(currentUsage, forecastGrowth);
         final String dataPath = clusterInfo.getDataPath(shardRouting);
         // If this node is already above the high threshold, the shard cannot remain (get it off!)
         final double freeDiskPercentage = usage.getFreeDiskAsPercentage();
@@ -279,7 +295,7 @@ public class DiskThresholdDecider extends AllocationDecider {
                 logger.debug("less than the required {} free bytes threshold ({} bytes free) on node {}, shard cannot remain",
                         diskThresholdSettings.getFreeBytesThresholdHigh(), freeBytes, node.nodeId());
             }
-            return allocation.decision(Decision.NO, NAME,
+            return decision(allocation, Decision.NO, forecastHorizon, forecastGrowth,
                 "the shard cannot remain on this node because it is above the high watermark cluster setting [%s=%s] " +
                     "and there is less than the required [%s] free space on node, actual free: [%s]",
                 CLUSTER_ROUTING_ALLOCATION_HIGH_DISK_WATERMARK_SETTING.getKey(),
@@ -291,7 +307,7 @@ public class DiskThresholdDecider extends AllocationDecider {
                 logger.debug("less than the required {}% free disk threshold ({}% free) on node {}, shard cannot remain",
                         diskThresholdSettings.getFreeDiskThresholdHigh(), freeDiskPercentage, node.nodeId());
             }
-            return allocation.decision(Decision.NO, NAME,
+            return decision(allocation, Decision.NO, forecastHorizon, forecastGrowth,
                 "the shard cannot remain on this node because it is above the high watermark cluster setting [%s=%s] " +
                     "and there is less than the required [%s%%] free disk on node, actual free: [%s%%]",
                 CLUSTER_ROUTING_ALLOCATION_HIGH_DISK_WATERMARK_SETTING.getKey(),
@@ -299,10 +315,67 @@ public class DiskThresholdDecider extends AllocationDecider {
                 diskThresholdSettings.getFreeDiskThresholdHigh(), freeDiskPercentage);
         }
 
-        return allocation.decision(Decision.YES, NAME,
+        return decision(allocation, Decision.YES, forecastHorizon, forecastGrowth,
                 "there is enough disk on this node for the shard to remain, free: [%s]", new ByteSizeValue(freeBytes));
     }
 
+    /**
+     * Returns the number of bytes the shards on the given data path of the node are expected to grow by within the
+     * forecast horizon, based on the growth rates reported in the cluster info. Shards whose data path is unknown are
+     * included. Shards that recently shrank are not expected to free up any space.
+     */
+    static long forecastShardGrowth(RoutingNode node, RoutingAllocation allocation, String dataPath, TimeValue forecastHorizon) {
+        if (forecastHorizon.millis() <= 0) {
+            return 0;
+        }
+        final ClusterInfo clusterInfo = allocation.clusterInfo();
+        long totalGrowth = 0;
+        for (ShardRouting routing : node) {
+            String actualPath = clusterInfo.getDataPath(routing);
+            if (actualPath == null || actualPath.equals(dataPath)) {
+                totalGrowth += forecastShardGrowth(routing, clusterInfo, forecastHorizon);
+            }
+        }
+        return totalGrowth;
+    }
+
+    /**
+     * Returns the number of bytes the given shard is expected to grow by within the forecast horizon.
+     */
+    static long forecastShardGrowth(ShardRouting shard, ClusterInfo clusterInfo, TimeValue forecastHorizon) {
+        if (forecastHorizon.millis() <= 0) {
+            return 0;
+        }
+        final double growthRate = clusterInfo.getShardGrowthRate(shard, 0);
+        return growthRate <= 0 ? 0 : (long) (growthRate * forecastHorizon.millis() / 1000.0d);
+    }
+
+    private static DiskUsage usageAfterGrowth(DiskUsage usage, long growth) {
+        if (growth == 0) {
+            return usage;
+        }
+        return new DiskUsage(usage.getNodeId(), usage.getNodeName(), usage.getPath(), usage.getTotalBytes(),
+            usage.getFreeBytes() - growth);
+    }
+
+    /**
+     * Builds a decision of this decider, mentioning the forecast growth in the explanation if forecasting is enabled so that
+     * the allocation explain output shows on which projected disk usage the decision is based.
+     */
+    private static Decision decision(RoutingAllocation allocation, Decision decision, TimeValue forecastHorizon, long forecastGrowth,
+                                     String explanation, Object... params) {
+        if (forecastHorizon.millis() <= 0) {
+            return allocation.decision(decision, NAME, explanation, params);
+        }
+        final Object[] paramsWithForecast = Arrays.copyOf(params, params.length + 3);
+        paramsWithForecast[params.length] = CLUSTER_ROUTING_ALLOCATION_DISK_FORECAST_HORIZON_SETTING.getKey();
+        paramsWithForecast[params.length + 1] = forecastHorizon;
+        paramsWithForecast[params.length + 2] = new ByteSizeValue(forecastGrowth);
+        return allocation.decision(decision, NAME,
+            explanation + ", projected over the forecast horizon [%s=%s] which includes [%s] of expected shard growth on the node",
+            paramsWithForecast);
+    }
+
     private DiskUsage getDiskUsage(RoutingNode node, RoutingAllocation allocation,
                                    ImmutableOpenMap<String, DiskUsage> usages, boolean subtractLeavingShards) {
         DiskUsage usage = usages.get(node.nodeId());
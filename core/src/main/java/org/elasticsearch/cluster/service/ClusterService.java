@@ -54,6 +54,13 @@ public class ClusterService extends AbstractLifecycleComponent {
             Setting.positiveTimeSetting("cluster.service.slow_task_logging_threshold", TimeValue.timeValueSeconds(30),
                     Property.Dynamic, Property.NodeScope);
 
+    public static final Setting<TimeValue> CLUSTER_SERVICE_TASK_PROMOTION_INTERVAL_SETTING =
+            Setting.timeSetting("cluster.service.task_promotion_interval", TimeValue.MINUS_ONE, TimeValue.MINUS_ONE,
+                    Property.Dynamic, Property.NodeScope);
+
+    public static final Setting<Integer> CLUSTER_SERVICE_MAX_TASKS_PER_BATCH_SETTING =
+            Setting.intSetting("cluster.service.max_tasks_per_batch", Integer.MAX_VALUE, 1, Property.Dynamic, Property.NodeScope);
+
     private final ClusterName clusterName;
 
     private final OperationRouting operationRouting;
@@ -70,6 +77,10 @@ public class ClusterService extends AbstractLifecycleComponent {
         this.clusterName = ClusterName.CLUSTER_NAME_SETTING.get(settings);
         this.clusterSettings.addSettingsUpdateConsumer(CLUSTER_SERVICE_SLOW_TASK_LOGGING_THRESHOLD_SETTING,
             this::setSlowTaskLoggingThreshold);
+        this.clusterSettings.addSettingsUpdateConsumer(CLUSTER_SERVICE_TASK_PROMOTION_INTERVAL_SETTING,
+            masterService::setTaskPromotionInterval);
+        this.clusterSettings.addSettingsUpdateConsumer(CLUSTER_SERVICE_MAX_TASKS_PER_BATCH_SETTING,
+            masterService::setMaxTasksPerBatch);
         this.initialClusterStateCustoms = initialClusterStateCustoms;
         this.clusterApplierService = new ClusterApplierService(settings, clusterSettings, threadPool, this::newClusterStateBuilder);
     }
@@ -63,7 +63,9 @@ import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 
+import static org.elasticsearch.cluster.service.ClusterService.CLUSTER_SERVICE_MAX_TASKS_PER_BATCH_SETTING;
 import static org.elasticsearch.cluster.service.ClusterService.CLUSTER_SERVICE_SLOW_TASK_LOGGING_THRESHOLD_SETTING;
+import static org.elasticsearch.cluster.service.ClusterService.CLUSTER_SERVICE_TASK_PROMOTION_INTERVAL_SETTING;
 import static org.elasticsearch.common.util.concurrent.EsExecutors.daemonThreadFactory;
 
 public class MasterService extends AbstractLifecycleComponent {
@@ -75,6 +77,8 @@ public class MasterService extends AbstractLifecycleComponent {
     private java.util.function.Supplier<ClusterState> clusterStateSupplier;
 
     private volatile TimeValue slowTaskLoggingThreshold;
+    private volatile TimeValue taskPromotionInterval;
+    private volatile int maxTasksPerBatch;
 
     protected final ThreadPool threadPool;
 
@@ -85,6 +89,8 @@ public class MasterService extends AbstractLifecycleComponent {
         super(settings);
         // TODO: introduce a dedicated setting for master service
         this.slowTaskLoggingThreshold = CLUSTER_SERVICE_SLOW_TASK_LOGGING_THRESHOLD_SETTING.get(settings);
+        this.taskPromotionInterval = CLUSTER_SERVICE_TASK_PROMOTION_INTERVAL_SETTING.get(settings);
+        this.maxTasksPerBatch = CLUSTER_SERVICE_MAX_TASKS_PER_BATCH_SETTING.get(settings);
         this.threadPool = threadPool;
     }
 
@@ -92,6 +98,14 @@ public class MasterService extends AbstractLifecycleComponent {
         this.slowTaskLoggingThreshold = slowTaskLoggingThreshold;
     }
 
+    public void setTaskPromotionInterval(TimeValue taskPromotionInterval) {
+        this.taskPromotionInterval = taskPromotionInterval;
+    }
+
+    public void setMaxTasksPerBatch(int maxTasksPerBatch) {
+        this.maxTasksPerBatch = maxTasksPerBatch;
+    }
+
     public synchronized void setClusterStatePublisher(BiConsumer<ClusterChangedEvent, Discovery.AckListener> publisher) {
         clusterStatePublisher = publisher;
     }
@@ -123,6 +137,16 @@ public class MasterService extends AbstractLifecycleComponent {
                         new ProcessClusterEventTimeoutException(timeout, task.source))));
         }
 
+        @Override
+        protected int maxBatchSize() {
+            return maxTasksPerBatch;
+        }
+
+        @Override
+        protected TimeValue promotionInterval() {
+            return taskPromotionInterval;
+        }
+
         @Override
         protected void run(Object batchingKey, List<? extends BatchedTask> tasks, String tasksSummary) {
             ClusterStateTaskExecutor<Object> taskExecutor = (ClusterStateTaskExecutor<Object>) batchingKey;
@@ -422,20 +446,24 @@ public class MasterService extends AbstractLifecycleComponent {
      * Returns the tasks that are pending.
      */
     public List<PendingClusterTask> pendingTasks() {
-        return Arrays.stream(threadPoolExecutor.getPending()).map(pending -> {
-            assert pending.task instanceof SourcePrioritizedRunnable :
-                "thread pool executor should only use SourcePrioritizedRunnable instances but found: " + pending.task.getClass().getName();
-            SourcePrioritizedRunnable task = (SourcePrioritizedRunnable) pending.task;
-            return new PendingClusterTask(pending.insertionOrder, pending.priority, new Text(task.source()),
-                task.getAgeInMillis(), pending.executing);
-        }).collect(Collectors.toList());
+        return Arrays.stream(threadPoolExecutor.getPending())
+            // promotions stand in for tasks that are still queued themselves
+            .filter(pending -> TaskBatcher.isPromotion(pending.task) == false)
+            .map(pending -> {
+                assert pending.task instanceof SourcePrioritizedRunnable :
+                    "thread pool executor should only use SourcePrioritizedRunnable instances but found: " +
+                        pending.task.getClass().getName();
+                SourcePrioritizedRunnable task = (SourcePrioritizedRunnable) pending.task;
+                return new PendingClusterTask(pending.insertionOrder, pending.priority, new Text(task.source()),
+                    task.getAgeInMillis(), pending.executing);
+            }).collect(Collectors.toList());
     }
 
     /**
      * Returns the number of currently pending tasks.
      */
     public int numberOfPendingTasks() {
-        return threadPoolExecutor.getNumberOfPendingTasks();
+        return Math.max(0, threadPoolExecutor.getNumberOfPendingTasks() - taskBatcher.numberOfQueuedPromotions());
     }
 
     /**
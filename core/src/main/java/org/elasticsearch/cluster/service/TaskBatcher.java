@@ -30,16 +30,29 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
  * Batching support for {@link PrioritizedEsThreadPoolExecutor}
  * Tasks that share the same batching key are batched (see {@link BatchedTask#batchingKey})
+ * <p>
+ * Two mechanisms keep a steady stream of tasks of one kind from starving the others:
+ * <ul>
+ * <li>A batch executes at most {@link #maxBatchSize()} tasks. The batching key then yields: the runnables of its remaining
+ * tasks that were queued before the batch ran are moved behind the tasks of the same priority that arrived in the meantime
+ * as they come up, keeping their timeouts, so the remaining tasks only run once other batching keys had their turn.</li>
+ * <li>Tasks that have been waiting for longer than {@link #promotionInterval()} are promoted by one priority level per
+ * interval they waited, up to {@link Priority#URGENT}. Lower priorities thus need to wait longer to be promoted. The
+ * runnables that promote tasks stand in for tasks that are already queued, see {@link #isPromotion(Object)}.</li>
+ * </ul>
  */
 public abstract class TaskBatcher {
 
@@ -47,6 +60,14 @@ public abstract class TaskBatcher {
     private final PrioritizedEsThreadPoolExecutor threadExecutor;
     // package visible for tests
     final Map<Object, LinkedHashSet<BatchedTask>> tasksPerBatchingKey = new HashMap<>();
+    // the priority that pending tasks have been promoted to, per batching key, guarded by tasksPerBatchingKey
+    private final Map<Object, Priority> promotedPriorities = new HashMap<>();
+    // the batching keys that yield to other work after a batch that reached the batch size limit, along with the enqueue
+    // sequence number up to which their queued runnables must be moved behind that work, guarded by tasksPerBatchingKey
+    // package visible for tests
+    final Map<Object, Long> yieldingBatchingKeys = new HashMap<>();
+    private final AtomicLong enqueueSequence = new AtomicLong();
+    private final AtomicInteger queuedPromotions = new AtomicInteger();
 
     public TaskBatcher(Logger logger, PrioritizedEsThreadPoolExecutor threadExecutor) {
         this.logger = logger;
@@ -67,6 +88,10 @@ public abstract class TaskBatcher {
             (a, b) -> { throw new IllegalStateException("cannot add duplicate task: " + a); },
             IdentityHashMap::new));
 
+        final Submission submission = new Submission(tasks, timeout);
+        for (BatchedTask task : tasks) {
+            task.submission = submission;
+        }
         synchronized (tasksPerBatchingKey) {
             LinkedHashSet<BatchedTask> existingTasks = tasksPerBatchingKey.computeIfAbsent(firstTask.batchingKey,
                 k -> new LinkedHashSet<>(tasks.size()));
@@ -81,10 +106,23 @@ public abstract class TaskBatcher {
             existingTasks.addAll(tasks);
         }
 
-        if (timeout != null) {
-            threadExecutor.execute(firstTask, timeout, () -> onTimeoutInternal(tasks, timeout));
+        enqueue(firstTask);
+    }
+
+    /**
+     * Queues the given task on the executor, at the end of its priority. If it was submitted with a timeout then the tasks it
+     * was submitted with time out once the time they have left elapsed.
+     */
+    private void enqueue(BatchedTask task) {
+        final Submission submission = task.submission;
+        task.enqueuedAt = enqueueSequence.incrementAndGet();
+        task.queued = true;
+        if (submission.timeout != null && submission.timeout.nanos() >= 0) {
+            final long remainingNanos = submission.timeout.nanos() - (System.nanoTime() - submission.startNanos);
+            threadExecutor.execute(task, TimeValue.timeValueNanos(Math.max(0, remainingNanos)),
+                () -> onTimeoutInternal(submission.tasks, submission.timeout));
         } else {
-            threadExecutor.execute(firstTask);
+            threadExecutor.execute(task);
         }
     }
 
@@ -107,6 +145,8 @@ public abstract class TaskBatcher {
                     existingTasks.removeAll(toRemove);
                     if (existingTasks.isEmpty()) {
                         tasksPerBatchingKey.remove(batchingKey);
+                        promotedPriorities.remove(batchingKey);
+                        yieldingBatchingKeys.remove(batchingKey);
                     }
                 }
             }
@@ -120,36 +160,140 @@ public abstract class TaskBatcher {
      */
     protected abstract void onTimeout(List<? extends BatchedTask> tasks, TimeValue timeout);
 
+    /**
+     * The maximum number of tasks that are executed in a single batch.
+     */
+    protected int maxBatchSize() {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * The time after which a pending task is promoted to the next higher priority, or zero to never promote tasks.
+     */
+    protected TimeValue promotionInterval() {
+        return TimeValue.ZERO;
+    }
+
     void runIfNotProcessed(BatchedTask updateTask) {
+        runIfNotProcessed(updateTask, false);
+    }
+
+    private void runIfNotProcessed(BatchedTask updateTask, boolean promoted) {
         // if this task is already processed, it shouldn't execute other tasks with same batching key that arrived later,
         // to give other tasks with different batching key a chance to execute.
         if (updateTask.processed.get() == false) {
             final List<BatchedTask> toExecute = new ArrayList<>();
             final Map<String, List<BatchedTask>> processTasksBySource = new HashMap<>();
+            BatchedTask nextBatchTask = null;
+            int remainingTasks = 0;
             synchronized (tasksPerBatchingKey) {
-                LinkedHashSet<BatchedTask> pending = tasksPerBatchingKey.remove(updateTask.batchingKey);
-                if (pending != null) {
-                    for (BatchedTask task : pending) {
-                        if (task.processed.getAndSet(true) == false) {
-                            logger.trace("will process {}", task);
-                            toExecute.add(task);
-                            processTasksBySource.computeIfAbsent(task.source, s -> new ArrayList<>()).add(task);
-                        } else {
-                            logger.trace("skipping {}, already processed", task);
+                if (promoted == false) {
+                    updateTask.queued = false;
+                    final Long yieldingUpTo = yieldingBatchingKeys.get(updateTask.batchingKey);
+                    if (yieldingUpTo != null && updateTask.enqueuedAt <= yieldingUpTo) {
+                        // queued before the last batch of this batching key reached the size limit, move behind the others
+                        nextBatchTask = updateTask;
+                    }
+                }
+                if (nextBatchTask == null) {
+                    LinkedHashSet<BatchedTask> pending = tasksPerBatchingKey.remove(updateTask.batchingKey);
+                    promotedPriorities.remove(updateTask.batchingKey);
+                    yieldingBatchingKeys.remove(updateTask.batchingKey);
+                    if (pending != null) {
+                        final int maxBatchSize = maxBatchSize();
+                        for (Iterator<BatchedTask> iterator = pending.iterator(); iterator.hasNext() && toExecute.size() < maxBatchSize; ) {
+                            BatchedTask task = iterator.next();
+                            iterator.remove();
+                            if (task.processed.getAndSet(true) == false) {
+                                logger.trace("will process {}", task);
+                                toExecute.add(task);
+                                processTasksBySource.computeIfAbsent(task.source, s -> new ArrayList<>()).add(task);
+                            } else {
+                                logger.trace("skipping {}, already processed", task);
+                            }
+                        }
+                        if (pending.isEmpty() == false) {
+                            // the remaining tasks yield to the tasks that arrived in the meantime: their queued runnables are
+                            // moved behind them as they come up, and the tasks that have none get one queued at the end
+                            tasksPerBatchingKey.put(updateTask.batchingKey, pending);
+                            yieldingBatchingKeys.put(updateTask.batchingKey, enqueueSequence.get());
+                            remainingTasks = pending.size();
+                            if (pending.stream().noneMatch(task -> task.queued)) {
+                                nextBatchTask = pending.iterator().next();
+                            }
                         }
                     }
                 }
             }
+            if (toExecute.isEmpty()) {
+                if (nextBatchTask != null) {
+                    logger.trace("moving {} behind the tasks that arrived since its batching key reached the batch size limit",
+                        nextBatchTask);
+                    enqueue(nextBatchTask);
+                }
+                return;
+            }
+            if (remainingTasks > 0) {
+                logger.trace("batch size limit reached, [{}] remaining tasks yield to other tasks", remainingTasks);
+                if (nextBatchTask != null) {
+                    enqueue(nextBatchTask);
+                }
+            }
 
-            if (toExecute.isEmpty() == false) {
-                final String tasksSummary = processTasksBySource.entrySet().stream().map(entry -> {
-                    String tasks = updateTask.describeTasks(entry.getValue());
-                    return tasks.isEmpty() ? entry.getKey() : entry.getKey() + "[" + tasks + "]";
-                }).reduce((s1, s2) -> s1 + ", " + s2).orElse("");
+            final String tasksSummary = processTasksBySource.entrySet().stream().map(entry -> {
+                String tasks = updateTask.describeTasks(entry.getValue());
+                return tasks.isEmpty() ? entry.getKey() : entry.getKey() + "[" + tasks + "]";
+            }).reduce((s1, s2) -> s1 + ", " + s2).orElse("");
 
-                run(updateTask.batchingKey, toExecute, tasksSummary);
+            run(updateTask.batchingKey, toExecute, tasksSummary);
+            promoteWaitingTasks();
+        }
+    }
+
+    /**
+     * Re-queues the pending tasks of every batching key whose oldest task has been waiting long enough to be promoted
+     * to a higher priority than it is currently queued at.
+     */
+    private void promoteWaitingTasks() {
+        final TimeValue promotionInterval = promotionInterval();
+        if (promotionInterval.nanos() <= 0) {
+            return;
+        }
+        final List<PromotedTask> promotedTasks = new ArrayList<>();
+        synchronized (tasksPerBatchingKey) {
+            for (Map.Entry<Object, LinkedHashSet<BatchedTask>> entry : tasksPerBatchingKey.entrySet()) {
+                final BatchedTask oldestTask = entry.getValue().iterator().next();
+                final Priority currentPriority = promotedPriorities.getOrDefault(entry.getKey(), oldestTask.priority());
+                final Priority promotedPriority = promotedPriority(oldestTask.priority(), oldestTask.getAgeInMillis(),
+                    promotionInterval);
+                if (promotedPriority.compareTo(currentPriority) < 0) {
+                    promotedPriorities.put(entry.getKey(), promotedPriority);
+                    promotedTasks.add(new PromotedTask(promotedPriority, oldestTask));
+                }
             }
         }
+        for (PromotedTask promotedTask : promotedTasks) {
+            logger.debug("promoting [{}] to priority [{}] after waiting for [{}]", promotedTask.task.source,
+                promotedTask.priority(), TimeValue.timeValueMillis(promotedTask.getAgeInMillis()));
+            queuedPromotions.incrementAndGet();
+            try {
+                threadExecutor.execute(promotedTask);
+            } catch (EsRejectedExecutionException e) {
+                queuedPromotions.decrementAndGet();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Returns the priority of a task that was submitted with the given priority and has been waiting for the given time.
+     */
+    static Priority promotedPriority(Priority priority, long ageInMillis, TimeValue promotionInterval) {
+        if (priority.compareTo(Priority.URGENT) <= 0 || promotionInterval.millis() <= 0) {
+            return priority;
+        }
+        final long levels = ageInMillis / promotionInterval.millis();
+        return Priority.values()[(int) Math.max(Priority.URGENT.ordinal(), priority.ordinal() - levels)];
     }
 
     /**
@@ -158,6 +302,81 @@ public abstract class TaskBatcher {
      */
     protected abstract void run(Object batchingKey, List<? extends BatchedTask> tasks, String tasksSummary);
 
+    /**
+     * Whether the given runnable of the executor promotes tasks that are already queued, rather than being a task of its own.
+     * Such runnables should not be counted as pending tasks.
+     */
+    static boolean isPromotion(Object runnable) {
+        return runnable instanceof TaskBatcher.PromotedTask;
+    }
+
+    /**
+     * The number of runnables that promote tasks which are queued on the executor, see {@link #isPromotion(Object)}.
+     */
+    int numberOfQueuedPromotions() {
+        return queuedPromotions.get();
+    }
+
+    /**
+     * Runs the pending tasks of the batching key of the given task at a higher priority than the one the task was submitted
+     * with. It stands in for the task, which stays queued, and reports its source and age.
+     */
+    private class PromotedTask extends SourcePrioritizedRunnable {
+
+        private final BatchedTask task;
+
+        PromotedTask(Priority priority, BatchedTask task) {
+            super(priority, task.source);
+            this.task = task;
+        }
+
+        @Override
+        public long getCreationDateInNanos() {
+            return task.getCreationDateInNanos();
+        }
+
+        @Override
+        public long getAgeInMillis() {
+            return task.getAgeInMillis();
+        }
+
+        @Override
+        public void run() {
+            queuedPromotions.decrementAndGet();
+            BatchedTask nextTask = null;
+            synchronized (tasksPerBatchingKey) {
+                LinkedHashSet<BatchedTask> pending = tasksPerBatchingKey.get(task.batchingKey);
+                if (pending != null) {
+                    // the task we stand in for may have timed out or been executed in the meantime
+                    nextTask = pending.stream().filter(t -> t.processed.get() == false).findFirst().orElse(null);
+                }
+            }
+            if (nextTask != null) {
+                runIfNotProcessed(nextTask, true);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return task.toString();
+        }
+    }
+
+    /**
+     * The tasks that were submitted together, and their timeout.
+     */
+    private static final class Submission {
+        private final List<? extends BatchedTask> tasks;
+        @Nullable
+        private final TimeValue timeout;
+        private final long startNanos = System.nanoTime();
+
+        Submission(List<? extends BatchedTask> tasks, @Nullable TimeValue timeout) {
+            this.tasks = tasks;
+            this.timeout = timeout;
+        }
+    }
+
     /**
      * Represents a runnable task that supports batching.
      * Implementors of TaskBatcher can subclass this to add a payload to the task.
@@ -177,6 +396,12 @@ public abstract class TaskBatcher {
          */
         protected final Object task;
 
+        // the submission this task belongs to, set when it is submitted
+        private Submission submission;
+        // the enqueue sequence number of the last time this task was queued on the executor and whether it is still queued
+        private volatile long enqueuedAt;
+        private volatile boolean queued;
+
         protected BatchedTask(Priority priority, String source, Object batchingKey, Object task) {
             super(priority, source);
             this.batchingKey = batchingKey;
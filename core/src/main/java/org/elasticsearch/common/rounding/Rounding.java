@@ -28,7 +28,9 @@ import org.joda.time.DateTimeZone;
 import org.joda.time.IllegalInstantException;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Objects;
+import java.util.function.LongUnaryOperator;
 
 /**
  * A strategy for rounding long values.
@@ -51,6 +53,27 @@ public abstract class Rounding implements Streamable {
      */
     public abstract long nextRoundingValue(long value);
 
+    /**
+     * Prepares this rounding for rounding many values between {@code minUtcMillis} and {@code maxUtcMillis}. The returned
+     * {@link Prepared} rounding gives the same results as {@link #round(long)} for all values, but values within the bounds
+     * may be rounded faster, e.g. by looking up the time zone offset transitions of the range in a precomputed table
+     * rather than asking the time zone for them on every call.
+     */
+    public Prepared prepare(long minUtcMillis, long maxUtcMillis) {
+        return this::round;
+    }
+
+    /**
+     * A rounding that was prepared for a range of values, see {@link Rounding#prepare(long, long)}.
+     */
+    @FunctionalInterface
+    public interface Prepared {
+        /**
+         * Rounds the given value, like {@link Rounding#round(long)}.
+         */
+        long round(long utcMillis);
+    }
+
     @Override
     public abstract boolean equals(Object obj);
 
@@ -165,6 +188,16 @@ public abstract class Rounding implements Streamable {
             return rounded;
         }
 
+        @Override
+        public Prepared prepare(long minUtcMillis, long maxUtcMillis) {
+            if (timeZone.isFixed()) {
+                // rounding with a fixed offset is already cheap
+                return super.prepare(minUtcMillis, maxUtcMillis);
+            }
+            DateTimeField localField = unit.field(DateTimeZone.UTC);
+            return TransitionsRounding.prepare(this, timeZone, localField::roundFloor, minUtcMillis, maxUtcMillis);
+        }
+
         @Override
         public long nextRoundingValue(long utcMillis) {
             long floor = round(utcMillis);
@@ -262,6 +295,12 @@ public abstract class Rounding implements Streamable {
             return roundedUTC;
         }
 
+        @Override
+        public Prepared prepare(long minUtcMillis, long maxUtcMillis) {
+            final long interval = this.interval;
+            return TransitionsRounding.prepare(this, timeZone, local -> roundKey(local, interval) * interval, minUtcMillis, maxUtcMillis);
+        }
+
         private static long roundKey(long value, long interval) {
             if (value < 0) {
                 return (value - interval + 1) / interval;
@@ -343,6 +382,95 @@ public abstract class Rounding implements Streamable {
         }
     }
 
+    /**
+     * A {@link Prepared} rounding that looks up the offset of a value in the table of the offset transitions of the time zone
+     * between the bounds it was prepared for, and rounds the local time of the value with that fixed offset. Values whose
+     * rounded value would not fall strictly within the same offset period, as well as values out of the bounds, are rounded by
+     * the original rounding, which takes care of the dst edge cases.
+     */
+    static final class TransitionsRounding implements Prepared {
+
+        /**
+         * The maximum number of offset transitions to precompute, ranges with more transitions are not prepared.
+         */
+        static final int MAX_TRANSITIONS = 1024;
+
+        private final Rounding rounding;
+        private final LongUnaryOperator localRounding;
+        private final long minUtcMillis;
+        private final long maxUtcMillis;
+        /** the start of each offset period, the first one is the rounded minimum and all others are transitions */
+        private final long[] periodStarts;
+        private final long[] offsets;
+
+        private TransitionsRounding(Rounding rounding, LongUnaryOperator localRounding, long minUtcMillis, long maxUtcMillis,
+                                    long[] periodStarts, long[] offsets) {
+            this.rounding = rounding;
+            this.localRounding = localRounding;
+            this.minUtcMillis = minUtcMillis;
+            this.maxUtcMillis = maxUtcMillis;
+            this.periodStarts = periodStarts;
+            this.offsets = offsets;
+        }
+
+        /**
+         * Builds the table of transitions of the given time zone between the given bounds.
+         *
+         * @param rounding      the rounding to prepare
+         * @param timeZone      the time zone of the rounding
+         * @param localRounding rounds a local time, ignoring time zones
+         */
+        static Prepared prepare(Rounding rounding, DateTimeZone timeZone, LongUnaryOperator localRounding,
+                                long minUtcMillis, long maxUtcMillis) {
+            if (minUtcMillis > maxUtcMillis) {
+                return rounding::round;
+            }
+            long start = rounding.round(minUtcMillis);
+            long[] periodStarts = new long[] { start };
+            int numPeriods = 1;
+            long transition = start;
+            while (true) {
+                long next = timeZone.nextTransition(transition);
+                if (next == transition || next > maxUtcMillis) {
+                    break;
+                }
+                if (numPeriods > MAX_TRANSITIONS) {
+                    return rounding::round;
+                }
+                periodStarts = growIfNeeded(periodStarts, numPeriods);
+                periodStarts[numPeriods++] = next;
+                transition = next;
+            }
+            periodStarts = Arrays.copyOf(periodStarts, numPeriods);
+            long[] offsets = new long[numPeriods];
+            for (int i = 0; i < numPeriods; i++) {
+                offsets[i] = timeZone.getOffset(periodStarts[i]);
+            }
+            return new TransitionsRounding(rounding, localRounding, minUtcMillis, maxUtcMillis, periodStarts, offsets);
+        }
+
+        private static long[] growIfNeeded(long[] array, int size) {
+            return size < array.length ? array : Arrays.copyOf(array, array.length * 2);
+        }
+
+        @Override
+        public long round(long utcMillis) {
+            if (utcMillis >= minUtcMillis && utcMillis <= maxUtcMillis) {
+                int period = periodStarts.length == 1 ? 0 : Arrays.binarySearch(periodStarts, utcMillis);
+                if (period < 0) {
+                    // the period that starts before the value
+                    period = -2 - period;
+                }
+                long offset = offsets[period];
+                long rounded = localRounding.applyAsLong(utcMillis + offset) - offset;
+                if (rounded > periodStarts[period]) {
+                    return rounded;
+                }
+            }
+            return rounding.round(utcMillis);
+        }
+    }
+
     public static class Streams {
 
         public static void write(Rounding rounding, StreamOutput out) throws IOException {
@@ -103,6 +103,38 @@ public final class Settings implements ToXContentFragment {
         this.secureSettings = secureSettings;
     }
 
+    private Settings(OverlayMap settings) {
+        // the overlay is already immutable and sorted, it must not be copied in order to share the base settings
+        this.settings = settings;
+        this.secureSettings = null;
+    }
+
+    /**
+     * Returns settings that contain all settings of {@code base} and {@code overrides}, where {@code overrides} wins if a key
+     * exists in both. Unlike {@link Builder#put(Settings)} the settings of {@code base} are not copied but shared, which allows
+     * many near-identical settings, like those of indices created from the same template, to share most of their memory.
+     */
+    public static Settings overlay(Settings base, Settings overrides) {
+        if (base.secureSettings != null || overrides.secureSettings != null) {
+            throw new IllegalArgumentException("secure settings can't be overlaid");
+        }
+        if (overrides.isEmpty()) {
+            return base;
+        }
+        return new Settings(new OverlayMap(base, overrides.settings));
+    }
+
+    /**
+     * Returns the settings that were passed as base to {@link #overlay(Settings, Settings)}, or these settings if they are not
+     * an overlay.
+     */
+    public Settings getOverlayBase() {
+        if (settings instanceof OverlayMap) {
+            return ((OverlayMap) settings).baseSettings;
+        }
+        return this;
+    }
+
     /**
      * Retrieve the secure settings in these settings.
      */
@@ -1365,6 +1397,101 @@ public final class Settings implements ToXContentFragment {
         }
     }
 
+    /**
+     * An immutable sorted view of the settings map of a base {@link Settings} and a sorted map of overrides, where entries of
+     * the overrides hide entries of the base with the same key.
+     */
+    private static final class OverlayMap extends AbstractMap<String, Object> {
+        private final Settings baseSettings;
+        private final Map<String, Object> base;
+        private final Map<String, Object> overrides;
+        private final int size;
+
+        private OverlayMap(Settings baseSettings, Map<String, Object> overrides) {
+            this.baseSettings = baseSettings;
+            this.base = baseSettings.settings;
+            this.overrides = overrides;
+            int size = base.size();
+            for (String key : overrides.keySet()) {
+                if (base.containsKey(key) == false) {
+                    size++;
+                }
+            }
+            this.size = size;
+        }
+
+        @Override
+        public Object get(Object key) {
+            if (overrides.containsKey(key)) {
+                return overrides.get(key);
+            }
+            return base.get(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return overrides.containsKey(key) || base.containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<Entry<String, Object>>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    final Iterator<Entry<String, Object>> baseIter = base.entrySet().iterator();
+                    final Iterator<Entry<String, Object>> overridesIter = overrides.entrySet().iterator();
+                    return new Iterator<Entry<String, Object>>() {
+                        private Entry<String, Object> nextBase = baseIter.hasNext() ? baseIter.next() : null;
+                        private Entry<String, Object> nextOverride = overridesIter.hasNext() ? overridesIter.next() : null;
+
+                        @Override
+                        public boolean hasNext() {
+                            return nextBase != null || nextOverride != null;
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            if (hasNext() == false) {
+                                throw new NoSuchElementException();
+                            }
+                            final int cmp;
+                            if (nextBase == null) {
+                                cmp = 1;
+                            } else if (nextOverride == null) {
+                                cmp = -1;
+                            } else {
+                                cmp = nextBase.getKey().compareTo(nextOverride.getKey());
+                            }
+                            final Entry<String, Object> current;
+                            if (cmp < 0) {
+                                current = nextBase;
+                                nextBase = baseIter.hasNext() ? baseIter.next() : null;
+                            } else {
+                                if (cmp == 0) {
+                                    // the override hides the base entry
+                                    nextBase = baseIter.hasNext() ? baseIter.next() : null;
+                                }
+                                current = nextOverride;
+                                nextOverride = overridesIter.hasNext() ? overridesIter.next() : null;
+                            }
+                            return current;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+    }
+
     private static class PrefixedSecureSettings implements SecureSettings {
         private final SecureSettings delegate;
         private final UnaryOperator<String> addPrefix;
@@ -0,0 +1,37 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.common.xcontent;
+
+import java.util.Iterator;
+
+/**
+ * An object that can render itself as a sequence of {@link ToXContent} pieces rather than in one go. Serializing all pieces
+ * one after the other into the same builder produces the same document as {@link ToXContent#toXContent}, but allows the caller
+ * to stop between pieces, for instance to send the output produced so far before continuing.
+ */
+public interface ChunkedToXContent {
+
+    /**
+     * Returns the pieces this object renders to, in order. Each piece only writes to the builder it is handed and does not
+     * close it.
+     */
+    Iterator<? extends ToXContent> toXContentChunked();
+}
@@ -66,6 +66,26 @@ public abstract class AsyncShardFetch<T extends BaseNodeResponse> implements Rel
         void list(ShardId shardId, DiscoveryNode[] nodes, ActionListener<NodesResponse> listener);
     }
 
+    /**
+     * A {@link Lister} that can also list the data of many shards on a single node with one request,
+     * see {@link ShardFetchBatcher}.
+     */
+    public interface BatchLister<NodesResponse extends BaseNodesResponse<NodeResponse>, NodeResponse extends BaseNodeResponse>
+        extends Lister<NodesResponse, NodeResponse> {
+
+        /**
+         * Lists the data of the given shards on the given node. The response holds one entry per shard, in the
+         * order of the given shard ids.
+         */
+        void listBatch(DiscoveryNode node, List<ShardId> shardIds,
+                       ActionListener<ShardFetchBatcher.ShardsResponse<NodeResponse>> listener);
+
+        /**
+         * Builds the response of a single shard out of the node responses and failures collected for it.
+         */
+        NodesResponse newNodesResponse(List<NodeResponse> responses, List<FailedNodeException> failures);
+    }
+
     protected final Logger logger;
     protected final String type;
     protected final ShardId shardId;
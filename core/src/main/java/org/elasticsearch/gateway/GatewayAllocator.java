@@ -48,6 +48,11 @@ public class GatewayAllocator extends AbstractComponent {
     private final PrimaryShardAllocator primaryShardAllocator;
     private final ReplicaShardAllocator replicaShardAllocator;
 
+    private final ShardFetchBatcher<TransportNodesListGatewayStartedShards.NodesGatewayStartedShards,
+        TransportNodesListGatewayStartedShards.NodeGatewayStartedShards> startedFetchBatcher;
+    private final ShardFetchBatcher<TransportNodesListShardStoreMetaData.NodesStoreFilesMetaData,
+        TransportNodesListShardStoreMetaData.NodeStoreFilesMetaData> storeFetchBatcher;
+
     private final ConcurrentMap<ShardId, AsyncShardFetch<TransportNodesListGatewayStartedShards.NodeGatewayStartedShards>> asyncFetchStarted = ConcurrentCollections.newConcurrentMap();
     private final ConcurrentMap<ShardId, AsyncShardFetch<TransportNodesListShardStoreMetaData.NodeStoreFilesMetaData>> asyncFetchStore = ConcurrentCollections.newConcurrentMap();
 
@@ -56,8 +61,10 @@ public class GatewayAllocator extends AbstractComponent {
                             TransportNodesListGatewayStartedShards startedAction, TransportNodesListShardStoreMetaData storeAction) {
         super(settings);
         this.routingService = routingService;
-        this.primaryShardAllocator = new InternalPrimaryShardAllocator(settings, startedAction);
-        this.replicaShardAllocator = new InternalReplicaShardAllocator(settings, storeAction);
+        this.startedFetchBatcher = new ShardFetchBatcher<>(logger, "shard_started", startedAction);
+        this.storeFetchBatcher = new ShardFetchBatcher<>(logger, "shard_store", storeAction);
+        this.primaryShardAllocator = new InternalPrimaryShardAllocator(settings, startedFetchBatcher);
+        this.replicaShardAllocator = new InternalReplicaShardAllocator(settings, storeFetchBatcher);
         clusterService.addStateApplier(event -> {
             boolean cleanCache = false;
             DiscoveryNode localNode = event.state().nodes().getLocalNode();
@@ -83,6 +90,8 @@ public class GatewayAllocator extends AbstractComponent {
         this.routingService = null;
         this.primaryShardAllocator = null;
         this.replicaShardAllocator = null;
+        this.startedFetchBatcher = null;
+        this.storeFetchBatcher = null;
     }
 
     public int getNumberOfInFlightFetch() {
@@ -96,6 +105,27 @@ public class GatewayAllocator extends AbstractComponent {
         return count;
     }
 
+    /**
+     * Returns the number of node level requests sent to list shard data, each covering one or more shards.
+     */
+    public long getNumberOfFetchRequests() {
+        return startedFetchBatcher.getNodeRequestCount() + storeFetchBatcher.getNodeRequestCount();
+    }
+
+    /**
+     * Returns the number of shards listed on nodes through fetch requests, summed over all nodes.
+     */
+    public long getNumberOfFetchedShards() {
+        return startedFetchBatcher.getShardRequestCount() + storeFetchBatcher.getShardRequestCount();
+    }
+
+    /**
+     * Returns the total time it took for fetch requests to complete, in milliseconds.
+     */
+    public long getFetchTimeInMillis() {
+        return startedFetchBatcher.getNodeRequestTimeInMillis() + storeFetchBatcher.getNodeRequestTimeInMillis();
+    }
+
     public void applyStartedShards(final RoutingAllocation allocation, final List<ShardRouting> startedShards) {
         for (ShardRouting startedShard : startedShards) {
             Releasables.close(asyncFetchStarted.remove(startedShard.shardId()));
@@ -111,7 +141,19 @@ public class GatewayAllocator extends AbstractComponent {
     }
 
     public void allocateUnassigned(final RoutingAllocation allocation) {
-        innerAllocatedUnassigned(allocation, primaryShardAllocator, replicaShardAllocator);
+        try {
+            innerAllocatedUnassigned(allocation, primaryShardAllocator, replicaShardAllocator);
+        } finally {
+            flushFetches();
+        }
+    }
+
+    /**
+     * Sends the shard data fetches that were started during an allocation round, one request per node.
+     */
+    private void flushFetches() {
+        startedFetchBatcher.flush();
+        storeFetchBatcher.flush();
     }
 
     // allow for testing infra to change shard allocators implementation
@@ -131,10 +173,14 @@ public class GatewayAllocator extends AbstractComponent {
      * {@link AllocateUnassignedDecision#NOT_TAKEN} is returned.
      */
     public AllocateUnassignedDecision decideUnassignedShardAllocation(ShardRouting unassignedShard, RoutingAllocation routingAllocation) {
-        if (unassignedShard.primary()) {
-            return primaryShardAllocator.makeAllocationDecision(unassignedShard, routingAllocation, logger);
-        } else {
-            return replicaShardAllocator.makeAllocationDecision(unassignedShard, routingAllocation, logger);
+        try {
+            if (unassignedShard.primary()) {
+                return primaryShardAllocator.makeAllocationDecision(unassignedShard, routingAllocation, logger);
+            } else {
+                return replicaShardAllocator.makeAllocationDecision(unassignedShard, routingAllocation, logger);
+            }
+        } finally {
+            flushFetches();
         }
     }
 
@@ -153,9 +199,12 @@ public class GatewayAllocator extends AbstractComponent {
 
     class InternalPrimaryShardAllocator extends PrimaryShardAllocator {
 
-        private final TransportNodesListGatewayStartedShards startedAction;
+        private final AsyncShardFetch.Lister<TransportNodesListGatewayStartedShards.NodesGatewayStartedShards,
+            TransportNodesListGatewayStartedShards.NodeGatewayStartedShards> startedAction;
 
-        InternalPrimaryShardAllocator(Settings settings, TransportNodesListGatewayStartedShards startedAction) {
+        InternalPrimaryShardAllocator(Settings settings,
+                                      AsyncShardFetch.Lister<TransportNodesListGatewayStartedShards.NodesGatewayStartedShards,
+                                          TransportNodesListGatewayStartedShards.NodeGatewayStartedShards> startedAction) {
             super(settings);
             this.startedAction = startedAction;
         }
@@ -176,9 +225,12 @@ public class GatewayAllocator extends AbstractComponent {
 
     class InternalReplicaShardAllocator extends ReplicaShardAllocator {
 
-        private final TransportNodesListShardStoreMetaData storeAction;
+        private final AsyncShardFetch.Lister<TransportNodesListShardStoreMetaData.NodesStoreFilesMetaData,
+            TransportNodesListShardStoreMetaData.NodeStoreFilesMetaData> storeAction;
 
-        InternalReplicaShardAllocator(Settings settings, TransportNodesListShardStoreMetaData storeAction) {
+        InternalReplicaShardAllocator(Settings settings,
+                                      AsyncShardFetch.Lister<TransportNodesListShardStoreMetaData.NodesStoreFilesMetaData,
+                                          TransportNodesListShardStoreMetaData.NodeStoreFilesMetaData> storeAction) {
             super(settings);
             this.storeAction = storeAction;
         }
@@ -0,0 +1,137 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.gateway;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.xcontent.ToXContentFragment;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+import java.io.IOException;
+
+/**
+ * Statistics about the shard data that the master fetches from the nodes to allocate unassigned shards, and about the
+ * cache of the store metadata of unallocated shard copies that data nodes use to answer these fetches.
+ */
+public class GatewayStats implements Writeable, ToXContentFragment {
+
+    private final long fetchRequests;
+    private final long fetchedShards;
+    private final long fetchTimeInMillis;
+    private final long storeMetaDataCacheCount;
+    private final long storeMetaDataCacheHits;
+    private final long storeMetaDataCacheMisses;
+
+    public GatewayStats(long fetchRequests, long fetchedShards, long fetchTimeInMillis,
+                        long storeMetaDataCacheCount, long storeMetaDataCacheHits, long storeMetaDataCacheMisses) {
+        this.fetchRequests = fetchRequests;
+        this.fetchedShards = fetchedShards;
+        this.fetchTimeInMillis = fetchTimeInMillis;
+        this.storeMetaDataCacheCount = storeMetaDataCacheCount;
+        this.storeMetaDataCacheHits = storeMetaDataCacheHits;
+        this.storeMetaDataCacheMisses = storeMetaDataCacheMisses;
+    }
+
+    public GatewayStats(StreamInput in) throws IOException {
+        fetchRequests = in.readVLong();
+        fetchedShards = in.readVLong();
+        fetchTimeInMillis = in.readVLong();
+        storeMetaDataCacheCount = in.readVLong();
+        storeMetaDataCacheHits = in.readVLong();
+        storeMetaDataCacheMisses = in.readVLong();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVLong(fetchRequests);
+        out.writeVLong(fetchedShards);
+        out.writeVLong(fetchTimeInMillis);
+        out.writeVLong(storeMetaDataCacheCount);
+        out.writeVLong(storeMetaDataCacheHits);
+        out.writeVLong(storeMetaDataCacheMisses);
+    }
+
+    /**
+     * The number of node level requests sent by this node, while it was the master, to list shard data.
+     */
+    public long getFetchRequests() {
+        return fetchRequests;
+    }
+
+    /**
+     * The number of shards listed through the fetch requests sent by this node, summed over all nodes.
+     */
+    public long getFetchedShards() {
+        return fetchedShards;
+    }
+
+    /**
+     * The total time it took for the fetch requests sent by this node to complete, in milliseconds.
+     */
+    public long getFetchTimeInMillis() {
+        return fetchTimeInMillis;
+    }
+
+    /**
+     * The number of unallocated shard copies of this node whose store metadata is cached.
+     */
+    public long getStoreMetaDataCacheCount() {
+        return storeMetaDataCacheCount;
+    }
+
+    public long getStoreMetaDataCacheHits() {
+        return storeMetaDataCacheHits;
+    }
+
+    public long getStoreMetaDataCacheMisses() {
+        return storeMetaDataCacheMisses;
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(Fields.GATEWAY);
+        builder.startObject(Fields.SHARD_FETCH);
+        builder.field(Fields.REQUESTS, fetchRequests);
+        builder.field(Fields.SHARDS, fetchedShards);
+        builder.timeValueField(Fields.TIME_IN_MILLIS, Fields.TIME, fetchTimeInMillis);
+        builder.endObject();
+        builder.startObject(Fields.STORE_METADATA_CACHE);
+        builder.field(Fields.COUNT, storeMetaDataCacheCount);
+        builder.field(Fields.HITS, storeMetaDataCacheHits);
+        builder.field(Fields.MISSES, storeMetaDataCacheMisses);
+        builder.endObject();
+        builder.endObject();
+        return builder;
+    }
+
+    static final class Fields {
+        static final String GATEWAY = "gateway";
+        static final String SHARD_FETCH = "shard_fetch";
+        static final String REQUESTS = "requests";
+        static final String SHARDS = "shards";
+        static final String TIME = "time";
+        static final String TIME_IN_MILLIS = "time_in_millis";
+        static final String STORE_METADATA_CACHE = "store_metadata_cache";
+        static final String COUNT = "count";
+        static final String HITS = "hits";
+        static final String MISSES = "misses";
+    }
+}
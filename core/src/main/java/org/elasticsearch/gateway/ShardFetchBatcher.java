@@ -0,0 +1,446 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.gateway;
+
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.Version;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionListenerResponseHandler;
+import org.elasticsearch.action.FailedNodeException;
+import org.elasticsearch.action.support.nodes.BaseNodeResponse;
+import org.elasticsearch.action.support.nodes.BaseNodesResponse;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.CheckedFunction;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.AbstractRunnable;
+import org.elasticsearch.common.util.concurrent.CountDown;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.TransportRequest;
+import org.elasticsearch.transport.TransportRequestOptions;
+import org.elasticsearch.transport.TransportResponse;
+import org.elasticsearch.transport.TransportService;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces the per shard list requests issued by {@link AsyncShardFetch} into a single request per node that lists
+ * all the requested shards on that node. After a full cluster restart every unassigned shard fetches its data from
+ * every data node, so sending one request per shard and node quickly adds up to tens of thousands of requests.
+ * <p>
+ * List requests are buffered until {@link #flush()} is called, which {@link GatewayAllocator} does at the end of each
+ * allocation round. Nodes that do not support batched listing yet are sent the per shard requests of the wrapped
+ * {@link AsyncShardFetch.BatchLister}.
+ */
+public class ShardFetchBatcher<NodesResponse extends BaseNodesResponse<NodeResponse>, NodeResponse extends BaseNodeResponse>
+    implements AsyncShardFetch.Lister<NodesResponse, NodeResponse> {
+
+    private final Logger logger;
+    private final String type;
+    private final AsyncShardFetch.BatchLister<NodesResponse, NodeResponse> action;
+
+    private final CounterMetric nodeRequests = new CounterMetric();
+    private final CounterMetric shardRequests = new CounterMetric();
+    private final CounterMetric nodeRequestTimeInNanos = new CounterMetric();
+
+    private List<PendingFetch> pendingFetches = new ArrayList<>();
+
+    public ShardFetchBatcher(Logger logger, String type, AsyncShardFetch.BatchLister<NodesResponse, NodeResponse> action) {
+        this.logger = logger;
+        this.type = type;
+        this.action = action;
+    }
+
+    @Override
+    public synchronized void list(ShardId shardId, DiscoveryNode[] nodes, ActionListener<NodesResponse> listener) {
+        pendingFetches.add(new PendingFetch(shardId, nodes, listener));
+    }
+
+    /**
+     * Returns the number of list requests that are buffered and will be sent on the next {@link #flush()}.
+     */
+    public synchronized int getNumberOfPendingFetches() {
+        return pendingFetches.size();
+    }
+
+    /**
+     * Sends all the buffered list requests, grouped by node.
+     */
+    public void flush() {
+        final List<PendingFetch> fetches;
+        synchronized (this) {
+            if (pendingFetches.isEmpty()) {
+                return;
+            }
+            fetches = pendingFetches;
+            pendingFetches = new ArrayList<>();
+        }
+        final Map<DiscoveryNode, List<PendingFetch>> fetchesByNode = new HashMap<>();
+        for (PendingFetch fetch : fetches) {
+            for (DiscoveryNode node : fetch.nodes) {
+                if (node.getVersion().onOrAfter(Version.V_7_0_0_alpha1)) {
+                    fetchesByNode.computeIfAbsent(node, n -> new ArrayList<>()).add(fetch);
+                    fetch.parts++;
+                } else {
+                    fetch.legacyNodes.add(node);
+                }
+            }
+            if (fetch.legacyNodes.isEmpty() == false) {
+                fetch.parts++;
+            }
+            fetch.countDown = new CountDown(fetch.parts);
+        }
+        logger.trace("fetching [{}] for [{}] shards from [{}] nodes", type, fetches.size(), fetchesByNode.size());
+        for (PendingFetch fetch : fetches) {
+            if (fetch.legacyNodes.isEmpty() == false) {
+                fetch.listLegacy();
+            }
+        }
+        for (Map.Entry<DiscoveryNode, List<PendingFetch>> entry : fetchesByNode.entrySet()) {
+            listBatch(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void listBatch(final DiscoveryNode node, final List<PendingFetch> fetches) {
+        final List<ShardId> shardIds = new ArrayList<>(fetches.size());
+        for (PendingFetch fetch : fetches) {
+            shardIds.add(fetch.shardId);
+        }
+        nodeRequests.inc();
+        shardRequests.inc(shardIds.size());
+        final long startTimeNS = System.nanoTime();
+        action.listBatch(node, shardIds, new ActionListener<ShardsResponse<NodeResponse>>() {
+            @Override
+            public void onResponse(ShardsResponse<NodeResponse> response) {
+                if (response.size() != fetches.size()) {
+                    onFailure(new IllegalStateException("expected [" + fetches.size() + "] shard responses from node " + node
+                        + " but got [" + response.size() + "]"));
+                    return;
+                }
+                onDone();
+                for (int i = 0; i < fetches.size(); i++) {
+                    final Exception failure = response.getFailure(i);
+                    if (failure == null) {
+                        fetches.get(i).onResponse(response.getResponse(i));
+                    } else {
+                        fetches.get(i).onFailure(new FailedNodeException(node.getId(),
+                            "failed to list [" + type + "] for shard " + shardIds.get(i) + " on node [" + node.getId() + "]", failure));
+                    }
+                }
+            }
+
+            @Override
+            public void onFailure(Exception e) {
+                onDone();
+                for (PendingFetch fetch : fetches) {
+                    fetch.onFailure(new FailedNodeException(node.getId(), "Failed node [" + node.getId() + "]", e));
+                }
+            }
+
+            private void onDone() {
+                final long tookInNanos = System.nanoTime() - startTimeNS;
+                nodeRequestTimeInNanos.inc(tookInNanos);
+                logger.trace("listed [{}] for [{}] shards on node {} (took [{}])", type, shardIds.size(), node,
+                    new TimeValue(tookInNanos, TimeUnit.NANOSECONDS));
+            }
+        });
+    }
+
+    /**
+     * Returns the number of node level requests that have been sent, each one listing one or more shards.
+     */
+    public long getNodeRequestCount() {
+        return nodeRequests.count();
+    }
+
+    /**
+     * Returns the number of shards that have been listed through node level requests.
+     */
+    public long getShardRequestCount() {
+        return shardRequests.count();
+    }
+
+    /**
+     * Returns the total time the node level requests took to complete, in milliseconds.
+     */
+    public long getNodeRequestTimeInMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(nodeRequestTimeInNanos.count());
+    }
+
+    /**
+     * Collects the responses of all the nodes a single shard was listed on, and notifies the listener of
+     * {@link AsyncShardFetch} once all of them are in.
+     */
+    private class PendingFetch {
+
+        final ShardId shardId;
+        final DiscoveryNode[] nodes;
+        final ActionListener<NodesResponse> listener;
+        final List<DiscoveryNode> legacyNodes = new ArrayList<>();
+        final List<NodeResponse> responses = new ArrayList<>();
+        final List<FailedNodeException> failures = new ArrayList<>();
+        int parts;
+        CountDown countDown;
+
+        PendingFetch(ShardId shardId, DiscoveryNode[] nodes, ActionListener<NodesResponse> listener) {
+            this.shardId = shardId;
+            this.nodes = nodes;
+            this.listener = listener;
+        }
+
+        void listLegacy() {
+            final DiscoveryNode[] nodes = legacyNodes.toArray(new DiscoveryNode[legacyNodes.size()]);
+            action.list(shardId, nodes, new ActionListener<NodesResponse>() {
+                @Override
+                public void onResponse(NodesResponse response) {
+                    synchronized (PendingFetch.this) {
+                        responses.addAll(response.getNodes());
+                        failures.addAll(response.failures());
+                    }
+                    onPartDone();
+                }
+
+                @Override
+                public void onFailure(Exception e) {
+                    synchronized (PendingFetch.this) {
+                        for (DiscoveryNode node : nodes) {
+                            failures.add(new FailedNodeException(node.getId(), "total failure in fetching", e));
+                        }
+                    }
+                    onPartDone();
+                }
+            });
+        }
+
+        void onResponse(NodeResponse response) {
+            synchronized (this) {
+                responses.add(response);
+            }
+            onPartDone();
+        }
+
+        void onFailure(FailedNodeException failure) {
+            synchronized (this) {
+                failures.add(failure);
+            }
+            onPartDone();
+        }
+
+        private void onPartDone() {
+            if (countDown.countDown()) {
+                final NodesResponse response;
+                synchronized (this) {
+                    response = action.newNodesResponse(responses, failures);
+                }
+                listener.onResponse(response);
+            }
+        }
+    }
+
+    /**
+     * Registers the handler of batched list requests on the node that owns the shard data. The shards of a request
+     * are listed concurrently on the given executor, using at most as many threads as the executor may grow to so that
+     * a single large batch doesn't starve other requests queued on the same executor for longer than needed.
+     */
+    public static <T extends BaseNodeResponse> void registerHandler(Logger logger, TransportService transportService,
+                                                                    ThreadPool threadPool, String action, String executor,
+                                                                    CheckedFunction<ShardId, T, Exception> shardOperation) {
+        transportService.registerRequestHandler(action, ShardsRequest::new, ThreadPool.Names.SAME, (request, channel) -> {
+            final List<ShardId> shardIds = request.shardIds();
+            final Object[] results = new Object[shardIds.size()];
+            if (shardIds.isEmpty()) {
+                channel.sendResponse(new ShardsResponse<T>(results));
+                return;
+            }
+            final int workers = Math.max(1, Math.min(shardIds.size(), threadPool.info(executor).getMax()));
+            final AtomicInteger nextShard = new AtomicInteger();
+            final CountDown countDown = new CountDown(workers);
+            for (int i = 0; i < workers; i++) {
+                threadPool.executor(executor).execute(new AbstractRunnable() {
+                    @Override
+                    protected void doRun() {
+                        int shard;
+                        while ((shard = nextShard.getAndIncrement()) < results.length) {
+                            try {
+                                results[shard] = shardOperation.apply(shardIds.get(shard));
+                            } catch (Exception e) {
+                                results[shard] = e;
+                            }
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(Exception e) {
+                        // most likely rejected because we are shutting down; fail whatever hasn't been picked up yet
+                        int shard;
+                        while ((shard = nextShard.getAndIncrement()) < results.length) {
+                            results[shard] = e;
+                        }
+                    }
+
+                    @Override
+                    public void onAfter() {
+                        if (countDown.countDown()) {
+                            try {
+                                channel.sendResponse(new ShardsResponse<T>(results));
+                            } catch (Exception e) {
+                                try {
+                                    channel.sendResponse(e);
+                                } catch (Exception inner) {
+                                    inner.addSuppressed(e);
+                                    logger.warn("failed to send batched shard list response", inner);
+                                }
+                            }
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Sends a batched list request for the given shards to the given node.
+     */
+    public static <T extends BaseNodeResponse> void sendRequest(TransportService transportService, DiscoveryNode node, String action,
+                                                                List<ShardId> shardIds, Supplier<T> responseSupplier,
+                                                                ActionListener<ShardsResponse<T>> listener) {
+        transportService.sendRequest(node, action, new ShardsRequest(shardIds),
+            TransportRequestOptions.builder().withCompress(true).build(),
+            new ActionListenerResponseHandler<>(listener, () -> new ShardsResponse<>(responseSupplier)));
+    }
+
+    /**
+     * A node level request to list the data of one or more shards.
+     */
+    public static class ShardsRequest extends TransportRequest {
+
+        private List<ShardId> shardIds;
+
+        public ShardsRequest() {
+        }
+
+        public ShardsRequest(List<ShardId> shardIds) {
+            this.shardIds = shardIds;
+        }
+
+        public List<ShardId> shardIds() {
+            return shardIds;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            super.readFrom(in);
+            shardIds = in.readList(ShardId::readShardId);
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeVInt(shardIds.size());
+            for (ShardId shardId : shardIds) {
+                shardId.writeTo(out);
+            }
+        }
+    }
+
+    /**
+     * The response to a {@link ShardsRequest}, holding either the listed data or the failure of each shard, in the
+     * order of the request.
+     */
+    public static class ShardsResponse<T extends BaseNodeResponse> extends TransportResponse {
+
+        private final Supplier<T> responseSupplier;
+        private Object[] results;
+
+        ShardsResponse(Supplier<T> responseSupplier) {
+            this.responseSupplier = responseSupplier;
+        }
+
+        ShardsResponse(Object[] results) {
+            this.responseSupplier = null;
+            this.results = results;
+        }
+
+        public int size() {
+            return results.length;
+        }
+
+        /**
+         * Returns the listed data of the shard at the given position, or {@code null} if listing failed.
+         */
+        @SuppressWarnings("unchecked")
+        public T getResponse(int index) {
+            return results[index] instanceof Exception ? null : (T) results[index];
+        }
+
+        /**
+         * Returns the failure of the shard at the given position, or {@code null} if listing succeeded.
+         */
+        public Exception getFailure(int index) {
+            return results[index] instanceof Exception ? (Exception) results[index] : null;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            super.readFrom(in);
+            results = new Object[in.readVInt()];
+            for (int i = 0; i < results.length; i++) {
+                if (in.readBoolean()) {
+                    T response = responseSupplier.get();
+                    response.readFrom(in);
+                    results[i] = response;
+                } else {
+                    results[i] = in.readException();
+                }
+            }
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeVInt(results.length);
+            for (Object result : results) {
+                if (result instanceof Exception) {
+                    out.writeBoolean(false);
+                    out.writeException((Exception) result);
+                } else {
+                    out.writeBoolean(true);
+                    ((BaseNodeResponse) result).writeTo(out);
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "ShardsResponse{" + Arrays.toString(results) + "}";
+        }
+    }
+}
@@ -65,10 +65,11 @@ public class TransportNodesListGatewayStartedShards extends
         TransportNodesListGatewayStartedShards.NodeRequest,
         TransportNodesListGatewayStartedShards.NodeGatewayStartedShards>
     implements
-    AsyncShardFetch.Lister<TransportNodesListGatewayStartedShards.NodesGatewayStartedShards,
+    AsyncShardFetch.BatchLister<TransportNodesListGatewayStartedShards.NodesGatewayStartedShards,
         TransportNodesListGatewayStartedShards.NodeGatewayStartedShards> {
 
     public static final String ACTION_NAME = "internal:gateway/local/started_shards";
+    public static final String BATCH_ACTION_NAME = ACTION_NAME + "[batch]";
     private final NodeEnvironment nodeEnv;
     private final IndicesService indicesService;
 
@@ -83,6 +84,8 @@ public class TransportNodesListGatewayStartedShards extends
               NodeGatewayStartedShards.class);
         this.nodeEnv = env;
         this.indicesService = indicesService;
+        ShardFetchBatcher.registerHandler(logger, transportService, threadPool, BATCH_ACTION_NAME, ThreadPool.Names.FETCH_SHARD_STARTED,
+            this::listStartedShard);
     }
 
     @Override
@@ -91,6 +94,17 @@ public class TransportNodesListGatewayStartedShards extends
         execute(new Request(shardId, nodes), listener);
     }
 
+    @Override
+    public void listBatch(DiscoveryNode node, List<ShardId> shardIds,
+                          ActionListener<ShardFetchBatcher.ShardsResponse<NodeGatewayStartedShards>> listener) {
+        ShardFetchBatcher.sendRequest(transportService, node, BATCH_ACTION_NAME, shardIds, NodeGatewayStartedShards::new, listener);
+    }
+
+    @Override
+    public NodesGatewayStartedShards newNodesResponse(List<NodeGatewayStartedShards> responses, List<FailedNodeException> failures) {
+        return new NodesGatewayStartedShards(clusterService.getClusterName(), responses, failures);
+    }
+
     @Override
     protected boolean transportCompress() {
         return true; // this can become big...
@@ -114,11 +128,14 @@ public class TransportNodesListGatewayStartedShards extends
 
     @Override
     protected NodeGatewayStartedShards nodeOperation(NodeRequest request) {
+        return listStartedShard(request.getShardId());
+    }
+
+    private NodeGatewayStartedShards listStartedShard(ShardId shardId) {
         try {
-            final ShardId shardId = request.getShardId();
             logger.trace("{} loading local shard state info", shardId);
             ShardStateMetaData shardStateMetaData = ShardStateMetaData.FORMAT.loadLatestState(logger, NamedXContentRegistry.EMPTY,
-                nodeEnv.availableShardPaths(request.shardId));
+                nodeEnv.availableShardPaths(shardId));
             if (shardStateMetaData != null) {
                 IndexMetaData metaData = clusterService.state().metaData().index(shardId.getIndex());
                 if (metaData == null) {
@@ -130,7 +147,7 @@ public class TransportNodesListGatewayStartedShards extends
                 }
                 if (metaData == null) {
                     ElasticsearchException e = new ElasticsearchException("failed to find local IndexMetaData");
-                    e.setShard(request.shardId);
+                    e.setShard(shardId);
                     throw e;
                 }
 
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.http;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
@@ -31,21 +32,45 @@ public class HttpStats implements Writeable, ToXContentFragment {
 
     private final long serverOpen;
     private final long totalOpen;
+    private final long inFlightRequests;
+    private final long inFlightBytes;
+    private final long rejectedRequests;
 
     public HttpStats(long serverOpen, long totalOpen) {
+        this(serverOpen, totalOpen, 0, 0, 0);
+    }
+
+    public HttpStats(long serverOpen, long totalOpen, long inFlightRequests, long inFlightBytes, long rejectedRequests) {
         this.serverOpen = serverOpen;
         this.totalOpen = totalOpen;
+        this.inFlightRequests = inFlightRequests;
+        this.inFlightBytes = inFlightBytes;
+        this.rejectedRequests = rejectedRequests;
     }
 
     public HttpStats(StreamInput in) throws IOException {
         serverOpen = in.readVLong();
         totalOpen = in.readVLong();
+        if (in.getVersion().onOrAfter(Version.V_7_0_0_alpha1)) {
+            inFlightRequests = in.readVLong();
+            inFlightBytes = in.readVLong();
+            rejectedRequests = in.readVLong();
+        } else {
+            inFlightRequests = 0;
+            inFlightBytes = 0;
+            rejectedRequests = 0;
+        }
     }
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         out.writeVLong(serverOpen);
         out.writeVLong(totalOpen);
+        if (out.getVersion().onOrAfter(Version.V_7_0_0_alpha1)) {
+            out.writeVLong(inFlightRequests);
+            out.writeVLong(inFlightBytes);
+            out.writeVLong(rejectedRequests);
+        }
     }
 
     public long getServerOpen() {
@@ -56,10 +81,36 @@ public class HttpStats implements Writeable, ToXContentFragment {
         return this.totalOpen;
     }
 
+    /**
+     * Returns the number of requests that have been received but not yet responded to
+     */
+    public long getInFlightRequests() {
+        return this.inFlightRequests;
+    }
+
+    /**
+     * Returns the size of the bodies of the requests that have been received but not yet responded to
+     */
+    public long getInFlightBytes() {
+        return this.inFlightBytes;
+    }
+
+    /**
+     * Returns the number of requests that were rejected before their body was read
+     */
+    public long getRejectedRequests() {
+        return this.rejectedRequests;
+    }
+
     static final class Fields {
         static final String HTTP = "http";
         static final String CURRENT_OPEN = "current_open";
         static final String TOTAL_OPENED = "total_opened";
+        static final String IN_FLIGHT_REQUESTS = "in_flight_requests";
+        static final String CURRENT = "current";
+        static final String CURRENT_SIZE = "current_size";
+        static final String CURRENT_SIZE_IN_BYTES = "current_size_in_bytes";
+        static final String REJECTED = "rejected";
     }
 
     @Override
@@ -67,6 +118,11 @@ public class HttpStats implements Writeable, ToXContentFragment {
         builder.startObject(Fields.HTTP);
         builder.field(Fields.CURRENT_OPEN, serverOpen);
         builder.field(Fields.TOTAL_OPENED, totalOpen);
+        builder.startObject(Fields.IN_FLIGHT_REQUESTS);
+        builder.field(Fields.CURRENT, inFlightRequests);
+        builder.byteSizeField(Fields.CURRENT_SIZE_IN_BYTES, Fields.CURRENT_SIZE, inFlightBytes);
+        builder.field(Fields.REJECTED, rejectedRequests);
+        builder.endObject();
         builder.endObject();
         return builder;
     }
@@ -134,6 +134,11 @@ public class BooleanFieldMapper extends FieldMapper {
             return new BooleanFieldType(this);
         }
 
+        @Override
+        public boolean isShareable() {
+            return usesNodeLevelAnalysisOnly();
+        }
+
         @Override
         public String typeName() {
             return CONTENT_TYPE;
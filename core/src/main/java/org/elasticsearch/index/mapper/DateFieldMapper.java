@@ -200,6 +200,11 @@ public class DateFieldMapper extends FieldMapper {
             return new DateFieldType(this);
         }
 
+        @Override
+        public boolean isShareable() {
+            return usesNodeLevelAnalysisOnly();
+        }
+
         @Override
         public boolean equals(Object o) {
             if (!super.equals(o)) return false;
@@ -170,7 +170,8 @@ public class DocumentMapper implements ToXContentFragment {
         this.hasNestedObjects = hasNestedObjects;
 
         try {
-            mappingSource = new CompressedXContent(this, XContentType.JSON, ToXContent.EMPTY_PARAMS);
+            mappingSource = mapperService.mapperRegistry.getMappingInterner().intern(
+                new CompressedXContent(this, XContentType.JSON, ToXContent.EMPTY_PARAMS));
         } catch (Exception e) {
             throw new ElasticsearchGenerationException("failed to serialize source for type [" + type + "]", e);
         }
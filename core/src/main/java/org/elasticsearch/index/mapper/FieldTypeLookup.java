@@ -30,6 +30,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.UnaryOperator;
 
 /**
  * An immutable container for looking up {@link MappedFieldType}s by their name.
@@ -42,17 +43,28 @@ class FieldTypeLookup implements Iterable<MappedFieldType> {
     /** Full field name to types containing a mapping for this full name. */
     final CopyOnWriteHashMap<String, Set<String>> fullNameToTypes;
 
+    /** Returns the canonical instance of a field type, see {@link org.elasticsearch.indices.mapper.MappingInterner} */
+    private final UnaryOperator<MappedFieldType> interner;
+
     /** Create a new empty instance. */
     FieldTypeLookup() {
+        this(UnaryOperator.identity());
+    }
+
+    /** Create a new empty instance that replaces added field types with their canonical instance. */
+    FieldTypeLookup(UnaryOperator<MappedFieldType> interner) {
         fullNameToFieldType = new CopyOnWriteHashMap<>();
         fullNameToTypes = new CopyOnWriteHashMap<>();
+        this.interner = Objects.requireNonNull(interner);
     }
 
     private FieldTypeLookup(
             CopyOnWriteHashMap<String, MappedFieldType> fullName,
-            CopyOnWriteHashMap<String, Set<String>> fullNameToTypes) {
+            CopyOnWriteHashMap<String, Set<String>> fullNameToTypes,
+            UnaryOperator<MappedFieldType> interner) {
         this.fullNameToFieldType = fullName;
         this.fullNameToTypes = fullNameToTypes;
+        this.interner = interner;
     }
 
     private static CopyOnWriteHashMap<String, Set<String>> addType(CopyOnWriteHashMap<String, Set<String>> map, String key, String type) {
@@ -94,12 +106,12 @@ class FieldTypeLookup implements Iterable<MappedFieldType> {
             checkCompatibility(type, fieldMapper, updateAllTypes);
 
             if (fieldType.equals(fullNameFieldType) == false) {
-                fullName = fullName.copyAndPut(fieldType.name(), fieldMapper.fieldType());
+                fullName = fullName.copyAndPut(fieldType.name(), interner.apply(fieldType));
             }
 
             fullNameToTypes = addType(fullNameToTypes, fieldType.name(), type);
         }
-        return new FieldTypeLookup(fullName, fullNameToTypes);
+        return new FieldTypeLookup(fullName, fullNameToTypes, interner);
     }
 
     private static boolean beStrict(String type, Set<String> types, boolean updateAllTypes) {
@@ -140,6 +140,11 @@ public class IpFieldMapper extends FieldMapper {
             return new IpFieldType(this);
         }
 
+        @Override
+        public boolean isShareable() {
+            return usesNodeLevelAnalysisOnly();
+        }
+
         @Override
         public String typeName() {
             return CONTENT_TYPE;
@@ -35,6 +35,7 @@ import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.common.xcontent.support.XContentMapValues;
+import org.elasticsearch.index.analysis.AnalyzerScope;
 import org.elasticsearch.index.analysis.NamedAnalyzer;
 import org.elasticsearch.index.fielddata.IndexFieldData;
 import org.elasticsearch.index.fielddata.plain.DocValuesIndexFieldData;
@@ -178,6 +179,11 @@ public final class KeywordFieldMapper extends FieldMapper {
             return new KeywordFieldType(this);
         }
 
+        @Override
+        public boolean isShareable() {
+            return usesNodeLevelAnalysisOnly() && (normalizer == null || normalizer.scope() != AnalyzerScope.INDEX);
+        }
+
         @Override
         public boolean equals(Object o) {
             if (super.equals(o) == false) {
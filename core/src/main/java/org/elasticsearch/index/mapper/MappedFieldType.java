@@ -38,6 +38,7 @@ import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.geo.ShapeRelation;
 import org.elasticsearch.common.joda.DateMathParser;
 import org.elasticsearch.common.unit.Fuzziness;
+import org.elasticsearch.index.analysis.AnalyzerScope;
 import org.elasticsearch.index.analysis.NamedAnalyzer;
 import org.elasticsearch.index.fielddata.IndexFieldData;
 import org.elasticsearch.index.query.QueryRewriteContext;
@@ -138,6 +139,32 @@ public abstract class MappedFieldType extends FieldType {
             eagerGlobalOrdinals, similarity == null ? null : similarity.name(), nullValue, nullValueAsString);
     }
 
+    /**
+     * Returns true if equal instances of this field type may be shared by all indices of a node, see
+     * {@link org.elasticsearch.indices.mapper.MappingInterner}. This is only safe for field types that do not
+     * reference index level state, so sub-classes have to opt in explicitly, typically by returning
+     * {@link #usesNodeLevelAnalysisOnly()}.
+     */
+    public boolean isShareable() {
+        return false;
+    }
+
+    /**
+     * Returns true if this field type has no custom similarity and all its analyzers are shared across indices.
+     * Index level analyzers and similarities are compared by name only in {@link #equals(Object)} so field types
+     * that refer to them must never be shared with other indices.
+     */
+    protected final boolean usesNodeLevelAnalysisOnly() {
+        return similarity == null
+            && isNodeLevel(indexAnalyzer)
+            && isNodeLevel(searchAnalyzer)
+            && isNodeLevel(searchQuoteAnalyzer);
+    }
+
+    private static boolean isNodeLevel(NamedAnalyzer analyzer) {
+        return analyzer == null || analyzer.scope() != AnalyzerScope.INDEX;
+    }
+
     // TODO: we need to override freeze() and add safety checks that all settings are actually set
 
     /** Returns the name of this type, as would be specified in mapping properties */
@@ -26,6 +26,7 @@ import org.apache.logging.log4j.message.ParameterizedMessage;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.DelegatingAnalyzerWrapper;
 import org.apache.lucene.index.Term;
+import org.apache.lucene.util.RamUsageEstimator;
 import org.elasticsearch.ElasticsearchGenerationException;
 import org.elasticsearch.Version;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
@@ -51,6 +52,7 @@ import org.elasticsearch.index.query.QueryShardContext;
 import org.elasticsearch.index.similarity.SimilarityService;
 import org.elasticsearch.indices.InvalidTypeNameException;
 import org.elasticsearch.indices.mapper.MapperRegistry;
+import org.elasticsearch.indices.mapper.MappingInterner;
 
 import java.io.Closeable;
 import java.io.IOException;
@@ -129,6 +131,8 @@ public class MapperService extends AbstractIndexComponent implements Closeable {
 
     private volatile Set<String> parentTypes = emptySet();
 
+    private volatile MappingStats mappingStats = new MappingStats();
+
     final MapperRegistry mapperRegistry;
 
     public MapperService(IndexSettings indexSettings, IndexAnalyzers indexAnalyzers, NamedXContentRegistry xContentRegistry,
@@ -136,7 +140,7 @@ public class MapperService extends AbstractIndexComponent implements Closeable {
                          Supplier<QueryShardContext> queryShardContextSupplier) {
         super(indexSettings);
         this.indexAnalyzers = indexAnalyzers;
-        this.fieldTypes = new FieldTypeLookup();
+        this.fieldTypes = new FieldTypeLookup(mapperRegistry.getMappingInterner()::intern);
         this.documentParser = new DocumentMapperParser(indexSettings, this, indexAnalyzers, xContentRegistry, similarityService,
                 mapperRegistry, queryShardContextSupplier);
         this.indexAnalyzer = new MapperAnalyzerWrapper(indexAnalyzers.getDefaultIndexAnalyzer(), p -> p.indexAnalyzer());
@@ -495,6 +499,7 @@ public class MapperService extends AbstractIndexComponent implements Closeable {
         this.hasNested = hasNested;
         this.fullPathObjectMappers = fullPathObjectMappers;
         this.parentTypes = parentTypes;
+        this.mappingStats = computeMappingStats(fieldTypes, mappers);
 
         assert assertMappersShareSameFieldType();
         assert results.values().stream().allMatch(this::assertSerialization);
@@ -742,6 +747,34 @@ public class MapperService extends AbstractIndexComponent implements Closeable {
         return new DocumentMapperForType(mapper, mapper.mapping());
     }
 
+    /**
+     * Returns statistics about the heap used by the mappings of this index.
+     */
+    public MappingStats mappingStats() {
+        return mappingStats;
+    }
+
+    private MappingStats computeMappingStats(FieldTypeLookup fieldTypes, Map<String, DocumentMapper> mappers) {
+        final MappingInterner interner = mapperRegistry.getMappingInterner();
+        final Map<Class<?>, Long> shallowSizes = new HashMap<>();
+        long fieldCount = 0;
+        long sharedFieldCount = 0;
+        long sourceSize = 0;
+        long memorySize = 0;
+        for (MappedFieldType fieldType : fieldTypes) {
+            fieldCount++;
+            if (interner.isInterned(fieldType)) {
+                sharedFieldCount++;
+            } else {
+                memorySize += shallowSizes.computeIfAbsent(fieldType.getClass(), RamUsageEstimator::shallowSizeOfInstance);
+            }
+        }
+        for (DocumentMapper mapper : mappers.values()) {
+            sourceSize += mapper.mappingSource().compressed().length;
+        }
+        return new MappingStats(fieldCount, sharedFieldCount, sourceSize, memorySize + sourceSize);
+    }
+
     /**
      * Returns the {@link MappedFieldType} for the give fullName.
      *
@@ -0,0 +1,129 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.index.mapper;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.xcontent.ToXContent.Params;
+import org.elasticsearch.common.xcontent.ToXContentFragment;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+import java.io.IOException;
+
+/**
+ * Heap usage of the mappings of an index on a node. Field types that are interned by the node level
+ * {@link org.elasticsearch.indices.mapper.MappingInterner}, and are therefore shared with equal fields of
+ * other indices, are counted but their memory is not attributed to the index.
+ */
+public class MappingStats implements Streamable, ToXContentFragment {
+
+    long fieldCount;
+    long sharedFieldCount;
+    long sourceSize;
+    long memorySize;
+
+    public MappingStats() {
+    }
+
+    public MappingStats(long fieldCount, long sharedFieldCount, long sourceSize, long memorySize) {
+        this.fieldCount = fieldCount;
+        this.sharedFieldCount = sharedFieldCount;
+        this.sourceSize = sourceSize;
+        this.memorySize = memorySize;
+    }
+
+    public void add(MappingStats stats) {
+        if (stats == null) {
+            return;
+        }
+        this.fieldCount += stats.fieldCount;
+        this.sharedFieldCount += stats.sharedFieldCount;
+        this.sourceSize += stats.sourceSize;
+        this.memorySize += stats.memorySize;
+    }
+
+    /** The number of mapped fields. */
+    public long getFieldCount() {
+        return fieldCount;
+    }
+
+    /** The number of mapped fields whose field type is interned and shared with other indices. */
+    public long getSharedFieldCount() {
+        return sharedFieldCount;
+    }
+
+    /** The size of the compressed mapping sources. */
+    public long getSourceSizeInBytes() {
+        return sourceSize;
+    }
+
+    public ByteSizeValue getSourceSize() {
+        return new ByteSizeValue(sourceSize);
+    }
+
+    /** The estimated heap used by the field types that are not shared plus the compressed mapping sources. */
+    public long getMemorySizeInBytes() {
+        return memorySize;
+    }
+
+    public ByteSizeValue getMemorySize() {
+        return new ByteSizeValue(memorySize);
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        fieldCount = in.readVLong();
+        sharedFieldCount = in.readVLong();
+        sourceSize = in.readVLong();
+        memorySize = in.readVLong();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVLong(fieldCount);
+        out.writeVLong(sharedFieldCount);
+        out.writeVLong(sourceSize);
+        out.writeVLong(memorySize);
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(Fields.MAPPINGS);
+        builder.field(Fields.FIELD_COUNT, fieldCount);
+        builder.field(Fields.SHARED_FIELD_COUNT, sharedFieldCount);
+        builder.byteSizeField(Fields.SOURCE_SIZE_IN_BYTES, Fields.SOURCE_SIZE, sourceSize);
+        builder.byteSizeField(Fields.MEMORY_SIZE_IN_BYTES, Fields.MEMORY_SIZE, memorySize);
+        builder.endObject();
+        return builder;
+    }
+
+    static final class Fields {
+        static final String MAPPINGS = "mappings";
+        static final String FIELD_COUNT = "field_count";
+        static final String SHARED_FIELD_COUNT = "shared_field_count";
+        static final String SOURCE_SIZE = "source_size";
+        static final String SOURCE_SIZE_IN_BYTES = "source_size_in_bytes";
+        static final String MEMORY_SIZE = "memory_size";
+        static final String MEMORY_SIZE_IN_BYTES = "memory_size_in_bytes";
+    }
+}
@@ -865,6 +865,11 @@ public class NumberFieldMapper extends FieldMapper {
             return new NumberFieldType(this);
         }
 
+        @Override
+        public boolean isShareable() {
+            return usesNodeLevelAnalysisOnly();
+        }
+
         @Override
         public String typeName() {
             return type.name;
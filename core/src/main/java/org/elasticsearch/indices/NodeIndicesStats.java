@@ -19,6 +19,7 @@
 
 package org.elasticsearch.indices;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.action.admin.indices.stats.CommonStats;
 import org.elasticsearch.action.admin.indices.stats.IndexShardStats;
 import org.elasticsearch.action.admin.indices.stats.ShardStats;
@@ -36,6 +37,7 @@ import org.elasticsearch.index.engine.SegmentsStats;
 import org.elasticsearch.index.fielddata.FieldDataStats;
 import org.elasticsearch.index.flush.FlushStats;
 import org.elasticsearch.index.get.GetStats;
+import org.elasticsearch.index.mapper.MappingStats;
 import org.elasticsearch.index.merge.MergeStats;
 import org.elasticsearch.index.recovery.RecoveryStats;
 import org.elasticsearch.index.refresh.RefreshStats;
@@ -47,6 +49,7 @@ import org.elasticsearch.search.suggest.completion.CompletionStats;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -58,13 +61,25 @@ public class NodeIndicesStats implements Streamable, ToXContentFragment {
 
     private CommonStats stats;
     private Map<Index, List<IndexShardStats>> statsByShard;
+    private MappingStats mappings;
+    private Map<Index, MappingStats> mappingStatsByIndex;
 
     NodeIndicesStats() {
     }
 
     public NodeIndicesStats(CommonStats oldStats, Map<Index, List<IndexShardStats>> statsByShard) {
+        this(oldStats, statsByShard, Collections.emptyMap());
+    }
+
+    public NodeIndicesStats(CommonStats oldStats, Map<Index, List<IndexShardStats>> statsByShard,
+                            Map<Index, MappingStats> mappingStatsByIndex) {
         //this.stats = stats;
         this.statsByShard = statsByShard;
+        this.mappingStatsByIndex = mappingStatsByIndex;
+        this.mappings = new MappingStats();
+        for (MappingStats indexMappingStats : mappingStatsByIndex.values()) {
+            mappings.add(indexMappingStats);
+        }
 
         // make a total common stats from old ones and current ones
         this.stats = oldStats;
@@ -147,6 +162,20 @@ public class NodeIndicesStats implements Streamable, ToXContentFragment {
         return stats.getRecoveryStats();
     }
 
+    /**
+     * Returns the heap used by the mappings of all indices on this node.
+     */
+    public MappingStats getMappings() {
+        return mappings;
+    }
+
+    /**
+     * Returns the heap used by the mappings of each index on this node.
+     */
+    public Map<Index, MappingStats> getMappingStatsByIndex() {
+        return mappingStatsByIndex;
+    }
+
     public static NodeIndicesStats readIndicesStats(StreamInput in) throws IOException {
         NodeIndicesStats stats = new NodeIndicesStats();
         stats.readFrom(in);
@@ -169,6 +198,18 @@ public class NodeIndicesStats implements Streamable, ToXContentFragment {
                 statsByShard.put(index, indexShardStats);
             }
         }
+        mappings = new MappingStats();
+        mappingStatsByIndex = new HashMap<>();
+        if (in.getVersion().onOrAfter(Version.V_7_0_0_alpha1)) {
+            mappings.readFrom(in);
+            int entries = in.readVInt();
+            for (int i = 0; i < entries; i++) {
+                Index index = new Index(in);
+                MappingStats indexMappingStats = new MappingStats();
+                indexMappingStats.readFrom(in);
+                mappingStatsByIndex.put(index, indexMappingStats);
+            }
+        }
     }
 
     @Override
@@ -185,6 +226,14 @@ public class NodeIndicesStats implements Streamable, ToXContentFragment {
                 }
             }
         }
+        if (out.getVersion().onOrAfter(Version.V_7_0_0_alpha1)) {
+            mappings.writeTo(out);
+            out.writeVInt(mappingStatsByIndex.size());
+            for (Map.Entry<Index, MappingStats> entry : mappingStatsByIndex.entrySet()) {
+                entry.getKey().writeTo(out);
+                entry.getValue().writeTo(out);
+            }
+        }
     }
 
     @Override
@@ -199,6 +248,7 @@ public class NodeIndicesStats implements Streamable, ToXContentFragment {
         // "node" level
         builder.startObject(Fields.INDICES);
         stats.toXContent(builder, params);
+        mappings.toXContent(builder, params);
 
         if ("indices".equals(level)) {
             Map<Index, CommonStats> indexStats = createStatsByIndex();
@@ -206,6 +256,10 @@ public class NodeIndicesStats implements Streamable, ToXContentFragment {
             for (Map.Entry<Index, CommonStats> entry : indexStats.entrySet()) {
                 builder.startObject(entry.getKey().getName());
                 entry.getValue().toXContent(builder, params);
+                MappingStats indexMappingStats = mappingStatsByIndex.get(entry.getKey());
+                if (indexMappingStats != null) {
+                    indexMappingStats.toXContent(builder, params);
+                }
                 builder.endObject();
             }
             builder.endObject();
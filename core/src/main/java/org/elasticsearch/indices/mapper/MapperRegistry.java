@@ -33,6 +33,7 @@ public final class MapperRegistry {
 
     private final Map<String, Mapper.TypeParser> mapperParsers;
     private final Map<String, MetadataFieldMapper.TypeParser> metadataMapperParsers;
+    private final MappingInterner mappingInterner = new MappingInterner();
 
     public MapperRegistry(Map<String, Mapper.TypeParser> mapperParsers,
             Map<String, MetadataFieldMapper.TypeParser> metadataMapperParsers) {
@@ -55,4 +56,11 @@ public final class MapperRegistry {
     public Map<String, MetadataFieldMapper.TypeParser> getMetadataMapperParsers() {
         return metadataMapperParsers;
     }
+
+    /**
+     * Return the node level interner that allows indices to share equal field types and mapping sources.
+     */
+    public MappingInterner getMappingInterner() {
+        return mappingInterner;
+    }
 }
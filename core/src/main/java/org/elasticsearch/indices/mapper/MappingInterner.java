@@ -0,0 +1,117 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.indices.mapper;
+
+import org.elasticsearch.common.compress.CompressedXContent;
+import org.elasticsearch.index.mapper.MappedFieldType;
+
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Node level registry of canonical mapping objects. Nodes that hold many indices created from the same
+ * templates end up with thousands of equal {@link MappedFieldType} instances and mapping sources, one copy
+ * per index. Interning them means that all indices of a node share a single instance instead.
+ *
+ * Entries are only weakly referenced and disappear once no index refers to them anymore.
+ */
+public final class MappingInterner {
+
+    /**
+     * Field types are grouped by type name as {@link MappedFieldType#equals(Object)} does not compare them, eg. a
+     * {@code long} and an {@code integer} field with the same name and options are equal.
+     */
+    private final Map<String, Map<MappedFieldType, WeakReference<MappedFieldType>>> fieldTypes = new HashMap<>();
+    private final Map<CompressedXContent, WeakReference<CompressedXContent>> mappingSources = new WeakHashMap<>();
+
+    /**
+     * Returns the canonical instance of the given field type, or the field type itself if it is not
+     * {@link MappedFieldType#isShareable() shareable} across indices.
+     */
+    public MappedFieldType intern(MappedFieldType fieldType) {
+        if (fieldType.isShareable() == false) {
+            return fieldType;
+        }
+        final Map<MappedFieldType, WeakReference<MappedFieldType>> sameTypeName;
+        synchronized (fieldTypes) {
+            sameTypeName = fieldTypes.computeIfAbsent(fieldType.typeName(), k -> new WeakHashMap<>());
+        }
+        return intern(sameTypeName, fieldType);
+    }
+
+    /**
+     * Returns the canonical instance of the given mapping source.
+     */
+    public CompressedXContent intern(CompressedXContent mappingSource) {
+        return intern(mappingSources, mappingSource);
+    }
+
+    /**
+     * Returns true if the given field type is the canonical instance that is shared across indices.
+     */
+    public boolean isInterned(MappedFieldType fieldType) {
+        final Map<MappedFieldType, WeakReference<MappedFieldType>> sameTypeName;
+        synchronized (fieldTypes) {
+            sameTypeName = fieldTypes.get(fieldType.typeName());
+        }
+        if (sameTypeName == null) {
+            return false;
+        }
+        synchronized (sameTypeName) {
+            WeakReference<MappedFieldType> ref = sameTypeName.get(fieldType);
+            return ref != null && ref.get() == fieldType;
+        }
+    }
+
+    /** Returns the number of distinct field types that are currently interned. */
+    public int fieldTypeCount() {
+        int count = 0;
+        synchronized (fieldTypes) {
+            for (Map<MappedFieldType, WeakReference<MappedFieldType>> sameTypeName : fieldTypes.values()) {
+                synchronized (sameTypeName) {
+                    count += sameTypeName.size();
+                }
+            }
+        }
+        return count;
+    }
+
+    /** Returns the number of distinct mapping sources that are currently interned. */
+    public int mappingSourceCount() {
+        synchronized (mappingSources) {
+            return mappingSources.size();
+        }
+    }
+
+    private static <T> T intern(Map<T, WeakReference<T>> map, T value) {
+        synchronized (map) {
+            WeakReference<T> ref = map.get(value);
+            T existing = ref == null ? null : ref.get();
+            if (existing != null) {
+                return existing;
+            }
+            map.put(value, new WeakReference<>(value));
+            return value;
+        }
+    }
+}
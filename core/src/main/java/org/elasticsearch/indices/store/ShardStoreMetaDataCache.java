@@ -0,0 +1,158 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.indices.store;
+
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.store.FSDirectory;
+import org.elasticsearch.common.CheckedSupplier;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.shard.IndexEventListener;
+import org.elasticsearch.index.shard.IndexShard;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.store.Store;
+
+import java.io.IOException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the {@link Store.MetadataSnapshot} of shard copies that are on disk but not allocated on this node. Listing
+ * such a copy reads the footer of every file of the shard, and the master lists every unassigned shard on every data
+ * node until it is allocated, which adds up after a full cluster restart.
+ * <p>
+ * Entries are dropped as soon as a shard is created, closed or deleted on this node. On top of that an entry is only
+ * used as long as the latest commit point on disk is still the one the snapshot was read from, which covers shard
+ * directories that are deleted without going through an {@link IndexEventListener}. The cache holds at most
+ * {@code indices.store.metadata_cache.size} entries, which expire once they have not been used for
+ * {@code indices.store.metadata_cache.expire}, so that copies that are never allocated don't stay around forever.
+ */
+public final class ShardStoreMetaDataCache implements IndexEventListener {
+
+    public static final Setting<Integer> INDICES_STORE_METADATA_CACHE_SIZE =
+        Setting.intSetting("indices.store.metadata_cache.size", 1000, 0, Property.NodeScope);
+    public static final Setting<TimeValue> INDICES_STORE_METADATA_CACHE_EXPIRE =
+        Setting.timeSetting("indices.store.metadata_cache.expire", TimeValue.timeValueMinutes(10), TimeValue.timeValueMillis(1),
+            Property.NodeScope);
+
+    private final Cache<ShardId, Entry> cache;
+    private final AtomicLong invalidations = new AtomicLong();
+    private final CounterMetric hits = new CounterMetric();
+    private final CounterMetric misses = new CounterMetric();
+
+    public ShardStoreMetaDataCache(Settings settings) {
+        cache = CacheBuilder.<ShardId, Entry>builder()
+            .setMaximumWeight(INDICES_STORE_METADATA_CACHE_SIZE.get(settings))
+            .setExpireAfterAccess(INDICES_STORE_METADATA_CACHE_EXPIRE.get(settings))
+            .build();
+    }
+
+    /**
+     * Returns the cached metadata of the shard stored at the given location, or loads and caches it if there is no
+     * entry for the current commit point of the shard.
+     */
+    public Store.MetadataSnapshot getOrLoad(ShardId shardId, Path indexLocation,
+                                            CheckedSupplier<Store.MetadataSnapshot, IOException> loader) throws IOException {
+        final String commit = lastCommitSegmentsFileName(indexLocation);
+        final Entry entry = cache.get(shardId);
+        if (entry != null && commit != null && commit.equals(entry.commit) && indexLocation.equals(entry.indexLocation)) {
+            hits.inc();
+            return entry.metadata;
+        }
+        misses.inc();
+        final long invalidationsBeforeLoad = invalidations.get();
+        final Store.MetadataSnapshot metadata = loader.get();
+        if (commit != null && metadata.asMap().containsKey(commit)) {
+            final Entry newEntry = new Entry(indexLocation, commit, metadata);
+            cache.put(shardId, newEntry);
+            if (invalidations.get() != invalidationsBeforeLoad) {
+                // the shard may have changed while we were reading it, don't trust what we read
+                cache.invalidate(shardId);
+            }
+        } else {
+            cache.invalidate(shardId);
+        }
+        return metadata;
+    }
+
+    /**
+     * Drops the cached metadata of the given shard, if any.
+     */
+    public void invalidate(ShardId shardId) {
+        invalidations.incrementAndGet();
+        cache.invalidate(shardId);
+    }
+
+    public int count() {
+        return cache.count();
+    }
+
+    public long getHitCount() {
+        return hits.count();
+    }
+
+    public long getMissCount() {
+        return misses.count();
+    }
+
+    @Override
+    public void beforeIndexShardCreated(ShardId shardId, Settings indexSettings) {
+        invalidate(shardId);
+    }
+
+    @Override
+    public void afterIndexShardClosed(ShardId shardId, @Nullable IndexShard indexShard, Settings indexSettings) {
+        invalidate(shardId);
+    }
+
+    @Override
+    public void afterIndexShardDeleted(ShardId shardId, Settings indexSettings) {
+        invalidate(shardId);
+    }
+
+    @Nullable
+    private static String lastCommitSegmentsFileName(Path indexLocation) throws IOException {
+        try {
+            return SegmentInfos.getLastCommitSegmentsFileName(FSDirectory.listAll(indexLocation));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private static final class Entry {
+        final Path indexLocation;
+        final String commit;
+        final Store.MetadataSnapshot metadata;
+
+        Entry(Path indexLocation, String commit, Store.MetadataSnapshot metadata) {
+            this.indexLocation = indexLocation;
+            this.commit = commit;
+            this.metadata = metadata;
+        }
+    }
+}
@@ -42,6 +42,7 @@ import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.NamedXContentRegistry;
 import org.elasticsearch.env.NodeEnvironment;
 import org.elasticsearch.gateway.AsyncShardFetch;
+import org.elasticsearch.gateway.ShardFetchBatcher;
 import org.elasticsearch.index.IndexService;
 import org.elasticsearch.index.IndexSettings;
 import org.elasticsearch.index.shard.IndexShard;
@@ -54,6 +55,7 @@ import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.TransportService;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
@@ -62,10 +64,11 @@ public class TransportNodesListShardStoreMetaData extends TransportNodesAction<T
     TransportNodesListShardStoreMetaData.NodesStoreFilesMetaData,
     TransportNodesListShardStoreMetaData.NodeRequest,
     TransportNodesListShardStoreMetaData.NodeStoreFilesMetaData>
-    implements AsyncShardFetch.Lister<TransportNodesListShardStoreMetaData.NodesStoreFilesMetaData,
+    implements AsyncShardFetch.BatchLister<TransportNodesListShardStoreMetaData.NodesStoreFilesMetaData,
     TransportNodesListShardStoreMetaData.NodeStoreFilesMetaData> {
 
     public static final String ACTION_NAME = "internal:cluster/nodes/indices/shard/store";
+    public static final String BATCH_ACTION_NAME = ACTION_NAME + "[batch]";
 
     private final IndicesService indicesService;
 
@@ -80,6 +83,8 @@ public class TransportNodesListShardStoreMetaData extends TransportNodesAction<T
             Request::new, NodeRequest::new, ThreadPool.Names.FETCH_SHARD_STORE, NodeStoreFilesMetaData.class);
         this.indicesService = indicesService;
         this.nodeEnv = nodeEnv;
+        ShardFetchBatcher.registerHandler(logger, transportService, threadPool, BATCH_ACTION_NAME, ThreadPool.Names.FETCH_SHARD_STORE,
+            this::shardOperation);
     }
 
     @Override
@@ -87,6 +92,17 @@ public class TransportNodesListShardStoreMetaData extends TransportNodesAction<T
         execute(new Request(shardId, nodes), listener);
     }
 
+    @Override
+    public void listBatch(DiscoveryNode node, List<ShardId> shardIds,
+                          ActionListener<ShardFetchBatcher.ShardsResponse<NodeStoreFilesMetaData>> listener) {
+        ShardFetchBatcher.sendRequest(transportService, node, BATCH_ACTION_NAME, shardIds, NodeStoreFilesMetaData::new, listener);
+    }
+
+    @Override
+    public NodesStoreFilesMetaData newNodesResponse(List<NodeStoreFilesMetaData> responses, List<FailedNodeException> failures) {
+        return new NodesStoreFilesMetaData(clusterService.getClusterName(), responses, failures);
+    }
+
     @Override
     protected NodeRequest newNodeRequest(String nodeId, Request request) {
         return new NodeRequest(nodeId, request);
@@ -105,10 +121,14 @@ public class TransportNodesListShardStoreMetaData extends TransportNodesAction<T
 
     @Override
     protected NodeStoreFilesMetaData nodeOperation(NodeRequest request) {
+        return shardOperation(request.shardId);
+    }
+
+    private NodeStoreFilesMetaData shardOperation(ShardId shardId) {
         try {
-            return new NodeStoreFilesMetaData(clusterService.localNode(), listStoreMetaData(request.shardId));
+            return new NodeStoreFilesMetaData(clusterService.localNode(), listStoreMetaData(shardId));
         } catch (IOException e) {
-            throw new ElasticsearchException("Failed to list store metadata for shard [" + request.shardId + "]", e);
+            throw new ElasticsearchException("Failed to list store metadata for shard [" + shardId + "]", e);
         }
     }
 
@@ -147,8 +167,10 @@ public class TransportNodesListShardStoreMetaData extends TransportNodesAction<T
             // 1) a shard is being constructed, which means the master will not use a copy of this replica
             // 2) A shard is shutting down and has not cleared it's content within lock timeout. In this case the master may not
             //    reuse local resources.
-            return new StoreFilesMetaData(shardId, Store.readMetadataSnapshot(shardPath.resolveIndex(), shardId,
-                nodeEnv::shardLock, logger));
+            // the copy isn't allocated here, so its files only change if it gets allocated or deleted which the cache keeps track of
+            final Path indexLocation = shardPath.resolveIndex();
+            return new StoreFilesMetaData(shardId, indicesService.getShardStoreMetaDataCache().getOrLoad(shardId, indexLocation,
+                () -> Store.readMetadataSnapshot(indexLocation, shardId, nodeEnv::shardLock, logger)));
         } finally {
             TimeValue took = new TimeValue(System.nanoTime() - startTimeNS, TimeUnit.NANOSECONDS);
             if (exists) {
@@ -32,9 +32,12 @@ import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.settings.SettingsFilter;
 import org.elasticsearch.discovery.Discovery;
+import org.elasticsearch.gateway.GatewayAllocator;
+import org.elasticsearch.gateway.GatewayStats;
 import org.elasticsearch.http.HttpServerTransport;
 import org.elasticsearch.indices.IndicesService;
 import org.elasticsearch.indices.breaker.CircuitBreakerService;
+import org.elasticsearch.indices.store.ShardStoreMetaDataCache;
 import org.elasticsearch.ingest.IngestService;
 import org.elasticsearch.monitor.MonitorService;
 import org.elasticsearch.node.ResponseCollectorService;
@@ -63,6 +66,8 @@ public class NodeService extends AbstractComponent implements Closeable {
 
     private final Discovery discovery;
 
+    private volatile GatewayAllocator gatewayAllocator;
+
     NodeService(Settings settings, ThreadPool threadPool, MonitorService monitorService, Discovery discovery,
                 TransportService transportService, IndicesService indicesService, PluginsService pluginService,
                 CircuitBreakerService circuitBreakerService, ScriptService scriptService,
@@ -105,7 +110,7 @@ public class NodeService extends AbstractComponent implements Closeable {
 
     public NodeStats stats(CommonStatsFlags indices, boolean os, boolean process, boolean jvm, boolean threadPool,
                            boolean fs, boolean transport, boolean http, boolean circuitBreaker,
-                           boolean script, boolean discoveryStats, boolean ingest, boolean adaptiveSelection) {
+                           boolean script, boolean discoveryStats, boolean ingest, boolean adaptiveSelection, boolean gateway) {
         // for indices stats we want to include previous allocated shards stats as well (it will
         // only be applied to the sensible ones to use, like refresh/merge/flush/indexing stats)
         return new NodeStats(transportService.getLocalNode(), System.currentTimeMillis(),
@@ -121,10 +126,26 @@ public class NodeService extends AbstractComponent implements Closeable {
                 script ? scriptService.stats() : null,
                 discoveryStats ? discovery.stats() : null,
                 ingest ? ingestService.getPipelineExecutionService().stats() : null,
-                adaptiveSelection ? responseCollectorService.getAdaptiveStats(searchTransportService.getClientConnections()) : null
+                adaptiveSelection ? responseCollectorService.getAdaptiveStats(searchTransportService.getClientConnections()) : null,
+                gateway ? gatewayStats() : null
         );
     }
 
+    private GatewayStats gatewayStats() {
+        final GatewayAllocator allocator = gatewayAllocator;
+        final ShardStoreMetaDataCache storeMetaDataCache = indicesService.getShardStoreMetaDataCache();
+        return new GatewayStats(
+                allocator == null ? 0 : allocator.getNumberOfFetchRequests(),
+                allocator == null ? 0 : allocator.getNumberOfFetchedShards(),
+                allocator == null ? 0 : allocator.getFetchTimeInMillis(),
+                storeMetaDataCache.count(), storeMetaDataCache.getHitCount(), storeMetaDataCache.getMissCount());
+    }
+
+    // the gateway allocator is created by the injector, after this service
+    void setGatewayAllocator(GatewayAllocator gatewayAllocator) {
+        this.gatewayAllocator = gatewayAllocator;
+    }
+
     public IngestService getIngestService() {
         return ingestService;
     }
@@ -0,0 +1,61 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.rest;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.xcontent.ChunkedToXContent;
+import org.elasticsearch.common.xcontent.ToXContent;
+
+import java.io.IOException;
+
+/**
+ * The body of a response that is serialized and sent in chunks rather than materialized as a whole before it is sent. The
+ * channel pulls the next chunk whenever it is ready to write more, which bounds the memory a large response needs while it
+ * is being sent.
+ */
+public interface ChunkedRestResponseBody extends Releasable {
+
+    /**
+     * Returns <code>true</code> once all chunks have been encoded
+     */
+    boolean isDone();
+
+    /**
+     * Serializes the next chunk of the body. The returned chunk is roughly the given size, it may be smaller if the body is
+     * exhausted or larger if a single piece of the body exceeds the hint.
+     */
+    BytesReference encodeChunk(int sizeHint) throws IOException;
+
+    /**
+     * Returns the content type of the response
+     */
+    String getResponseContentTypeString();
+
+    /**
+     * Creates a body that renders the given object using a builder obtained from the given channel, honouring the format,
+     * filtering and pretty printing options of the request.
+     */
+    static ChunkedRestResponseBody fromXContent(ChunkedToXContent chunkedToXContent, ToXContent.Params params,
+                                                RestChannel channel) throws IOException {
+        return new XContentChunkedRestResponseBody(chunkedToXContent.toXContentChunked(), params, channel);
+    }
+}
@@ -25,6 +25,7 @@ import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentType;
 
 import java.io.IOException;
+import java.io.OutputStream;
 
 /**
  * A channel used to construct bytes / builder based outputs, and send responses.
@@ -37,6 +38,12 @@ public interface RestChannel {
 
     XContentBuilder newBuilder(@Nullable XContentType xContentType, boolean useFiltering) throws IOException;
 
+    /**
+     * Creates a new {@link XContentBuilder} like {@link #newBuilder(XContentType, boolean)} that writes to the given stream
+     * rather than to the channel's {@link #bytesOutput()}.
+     */
+    XContentBuilder newBuilder(@Nullable XContentType xContentType, boolean useFiltering, OutputStream outputStream) throws IOException;
+
     BytesStreamOutput bytesOutput();
 
     RestRequest request();
@@ -47,4 +54,18 @@ public interface RestChannel {
     boolean detailedErrorsEnabled();
 
     void sendResponse(RestResponse response);
+
+    /**
+     * Sends a response whose body is serialized chunk by chunk as the channel is ready to write more. Channels that cannot
+     * stream responses serialize the whole body upfront and send it like any other response.
+     */
+    default void sendChunkedResponse(RestStatus status, ChunkedRestResponseBody body) throws IOException {
+        try (ChunkedRestResponseBody toClose = body) {
+            final BytesStreamOutput output = bytesOutput();
+            while (body.isDone() == false) {
+                body.encodeChunk(Integer.MAX_VALUE).writeTo(output);
+            }
+            sendResponse(new BytesRestResponse(status, body.getResponseContentTypeString(), output.bytes()));
+        }
+    }
 }
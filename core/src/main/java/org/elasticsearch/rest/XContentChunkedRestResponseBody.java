@@ -0,0 +1,113 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.rest;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+
+/**
+ * A {@link ChunkedRestResponseBody} that serializes a sequence of {@link ToXContent} pieces into a single builder, cutting a
+ * chunk whenever the output produced so far reaches the requested size.
+ */
+final class XContentChunkedRestResponseBody implements ChunkedRestResponseBody {
+
+    private final Iterator<? extends ToXContent> pieces;
+    private final ToXContent.Params params;
+    private final ChunkStream stream = new ChunkStream();
+    private final XContentBuilder builder;
+    private boolean done;
+
+    XContentChunkedRestResponseBody(Iterator<? extends ToXContent> pieces, ToXContent.Params params,
+                                    RestChannel channel) throws IOException {
+        this.pieces = pieces;
+        this.params = params;
+        this.builder = channel.newBuilder(channel.request().getXContentType(), true, stream);
+    }
+
+    @Override
+    public boolean isDone() {
+        return done;
+    }
+
+    @Override
+    public BytesReference encodeChunk(int sizeHint) throws IOException {
+        assert done == false : "body is already fully encoded";
+        final BytesStreamOutput chunk = new BytesStreamOutput();
+        stream.target = chunk;
+        try {
+            while (pieces.hasNext() && chunk.size() < sizeHint) {
+                pieces.next().toXContent(builder, params);
+                builder.flush();
+            }
+            if (pieces.hasNext() == false) {
+                done = true;
+                builder.close();
+            }
+        } finally {
+            stream.target = null;
+        }
+        return chunk.bytes();
+    }
+
+    @Override
+    public String getResponseContentTypeString() {
+        return builder.contentType().mediaType();
+    }
+
+    @Override
+    public void close() {
+        if (builder.generator().isClosed() == false) {
+            // the response is released before it was fully encoded, the builder refuses to close an unfinished object
+            // so don't let that mask whatever aborted the response
+            Releasables.closeWhileHandlingException(builder);
+        }
+    }
+
+    /**
+     * Redirects the output of the builder to the chunk that is currently being encoded, output written while no chunk is
+     * being encoded is dropped
+     */
+    private static final class ChunkStream extends OutputStream {
+
+        private BytesStreamOutput target;
+
+        @Override
+        public void write(int b) throws IOException {
+            if (target != null) {
+                target.writeByte((byte) b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (target != null) {
+                target.writeBytes(b, off, len);
+            }
+        }
+    }
+}
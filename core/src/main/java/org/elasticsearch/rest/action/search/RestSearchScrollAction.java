@@ -25,7 +25,7 @@ import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.rest.BaseRestHandler;
 import org.elasticsearch.rest.RestController;
 import org.elasticsearch.rest.RestRequest;
-import org.elasticsearch.rest.action.RestStatusToXContentListener;
+import org.elasticsearch.rest.action.RestChunkedToXContentListener;
 import org.elasticsearch.search.Scroll;
 
 import java.io.IOException;
@@ -68,6 +68,6 @@ public class RestSearchScrollAction extends BaseRestHandler {
                     throw new IllegalArgumentException("Failed to parse request body", e);
                 }
             }});
-        return channel -> client.searchScroll(searchScrollRequest, new RestStatusToXContentListener<>(channel));
+        return channel -> client.searchScroll(searchScrollRequest, new RestChunkedToXContentListener<>(channel));
     }
 }
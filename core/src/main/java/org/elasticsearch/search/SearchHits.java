@@ -22,8 +22,10 @@ package org.elasticsearch.search;
 import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.collect.Iterators;
 import org.elasticsearch.common.io.stream.Streamable;
-import org.elasticsearch.common.xcontent.ToXContent.Params;
+import org.elasticsearch.common.xcontent.ChunkedToXContent;
+import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.ToXContentFragment;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentParser;
@@ -31,13 +33,14 @@ import org.elasticsearch.common.xcontent.XContentParser;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
 
 import static org.elasticsearch.common.xcontent.XContentParserUtils.ensureExpectedToken;
 
-public final class SearchHits implements Streamable, ToXContentFragment, Iterable<SearchHit> {
+public final class SearchHits implements Streamable, ToXContentFragment, ChunkedToXContent, Iterable<SearchHit> {
 
     public static SearchHits empty() {
         // We shouldn't use static final instance, since that could directly be returned by native transport clients
@@ -104,6 +107,25 @@ public final class SearchHits implements Streamable, ToXContentFragment, Iterabl
 
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        headerToXContent(builder);
+        for (SearchHit hit : hits) {
+            hit.toXContent(builder, params);
+        }
+        return footerToXContent(builder);
+    }
+
+    /**
+     * Renders the hits as a header, one piece per hit and a footer so that large pages of hits can be sent incrementally.
+     */
+    @Override
+    public Iterator<? extends ToXContent> toXContentChunked() {
+        return Iterators.<ToXContent>concat(
+            Collections.singletonList((ToXContent) (builder, params) -> headerToXContent(builder)).iterator(),
+            Arrays.asList(hits).iterator(),
+            Collections.singletonList((ToXContent) (builder, params) -> footerToXContent(builder)).iterator());
+    }
+
+    private XContentBuilder headerToXContent(XContentBuilder builder) throws IOException {
         builder.startObject(Fields.HITS);
         builder.field(Fields.TOTAL, totalHits);
         if (Float.isNaN(maxScore)) {
@@ -112,13 +134,12 @@ public final class SearchHits implements Streamable, ToXContentFragment, Iterabl
             builder.field(Fields.MAX_SCORE, maxScore);
         }
         builder.field(Fields.HITS);
-        builder.startArray();
-        for (SearchHit hit : hits) {
-            hit.toXContent(builder, params);
-        }
+        return builder.startArray();
+    }
+
+    private static XContentBuilder footerToXContent(XContentBuilder builder) throws IOException {
         builder.endArray();
-        builder.endObject();
-        return builder;
+        return builder.endObject();
     }
 
     public static SearchHits fromXContent(XContentParser parser) throws IOException {
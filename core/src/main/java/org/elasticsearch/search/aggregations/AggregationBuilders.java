@@ -47,6 +47,8 @@ import org.elasticsearch.search.aggregations.bucket.range.IpRangeAggregationBuil
 import org.elasticsearch.search.aggregations.bucket.range.Range;
 import org.elasticsearch.search.aggregations.bucket.range.RangeAggregationBuilder;
 import org.elasticsearch.search.aggregations.bucket.sampler.DiversifiedAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.sampler.RandomSampler;
+import org.elasticsearch.search.aggregations.bucket.sampler.RandomSamplerAggregationBuilder;
 import org.elasticsearch.search.aggregations.bucket.sampler.Sampler;
 import org.elasticsearch.search.aggregations.bucket.sampler.SamplerAggregationBuilder;
 import org.elasticsearch.search.aggregations.bucket.significant.SignificantTerms;
@@ -191,6 +193,13 @@ public class AggregationBuilders {
         return new DiversifiedAggregationBuilder(name);
     }
 
+    /**
+     * Create a new {@link RandomSampler} aggregation with the given name and sampling probability.
+     */
+    public static RandomSamplerAggregationBuilder randomSampler(String name, double probability) {
+        return new RandomSamplerAggregationBuilder(name, probability);
+    }
+
     /**
      * Create a new {@link Global} aggregation with the given name.
      */
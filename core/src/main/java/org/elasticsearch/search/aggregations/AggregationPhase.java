@@ -66,6 +66,9 @@ public class AggregationPhase implements SearchPhase {
                         collector = new InternalProfileCollector(collector, CollectorResult.REASON_AGGREGATION,
                                 // TODO: report on child aggs as well
                                 Collections.emptyList());
+                    } else if (collector.needsScores() == false) {
+                        // collect docs in blocks so that metric aggregations can decode and accumulate their values in tight loops
+                        collector = new BatchingBucketCollector((BucketCollector) collector);
                     }
                     context.queryCollectors().put(AggregationPhase.class, collector);
                 }
@@ -87,6 +90,15 @@ public class AggregationPhase implements SearchPhase {
             return;
         }
 
+        Collector queryCollector = context.queryCollectors().get(AggregationPhase.class);
+        if (queryCollector instanceof BatchingBucketCollector) {
+            try {
+                ((BatchingBucketCollector) queryCollector).finish();
+            } catch (IOException e) {
+                throw new AggregationExecutionException("Failed to collect the last documents of the aggregations", e);
+            }
+        }
+
         Aggregator[] aggregators = context.aggregations().aggregators();
         List<Aggregator> globals = new ArrayList<>();
         for (int i = 0; i < aggregators.length; i++) {
@@ -103,7 +115,7 @@ public class AggregationPhase implements SearchPhase {
             try {
                 final Collector collector;
                 if (context.getProfilers() == null) {
-                    collector = globalsCollector;
+                    collector = globalsCollector.needsScores() ? globalsCollector : new BatchingBucketCollector(globalsCollector);
                 } else {
                     InternalProfileCollector profileCollector = new InternalProfileCollector(
                             globalsCollector, CollectorResult.REASON_AGGREGATION_GLOBAL,
@@ -115,6 +127,9 @@ public class AggregationPhase implements SearchPhase {
                 }
                 globalsCollector.preCollection();
                 context.searcher().search(query, collector);
+                if (collector instanceof BatchingBucketCollector) {
+                    ((BatchingBucketCollector) collector).finish();
+                }
             } catch (Exception e) {
                 throw new QueryPhaseExecutionException(context, "Failed to execute global aggregators", e);
             } finally {
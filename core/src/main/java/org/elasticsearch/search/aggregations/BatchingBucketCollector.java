@@ -0,0 +1,121 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.CollectionTerminatedException;
+import org.apache.lucene.search.Scorer;
+
+import java.io.IOException;
+
+/**
+ * A {@link BucketCollector} that buffers the docs that it is asked to collect and passes them to the wrapped collector in
+ * blocks through {@link LeafBucketCollector#collect(int[], int, long)}. Since docs are collected after the scorer moved
+ * on, it may only wrap collectors that don't need scores. The last block of the last segment is only collected by
+ * {@link #finish()} or {@link #postCollection()}.
+ */
+final class BatchingBucketCollector extends BucketCollector {
+
+    static final int BATCH_SIZE = 128;
+
+    private final BucketCollector in;
+    private final int[] docs;
+    private LeafBucketCollector leaf;
+    private long bucket;
+    private int count;
+
+    BatchingBucketCollector(BucketCollector in) {
+        this(in, BATCH_SIZE);
+    }
+
+    BatchingBucketCollector(BucketCollector in, int batchSize) {
+        if (in.needsScores()) {
+            throw new IllegalArgumentException("cannot batch the collection of [" + in + "] since it needs scores");
+        }
+        this.in = in;
+        this.docs = new int[batchSize];
+    }
+
+    @Override
+    public LeafBucketCollector getLeafCollector(LeafReaderContext ctx) throws IOException {
+        finish();
+        leaf = in.getLeafCollector(ctx);
+        return new LeafBucketCollector() {
+            @Override
+            public void setScorer(Scorer scorer) throws IOException {
+                leaf.setScorer(scorer);
+            }
+
+            @Override
+            public void collect(int doc, long owningBucketOrd) throws IOException {
+                if (count > 0 && owningBucketOrd != bucket) {
+                    flush();
+                }
+                bucket = owningBucketOrd;
+                docs[count++] = doc;
+                if (count == docs.length) {
+                    flush();
+                }
+            }
+        };
+    }
+
+    /**
+     * Collect the buffered docs of the current segment.
+     */
+    void finish() throws IOException {
+        try {
+            flush();
+        } catch (CollectionTerminatedException e) {
+            // the segment was terminated early, which is fine since we are done with it
+        }
+    }
+
+    private void flush() throws IOException {
+        if (count > 0) {
+            try {
+                leaf.collect(docs, count, bucket);
+            } finally {
+                count = 0;
+            }
+        }
+    }
+
+    @Override
+    public void preCollection() throws IOException {
+        in.preCollection();
+    }
+
+    @Override
+    public void postCollection() throws IOException {
+        finish();
+        in.postCollection();
+    }
+
+    @Override
+    public boolean needsScores() {
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return in.toString();
+    }
+}
@@ -18,6 +18,7 @@
  */
 package org.elasticsearch.search.aggregations;
 
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.io.stream.NamedWriteable;
 import org.elasticsearch.common.io.stream.StreamInput;
@@ -33,6 +34,7 @@ import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.Function;
 
 /**
  * An internal implementation of {@link Aggregation}. Serves as a base class for all aggregation implementations.
@@ -44,11 +46,18 @@ public abstract class InternalAggregation implements Aggregation, NamedWriteable
         private final BigArrays bigArrays;
         private final ScriptService scriptService;
         private final boolean isFinalReduce;
+        private final ParallelReducer parallelReducer;
 
         public ReduceContext(BigArrays bigArrays, ScriptService scriptService, boolean isFinalReduce) {
+            this(bigArrays, scriptService, isFinalReduce, null);
+        }
+
+        public ReduceContext(BigArrays bigArrays, ScriptService scriptService, boolean isFinalReduce,
+                             @Nullable ParallelReducer parallelReducer) {
             this.bigArrays = bigArrays;
             this.scriptService = scriptService;
             this.isFinalReduce = isFinalReduce;
+            this.parallelReducer = parallelReducer;
         }
 
         /**
@@ -67,6 +76,17 @@ public abstract class InternalAggregation implements Aggregation, NamedWriteable
         public ScriptService scriptService() {
             return scriptService;
         }
+
+        /**
+         * Reduce each group of buckets with the given function and return the results in the same order as the groups. The
+         * groups may be reduced concurrently when there are many of them so reducing a group must not depend on the others.
+         */
+        public <T, R> List<R> reduceBuckets(List<T> groups, Function<T, R> reducer) {
+            if (parallelReducer == null) {
+                return ParallelReducer.reduceSequentially(groups, reducer);
+            }
+            return parallelReducer.reduce(groups, reducer);
+        }
     }
 
     protected final String name;
@@ -128,6 +148,22 @@ public abstract class InternalAggregation implements Aggregation, NamedWriteable
 
     public abstract InternalAggregation doReduce(List<InternalAggregation> aggregations, ReduceContext reduceContext);
 
+    /**
+     * Returns a copy of this aggregation whose counts, like document counts and sums, are multiplied by the given factor. This
+     * estimates the result over all documents from a result that was computed over a random sample of them. Aggregations
+     * that don't grow with the number of documents, like averages or maximums, return themselves.
+     */
+    public InternalAggregation scale(double factor) {
+        return this;
+    }
+
+    /**
+     * Multiply a count by the given factor. Negative counts, which mean that a count is unknown, are left as is.
+     */
+    protected static long scaleCount(long count, double factor) {
+        return count <= 0 ? count : Math.round(count * factor);
+    }
+
     /**
      * Get the value of specified path in the aggregation.
      *
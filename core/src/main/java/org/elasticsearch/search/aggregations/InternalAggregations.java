@@ -79,6 +79,19 @@ public final class InternalAggregations extends Aggregations implements Streamab
         return new InternalAggregations(reducedAggregations);
     }
 
+    /**
+     * Returns a copy of these aggregations with their counts multiplied by the given factor.
+     *
+     * @see InternalAggregation#scale(double)
+     */
+    public InternalAggregations scale(double factor) {
+        List<InternalAggregation> scaledAggregations = new ArrayList<>(aggregations.size());
+        for (Aggregation aggregation : aggregations) {
+            scaledAggregations.add(((InternalAggregation) aggregation).scale(factor));
+        }
+        return new InternalAggregations(scaledAggregations);
+    }
+
     public static InternalAggregations readAggregations(StreamInput in) throws IOException {
         InternalAggregations result = new InternalAggregations();
         result.readFrom(in);
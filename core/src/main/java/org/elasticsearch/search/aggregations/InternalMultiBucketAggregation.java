@@ -63,6 +63,24 @@ public abstract class InternalMultiBucketAggregation<A extends InternalMultiBuck
      */
     public abstract B createBucket(InternalAggregations aggregations, B prototype);
 
+    /**
+     * Create a new {@link InternalBucket} using the provided prototype bucket,
+     * document count and aggregations. This is used when the document count of
+     * a bucket is not the number of documents that were collected into it, for
+     * instance when the documents are themselves pre-aggregated.
+     *
+     * @param docCount
+     *            the document count of the new bucket
+     * @param aggregations
+     *            the aggregations for the new bucket
+     * @param prototype
+     *            the bucket to use as a prototype
+     * @return the new bucket
+     */
+    public B createBucket(long docCount, InternalAggregations aggregations, B prototype) {
+        throw new UnsupportedOperationException("[" + getType() + "] does not support overriding the document count of its buckets");
+    }
+
     @Override
     public abstract List<? extends InternalBucket> getBuckets();
 
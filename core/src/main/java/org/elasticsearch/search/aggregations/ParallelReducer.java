@@ -0,0 +1,151 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.search.aggregations;
+
+import org.elasticsearch.common.settings.ClusterSettings;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Reduces many independent groups of buckets, like the buckets that have the same key in the responses of all shards, using
+ * the threads of the {@link ThreadPool.Names#SEARCH_REDUCE} thread pool in addition to the current thread.
+ *
+ * The groups are split into contiguous chunks that the current thread and the pool threads take in turn. The current thread
+ * keeps taking chunks until there are none left and then waits for the chunks that other threads are reducing, so it never
+ * waits for a chunk that hasn't started. This is why nested reductions, which run on pool threads, and rejections from the
+ * pool can't block a reduction. The results are always in the same order as the groups.
+ */
+public final class ParallelReducer {
+
+    /**
+     * The minimum number of groups of buckets for which reductions are parallelized, or {@code -1} to never parallelize them.
+     */
+    public static final Setting<Integer> MIN_BUCKETS_SETTING =
+        Setting.intSetting("search.parallel_reduce.min_buckets", 1024, -1, Property.Dynamic, Property.NodeScope);
+
+    /**
+     * The number of chunks per thread, so that threads that get cheap chunks can help with the others.
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final Executor executor;
+    private final int maxThreads;
+    private volatile int minBuckets;
+
+    public ParallelReducer(Settings settings, ClusterSettings clusterSettings, ThreadPool threadPool) {
+        this(threadPool.executor(ThreadPool.Names.SEARCH_REDUCE), threadPool.info(ThreadPool.Names.SEARCH_REDUCE).getMax(),
+            MIN_BUCKETS_SETTING.get(settings));
+        clusterSettings.addSettingsUpdateConsumer(MIN_BUCKETS_SETTING, this::setMinBuckets);
+    }
+
+    ParallelReducer(Executor executor, int maxThreads, int minBuckets) {
+        this.executor = executor;
+        this.maxThreads = maxThreads;
+        this.minBuckets = minBuckets;
+    }
+
+    private void setMinBuckets(int minBuckets) {
+        this.minBuckets = minBuckets;
+    }
+
+    /**
+     * Apply the reducer to each group and return the results in the same order as the groups.
+     */
+    public <T, R> List<R> reduce(List<T> groups, Function<T, R> reducer) {
+        final int minBuckets = this.minBuckets;
+        final int size = groups.size();
+        if (minBuckets == -1 || size < minBuckets || size < 2 || maxThreads < 1) {
+            return reduceSequentially(groups, reducer);
+        }
+
+        final int numChunks = Math.min(size, (maxThreads + 1) * CHUNKS_PER_THREAD);
+        final Object[] results = new Object[size];
+        final AtomicInteger nextChunk = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(numChunks);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final Runnable worker = () -> {
+            for (int chunk = nextChunk.getAndIncrement(); chunk < numChunks; chunk = nextChunk.getAndIncrement()) {
+                try {
+                    if (failure.get() == null) {
+                        final int from = (int) ((long) size * chunk / numChunks);
+                        final int to = (int) ((long) size * (chunk + 1) / numChunks);
+                        for (int i = from; i < to; ++i) {
+                            results[i] = reducer.apply(groups.get(i));
+                        }
+                    }
+                } catch (Exception | AssertionError e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    done.countDown();
+                }
+            }
+        };
+
+        final int numWorkers = Math.min(maxThreads, numChunks - 1);
+        for (int i = 0; i < numWorkers; ++i) {
+            try {
+                executor.execute(worker);
+            } catch (EsRejectedExecutionException e) {
+                // the current thread reduces the chunks that are left
+                break;
+            }
+        }
+        worker.run();
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for buckets to be reduced", e);
+        }
+
+        final Throwable t = failure.get();
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        } else if (t != null) {
+            throw new IllegalStateException("failed to reduce buckets", t);
+        }
+        @SuppressWarnings("unchecked")
+        final List<R> list = (List<R>) Arrays.asList(results);
+        return list;
+    }
+
+    static <T, R> List<R> reduceSequentially(List<T> groups, Function<T, R> reducer) {
+        final List<R> results = new ArrayList<>(groups.size());
+        for (T group : groups) {
+            results.add(reducer.apply(group));
+        }
+        return results;
+    }
+}
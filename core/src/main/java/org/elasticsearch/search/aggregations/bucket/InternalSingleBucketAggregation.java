@@ -109,6 +109,11 @@ public abstract class InternalSingleBucketAggregation extends InternalAggregatio
         return newAggregation(getName(), docCount, aggs);
     }
 
+    @Override
+    public InternalAggregation scale(double factor) {
+        return newAggregation(getName(), scaleCount(docCount, factor), aggregations.scale(factor));
+    }
+
     @Override
     public Object getProperty(List<String> path) {
         if (path.isEmpty()) {
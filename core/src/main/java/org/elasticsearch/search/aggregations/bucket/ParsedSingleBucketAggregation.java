@@ -61,6 +61,12 @@ public abstract class ParsedSingleBucketAggregation extends ParsedAggregation im
         return builder;
     }
 
+    /**
+     * Parse a value of the aggregation other than its document count. Values are ignored by default.
+     */
+    protected void parseValue(String fieldName, XContentParser parser) throws IOException {
+    }
+
     protected static <T extends ParsedSingleBucketAggregation> T parseXContent(final XContentParser parser, T aggregation, String name)
             throws IOException {
         aggregation.setName(name);
@@ -78,6 +84,8 @@ public abstract class ParsedSingleBucketAggregation extends ParsedAggregation im
             } else if (token.isValue()) {
                 if (CommonFields.DOC_COUNT.getPreferredName().equals(currentFieldName)) {
                     aggregation.setDocCount(parser.longValue());
+                } else {
+                    aggregation.parseValue(currentFieldName, parser);
                 }
             } else if (token == XContentParser.Token.START_OBJECT) {
                 if (CommonFields.META.getPreferredName().equals(currentFieldName)) {
@@ -18,6 +18,7 @@
  */
 package org.elasticsearch.search.aggregations.bucket.histogram;
 
+import com.carrotsearch.hppc.LongArrayList;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.SortedNumericDocValues;
 import org.apache.lucene.util.CollectionUtil;
@@ -55,6 +56,7 @@ class DateHistogramAggregator extends BucketsAggregator {
     private final ValuesSource.Numeric valuesSource;
     private final DocValueFormat formatter;
     private final Rounding rounding;
+    private final Rounding.Prepared preparedRounding;
     private final BucketOrder order;
     private final boolean keyed;
 
@@ -64,14 +66,25 @@ class DateHistogramAggregator extends BucketsAggregator {
     private final LongHash bucketOrds;
     private long offset;
 
-    DateHistogramAggregator(String name, AggregatorFactories factories, Rounding rounding, long offset, BucketOrder order,
-            boolean keyed,
+    @Nullable
+    private final DateHistogramSegmentCounter segmentCounter;
+    private final LongArrayList segmentKeys = new LongArrayList();
+    private final LongArrayList segmentDocCounts = new LongArrayList();
+
+    /**
+     * @param preparedRounding the rounding to apply to the values of collected documents, prepared for the values of the shard
+     * @param segmentCounter counts the documents of segments without collecting them when possible, or {@code null} to
+     *                       always collect documents
+     */
+    DateHistogramAggregator(String name, AggregatorFactories factories, Rounding rounding, Rounding.Prepared preparedRounding,
+            long offset, BucketOrder order, boolean keyed,
             long minDocCount, @Nullable ExtendedBounds extendedBounds, @Nullable ValuesSource.Numeric valuesSource,
-            DocValueFormat formatter, SearchContext aggregationContext,
+            DocValueFormat formatter, @Nullable DateHistogramSegmentCounter segmentCounter, SearchContext aggregationContext,
             Aggregator parent, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
 
         super(name, factories, aggregationContext, parent, pipelineAggregators, metaData);
         this.rounding = rounding;
+        this.preparedRounding = preparedRounding;
         this.offset = offset;
         this.order = InternalOrder.validate(order, this);;
         this.keyed = keyed;
@@ -79,6 +92,8 @@ class DateHistogramAggregator extends BucketsAggregator {
         this.extendedBounds = extendedBounds;
         this.valuesSource = valuesSource;
         this.formatter = formatter;
+        assert segmentCounter == null || factories.countAggregators() == 0;
+        this.segmentCounter = segmentCounter;
 
         bucketOrds = new LongHash(1, aggregationContext.bigArrays());
     }
@@ -94,6 +109,20 @@ class DateHistogramAggregator extends BucketsAggregator {
         if (valuesSource == null) {
             return LeafBucketCollector.NO_OP_COLLECTOR;
         }
+        if (segmentCounter != null) {
+            segmentKeys.clear();
+            segmentDocCounts.clear();
+            if (segmentCounter.count(ctx, valuesSource, segmentKeys, segmentDocCounts)) {
+                for (int i = 0; i < segmentKeys.size(); i++) {
+                    long bucketOrd = bucketOrds.add(segmentKeys.get(i));
+                    if (bucketOrd < 0) { // already seen
+                        bucketOrd = -1 - bucketOrd;
+                    }
+                    incrementBucketDocCount(bucketOrd, Math.toIntExact(segmentDocCounts.get(i)));
+                }
+                return LeafBucketCollector.NO_OP_COLLECTOR;
+            }
+        }
         final SortedNumericDocValues values = valuesSource.longValues(ctx);
         return new LeafBucketCollectorBase(sub, values) {
             @Override
@@ -105,7 +134,7 @@ class DateHistogramAggregator extends BucketsAggregator {
                     long previousRounded = Long.MIN_VALUE;
                     for (int i = 0; i < valuesCount; ++i) {
                         long value = values.nextValue();
-                        long rounded = rounding.round(value - offset) + offset;
+                        long rounded = preparedRounding.round(value - offset) + offset;
                         assert rounded >= previousRounded;
                         if (rounded == previousRounded) {
                             continue;
@@ -19,7 +19,11 @@
 
 package org.elasticsearch.search.aggregations.bucket.histogram;
 
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.PointValues;
 import org.elasticsearch.common.rounding.Rounding;
+import org.elasticsearch.index.mapper.DateFieldMapper;
 import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.AggregatorFactories;
 import org.elasticsearch.search.aggregations.AggregatorFactory;
@@ -77,8 +81,45 @@ public final class DateHistogramAggregatorFactory
 
     private Aggregator createAggregator(ValuesSource.Numeric valuesSource, Aggregator parent, List<PipelineAggregator> pipelineAggregators,
             Map<String, Object> metaData) throws IOException {
-        return new DateHistogramAggregator(name, factories, rounding, offset, order, keyed, minDocCount, extendedBounds, valuesSource,
-                config.format(), context, parent, pipelineAggregators, metaData);
+        return new DateHistogramAggregator(name, factories, rounding, prepareRounding(valuesSource), offset, order, keyed, minDocCount,
+                extendedBounds, valuesSource, config.format(), segmentCounter(valuesSource, parent), context, parent,
+                pipelineAggregators, metaData);
+    }
+
+    /**
+     * Prepares the rounding for the range of values that the date field has in this shard, so that time zone aware rounding
+     * doesn't have to compute the offset transitions of the time zone for every collected value.
+     */
+    private Rounding.Prepared prepareRounding(ValuesSource.Numeric valuesSource) throws IOException {
+        if (valuesSource != null && config.fieldContext() != null
+                && config.fieldContext().fieldType() instanceof DateFieldMapper.DateFieldType) {
+            IndexReader reader = context.searcher().getIndexReader();
+            String field = config.fieldContext().field();
+            byte[] minPackedValue = PointValues.getMinPackedValue(reader, field);
+            if (minPackedValue != null) { // null if the field isn't indexed or has no values in this shard
+                long min = LongPoint.decodeDimension(minPackedValue, 0);
+                long max = LongPoint.decodeDimension(PointValues.getMaxPackedValue(reader, field), 0);
+                // values that are out of these bounds, e.g. due to a script or a missing value, are still rounded correctly
+                return rounding.prepare(min - offset, max - offset);
+            }
+        }
+        return rounding::round;
+    }
+
+    /**
+     * Returns a counter that computes the doc counts of whole segments without collecting their documents, or {@code null}
+     * if documents need to be collected. This is only possible for top-level aggregations without sub-aggregations on a
+     * date field, whose documents are all the documents that match the query.
+     */
+    private DateHistogramSegmentCounter segmentCounter(ValuesSource.Numeric valuesSource, Aggregator parent) {
+        if (valuesSource == null || parent != null || factories.countAggregators() > 0
+                || config.script() != null || config.missing() != null || config.fieldContext() == null
+                || config.fieldContext().fieldType() instanceof DateFieldMapper.DateFieldType == false
+                || context.terminateAfter() != SearchContext.DEFAULT_TERMINATE_AFTER || context.minimumScore() != null
+                || context.query() == null) {
+            return null;
+        }
+        return DateHistogramSegmentCounter.create(context.query(), config.fieldContext().field(), rounding, offset);
     }
 
     @Override
@@ -0,0 +1,278 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.histogram;
+
+import com.carrotsearch.hppc.LongArrayList;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PointValues;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.IndexOrDocValuesQuery;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.PointRangeQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.SortedNumericSortField;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.rounding.Rounding;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+
+import java.io.IOException;
+
+/**
+ * Computes the doc counts of the buckets of a date histogram on a segment without collecting its documents.
+ * Buckets are counted one after the other as ranges of values, either by binary searching their bounds in the
+ * doc values of segments that are sorted on the field, or by counting the points that fall in each range.
+ * This only works when the documents that match the query are exactly the documents whose value is in a range,
+ * so the query needs to be a {@code match_all} or a range query on the same field, and segments must neither have
+ * deleted documents nor documents with more than one value.
+ */
+final class DateHistogramSegmentCounter {
+
+    /**
+     * The maximum number of buckets per segment, above which counting buckets one by one is likely slower than
+     * collecting the documents.
+     */
+    static final int MAX_BUCKETS_PER_SEGMENT = 1024;
+
+    private final String field;
+    private final long queryMin;
+    private final long queryMax;
+    private final Rounding rounding;
+    private final long offset;
+
+    private DateHistogramSegmentCounter(String field, long queryMin, long queryMax, Rounding rounding, long offset) {
+        this.field = field;
+        this.queryMin = queryMin;
+        this.queryMax = queryMax;
+        this.rounding = rounding;
+        this.offset = offset;
+    }
+
+    /**
+     * Returns a counter for the provided query and field, or {@code null} if documents that match the query can't be
+     * counted by ranges of values of the field.
+     */
+    @Nullable
+    static DateHistogramSegmentCounter create(Query query, String field, Rounding rounding, long offset) {
+        while (true) {
+            if (query instanceof ConstantScoreQuery) {
+                query = ((ConstantScoreQuery) query).getQuery();
+            } else if (query instanceof BoostQuery) {
+                query = ((BoostQuery) query).getQuery();
+            } else if (query instanceof IndexOrDocValuesQuery) {
+                query = ((IndexOrDocValuesQuery) query).getIndexQuery();
+            } else if (query instanceof BooleanQuery && ((BooleanQuery) query).clauses().size() == 1
+                    && ((BooleanQuery) query).getMinimumNumberShouldMatch() == 0) {
+                BooleanClause clause = ((BooleanQuery) query).clauses().get(0);
+                if (clause.isRequired() == false || clause.isProhibited()) {
+                    return null;
+                }
+                query = clause.getQuery();
+            } else {
+                break;
+            }
+        }
+        if (query instanceof MatchAllDocsQuery) {
+            return new DateHistogramSegmentCounter(field, Long.MIN_VALUE, Long.MAX_VALUE, rounding, offset);
+        }
+        if (query instanceof PointRangeQuery) {
+            PointRangeQuery rangeQuery = (PointRangeQuery) query;
+            if (field.equals(rangeQuery.getField()) && rangeQuery.getNumDims() == 1 && rangeQuery.getBytesPerDim() == Long.BYTES) {
+                return new DateHistogramSegmentCounter(field, LongPoint.decodeDimension(rangeQuery.getLowerPoint(), 0),
+                    LongPoint.decodeDimension(rangeQuery.getUpperPoint(), 0), rounding, offset);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Counts the documents of the provided segment per bucket and adds the keys of the non-empty buckets and their doc
+     * counts to the provided lists. Returns {@code false}, leaving the lists untouched, if the documents of the segment
+     * need to be collected instead.
+     */
+    boolean count(LeafReaderContext ctx, ValuesSource.Numeric valuesSource, LongArrayList keys, LongArrayList docCounts)
+            throws IOException {
+        final LeafReader reader = ctx.reader();
+        final PointValues pointValues = reader.getPointValues(field);
+        if (pointValues == null || reader.hasDeletions() || pointValues.size() != pointValues.getDocCount()) {
+            return false;
+        }
+        final long min = Math.max(queryMin, LongPoint.decodeDimension(pointValues.getMinPackedValue(), 0));
+        final long max = Math.min(queryMax, LongPoint.decodeDimension(pointValues.getMaxPackedValue(), 0));
+        if (min > max) {
+            return true;
+        }
+        final RangeCounter counter;
+        final Boolean reverse = indexSortOrder(reader.getMetaData().getSort());
+        if (reverse != null && pointValues.getDocCount() == reader.maxDoc()) {
+            counter = new SortedDocValuesRangeCounter(ctx, valuesSource, reverse);
+        } else {
+            counter = new PointsRangeCounter(pointValues);
+        }
+        final int start = keys.size();
+        long key = round(min);
+        for (int numBuckets = 0; key <= max; numBuckets++) {
+            final long next = round(rounding.nextRoundingValue(key - offset) + offset);
+            // make sure that all values in [key, next) are rounded to key
+            if (numBuckets >= MAX_BUCKETS_PER_SEGMENT || next <= key || round(next - 1) != key) {
+                keys.elementsCount = start;
+                docCounts.elementsCount = start;
+                return false;
+            }
+            final long docCount = counter.count(Math.max(key, min), Math.min(next - 1, max));
+            if (docCount > 0) {
+                keys.add(key);
+                docCounts.add(docCount);
+            }
+            key = next;
+        }
+        return true;
+    }
+
+    private long round(long value) {
+        return rounding.round(value - offset) + offset;
+    }
+
+    /**
+     * Returns whether the primary sort of the segment is on the field in descending order, or {@code null} if the
+     * segment isn't sorted on the field.
+     */
+    private Boolean indexSortOrder(@Nullable Sort sort) {
+        if (sort == null) {
+            return null;
+        }
+        SortField sortField = sort.getSort()[0];
+        if (field.equals(sortField.getField()) == false) {
+            return null;
+        }
+        if (sortField instanceof SortedNumericSortField
+                && ((SortedNumericSortField) sortField).getNumericType() == SortField.Type.LONG) {
+            return sortField.getReverse();
+        }
+        return null;
+    }
+
+    private interface RangeCounter {
+        /** Returns the number of documents whose value is between {@code from} and {@code to}, inclusive. */
+        long count(long from, long to) throws IOException;
+    }
+
+    /**
+     * Counts the points that fall in a range.
+     */
+    private static final class PointsRangeCounter implements RangeCounter {
+        private final PointValues pointValues;
+
+        PointsRangeCounter(PointValues pointValues) {
+            this.pointValues = pointValues;
+        }
+
+        @Override
+        public long count(long from, long to) throws IOException {
+            final long[] count = new long[1];
+            pointValues.intersect(new PointValues.IntersectVisitor() {
+                @Override
+                public void visit(int docID) {
+                    count[0]++;
+                }
+
+                @Override
+                public void visit(int docID, byte[] packedValue) {
+                    long value = LongPoint.decodeDimension(packedValue, 0);
+                    if (value >= from && value <= to) {
+                        count[0]++;
+                    }
+                }
+
+                @Override
+                public PointValues.Relation compare(byte[] minPackedValue, byte[] maxPackedValue) {
+                    long min = LongPoint.decodeDimension(minPackedValue, 0);
+                    long max = LongPoint.decodeDimension(maxPackedValue, 0);
+                    if (max < from || min > to) {
+                        return PointValues.Relation.CELL_OUTSIDE_QUERY;
+                    } else if (min >= from && max <= to) {
+                        return PointValues.Relation.CELL_INSIDE_QUERY;
+                    }
+                    return PointValues.Relation.CELL_CROSSES_QUERY;
+                }
+            });
+            return count[0];
+        }
+    }
+
+    /**
+     * Binary searches the bounds of a range in the doc values of a segment that is sorted on the field and whose
+     * documents all have exactly one value, so that documents of a range have consecutive doc ids.
+     */
+    private static final class SortedDocValuesRangeCounter implements RangeCounter {
+        private final LeafReaderContext ctx;
+        private final ValuesSource.Numeric valuesSource;
+        private final boolean reverse;
+        private final int maxDoc;
+        private SortedNumericDocValues values;
+
+        SortedDocValuesRangeCounter(LeafReaderContext ctx, ValuesSource.Numeric valuesSource, boolean reverse) {
+            this.ctx = ctx;
+            this.valuesSource = valuesSource;
+            this.reverse = reverse;
+            this.maxDoc = ctx.reader().maxDoc();
+        }
+
+        @Override
+        public long count(long from, long to) throws IOException {
+            long lessThanOrEqualTo = to == Long.MAX_VALUE ? maxDoc : numDocsLessThan(to + 1);
+            return lessThanOrEqualTo - numDocsLessThan(from);
+        }
+
+        private int numDocsLessThan(long target) throws IOException {
+            // index of the first document that is on the other side of the target
+            int low = 0;
+            int high = maxDoc;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                boolean lessThan = valueAt(mid) < target;
+                if (lessThan == reverse) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return reverse ? maxDoc - low : low;
+        }
+
+        private long valueAt(int doc) throws IOException {
+            if (values == null || values.docID() >= doc) {
+                // doc values can only move forward
+                values = valuesSource.longValues(ctx);
+            }
+            if (values.advanceExact(doc) == false) {
+                throw new IllegalStateException("Expected a value for document [" + doc + "] of segment [" + ctx.ord + "]");
+            }
+            return values.nextValue();
+        }
+    }
+}
@@ -304,6 +304,21 @@ public final class InternalDateHistogram extends InternalMultiBucketAggregation<
         return new Bucket(prototype.key, prototype.docCount, prototype.keyed, prototype.format, aggregations);
     }
 
+    @Override
+    public Bucket createBucket(long docCount, InternalAggregations aggregations, Bucket prototype) {
+        return new Bucket(prototype.key, docCount, prototype.keyed, prototype.format, aggregations);
+    }
+
+    @Override
+    public InternalDateHistogram scale(double factor) {
+        List<Bucket> scaledBuckets = new ArrayList<>(buckets.size());
+        for (Bucket bucket : buckets) {
+            scaledBuckets.add(new Bucket(bucket.key, scaleCount(bucket.docCount, factor), bucket.keyed, bucket.format,
+                bucket.aggregations.scale(factor)));
+        }
+        return create(scaledBuckets);
+    }
+
     private static class IteratorAndCurrent {
 
         private final Iterator<Bucket> iterator;
@@ -331,9 +346,9 @@ public final class InternalDateHistogram extends InternalMultiBucketAggregation<
             }
         }
 
-        List<Bucket> reducedBuckets = new ArrayList<>();
+        // lists of buckets coming from different shards that have the same key, sorted by key
+        List<List<Bucket>> sameKeyBuckets = new ArrayList<>();
         if (pq.size() > 0) {
-            // list of buckets coming from different shards that have the same key
             List<Bucket> currentBuckets = new ArrayList<>();
             double key = pq.top().current.key;
 
@@ -341,12 +356,9 @@ public final class InternalDateHistogram extends InternalMultiBucketAggregation<
                 final IteratorAndCurrent top = pq.top();
 
                 if (top.current.key != key) {
-                    // the key changes, reduce what we already buffered and reset the buffer for current buckets
-                    final Bucket reduced = currentBuckets.get(0).reduce(currentBuckets, reduceContext);
-                    if (reduced.getDocCount() >= minDocCount || reduceContext.isFinalReduce() == false) {
-                        reducedBuckets.add(reduced);
-                    }
-                    currentBuckets.clear();
+                    // the key changes, buffer the buckets of the next key
+                    sameKeyBuckets.add(currentBuckets);
+                    currentBuckets = new ArrayList<>();
                     key = top.current.key;
                 }
 
@@ -363,13 +375,16 @@ public final class InternalDateHistogram extends InternalMultiBucketAggregation<
             } while (pq.size() > 0);
 
             if (currentBuckets.isEmpty() == false) {
-                final Bucket reduced = currentBuckets.get(0).reduce(currentBuckets, reduceContext);
-                if (reduced.getDocCount() >= minDocCount || reduceContext.isFinalReduce() == false) {
-                    reducedBuckets.add(reduced);
-                }
+                sameKeyBuckets.add(currentBuckets);
             }
         }
 
+        List<Bucket> reducedBuckets = new ArrayList<>();
+        for (Bucket reduced : reduceContext.reduceBuckets(sameKeyBuckets, buckets -> buckets.get(0).reduce(buckets, reduceContext))) {
+            if (reduced.getDocCount() >= minDocCount || reduceContext.isFinalReduce() == false) {
+                reducedBuckets.add(reduced);
+            }
+        }
         return reducedBuckets;
     }
 
@@ -285,6 +285,21 @@ public final class InternalHistogram extends InternalMultiBucketAggregation<Inte
         return new Bucket(prototype.key, prototype.docCount, prototype.keyed, prototype.format, aggregations);
     }
 
+    @Override
+    public Bucket createBucket(long docCount, InternalAggregations aggregations, Bucket prototype) {
+        return new Bucket(prototype.key, docCount, prototype.keyed, prototype.format, aggregations);
+    }
+
+    @Override
+    public InternalHistogram scale(double factor) {
+        List<Bucket> scaledBuckets = new ArrayList<>(buckets.size());
+        for (Bucket bucket : buckets) {
+            scaledBuckets.add(new Bucket(bucket.key, scaleCount(bucket.docCount, factor), bucket.keyed, bucket.format,
+                bucket.aggregations.scale(factor)));
+        }
+        return create(scaledBuckets);
+    }
+
     private static class IteratorAndCurrent {
 
         private final Iterator<Bucket> iterator;
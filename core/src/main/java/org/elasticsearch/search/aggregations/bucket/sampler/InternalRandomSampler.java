@@ -0,0 +1,160 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket.sampler;
+
+import org.elasticsearch.common.ParseField;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.bucket.InternalSingleBucketAggregation;
+import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The result of a {@code random_sampler} aggregation. Until the final reduce, its document count is the number of sampled
+ * documents. The final reduce divides the document count and the counts of the sub-aggregations by the sampling probability
+ * so that they estimate the counts over all matching documents.
+ */
+public class InternalRandomSampler extends InternalSingleBucketAggregation implements RandomSampler {
+
+    static final ParseField SAMPLED_DOC_COUNT = new ParseField("sampled_doc_count");
+    static final ParseField DOC_COUNT_LOWER_BOUND = new ParseField("doc_count_lower_bound");
+    static final ParseField DOC_COUNT_UPPER_BOUND = new ParseField("doc_count_upper_bound");
+
+    /**
+     * The 97.5th percentile of the standard normal distribution, for two-sided 95% confidence intervals.
+     */
+    private static final double Z_95 = 1.959963984540054;
+
+    private final long sampledDocCount;
+    private final double probability;
+
+    InternalRandomSampler(String name, long docCount, long sampledDocCount, double probability, InternalAggregations subAggregations,
+            List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) {
+        super(name, docCount, subAggregations, pipelineAggregators, metaData);
+        this.sampledDocCount = sampledDocCount;
+        this.probability = probability;
+    }
+
+    /**
+     * Read from a stream.
+     */
+    public InternalRandomSampler(StreamInput in) throws IOException {
+        super(in);
+        sampledDocCount = in.readVLong();
+        probability = in.readDouble();
+    }
+
+    @Override
+    protected void doWriteTo(StreamOutput out) throws IOException {
+        super.doWriteTo(out);
+        out.writeVLong(sampledDocCount);
+        out.writeDouble(probability);
+    }
+
+    @Override
+    public String getWriteableName() {
+        return RandomSamplerAggregationBuilder.NAME;
+    }
+
+    @Override
+    public double getProbability() {
+        return probability;
+    }
+
+    @Override
+    public long getSampledDocCount() {
+        return sampledDocCount;
+    }
+
+    @Override
+    public long getDocCountLowerBound() {
+        return Math.max(sampledDocCount, (long) Math.floor(sampledDocCount / probability - marginOfError()));
+    }
+
+    @Override
+    public long getDocCountUpperBound() {
+        return (long) Math.ceil(sampledDocCount / probability + marginOfError());
+    }
+
+    /**
+     * The sampled document count follows a binomial distribution, so the margin of error of the estimated document count is
+     * computed with the normal approximation of its standard deviation, {@code sqrt(n * (1 - p)) / p}.
+     */
+    private double marginOfError() {
+        return Z_95 * Math.sqrt(sampledDocCount * (1 - probability)) / probability;
+    }
+
+    @Override
+    protected InternalSingleBucketAggregation newAggregation(String name, long docCount, InternalAggregations subAggregations) {
+        return new InternalRandomSampler(name, docCount, sampledDocCount, probability, subAggregations, pipelineAggregators(),
+                getMetaData());
+    }
+
+    @Override
+    public InternalAggregation doReduce(List<InternalAggregation> aggregations, ReduceContext reduceContext) {
+        long sampledDocCount = 0L;
+        List<InternalAggregations> subAggregationsList = new ArrayList<>(aggregations.size());
+        for (InternalAggregation aggregation : aggregations) {
+            assert aggregation.getName().equals(getName());
+            InternalRandomSampler sampler = (InternalRandomSampler) aggregation;
+            sampledDocCount += sampler.sampledDocCount;
+            subAggregationsList.add(sampler.getAggregations());
+        }
+        InternalAggregations aggs = InternalAggregations.reduce(subAggregationsList, reduceContext);
+        long docCount = sampledDocCount;
+        if (reduceContext.isFinalReduce()) {
+            final double factor = 1 / probability;
+            docCount = scaleCount(sampledDocCount, factor);
+            aggs = aggs.scale(factor);
+        }
+        return new InternalRandomSampler(getName(), docCount, sampledDocCount, probability, aggs, pipelineAggregators(), getMetaData());
+    }
+
+    @Override
+    public XContentBuilder doXContentBody(XContentBuilder builder, Params params) throws IOException {
+        builder.field(CommonFields.DOC_COUNT.getPreferredName(), getDocCount());
+        builder.field(SAMPLED_DOC_COUNT.getPreferredName(), sampledDocCount);
+        builder.field(RandomSamplerAggregationBuilder.PROBABILITY_FIELD.getPreferredName(), probability);
+        builder.field(DOC_COUNT_LOWER_BOUND.getPreferredName(), getDocCountLowerBound());
+        builder.field(DOC_COUNT_UPPER_BOUND.getPreferredName(), getDocCountUpperBound());
+        getAggregations().toXContentInternal(builder, params);
+        return builder;
+    }
+
+    @Override
+    protected boolean doEquals(Object obj) {
+        InternalRandomSampler other = (InternalRandomSampler) obj;
+        return super.doEquals(obj)
+                && Objects.equals(sampledDocCount, other.sampledDocCount)
+                && Objects.equals(probability, other.probability);
+    }
+
+    @Override
+    protected int doHashCode() {
+        return Objects.hash(super.doHashCode(), sampledDocCount, probability);
+    }
+}
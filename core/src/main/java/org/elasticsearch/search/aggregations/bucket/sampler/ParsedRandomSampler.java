@@ -0,0 +1,86 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket.sampler;
+
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.search.aggregations.bucket.ParsedSingleBucketAggregation;
+
+import java.io.IOException;
+
+public class ParsedRandomSampler extends ParsedSingleBucketAggregation implements RandomSampler {
+
+    private long sampledDocCount;
+    private double probability;
+    private long docCountLowerBound;
+    private long docCountUpperBound;
+
+    @Override
+    public String getType() {
+        return RandomSamplerAggregationBuilder.NAME;
+    }
+
+    @Override
+    public double getProbability() {
+        return probability;
+    }
+
+    @Override
+    public long getSampledDocCount() {
+        return sampledDocCount;
+    }
+
+    @Override
+    public long getDocCountLowerBound() {
+        return docCountLowerBound;
+    }
+
+    @Override
+    public long getDocCountUpperBound() {
+        return docCountUpperBound;
+    }
+
+    @Override
+    protected void parseValue(String fieldName, XContentParser parser) throws IOException {
+        if (InternalRandomSampler.SAMPLED_DOC_COUNT.getPreferredName().equals(fieldName)) {
+            sampledDocCount = parser.longValue();
+        } else if (RandomSamplerAggregationBuilder.PROBABILITY_FIELD.getPreferredName().equals(fieldName)) {
+            probability = parser.doubleValue();
+        } else if (InternalRandomSampler.DOC_COUNT_LOWER_BOUND.getPreferredName().equals(fieldName)) {
+            docCountLowerBound = parser.longValue();
+        } else if (InternalRandomSampler.DOC_COUNT_UPPER_BOUND.getPreferredName().equals(fieldName)) {
+            docCountUpperBound = parser.longValue();
+        }
+    }
+
+    @Override
+    public XContentBuilder doXContentBody(XContentBuilder builder, Params params) throws IOException {
+        builder.field(CommonFields.DOC_COUNT.getPreferredName(), getDocCount());
+        builder.field(InternalRandomSampler.SAMPLED_DOC_COUNT.getPreferredName(), sampledDocCount);
+        builder.field(RandomSamplerAggregationBuilder.PROBABILITY_FIELD.getPreferredName(), probability);
+        builder.field(InternalRandomSampler.DOC_COUNT_LOWER_BOUND.getPreferredName(), docCountLowerBound);
+        builder.field(InternalRandomSampler.DOC_COUNT_UPPER_BOUND.getPreferredName(), docCountUpperBound);
+        aggregations.toXContentInternal(builder, params);
+        return builder;
+    }
+
+    public static ParsedRandomSampler fromXContent(XContentParser parser, final String name) throws IOException {
+        return parseXContent(parser, new ParsedRandomSampler(), name);
+    }
+}
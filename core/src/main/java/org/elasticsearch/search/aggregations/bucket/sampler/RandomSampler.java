@@ -0,0 +1,49 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket.sampler;
+
+import org.elasticsearch.search.aggregations.bucket.SingleBucketAggregation;
+
+/**
+ * A {@code filter} aggregation that defines a single bucket to hold a uniformly random sample of the matching documents.
+ * Once reduced, {@link #getDocCount()} and the count-like values of the child aggregations estimate the values over all
+ * matching documents.
+ */
+public interface RandomSampler extends SingleBucketAggregation {
+
+    /**
+     * The probability with which each document was included in the sample.
+     */
+    double getProbability();
+
+    /**
+     * The number of documents in the sample.
+     */
+    long getSampledDocCount();
+
+    /**
+     * The lower bound of the 95% confidence interval of the estimated document count.
+     */
+    long getDocCountLowerBound();
+
+    /**
+     * The upper bound of the 95% confidence interval of the estimated document count.
+     */
+    long getDocCountUpperBound();
+}
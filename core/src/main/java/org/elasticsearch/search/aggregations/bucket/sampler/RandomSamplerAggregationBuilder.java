@@ -0,0 +1,238 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket.sampler;
+
+import org.elasticsearch.common.ParseField;
+import org.elasticsearch.common.ParsingException;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.search.aggregations.AbstractAggregationBuilder;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.aggregations.AggregatorFactories.Builder;
+import org.elasticsearch.search.aggregations.AggregatorFactory;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.PipelineAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.filter.FilterAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.histogram.HistogramAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.missing.MissingAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.nested.NestedAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.nested.ReverseNestedAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.terms.TermsAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.avg.AvgAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.max.MaxAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.min.MinAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.percentiles.PercentileRanksAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.percentiles.PercentilesAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.sum.SumAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.valuecount.ValueCountAggregationBuilder;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+public class RandomSamplerAggregationBuilder extends AbstractAggregationBuilder<RandomSamplerAggregationBuilder> {
+    public static final String NAME = "random_sampler";
+
+    public static final ParseField PROBABILITY_FIELD = new ParseField("probability");
+    public static final ParseField SEED_FIELD = new ParseField("seed");
+
+    public static final int DEFAULT_SEED = 0;
+
+    /**
+     * The aggregations whose counts are scaled by the final reduce, see {@link InternalAggregation#scale(double)}.
+     */
+    private static final Set<String> SCALED_AGGREGATIONS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            TermsAggregationBuilder.NAME, HistogramAggregationBuilder.NAME, DateHistogramAggregationBuilder.NAME,
+            FilterAggregationBuilder.NAME, MissingAggregationBuilder.NAME, NestedAggregationBuilder.NAME,
+            ReverseNestedAggregationBuilder.NAME, SumAggregationBuilder.NAME, ValueCountAggregationBuilder.NAME)));
+
+    /**
+     * The aggregations that don't count documents, whose results are computed over the sample as they are.
+     */
+    private static final Set<String> SAMPLED_AGGREGATIONS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            AvgAggregationBuilder.NAME, MinAggregationBuilder.NAME, MaxAggregationBuilder.NAME, PercentilesAggregationBuilder.NAME,
+            PercentileRanksAggregationBuilder.NAME)));
+
+    private final double probability;
+    private int seed = DEFAULT_SEED;
+
+    /**
+     * @param name
+     *            the name of this aggregation
+     * @param probability
+     *            the probability with which each matching document is
+     *            included in the sample, greater than 0 and at most 1
+     */
+    public RandomSamplerAggregationBuilder(String name, double probability) {
+        super(name);
+        if (probability <= 0 || probability > 1) {
+            throw new IllegalArgumentException("[" + PROBABILITY_FIELD.getPreferredName()
+                    + "] must be greater than 0 and less than or equal to 1, got [" + probability + "]: [" + name + "]");
+        }
+        this.probability = probability;
+    }
+
+    /**
+     * Read from a stream.
+     */
+    public RandomSamplerAggregationBuilder(StreamInput in) throws IOException {
+        super(in);
+        probability = in.readDouble();
+        seed = in.readInt();
+    }
+
+    @Override
+    protected void doWriteTo(StreamOutput out) throws IOException {
+        out.writeDouble(probability);
+        out.writeInt(seed);
+    }
+
+    /**
+     * Get the probability with which each matching document is included in the sample.
+     */
+    public double probability() {
+        return probability;
+    }
+
+    /**
+     * Set the seed of the sample. Requests with the same seed sample the same documents as long as the shards don't change.
+     */
+    public RandomSamplerAggregationBuilder seed(int seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Get the seed of the sample.
+     */
+    public int seed() {
+        return seed;
+    }
+
+    @Override
+    protected RandomSamplerAggregatorFactory doBuild(SearchContext context, AggregatorFactory<?> parent, Builder subFactoriesBuilder)
+            throws IOException {
+        validateSubAggregations(subFactoriesBuilder.getAggregatorFactories(), subFactoriesBuilder.getPipelineAggregatorFactories());
+        return new RandomSamplerAggregatorFactory(name, probability, seed, context, parent, subFactoriesBuilder, metaData);
+    }
+
+    /**
+     * Counts are only scaled once all other reduce steps ran, so reject the sub-aggregations that would return unscaled
+     * counts or that depend on the counts during the reduce: pipeline aggregations and minimum document counts.
+     */
+    private void validateSubAggregations(List<AggregationBuilder> aggregations, List<PipelineAggregationBuilder> pipelineAggregations) {
+        if (pipelineAggregations.isEmpty() == false) {
+            throw new IllegalArgumentException("[" + NAME + "] doesn't support pipeline aggregations, got ["
+                    + pipelineAggregations.get(0).getName() + "]: [" + name + "]");
+        }
+        for (AggregationBuilder aggregation : aggregations) {
+            String type = aggregation.getType();
+            if (SCALED_AGGREGATIONS.contains(type) == false && SAMPLED_AGGREGATIONS.contains(type) == false) {
+                throw new IllegalArgumentException("[" + NAME + "] doesn't support sub-aggregations of type [" + type + "], got ["
+                        + aggregation.getName() + "]: [" + name + "]");
+            }
+            if (minDocCount(aggregation) > 1) {
+                throw new IllegalArgumentException("[" + NAME + "] doesn't support sub-aggregations with a [min_doc_count] greater "
+                        + "than 1, got [" + aggregation.getName() + "]: [" + name + "]");
+            }
+            validateSubAggregations(aggregation.getSubAggregations(), aggregation.getPipelineAggregations());
+        }
+    }
+
+    private static long minDocCount(AggregationBuilder aggregation) {
+        if (aggregation instanceof TermsAggregationBuilder) {
+            TermsAggregationBuilder terms = (TermsAggregationBuilder) aggregation;
+            return Math.max(terms.minDocCount(), terms.shardMinDocCount());
+        } else if (aggregation instanceof HistogramAggregationBuilder) {
+            return ((HistogramAggregationBuilder) aggregation).minDocCount();
+        } else if (aggregation instanceof DateHistogramAggregationBuilder) {
+            return ((DateHistogramAggregationBuilder) aggregation).minDocCount();
+        }
+        return 0;
+    }
+
+    @Override
+    protected XContentBuilder internalXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject();
+        builder.field(PROBABILITY_FIELD.getPreferredName(), probability);
+        builder.field(SEED_FIELD.getPreferredName(), seed);
+        builder.endObject();
+        return builder;
+    }
+
+    public static RandomSamplerAggregationBuilder parse(String aggregationName, XContentParser parser) throws IOException {
+        XContentParser.Token token;
+        String currentFieldName = null;
+        Double probability = null;
+        Integer seed = null;
+
+        while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+            if (token == XContentParser.Token.FIELD_NAME) {
+                currentFieldName = parser.currentName();
+            } else if (token == XContentParser.Token.VALUE_NUMBER) {
+                if (PROBABILITY_FIELD.match(currentFieldName)) {
+                    probability = parser.doubleValue();
+                } else if (SEED_FIELD.match(currentFieldName)) {
+                    seed = parser.intValue();
+                } else {
+                    throw new ParsingException(parser.getTokenLocation(),
+                            "Unsupported property \"" + currentFieldName + "\" for aggregation \"" + aggregationName);
+                }
+            } else {
+                throw new ParsingException(parser.getTokenLocation(),
+                        "Unsupported property \"" + currentFieldName + "\" for aggregation \"" + aggregationName);
+            }
+        }
+
+        if (probability == null) {
+            throw new ParsingException(parser.getTokenLocation(),
+                    "Missing required property \"" + PROBABILITY_FIELD.getPreferredName() + "\" for aggregation \"" + aggregationName);
+        }
+        RandomSamplerAggregationBuilder factory = new RandomSamplerAggregationBuilder(aggregationName, probability);
+        if (seed != null) {
+            factory.seed(seed);
+        }
+        return factory;
+    }
+
+    @Override
+    protected int doHashCode() {
+        return Objects.hash(probability, seed);
+    }
+
+    @Override
+    protected boolean doEquals(Object obj) {
+        RandomSamplerAggregationBuilder other = (RandomSamplerAggregationBuilder) obj;
+        return Objects.equals(probability, other.probability)
+                && Objects.equals(seed, other.seed);
+    }
+
+    @Override
+    public String getType() {
+        return NAME;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket.sampler;
+
+import com.carrotsearch.hppc.BitMixer;
+import org.apache.lucene.index.LeafReaderContext;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.LeafBucketCollector;
+import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
+import org.elasticsearch.search.aggregations.bucket.BucketsAggregator;
+import org.elasticsearch.search.aggregations.bucket.SingleBucketAggregator;
+import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects each matching document into its single bucket with a fixed probability. Whether a document is sampled only
+ * depends on the seed, the shard and the id of the document, so the same request samples the same documents as long as
+ * the segments of the shard don't change, whatever the order in which documents are collected.
+ */
+public class RandomSamplerAggregator extends BucketsAggregator implements SingleBucketAggregator {
+
+    private final double probability;
+    private final long shardSeed;
+    // a document is sampled when the top 53 bits of its hash are below this threshold
+    private final long threshold;
+
+    public RandomSamplerAggregator(String name, double probability, int seed, int shardId, AggregatorFactories factories,
+            SearchContext context, Aggregator parent, List<PipelineAggregator> pipelineAggregators,
+            Map<String, Object> metaData) throws IOException {
+        super(name, factories, context, parent, pipelineAggregators, metaData);
+        this.probability = probability;
+        this.shardSeed = BitMixer.mix64(((long) shardId << 32) | (seed & 0xFFFFFFFFL));
+        this.threshold = (long) (probability * (1L << 53));
+    }
+
+    @Override
+    public LeafBucketCollector getLeafCollector(LeafReaderContext ctx, final LeafBucketCollector sub) throws IOException {
+        final long segmentSeed = shardSeed + ctx.docBase;
+        return new LeafBucketCollectorBase(sub, null) {
+            @Override
+            public void collect(int doc, long bucket) throws IOException {
+                if ((BitMixer.mix64(segmentSeed + doc) >>> 11) < threshold) {
+                    collectBucket(sub, doc, bucket);
+                }
+            }
+        };
+    }
+
+    @Override
+    public InternalAggregation buildAggregation(long owningBucketOrdinal) throws IOException {
+        final long docCount = bucketDocCount(owningBucketOrdinal);
+        return new InternalRandomSampler(name, docCount, docCount, probability, bucketAggregations(owningBucketOrdinal),
+                pipelineAggregators(), metaData());
+    }
+
+    @Override
+    public InternalAggregation buildEmptyAggregation() {
+        return new InternalRandomSampler(name, 0, 0, probability, buildEmptySubAggregations(), pipelineAggregators(), metaData());
+    }
+}
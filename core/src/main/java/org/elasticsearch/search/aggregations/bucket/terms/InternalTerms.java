@@ -282,8 +282,9 @@ public abstract class InternalTerms<A extends InternalTerms<A, B>, B extends Int
 
         final int size = reduceContext.isFinalReduce() == false ? buckets.size() : Math.min(requiredSize, buckets.size());
         final BucketPriorityQueue<B> ordered = new BucketPriorityQueue<>(size, order.comparator(null));
-        for (List<B> sameTermBuckets : buckets.values()) {
-            final B b = sameTermBuckets.get(0).reduce(sameTermBuckets, reduceContext);
+        final List<B> reducedBuckets = reduceContext.reduceBuckets(new ArrayList<>(buckets.values()),
+            sameTermBuckets -> sameTermBuckets.get(0).reduce(sameTermBuckets, reduceContext));
+        for (B b : reducedBuckets) {
             if (sumDocCountError == -1) {
                 b.docCountError = -1;
             } else {
@@ -304,11 +305,27 @@ public abstract class InternalTerms<A extends InternalTerms<A, B>, B extends Int
         if (sumDocCountError == -1) {
             docCountError = -1;
         } else {
-            docCountError = aggregations.size() == 1 ? 0 : sumDocCountError;
+            // a single aggregation keeps its own error, which is 0 unless its counts are approximate
+            docCountError = aggregations.size() == 1 ? ((InternalTerms<?, ?>) aggregations.get(0)).getDocCountError() : sumDocCountError;
         }
         return create(name, Arrays.asList(list), docCountError, otherDocCount);
     }
 
+    @Override
+    public A scale(double factor) {
+        List<B> scaledBuckets = new ArrayList<>(getBuckets().size());
+        for (B bucket : getBuckets()) {
+            scaledBuckets.add(bucket.newBucket(scaleCount(bucket.docCount, factor), bucket.aggregations.scale(factor),
+                scaleCount(bucket.docCountError, factor)));
+        }
+        return create(name, scaledBuckets, scaleCount(getDocCountError(), factor), scaleCount(getSumOfOtherDocCounts(), factor));
+    }
+
+    @Override
+    public B createBucket(long docCount, InternalAggregations aggregations, B prototype) {
+        return prototype.newBucket(docCount, aggregations, prototype.docCountError);
+    }
+
     protected abstract void setDocCountError(long docCountError);
 
     protected abstract int getShardSize();
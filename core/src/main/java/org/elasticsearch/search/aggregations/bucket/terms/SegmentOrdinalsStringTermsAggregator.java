@@ -0,0 +1,151 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.terms;
+
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.util.LongBitSet;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.util.IntArray;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.BucketOrder;
+import org.elasticsearch.search.aggregations.LeafBucketCollector;
+import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
+import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.apache.lucene.index.SortedSetDocValues.NO_MORE_ORDS;
+
+/**
+ * An aggregator of string values that counts documents per segment ordinal and only resolves the terms of the
+ * ordinals that were hit when a segment is done. Unlike {@link GlobalOrdinalsStringTermsAggregator} it doesn't need
+ * global ordinals, which makes it cheaper on readers that have few segments and low cardinality fields whose global
+ * ordinals would otherwise need to be built for the query. Sub aggregations are not supported.
+ */
+class SegmentOrdinalsStringTermsAggregator extends StringTermsAggregator {
+
+    private final ValuesSource.Bytes.WithOrdinals valuesSource;
+    private final IncludeExclude.OrdinalsFilter ordinalsFilter;
+
+    private IntArray segmentDocCounts;
+    private SortedSetDocValues segmentOrds;
+
+    SegmentOrdinalsStringTermsAggregator(String name,
+                                         AggregatorFactories factories,
+                                         ValuesSource.Bytes.WithOrdinals valuesSource,
+                                         BucketOrder order,
+                                         DocValueFormat format,
+                                         BucketCountThresholds bucketCountThresholds,
+                                         IncludeExclude.StringFilter stringFilter,
+                                         IncludeExclude.OrdinalsFilter ordinalsFilter,
+                                         SearchContext context,
+                                         Aggregator parent,
+                                         SubAggCollectionMode collectionMode,
+                                         boolean showTermDocCountError,
+                                         List<PipelineAggregator> pipelineAggregators,
+                                         Map<String, Object> metaData) throws IOException {
+        // the string filter is only used to fill in the blanks when min_doc_count is 0
+        super(name, factories, valuesSource, order, format, bucketCountThresholds, stringFilter, context, parent, collectionMode,
+            showTermDocCountError, pipelineAggregators, metaData);
+        assert factories == null || factories.countAggregators() == 0;
+        this.valuesSource = valuesSource;
+        this.ordinalsFilter = ordinalsFilter;
+        this.segmentDocCounts = context.bigArrays().newIntArray(1, true);
+    }
+
+    @Override
+    public LeafBucketCollector getLeafCollector(LeafReaderContext ctx, final LeafBucketCollector sub) throws IOException {
+        if (segmentOrds != null) {
+            mapSegmentCountsToBuckets();
+        }
+        final SortedSetDocValues ords = valuesSource.ordinalsValues(ctx);
+        segmentOrds = ords;
+        segmentDocCounts = context.bigArrays().grow(segmentDocCounts, ords.getValueCount());
+        assert sub == LeafBucketCollector.NO_OP_COLLECTOR;
+        final IntArray docCounts = segmentDocCounts;
+        final SortedDocValues singleValues = DocValues.unwrapSingleton(ords);
+        if (singleValues != null) {
+            return new LeafBucketCollectorBase(sub, ords) {
+                @Override
+                public void collect(int doc, long bucket) throws IOException {
+                    assert bucket == 0;
+                    if (singleValues.advanceExact(doc)) {
+                        docCounts.increment(singleValues.ordValue(), 1);
+                    }
+                }
+            };
+        } else {
+            return new LeafBucketCollectorBase(sub, ords) {
+                @Override
+                public void collect(int doc, long bucket) throws IOException {
+                    assert bucket == 0;
+                    if (ords.advanceExact(doc)) {
+                        for (long ord = ords.nextOrd(); ord != NO_MORE_ORDS; ord = ords.nextOrd()) {
+                            docCounts.increment(ord, 1);
+                        }
+                    }
+                }
+            };
+        }
+    }
+
+    @Override
+    protected void doPostCollection() throws IOException {
+        if (segmentOrds != null) {
+            mapSegmentCountsToBuckets();
+        }
+    }
+
+    /**
+     * Adds the terms of the segment ordinals that were collected to the buckets and resets their counts so that
+     * they can be reused by the next segment.
+     */
+    private void mapSegmentCountsToBuckets() throws IOException {
+        final LongBitSet accepted = ordinalsFilter == null ? null : ordinalsFilter.acceptedGlobalOrdinals(segmentOrds);
+        final long valueCount = segmentOrds.getValueCount();
+        for (long ord = 0; ord < valueCount; ord++) {
+            final int inc = segmentDocCounts.set(ord, 0);
+            if (inc == 0 || (accepted != null && accepted.get(ord) == false)) {
+                continue;
+            }
+            long bucketOrd = bucketOrds.add(segmentOrds.lookupOrd(ord));
+            if (bucketOrd < 0) { // already seen
+                bucketOrd = -1 - bucketOrd;
+            }
+            incrementBucketDocCount(bucketOrd, inc);
+        }
+        segmentOrds = null;
+    }
+
+    @Override
+    public void doClose() {
+        super.doClose();
+        Releasables.close(segmentDocCounts);
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.search.aggregations.bucket.terms;
+
+import com.carrotsearch.hppc.ObjectIntHashMap;
+import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.BytesRef;
+
+import java.util.Arrays;
+
+/**
+ * Approximates the counts of the most frequent terms of a stream with a bounded number of counters, using the Space-Saving
+ * algorithm from "Efficient Computation of Frequent and Top-k Elements in Data Streams" (Metwally, Agrawal, El Abbadi).
+ * Once all counters are in use, a new term takes over the counter with the lowest count and inherits that count as the
+ * maximum over-estimation of its own count. This guarantees that:
+ * <ul>
+ *     <li>the true count of a term that has a counter is between {@code count(i) - error(i)} and {@code count(i)},</li>
+ *     <li>the true count of a term that has no counter is at most {@link #minCount()}.</li>
+ * </ul>
+ */
+final class SpaceSaving {
+
+    private final int maxCounters;
+    private final ObjectIntHashMap<BytesRef> counters = new ObjectIntHashMap<>();
+    private BytesRef[] terms = new BytesRef[0];
+    private long[] counts = new long[0];
+    private long[] errors = new long[0];
+    /** counters, ordered as a min-heap on their counts */
+    private int[] heap = new int[0];
+    /** the position of every counter in {@link #heap} */
+    private int[] heapIndex = new int[0];
+    private int size;
+    private long total;
+    private boolean evicted;
+
+    SpaceSaving(int maxCounters) {
+        if (maxCounters < 1) {
+            throw new IllegalArgumentException("maxCounters must be >= 1, got " + maxCounters);
+        }
+        this.maxCounters = maxCounters;
+    }
+
+    /**
+     * Count one occurrence of the given term.
+     */
+    void add(BytesRef term) {
+        total++;
+        int counter = counters.getOrDefault(term, -1);
+        if (counter >= 0) {
+            counts[counter]++;
+            siftDown(heapIndex[counter]);
+        } else if (size < maxCounters) {
+            if (size == terms.length) {
+                grow();
+            }
+            counter = size++;
+            terms[counter] = BytesRef.deepCopyOf(term);
+            counts[counter] = 1;
+            errors[counter] = 0;
+            heap[counter] = counter;
+            heapIndex[counter] = counter;
+            siftUp(counter);
+            counters.put(terms[counter], counter);
+        } else {
+            // take over the counter with the lowest count
+            counter = heap[0];
+            final BytesRef evictedTerm = terms[counter];
+            counters.remove(evictedTerm);
+            if (evictedTerm.bytes.length >= term.length) {
+                System.arraycopy(term.bytes, term.offset, evictedTerm.bytes, 0, term.length);
+                evictedTerm.offset = 0;
+                evictedTerm.length = term.length;
+            } else {
+                terms[counter] = BytesRef.deepCopyOf(term);
+            }
+            errors[counter] = counts[counter];
+            counts[counter]++;
+            evicted = true;
+            siftDown(0);
+            counters.put(terms[counter], counter);
+        }
+    }
+
+    private void grow() {
+        final int newLength = Math.min(maxCounters, ArrayUtil.oversize(size + 1, Integer.BYTES));
+        terms = Arrays.copyOf(terms, newLength);
+        counts = Arrays.copyOf(counts, newLength);
+        errors = Arrays.copyOf(errors, newLength);
+        heap = Arrays.copyOf(heap, newLength);
+        heapIndex = Arrays.copyOf(heapIndex, newLength);
+    }
+
+    private void siftUp(int i) {
+        final int counter = heap[i];
+        final long count = counts[counter];
+        while (i > 0) {
+            final int parent = (i - 1) >>> 1;
+            if (counts[heap[parent]] <= count) {
+                break;
+            }
+            setHeap(i, heap[parent]);
+            i = parent;
+        }
+        setHeap(i, counter);
+    }
+
+    private void siftDown(int i) {
+        final int counter = heap[i];
+        final long count = counts[counter];
+        while (true) {
+            int child = (i << 1) + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && counts[heap[child + 1]] < counts[heap[child]]) {
+                child++;
+            }
+            if (count <= counts[heap[child]]) {
+                break;
+            }
+            setHeap(i, heap[child]);
+            i = child;
+        }
+        setHeap(i, counter);
+    }
+
+    private void setHeap(int i, int counter) {
+        heap[i] = counter;
+        heapIndex[counter] = i;
+    }
+
+    /**
+     * The number of counters in use.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * The number of counters that have been allocated, which never exceeds the maximum number of counters.
+     */
+    int capacity() {
+        return terms.length;
+    }
+
+    /**
+     * The number of occurrences that have been counted.
+     */
+    long total() {
+        return total;
+    }
+
+    BytesRef term(int counter) {
+        return terms[counter];
+    }
+
+    /**
+     * The count of the given counter, an upper bound of the true count of its term.
+     */
+    long count(int counter) {
+        return counts[counter];
+    }
+
+    /**
+     * The maximum over-estimation of the count of the given counter.
+     */
+    long error(int counter) {
+        return errors[counter];
+    }
+
+    /**
+     * An upper bound of the true count of the terms that don't have a counter: the lowest count if a counter has ever
+     * been taken over, {@code 0} otherwise since all counted terms have a counter.
+     */
+    long minCount() {
+        return evicted ? counts[heap[0]] : 0;
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.search.aggregations.bucket.terms;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefBuilder;
+import org.elasticsearch.index.fielddata.SortedBinaryDocValues;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.aggregations.Aggregator;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.BucketOrder;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.LeafBucketCollector;
+import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
+import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+import org.elasticsearch.search.internal.SearchContext;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An aggregator of string values that counts terms with a bounded number of counters using {@link SpaceSaving}, so that
+ * its memory usage doesn't depend on the number of unique terms. The doc count of a bucket is a lower bound of the number of
+ * documents of its term and its doc count error is the maximum number of documents that might have been missed. Sub
+ * aggregations are not supported and buckets must be ordered by descending doc count.
+ */
+class SpaceSavingStringTermsAggregator extends AbstractStringTermsAggregator {
+
+    /**
+     * Rough estimate of the memory used by a counter and its term.
+     */
+    static final long BYTES_PER_COUNTER = 128;
+
+    private final ValuesSource valuesSource;
+    private final IncludeExclude.StringFilter includeExclude;
+    private final SpaceSaving counts;
+
+    SpaceSavingStringTermsAggregator(String name, AggregatorFactories factories, ValuesSource valuesSource, BucketOrder order,
+            DocValueFormat format, BucketCountThresholds bucketCountThresholds, IncludeExclude.StringFilter includeExclude,
+            int maxCounters, SearchContext context, Aggregator parent, SubAggCollectionMode collectionMode,
+            boolean showTermDocCountError, List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) throws IOException {
+        super(name, factories, context, parent, order, format, bucketCountThresholds, collectionMode, showTermDocCountError,
+                pipelineAggregators, metaData);
+        assert factories == null || factories.countAggregators() == 0;
+        this.valuesSource = valuesSource;
+        this.includeExclude = includeExclude;
+        this.counts = new SpaceSaving(maxCounters);
+    }
+
+    @Override
+    public boolean needsScores() {
+        return (valuesSource != null && valuesSource.needsScores()) || super.needsScores();
+    }
+
+    @Override
+    public LeafBucketCollector getLeafCollector(LeafReaderContext ctx, final LeafBucketCollector sub) throws IOException {
+        final SortedBinaryDocValues values = valuesSource.bytesValues(ctx);
+        return new LeafBucketCollectorBase(sub, values) {
+            final BytesRefBuilder previous = new BytesRefBuilder();
+
+            @Override
+            public void collect(int doc, long bucket) throws IOException {
+                assert bucket == 0;
+                if (values.advanceExact(doc)) {
+                    final int valuesCount = values.docValueCount();
+
+                    // SortedBinaryDocValues don't guarantee uniqueness so we
+                    // need to take care of dups
+                    previous.clear();
+                    for (int i = 0; i < valuesCount; ++i) {
+                        final BytesRef bytes = values.nextValue();
+                        if (includeExclude != null && !includeExclude.accept(bytes)) {
+                            continue;
+                        }
+                        if (previous.get().equals(bytes)) {
+                            continue;
+                        }
+                        final int capacity = counts.capacity();
+                        counts.add(bytes);
+                        if (counts.capacity() != capacity) {
+                            addRequestCircuitBreakerBytes((counts.capacity() - capacity) * BYTES_PER_COUNTER);
+                        }
+                        previous.copyBytes(bytes);
+                    }
+                }
+            }
+        };
+    }
+
+    @Override
+    public InternalAggregation buildAggregation(long owningBucketOrdinal) throws IOException {
+        assert owningBucketOrdinal == 0;
+
+        final int size = Math.min(counts.size(), bucketCountThresholds.getShardSize());
+
+        long otherDocCount = counts.total();
+        // the upper bound of the doc count of the terms that are not returned
+        long docCountError = counts.minCount();
+        BucketPriorityQueue<StringTerms.Bucket> ordered = new BucketPriorityQueue<>(size, order.comparator(this));
+        StringTerms.Bucket spare = null;
+        for (int i = 0; i < counts.size(); i++) {
+            if (spare == null) {
+                spare = new StringTerms.Bucket(new BytesRef(), 0, InternalAggregations.EMPTY, showTermDocCountError, 0, format);
+            }
+            spare.termBytes = counts.term(i);
+            spare.docCount = counts.count(i) - counts.error(i);
+            spare.docCountError = counts.error(i);
+            if (bucketCountThresholds.getShardMinDocCount() <= spare.docCount) {
+                spare = ordered.insertWithOverflow(spare);
+            }
+            if (spare != null) {
+                docCountError = Math.max(docCountError, spare.docCount + spare.docCountError);
+            }
+        }
+
+        final StringTerms.Bucket[] list = new StringTerms.Bucket[ordered.size()];
+        for (int i = ordered.size() - 1; i >= 0; --i) {
+            final StringTerms.Bucket bucket = ordered.pop();
+            bucket.termBytes = BytesRef.deepCopyOf(bucket.termBytes);
+            list[i] = bucket;
+            otherDocCount -= bucket.docCount;
+        }
+
+        return new StringTerms(name, order, bucketCountThresholds.getRequiredSize(), bucketCountThresholds.getMinDocCount(),
+                pipelineAggregators(), metaData(), format, bucketCountThresholds.getShardSize(), showTermDocCountError, otherDocCount,
+                Arrays.asList(list), docCountError);
+    }
+}
@@ -19,10 +19,12 @@
 
 package org.elasticsearch.search.aggregations.bucket.terms;
 
+import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.search.IndexSearcher;
 import org.elasticsearch.common.ParseField;
 import org.elasticsearch.common.logging.DeprecationLogger;
 import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.index.mapper.MappedFieldType;
 import org.elasticsearch.search.DocValueFormat;
 import org.elasticsearch.search.aggregations.AggregationExecutionException;
 import org.elasticsearch.search.aggregations.Aggregator;
@@ -49,6 +51,20 @@ import java.util.Map;
 public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<ValuesSource, TermsAggregatorFactory> {
     private static final DeprecationLogger DEPRECATION_LOGGER = new DeprecationLogger(Loggers.getLogger(TermsAggregatorFactory.class));
 
+    /**
+     * The maximum number of segments for which {@link ExecutionMode#SEGMENT_ORDINALS} is picked by default.
+     */
+    static final int SEGMENT_ORDINALS_MAX_SEGMENTS = 16;
+    /**
+     * The maximum number of unique values per segment for which {@link ExecutionMode#SEGMENT_ORDINALS} is picked by default.
+     */
+    static final long SEGMENT_ORDINALS_MAX_SEGMENT_ORD = 2048;
+    /**
+     * The minimum number of counters that {@link ExecutionMode#SPACE_SAVING} uses per shard, more counters are used if the
+     * shard size is greater.
+     */
+    static final int SPACE_SAVING_MIN_COUNTERS = 8192;
+
     private final BucketOrder order;
     private final IncludeExclude includeExclude;
     private final String executionHint;
@@ -129,18 +145,25 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
                 execution = ExecutionMode.fromString(executionHint, DEPRECATION_LOGGER);
             }
             // In some cases, using ordinals is just not supported: override it
-            if (valuesSource instanceof ValuesSource.Bytes.WithOrdinals == false) {
+            if (valuesSource instanceof ValuesSource.Bytes.WithOrdinals == false && execution != ExecutionMode.SPACE_SAVING) {
                 execution = ExecutionMode.MAP;
             }
-            final long maxOrd = getMaxOrd(valuesSource, context.searcher());
             if (execution == null) {
-                execution = ExecutionMode.GLOBAL_ORDINALS;
+                MappedFieldType fieldType = config.fieldContext() == null ? null : config.fieldContext().fieldType();
+                if (factories == AggregatorFactories.EMPTY &&
+                        Aggregator.descendsFromBucketAggregator(parent) == false &&
+                        (fieldType == null || fieldType.eagerGlobalOrdinals() == false) &&
+                        useSegmentOrdinals((ValuesSource.Bytes.WithOrdinals) valuesSource, context.searcher())) {
+                    execution = ExecutionMode.SEGMENT_ORDINALS;
+                } else {
+                    execution = ExecutionMode.GLOBAL_ORDINALS;
+                }
             }
             SubAggCollectionMode cm = collectMode;
             if (cm == null) {
                 cm = SubAggCollectionMode.DEPTH_FIRST;
                 if (factories != AggregatorFactories.EMPTY) {
-                    cm = subAggCollectionMode(bucketCountThresholds.getShardSize(), maxOrd);
+                    cm = subAggCollectionMode(bucketCountThresholds.getShardSize(), getMaxOrd(valuesSource, context.searcher()));
                 }
             }
 
@@ -203,6 +226,24 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
         return SubAggCollectionMode.DEPTH_FIRST;
     }
 
+    /**
+     * Whether counting on segment ordinals is expected to be cheaper than building global ordinals for the provided
+     * {@link ValuesSource}, which is the case when the reader has a few segments that each hold few unique values.
+     * Readers with a single segment are excluded as their global ordinals are the segment ordinals.
+     */
+    static boolean useSegmentOrdinals(ValuesSource.Bytes.WithOrdinals source, IndexSearcher searcher) throws IOException {
+        List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+        if (leaves.size() <= 1 || leaves.size() > SEGMENT_ORDINALS_MAX_SEGMENTS) {
+            return false;
+        }
+        for (LeafReaderContext leaf : leaves) {
+            if (source.ordinalsValues(leaf).getValueCount() > SEGMENT_ORDINALS_MAX_SEGMENT_ORD) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Get the maximum global ordinal value for the provided {@link ValuesSource} or -1
      * if the values source is not an instance of {@link ValuesSource.Bytes.WithOrdinals}.
@@ -293,6 +334,62 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
                         format, bucketCountThresholds, filter, context, parent, remapGlobalOrds, subAggCollectMode, showTermDocCountError,
                         pipelineAggregators, metaData);
             }
+        },
+        SEGMENT_ORDINALS(new ParseField("segment_ordinals")) {
+
+            @Override
+            Aggregator create(String name,
+                              AggregatorFactories factories,
+                              ValuesSource valuesSource,
+                              BucketOrder order,
+                              DocValueFormat format,
+                              TermsAggregator.BucketCountThresholds bucketCountThresholds,
+                              IncludeExclude includeExclude,
+                              SearchContext context, Aggregator parent,
+                              SubAggCollectionMode subAggCollectMode,
+                              boolean showTermDocCountError,
+                              List<PipelineAggregator> pipelineAggregators,
+                              Map<String, Object> metaData) throws IOException {
+                if (factories != AggregatorFactories.EMPTY) {
+                    // sub-aggregations need to know the bucket of a document when it is collected
+                    return GLOBAL_ORDINALS.create(name, factories, valuesSource, order, format, bucketCountThresholds, includeExclude,
+                            context, parent, subAggCollectMode, showTermDocCountError, pipelineAggregators, metaData);
+                }
+                final IncludeExclude.StringFilter stringFilter =
+                        includeExclude == null ? null : includeExclude.convertToStringFilter(format);
+                final IncludeExclude.OrdinalsFilter ordinalsFilter =
+                        includeExclude == null ? null : includeExclude.convertToOrdinalsFilter(format);
+                return new SegmentOrdinalsStringTermsAggregator(name, factories, (ValuesSource.Bytes.WithOrdinals) valuesSource, order,
+                        format, bucketCountThresholds, stringFilter, ordinalsFilter, context, parent, subAggCollectMode,
+                        showTermDocCountError, pipelineAggregators, metaData);
+            }
+        },
+        SPACE_SAVING(new ParseField("space_saving")) {
+
+            @Override
+            Aggregator create(String name,
+                              AggregatorFactories factories,
+                              ValuesSource valuesSource,
+                              BucketOrder order,
+                              DocValueFormat format,
+                              TermsAggregator.BucketCountThresholds bucketCountThresholds,
+                              IncludeExclude includeExclude,
+                              SearchContext context, Aggregator parent,
+                              SubAggCollectionMode subAggCollectMode,
+                              boolean showTermDocCountError,
+                              List<PipelineAggregator> pipelineAggregators,
+                              Map<String, Object> metaData) throws IOException {
+                if (factories != AggregatorFactories.EMPTY || InternalOrder.isCountDesc(order) == false
+                        || bucketCountThresholds.getMinDocCount() == 0) {
+                    // sub-aggregations, other orders and empty buckets need to know about all terms
+                    return MAP.create(name, factories, valuesSource, order, format, bucketCountThresholds, includeExclude,
+                            context, parent, subAggCollectMode, showTermDocCountError, pipelineAggregators, metaData);
+                }
+                final IncludeExclude.StringFilter filter = includeExclude == null ? null : includeExclude.convertToStringFilter(format);
+                final int maxCounters = Math.max(SPACE_SAVING_MIN_COUNTERS, bucketCountThresholds.getShardSize());
+                return new SpaceSavingStringTermsAggregator(name, factories, valuesSource, order, format, bucketCountThresholds,
+                        filter, maxCounters, context, parent, subAggCollectMode, showTermDocCountError, pipelineAggregators, metaData);
+            }
         };
 
         public static ExecutionMode fromString(String value, final DeprecationLogger deprecationLogger) {
@@ -301,8 +398,13 @@ public class TermsAggregatorFactory extends ValuesSourceAggregatorFactory<Values
                     return GLOBAL_ORDINALS;
                 case "map":
                     return MAP;
+                case "segment_ordinals":
+                    return SEGMENT_ORDINALS;
+                case "space_saving":
+                    return SPACE_SAVING;
                 default:
-                    throw new IllegalArgumentException("Unknown `execution_hint`: [" + value + "], expected any of [map, global_ordinals]");
+                    throw new IllegalArgumentException("Unknown `execution_hint`: [" + value + "], "
+                            + "expected any of [map, global_ordinals, segment_ordinals, space_saving]");
             }
         }
 
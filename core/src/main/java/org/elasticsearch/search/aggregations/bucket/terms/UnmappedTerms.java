@@ -93,6 +93,12 @@ public class UnmappedTerms extends InternalTerms<UnmappedTerms, UnmappedTerms.Bu
         throw new UnsupportedOperationException("not supported for UnmappedTerms");
     }
 
+    @Override
+    public UnmappedTerms scale(double factor) {
+        // there are no counts to scale
+        return this;
+    }
+
     @Override
     public InternalAggregation doReduce(List<InternalAggregation> aggregations, ReduceContext reduceContext) {
         for (InternalAggregation agg : aggregations) {
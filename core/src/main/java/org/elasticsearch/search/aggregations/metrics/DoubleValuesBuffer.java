@@ -0,0 +1,91 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.metrics;
+
+import org.apache.lucene.util.ArrayUtil;
+import org.elasticsearch.index.fielddata.FieldData;
+import org.elasticsearch.index.fielddata.NumericDoubleValues;
+import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
+import org.elasticsearch.search.aggregations.LeafBucketCollector;
+
+import java.io.IOException;
+
+/**
+ * A reusable buffer that the values of a block of docs are decoded into, so that the
+ * {@link LeafBucketCollector#collect(int[], int, long) block collection} of metric aggregators can accumulate them in a
+ * tight loop over a primitive array rather than interleaving doc values iteration and accumulation.
+ */
+public final class DoubleValuesBuffer {
+
+    private double[] values = new double[16];
+
+    /**
+     * Decode all the values of the first {@code count} docs of the given array, which must be in increasing order.
+     *
+     * @return the number of decoded values, which are the first entries of {@link #values()}
+     */
+    public int read(SortedNumericDoubleValues docValues, int[] docs, int count) throws IOException {
+        final NumericDoubleValues singleton = FieldData.unwrapSingleton(docValues);
+        if (singleton != null) {
+            return read(singleton, docs, count);
+        }
+        double[] values = this.values;
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            if (docValues.advanceExact(docs[i])) {
+                final int valueCount = docValues.docValueCount();
+                if (size + valueCount > values.length) {
+                    values = this.values = ArrayUtil.grow(values, size + valueCount);
+                }
+                for (int j = 0; j < valueCount; j++) {
+                    values[size++] = docValues.nextValue();
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Decode the value of the first {@code count} docs of the given array that have a value. The docs must be in
+     * increasing order.
+     *
+     * @return the number of decoded values, which are the first entries of {@link #values()}
+     */
+    public int read(NumericDoubleValues docValues, int[] docs, int count) throws IOException {
+        if (count > values.length) {
+            values = ArrayUtil.grow(values, count);
+        }
+        final double[] values = this.values;
+        int size = 0;
+        for (int i = 0; i < count; i++) {
+            if (docValues.advanceExact(docs[i])) {
+                values[size++] = docValues.doubleValue();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * The values that were decoded by the last call to {@code read}.
+     */
+    public double[] values() {
+        return values;
+    }
+}
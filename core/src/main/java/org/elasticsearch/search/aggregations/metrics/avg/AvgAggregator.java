@@ -29,6 +29,7 @@ import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.LeafBucketCollector;
 import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
+import org.elasticsearch.search.aggregations.metrics.DoubleValuesBuffer;
 import org.elasticsearch.search.aggregations.metrics.NumericMetricsAggregator;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.support.ValuesSource;
@@ -71,6 +72,7 @@ public class AvgAggregator extends NumericMetricsAggregator.SingleValue {
         }
         final BigArrays bigArrays = context.bigArrays();
         final SortedNumericDoubleValues values = valuesSource.doubleValues(ctx);
+        final DoubleValuesBuffer buffer = new DoubleValuesBuffer();
         return new LeafBucketCollectorBase(sub, values) {
             @Override
             public void collect(int doc, long bucket) throws IOException {
@@ -87,6 +89,21 @@ public class AvgAggregator extends NumericMetricsAggregator.SingleValue {
                     sums.increment(bucket, sum);
                 }
             }
+
+            @Override
+            public void collect(int[] docs, int count, long bucket) throws IOException {
+                counts = bigArrays.grow(counts, bucket + 1);
+                sums = bigArrays.grow(sums, bucket + 1);
+
+                final int valueCount = buffer.read(values, docs, count);
+                final double[] buffered = buffer.values();
+                counts.increment(bucket, valueCount);
+                double sum = 0;
+                for (int i = 0; i < valueCount; i++) {
+                    sum += buffered[i];
+                }
+                sums.increment(bucket, sum);
+            }
         };
     }
 
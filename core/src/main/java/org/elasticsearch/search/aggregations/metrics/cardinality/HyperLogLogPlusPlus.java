@@ -19,6 +19,7 @@
 
 package org.elasticsearch.search.aggregations.metrics.cardinality;
 
+import org.apache.lucene.util.ArrayUtil;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.LongBitSet;
 import org.apache.lucene.util.packed.PackedInts;
@@ -28,12 +29,11 @@ import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.ByteArray;
-import org.elasticsearch.common.util.ByteUtils;
 import org.elasticsearch.common.util.IntArray;
+import org.elasticsearch.common.util.ObjectArray;
 
 import java.io.IOException;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -46,10 +46,11 @@ import java.util.Set;
  * and its appendix
  * https://docs.google.com/document/d/1gyjfMHy43U9OWBXxfaeG-3MjGzejW1dlpyMwEYAAWEI/view?fullscreen
  *
- * This implementation is different from the original implementation in that it
- * uses a hash table instead of a sorted list for linear counting. Although this
- * requires more space and makes hyperloglog (which is less accurate) used sooner,
- * this is also considerably faster.
+ * Like in the original implementation, buckets start with a sparse representation
+ * for linear counting: a sorted list of encoded hashes, stored as variable-length
+ * deltas, with a small buffer for new hashes. Registers are only allocated for
+ * buckets that switch to hyperloglog, so that aggregations with many buckets of
+ * low cardinality don't need to allocate <code>2^precision</code> bytes per bucket.
  *
  * Trying to understand what this class does without having read the paper is
  * considered adventurous.
@@ -64,6 +65,7 @@ public final class HyperLogLogPlusPlus implements Releasable {
     private static final float MAX_LOAD_FACTOR = 0.75f;
     private static final int P2 = 25;
     private static final int BIAS_K = 6;
+    private static final int MIN_BUFFER_SIZE = 16;
 
     /**
      * Compute the required precision so that <code>count</code> distinct entries
@@ -157,10 +159,18 @@ public final class HyperLogLogPlusPlus implements Releasable {
 
     private final BigArrays bigArrays;
     private final OpenBitSet algorithm;
+    /** hyperloglog registers of the buckets that use hyperloglog, {@link #denseSlots} gives the offset of every bucket */
     private ByteArray runLens;
-    private final Hashset hashSet;
+    /** 1 + the index of the registers of every bucket in {@link #runLens}, or 0 if the bucket has no registers */
+    private IntArray denseSlots;
+    private int numDenseSlots;
+    /** encoded hashes of the buckets that use linear counting, {@code null} for buckets without any hash */
+    private ObjectArray<SparseSet> sparseSets;
     private final int p, m;
+    private final int sparseThreshold;
     private final double alphaMM;
+    private int[] sortSpare = new int[0];
+    private byte[] writeSpare = new byte[0];
 
     public HyperLogLogPlusPlus(int precision, BigArrays bigArrays, long initialBucketCount) {
         if (precision < 4) {
@@ -173,8 +183,12 @@ public final class HyperLogLogPlusPlus implements Releasable {
         m = 1 << p;
         this.bigArrays = bigArrays;
         algorithm = new OpenBitSet();
-        runLens = bigArrays.newByteArray(initialBucketCount << p);
-        hashSet = new Hashset(initialBucketCount);
+        runLens = bigArrays.newByteArray(0);
+        denseSlots = bigArrays.newIntArray(initialBucketCount);
+        sparseSets = bigArrays.newObjectArray(initialBucketCount);
+        // the number of hashes that a hash table in the registers of a bucket could hold, which is
+        // also the point where hyperloglog becomes more accurate than linear counting
+        sparseThreshold = (int) (m / 4 * MAX_LOAD_FACTOR);
         final double alpha;
         switch (p) {
         case 4:
@@ -195,11 +209,36 @@ public final class HyperLogLogPlusPlus implements Releasable {
     }
 
     public long maxBucket() {
-        return runLens.size() >>> p;
+        return sparseSets.size();
+    }
+
+    /**
+     * Return the memory used by the counts of all buckets.
+     */
+    public long ramBytesUsed() {
+        long ramBytesUsed = runLens.ramBytesUsed() + denseSlots.ramBytesUsed() + sparseSets.ramBytesUsed();
+        for (long i = 0; i < sparseSets.size(); ++i) {
+            final SparseSet set = sparseSets.get(i);
+            if (set != null) {
+                ramBytesUsed += set.ramBytesUsed();
+            }
+        }
+        return ramBytesUsed;
     }
 
     private void ensureCapacity(long numBuckets) {
-        runLens = bigArrays.grow(runLens, numBuckets << p);
+        sparseSets = bigArrays.grow(sparseSets, numBuckets);
+        denseSlots = bigArrays.grow(denseSlots, numBuckets);
+    }
+
+    private long registersStart(long bucket) {
+        final int slot = denseSlots.get(bucket) - 1;
+        assert slot >= 0;
+        return ((long) slot) << p;
+    }
+
+    private SparseSet sparseSet(long bucket) {
+        return bucket < sparseSets.size() ? sparseSets.get(bucket) : null;
     }
 
     public void merge(long thisBucket, HyperLogLogPlusPlus other, long otherBucket) {
@@ -207,26 +246,34 @@ public final class HyperLogLogPlusPlus implements Releasable {
             throw new IllegalArgumentException();
         }
         ensureCapacity(thisBucket + 1);
+        other.flush(otherBucket);
         if (other.algorithm.get(otherBucket) == LINEAR_COUNTING) {
-            final IntArray values = other.hashSet.values(otherBucket);
-            try {
-                for (long i = 0; i < values.size(); ++i) {
-                    final int encoded = values.get(i);
-                    if (algorithm.get(thisBucket) == LINEAR_COUNTING) {
-                        collectLcEncoded(thisBucket, encoded);
-                    } else {
-                        collectHllEncoded(thisBucket, encoded);
-                    }
+            final SparseSet otherSet = other.sparseSet(otherBucket);
+            if (otherSet == null) {
+                return;
+            }
+            if (algorithm.get(thisBucket) == LINEAR_COUNTING) {
+                flush(thisBucket);
+            }
+            if (algorithm.get(thisBucket) == LINEAR_COUNTING) {
+                // both lists are sorted, merge them in a single pass
+                final SparseSet thisSet = getOrCreateSparseSet(thisBucket);
+                mergeSorted(thisSet, thisSet.reader(), otherSet.reader());
+                if (thisSet.size > sparseThreshold) {
+                    upgradeToHll(thisBucket);
+                }
+            } else {
+                final SparseReader values = otherSet.reader();
+                while (values.next()) {
+                    collectHllEncoded(thisBucket, values.value);
                 }
-            } finally {
-                Releasables.close(values);
             }
         } else {
             if (algorithm.get(thisBucket) != HYPERLOGLOG) {
                 upgradeToHll(thisBucket);
             }
-            final long thisStart = thisBucket << p;
-            final long otherStart = otherBucket << p;
+            final long thisStart = registersStart(thisBucket);
+            final long otherStart = other.registersStart(otherBucket);
             for (int i = 0; i < m; ++i) {
                 runLens.set(thisStart + i, (byte) Math.max(runLens.get(thisStart + i), other.runLens.get(otherStart + i)));
             }
@@ -248,12 +295,94 @@ public final class HyperLogLogPlusPlus implements Releasable {
     }
 
     private void collectLcEncoded(long bucket, int encoded) {
-        final int newSize = hashSet.add(bucket, encoded);
-        if (newSize > hashSet.threshold) {
+        final SparseSet set = getOrCreateSparseSet(bucket);
+        if (set.bufferSize == set.buffer.size()) {
+            flush(bucket);
+            if (algorithm.get(bucket) == HYPERLOGLOG) {
+                collectHllEncoded(bucket, encoded);
+                return;
+            }
+            // the buffer grows with the list so that merging it into the list stays cheap
+            final long bufferSize = Math.max(MIN_BUFFER_SIZE, set.size >>> 2);
+            if (bufferSize > set.buffer.size()) {
+                set.buffer = bigArrays.grow(set.buffer, bufferSize);
+            }
+        }
+        set.buffer.set(set.bufferSize++, encoded);
+    }
+
+    private SparseSet getOrCreateSparseSet(long bucket) {
+        SparseSet set = sparseSets.get(bucket);
+        if (set == null) {
+            set = new SparseSet(bigArrays);
+            sparseSets.set(bucket, set);
+        }
+        return set;
+    }
+
+    /**
+     * Merge the buffered hashes of the given bucket into its sorted list and upgrade the bucket to hyperloglog if the list
+     * got too large.
+     */
+    private void flush(long bucket) {
+        if (algorithm.get(bucket) == HYPERLOGLOG) {
+            return;
+        }
+        final SparseSet set = sparseSet(bucket);
+        if (set == null || set.bufferSize == 0) {
+            return;
+        }
+        final int numBuffered = set.bufferSize;
+        sortSpare = ArrayUtil.grow(sortSpare, numBuffered);
+        for (int i = 0; i < numBuffered; ++i) {
+            sortSpare[i] = set.buffer.get(i);
+        }
+        Arrays.sort(sortSpare, 0, numBuffered);
+        set.bufferSize = 0;
+        mergeSorted(set, set.reader(), new SparseReader(sortSpare, numBuffered));
+        if (set.size > sparseThreshold) {
             upgradeToHll(bucket);
         }
     }
 
+    /**
+     * Replace the list of the given set with the union of two sorted sequences of encoded hashes.
+     */
+    private void mergeSorted(SparseSet set, SparseReader first, SparseReader second) {
+        int numBytes = 0;
+        int size = 0;
+        long previous = Integer.MIN_VALUE;
+        boolean hasFirst = first.next();
+        boolean hasSecond = second.next();
+        while (hasFirst || hasSecond) {
+            final int value;
+            if (hasSecond == false || (hasFirst && first.value <= second.value)) {
+                value = first.value;
+                hasFirst = first.next();
+            } else {
+                value = second.value;
+                hasSecond = second.next();
+            }
+            if (size > 0 && value == previous) {
+                continue;
+            }
+            writeSpare = ArrayUtil.grow(writeSpare, numBytes + 5);
+            // deltas between sorted ints are positive and fit in 32 bits, hence at most 5 bytes
+            long delta = value - previous;
+            while ((delta & ~0x7FL) != 0) {
+                writeSpare[numBytes++] = (byte) ((delta & 0x7F) | 0x80);
+                delta >>>= 7;
+            }
+            writeSpare[numBytes++] = (byte) delta;
+            previous = value;
+            size++;
+        }
+        set.bytes = bigArrays.grow(set.bytes, numBytes);
+        set.bytes.set(0, writeSpare, 0, numBytes);
+        set.numBytes = numBytes;
+        set.size = size;
+    }
+
     private void collectHll(long bucket, long hash) {
         final long index = index(hash, p);
         final int runLen = runLen(hash, p);
@@ -267,11 +396,12 @@ public final class HyperLogLogPlusPlus implements Releasable {
     }
 
     private void collectHll(long bucket, long index, int runLen) {
-        final long bucketIndex = (bucket << p) + index;
+        final long bucketIndex = registersStart(bucket) + index;
         runLens.set(bucketIndex, (byte) Math.max(runLen, runLens.get(bucketIndex)));
     }
 
     public long cardinality(long bucket) {
+        flush(bucket);
         if (algorithm.get(bucket) == LINEAR_COUNTING) {
             return cardinalityLc(bucket);
         } else {
@@ -281,14 +411,15 @@ public final class HyperLogLogPlusPlus implements Releasable {
 
     private long cardinalityLc(long bucket) {
         final long m = 1 << P2;
-        final long v = m - hashSet.size(bucket);
+        final SparseSet set = sparseSet(bucket);
+        final long v = m - (set == null ? 0 : set.size);
         return linearCounting(m, v);
     }
 
     private long cardinalityHll(long bucket) {
         double inverseSum = 0;
         int zeros = 0;
-        for (long i = bucket << p, end = i + m; i < end; ++i) {
+        for (long i = registersStart(bucket), end = i + m; i < end; ++i) {
             final int runLen = runLens.get(i);
             inverseSum += 1. / (1L << runLen);
             if (runLen == 0) {
@@ -312,16 +443,28 @@ public final class HyperLogLogPlusPlus implements Releasable {
 
     void upgradeToHll(long bucket) {
         ensureCapacity(bucket + 1);
-        final IntArray values = hashSet.values(bucket);
-        try {
-            runLens.fill(bucket << p, (bucket << p) + m, (byte) 0);
-            for (long i = 0; i < values.size(); ++i) {
-                final int encoded = values.get(i);
-                collectHllEncoded(bucket, encoded);
+        if (algorithm.get(bucket) == HYPERLOGLOG) {
+            return;
+        }
+        final int slot = numDenseSlots++;
+        final long start = ((long) slot) << p;
+        runLens = bigArrays.grow(runLens, start + m);
+        runLens.fill(start, start + m, (byte) 0);
+        denseSlots.set(bucket, slot + 1);
+        algorithm.set(bucket);
+        final SparseSet set = sparseSets.set(bucket, null);
+        if (set != null) {
+            try {
+                final SparseReader values = set.reader();
+                while (values.next()) {
+                    collectHllEncoded(bucket, values.value);
+                }
+                for (int i = 0; i < set.bufferSize; ++i) {
+                    collectHllEncoded(bucket, set.buffer.get(i));
+                }
+            } finally {
+                Releasables.close(set);
             }
-            algorithm.set(bucket);
-        } finally {
-            Releasables.close(values);
         }
     }
 
@@ -422,22 +565,28 @@ public final class HyperLogLogPlusPlus implements Releasable {
 
     @Override
     public void close() {
-        Releasables.close(runLens, hashSet.sizes);
+        for (long i = 0; i < sparseSets.size(); ++i) {
+            Releasables.close(sparseSets.get(i));
+        }
+        Releasables.close(runLens, denseSlots, sparseSets);
     }
 
     private Object getComparableData(long bucket) {
+        flush(bucket);
         if (algorithm.get(bucket) == LINEAR_COUNTING) {
             Set<Integer> values = new HashSet<>();
-            try (IntArray hashSetValues = hashSet.values(bucket)) {
-                for (long i = 0; i < hashSetValues.size(); i++) {
-                    values.add(hashSetValues.get(i));
+            final SparseSet set = sparseSet(bucket);
+            if (set != null) {
+                final SparseReader reader = set.reader();
+                while (reader.next()) {
+                    values.add(reader.value);
                 }
             }
             return values;
         } else {
             Map<Byte, Integer> values = new HashMap<>();
-            for (long i = 0; i < runLens.size(); i++) {
-                byte runLength = runLens.get((bucket << p) + i);
+            for (long i = registersStart(bucket), end = i + m; i < end; i++) {
+                byte runLength = runLens.get(i);
                 Integer numOccurances = values.get(runLength);
                 if (numOccurances == null) {
                     values.put(runLength, 1);
@@ -460,113 +609,110 @@ public final class HyperLogLogPlusPlus implements Releasable {
     }
 
     /**
-     * We are actually using HyperLogLog's runLens array but interpreting it as a hash set
-     * for linear counting.
+     * The encoded hashes of a bucket that uses linear counting. They are stored as a sorted list of deltas encoded as
+     * variable-length ints, so that buckets with few distinct values don't need to allocate registers. New hashes are
+     * appended to a small buffer that is merged into the list when it is full or when the hashes are read.
      */
-    private class Hashset {
+    private static final class SparseSet implements Releasable {
 
-        private final int capacity;
-        private final int threshold;
-        private final int mask;
-        private IntArray sizes;
-        private final BytesRef readSpare;
-        private final ByteBuffer writeSpare;
+        private ByteArray bytes;
+        private int numBytes;
+        /** the number of hashes in the list */
+        private int size;
+        private IntArray buffer;
+        private int bufferSize;
 
-        Hashset(long initialBucketCount) {
-            capacity = m / 4; // because ints take 4 bytes
-            threshold = (int) (capacity * MAX_LOAD_FACTOR);
-            mask = capacity - 1;
-            sizes = bigArrays.newIntArray(initialBucketCount);
-            readSpare = new BytesRef();
-            writeSpare = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        SparseSet(BigArrays bigArrays) {
+            bytes = bigArrays.newByteArray(0, false);
+            buffer = bigArrays.newIntArray(MIN_BUFFER_SIZE, false);
         }
 
-        private long index (long bucket, int index) {
-            return (bucket << p) + (index << 2);
+        /**
+         * Return a reader over the hashes of the list, ignoring the buffer.
+         */
+        SparseReader reader() {
+            final BytesRef ref = new BytesRef();
+            bytes.get(0, numBytes, ref);
+            return new SparseReader(ref, size);
         }
 
-        private int get(long bucket, int index) {
-            runLens.get(index(bucket, index), 4, readSpare);
-            return ByteUtils.readIntLE(readSpare.bytes, readSpare.offset);
+        long ramBytesUsed() {
+            return bytes.ramBytesUsed() + buffer.ramBytesUsed();
         }
 
-        private void set(long bucket, int index, int value) {
-            writeSpare.putInt(0, value);
-            runLens.set(index(bucket, index), writeSpare.array(), 0, 4);
+        @Override
+        public void close() {
+            Releasables.close(bytes, buffer);
         }
+    }
 
-        private int recomputedSize(long bucket) {
-            int size = 0;
-            for (int i = 0; i <= mask; ++i) {
-                final int v = get(bucket, i);
-                if (v != 0) {
-                    ++size;
-                }
-            }
-            return size;
-        }
+    /**
+     * Reads a sorted sequence of encoded hashes, either from the list of a {@link SparseSet} or from an array.
+     */
+    private static final class SparseReader {
 
-        public int size(long bucket) {
-            if (bucket >= sizes.size()) {
-                return 0;
-            }
-            final int size = sizes.get(bucket);
-            assert size == recomputedSize(bucket);
-            return size;
+        private final BytesRef bytes;
+        private final int[] values;
+        private final int size;
+        private int offset;
+        private int index;
+        private long previous = Integer.MIN_VALUE;
+        int value;
+
+        SparseReader(BytesRef bytes, int size) {
+            this.bytes = bytes;
+            this.values = null;
+            this.size = size;
+            this.offset = bytes.offset;
         }
 
-        /**
-         * Add <code>k</code> to the hash table associated with <code>bucket</code>.
-         * Return <tt>-1</tt> if the value was already in the set or the new set size if it was added.
-         */
-        public int add(long bucket, int k) {
-            sizes = bigArrays.grow(sizes, bucket + 1);
-            assert k != 0;
-            for (int i = (k & mask); ; i = (i + 1) & mask) {
-                final int v = get(bucket, i);
-                if (v == 0) {
-                    // means unused, take it!
-                    set(bucket, i, k);
-                    return sizes.increment(bucket, 1);
-                } else if (v == k) {
-                    // k is already in the set
-                    return -1;
-                }
-            }
+        SparseReader(int[] values, int size) {
+            this.bytes = null;
+            this.values = values;
+            this.size = size;
         }
 
-        public IntArray values(final long bucket) {
-            final int size = size(bucket);
-            final IntArray values = bigArrays.newIntArray(size);
-            if (size == 0) {
-                return values;
+        boolean next() {
+            if (index == size) {
+                return false;
             }
-            int i = 0;
-            for (int j = 0; j < capacity; ++j) {
-                final int k = get(bucket, j);
-                if (k != 0) {
-                    values.set(i++, k);
-                }
+            if (values != null) {
+                value = values[index];
+            } else {
+                long delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = bytes.bytes[offset++];
+                    delta |= (b & 0x7FL) << shift;
+                    shift += 7;
+                } while (b < 0);
+                previous += delta;
+                value = (int) previous;
             }
-            assert i == values.size();
-            return values;
+            index++;
+            return true;
         }
-
     }
 
     public void writeTo(long bucket, StreamOutput out) throws IOException {
+        flush(bucket);
         out.writeVInt(p);
         if (algorithm.get(bucket) == LINEAR_COUNTING) {
             out.writeBoolean(LINEAR_COUNTING);
-            try (IntArray hashes = hashSet.values(bucket)) {
-                out.writeVLong(hashes.size());
-                for (long i = 0; i < hashes.size(); ++i) {
-                    out.writeInt(hashes.get(i));
+            final SparseSet set = sparseSet(bucket);
+            if (set == null) {
+                out.writeVLong(0);
+            } else {
+                out.writeVLong(set.size);
+                final SparseReader values = set.reader();
+                while (values.next()) {
+                    out.writeInt(values.value);
                 }
             }
         } else {
             out.writeBoolean(HYPERLOGLOG);
-            for (long i = bucket << p, end = i + m; i < end; ++i) {
+            for (long i = registersStart(bucket), end = i + m; i < end; ++i) {
                 out.writeByte(runLens.get(i));
             }
         }
@@ -577,16 +723,16 @@ public final class HyperLogLogPlusPlus implements Releasable {
         HyperLogLogPlusPlus counts = new HyperLogLogPlusPlus(precision, bigArrays, 1);
         final boolean algorithm = in.readBoolean();
         if (algorithm == LINEAR_COUNTING) {
-            counts.algorithm.clear(0);
             final long size = in.readVLong();
             for (long i = 0; i < size; ++i) {
                 final int encoded = in.readInt();
-                counts.hashSet.add(0, encoded);
+                counts.collectLcEncoded(0, encoded);
             }
         } else {
-            counts.algorithm.set(0);
+            counts.upgradeToHll(0);
+            final long start = counts.registersStart(0);
             for (int i = 0; i < counts.m; ++i) {
-                counts.runLens.set(i, in.readByte());
+                counts.runLens.set(start + i, in.readByte());
             }
         }
         return counts;
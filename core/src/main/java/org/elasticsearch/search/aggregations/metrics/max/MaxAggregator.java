@@ -30,6 +30,7 @@ import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.LeafBucketCollector;
 import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
+import org.elasticsearch.search.aggregations.metrics.DoubleValuesBuffer;
 import org.elasticsearch.search.aggregations.metrics.NumericMetricsAggregator;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.support.ValuesSource;
@@ -73,15 +74,20 @@ public class MaxAggregator extends NumericMetricsAggregator.SingleValue {
         final BigArrays bigArrays = context.bigArrays();
         final SortedNumericDoubleValues allValues = valuesSource.doubleValues(ctx);
         final NumericDoubleValues values = MultiValueMode.MAX.select(allValues, Double.NEGATIVE_INFINITY);
+        final DoubleValuesBuffer buffer = new DoubleValuesBuffer();
         return new LeafBucketCollectorBase(sub, allValues) {
 
-            @Override
-            public void collect(int doc, long bucket) throws IOException {
+            private void maybeGrow(long bucket) {
                 if (bucket >= maxes.size()) {
                     long from = maxes.size();
                     maxes = bigArrays.grow(maxes, bucket + 1);
                     maxes.fill(from, maxes.size(), Double.NEGATIVE_INFINITY);
                 }
+            }
+
+            @Override
+            public void collect(int doc, long bucket) throws IOException {
+                maybeGrow(bucket);
                 if (values.advanceExact(doc)) {
                     final double value = values.doubleValue();
                     double max = maxes.get(bucket);
@@ -90,6 +96,18 @@ public class MaxAggregator extends NumericMetricsAggregator.SingleValue {
                 }
             }
 
+            @Override
+            public void collect(int[] docs, int count, long bucket) throws IOException {
+                maybeGrow(bucket);
+                final int valuesCount = buffer.read(values, docs, count);
+                final double[] buffered = buffer.values();
+                double max = maxes.get(bucket);
+                for (int i = 0; i < valuesCount; i++) {
+                    max = Math.max(max, buffered[i]);
+                }
+                maxes.set(bucket, max);
+            }
+
         };
     }
 
@@ -30,6 +30,7 @@ import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.LeafBucketCollector;
 import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
+import org.elasticsearch.search.aggregations.metrics.DoubleValuesBuffer;
 import org.elasticsearch.search.aggregations.metrics.NumericMetricsAggregator;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.support.ValuesSource;
@@ -72,15 +73,20 @@ public class MinAggregator extends NumericMetricsAggregator.SingleValue {
         final BigArrays bigArrays = context.bigArrays();
         final SortedNumericDoubleValues allValues = valuesSource.doubleValues(ctx);
         final NumericDoubleValues values = MultiValueMode.MIN.select(allValues, Double.POSITIVE_INFINITY);
+        final DoubleValuesBuffer buffer = new DoubleValuesBuffer();
         return new LeafBucketCollectorBase(sub, allValues) {
 
-            @Override
-            public void collect(int doc, long bucket) throws IOException {
+            private void maybeGrow(long bucket) {
                 if (bucket >= mins.size()) {
                     long from = mins.size();
                     mins = bigArrays.grow(mins, bucket + 1);
                     mins.fill(from, mins.size(), Double.POSITIVE_INFINITY);
                 }
+            }
+
+            @Override
+            public void collect(int doc, long bucket) throws IOException {
+                maybeGrow(bucket);
                 if (values.advanceExact(doc)) {
                     final double value = values.doubleValue();
                     double min = mins.get(bucket);
@@ -89,6 +95,18 @@ public class MinAggregator extends NumericMetricsAggregator.SingleValue {
                 }
             }
 
+            @Override
+            public void collect(int[] docs, int count, long bucket) throws IOException {
+                maybeGrow(bucket);
+                final int valuesCount = buffer.read(values, docs, count);
+                final double[] buffered = buffer.values();
+                double min = mins.get(bucket);
+                for (int i = 0; i < valuesCount; i++) {
+                    min = Math.min(min, buffered[i]);
+                }
+                mins.set(bucket, min);
+            }
+
         };
     }
 
@@ -22,7 +22,6 @@ package org.elasticsearch.search.aggregations.metrics.percentiles.tdigest;
 import org.apache.lucene.index.LeafReaderContext;
 import org.elasticsearch.common.lease.Releasables;
 import org.elasticsearch.common.util.ArrayUtils;
-import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.ObjectArray;
 import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
 import org.elasticsearch.search.DocValueFormat;
@@ -47,9 +46,11 @@ public abstract class AbstractTDigestPercentilesAggregator extends NumericMetric
     protected final double[] keys;
     protected final ValuesSource.Numeric valuesSource;
     protected final DocValueFormat formatter;
-    protected ObjectArray<TDigestState> states;
+    protected final MergingTDigests states;
     protected final double compression;
     protected final boolean keyed;
+    // digests that have been built out of states, metric() may be called many times per bucket when sorting by it
+    private ObjectArray<TDigestState> builtStates;
 
     public AbstractTDigestPercentilesAggregator(String name, ValuesSource.Numeric valuesSource, SearchContext context, Aggregator parent,
             double[] keys, double compression, boolean keyed, DocValueFormat formatter,
@@ -58,7 +59,7 @@ public abstract class AbstractTDigestPercentilesAggregator extends NumericMetric
         this.valuesSource = valuesSource;
         this.keyed = keyed;
         this.formatter = formatter;
-        this.states = context.bigArrays().newObjectArray(1);
+        this.states = new MergingTDigests(compression, context.bigArrays(), 1);
         this.keys = keys;
         this.compression = compression;
     }
@@ -74,23 +75,17 @@ public abstract class AbstractTDigestPercentilesAggregator extends NumericMetric
         if (valuesSource == null) {
             return LeafBucketCollector.NO_OP_COLLECTOR;
         }
-        final BigArrays bigArrays = context.bigArrays();
         final SortedNumericDoubleValues values = valuesSource.doubleValues(ctx);
         return new LeafBucketCollectorBase(sub, values) {
             @Override
             public void collect(int doc, long bucket) throws IOException {
-                states = bigArrays.grow(states, bucket + 1);
-
-                TDigestState state = states.get(bucket);
-                if (state == null) {
-                    state = new TDigestState(compression);
-                    states.set(bucket, state);
-                }
-
                 if (values.advanceExact(doc)) {
                     final int valueCount = values.docValueCount();
                     for (int i = 0; i < valueCount; i++) {
-                        state.add(values.nextValue());
+                        states.add(bucket, values.nextValue());
+                    }
+                    if (builtStates != null && bucket < builtStates.size()) {
+                        builtStates.set(bucket, null);
                     }
                 }
             }
@@ -103,16 +98,25 @@ public abstract class AbstractTDigestPercentilesAggregator extends NumericMetric
     }
 
     protected TDigestState getState(long bucketOrd) {
-        if (bucketOrd >= states.size()) {
+        if (bucketOrd >= states.maxBucket()) {
             return null;
         }
-        final TDigestState state = states.get(bucketOrd);
+        if (builtStates == null) {
+            builtStates = context.bigArrays().newObjectArray(states.maxBucket());
+        } else if (bucketOrd >= builtStates.size()) {
+            builtStates = context.bigArrays().grow(builtStates, bucketOrd + 1);
+        }
+        TDigestState state = builtStates.get(bucketOrd);
+        if (state == null) {
+            state = states.toTDigestState(bucketOrd);
+            builtStates.set(bucketOrd, state);
+        }
         return state;
     }
 
     @Override
     protected void doClose() {
-        Releasables.close(states);
+        Releasables.close(states, builtStates);
     }
 
 }
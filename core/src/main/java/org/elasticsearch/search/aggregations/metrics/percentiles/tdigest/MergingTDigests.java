@@ -0,0 +1,378 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.search.aggregations.metrics.percentiles.tdigest;
+
+import com.carrotsearch.hppc.LongArrayList;
+import org.apache.lucene.util.IntroSorter;
+import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.DoubleArray;
+import org.elasticsearch.common.util.IntArray;
+import org.elasticsearch.common.util.LongArray;
+
+/**
+ * Per-bucket merging t-digests whose centroids are all stored in the same {@link BigArrays}.
+ *
+ * Each bucket owns a region of the shared arrays of means and counts. New values are appended to the region as centroids
+ * with a count of 1, and the region doubles in size when it is full, up to a maximum capacity of about twice the
+ * compression. Once a region of that size is full, its centroids are sorted and adjacent centroids are merged as long as
+ * they stay within the size limit of the {@code k1} scale function of the t-digest paper, which leaves at most
+ * {@code compression + 2} centroids. Regions that are given up are reused by other buckets, or reclaimed by moving all
+ * regions to the beginning of the shared arrays once they account for more than a quarter of them. This avoids the object
+ * and tree overhead of a {@link TDigestState} per bucket, which matters when percentiles are computed under a bucket
+ * aggregation that creates many buckets with few values each.
+ *
+ * Like in {@link TDigestState}, the counts of centroids are ints. {@link #toTDigestState(long)} converts a bucket to a
+ * {@link TDigestState} so that the response and its serialization don't change.
+ */
+public final class MergingTDigests implements Releasable {
+
+    private static final int MIN_CAPACITY = 8;
+
+    private final BigArrays bigArrays;
+    private final double compression;
+    private final int maxCapacity;
+
+    // per bucket
+    private LongArray offsets;
+    private IntArray capacities;
+    private IntArray sizes;
+    private IntArray mergedSizes;
+
+    // shared by all buckets
+    private DoubleArray means;
+    private IntArray counts;
+    private long used;
+    private final LongArrayList[] freeRegions;
+    private long free;
+
+    private final CentroidSorter sorter = new CentroidSorter();
+
+    public MergingTDigests(double compression, BigArrays bigArrays, long initialBucketCount) {
+        if (compression < 0) {
+            throw new IllegalArgumentException("[compression] must be greater than or equal to 0. Found [" + compression + "]");
+        }
+        this.bigArrays = bigArrays;
+        this.compression = compression;
+        this.maxCapacity = (int) Math.max(MIN_CAPACITY, Math.min(1 << 30, 2 * ((long) Math.ceil(compression) + 2)));
+        int levels = 1;
+        while (capacity(levels - 1) < maxCapacity) {
+            levels++;
+        }
+        this.freeRegions = new LongArrayList[levels];
+        boolean success = false;
+        try {
+            offsets = bigArrays.newLongArray(initialBucketCount);
+            capacities = bigArrays.newIntArray(initialBucketCount);
+            sizes = bigArrays.newIntArray(initialBucketCount);
+            mergedSizes = bigArrays.newIntArray(initialBucketCount);
+            means = bigArrays.newDoubleArray(MIN_CAPACITY, false);
+            counts = bigArrays.newIntArray(MIN_CAPACITY, false);
+            success = true;
+        } finally {
+            if (success == false) {
+                close();
+            }
+        }
+    }
+
+    public double compression() {
+        return compression;
+    }
+
+    /**
+     * The number of buckets for which memory is allocated, some of them might not have values.
+     */
+    public long maxBucket() {
+        return offsets.size();
+    }
+
+    private int capacity(int level) {
+        return (int) Math.min((long) MIN_CAPACITY << level, maxCapacity);
+    }
+
+    private int level(int capacity) {
+        int level = 0;
+        while (capacity(level) < capacity) {
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * Add a value to the digest of the given bucket.
+     */
+    public void add(long bucket, double value) {
+        if (bucket >= offsets.size()) {
+            final long newSize = BigArrays.overSize(bucket + 1);
+            offsets = bigArrays.resize(offsets, newSize);
+            capacities = bigArrays.resize(capacities, newSize);
+            sizes = bigArrays.resize(sizes, newSize);
+            mergedSizes = bigArrays.resize(mergedSizes, newSize);
+        }
+        int capacity = capacities.get(bucket);
+        int size = sizes.get(bucket);
+        if (capacity == 0) {
+            capacity = capacity(0);
+            offsets.set(bucket, allocate(0));
+            capacities.set(bucket, capacity);
+        } else if (size == capacity) {
+            if (capacity < maxCapacity) {
+                capacity = relocate(bucket, size, capacity);
+                if (free > used >>> 2) {
+                    compact();
+                }
+            } else {
+                size = merge(bucket);
+                assert size < capacity;
+            }
+        }
+        final long index = offsets.get(bucket) + size;
+        means.set(index, value);
+        counts.set(index, 1);
+        sizes.set(bucket, size + 1);
+    }
+
+    private long allocate(int level) {
+        if (freeRegions[level] != null && freeRegions[level].isEmpty() == false) {
+            free -= capacity(level);
+            return freeRegions[level].remove(freeRegions[level].size() - 1);
+        }
+        final long offset = used;
+        used += capacity(level);
+        means = bigArrays.grow(means, used);
+        counts = bigArrays.grow(counts, used);
+        return offset;
+    }
+
+    private int relocate(long bucket, int size, int capacity) {
+        final int level = level(capacity);
+        final long from = offsets.get(bucket);
+        final long to = allocate(level + 1);
+        for (int i = 0; i < size; ++i) {
+            means.set(to + i, means.get(from + i));
+            counts.set(to + i, counts.get(from + i));
+        }
+        if (freeRegions[level] == null) {
+            freeRegions[level] = new LongArrayList();
+        }
+        freeRegions[level].add(from);
+        free += capacity;
+        offsets.set(bucket, to);
+        final int newCapacity = capacity(level + 1);
+        capacities.set(bucket, newCapacity);
+        return newCapacity;
+    }
+
+    /**
+     * Move all regions that are in use to the beginning of the shared arrays, in order, and release the rest. Buckets tend
+     * to grow at the same pace, so the regions that they give up are often too small to be reused by other buckets.
+     */
+    private void compact() {
+        final long maxBucket = offsets.size();
+        long numRegions = 0;
+        for (long bucket = 0; bucket < maxBucket; ++bucket) {
+            if (capacities.get(bucket) > 0) {
+                numRegions++;
+            }
+        }
+        try (LongArray regions = bigArrays.newLongArray(numRegions, false)) {
+            long region = 0;
+            for (long bucket = 0; bucket < maxBucket; ++bucket) {
+                if (capacities.get(bucket) > 0) {
+                    regions.set(region++, bucket);
+                }
+            }
+            new IntroSorter() {
+                long pivot;
+
+                @Override
+                protected void swap(int i, int j) {
+                    final long tmp = regions.get(i);
+                    regions.set(i, regions.get(j));
+                    regions.set(j, tmp);
+                }
+
+                @Override
+                protected void setPivot(int i) {
+                    pivot = offsets.get(regions.get(i));
+                }
+
+                @Override
+                protected int comparePivot(int j) {
+                    return Long.compare(pivot, offsets.get(regions.get(j)));
+                }
+            }.sort(0, Math.toIntExact(numRegions));
+
+            long offset = 0;
+            for (region = 0; region < numRegions; ++region) {
+                final long bucket = regions.get(region);
+                final long from = offsets.get(bucket);
+                assert from >= offset;
+                if (from != offset) {
+                    for (int i = 0, size = sizes.get(bucket); i < size; ++i) {
+                        means.set(offset + i, means.get(from + i));
+                        counts.set(offset + i, counts.get(from + i));
+                    }
+                    offsets.set(bucket, offset);
+                }
+                offset += capacities.get(bucket);
+            }
+            used = offset;
+        }
+        for (LongArrayList freeRegion : freeRegions) {
+            if (freeRegion != null) {
+                freeRegion.clear();
+            }
+        }
+        free = 0;
+        means = bigArrays.resize(means, Math.max(MIN_CAPACITY, used));
+        counts = bigArrays.resize(counts, Math.max(MIN_CAPACITY, used));
+    }
+
+    /**
+     * Sort the centroids of the bucket and merge adjacent ones when they are small enough, returns the new number of centroids.
+     */
+    private int merge(long bucket) {
+        final int size = sizes.get(bucket);
+        if (mergedSizes.get(bucket) == size) {
+            return size;
+        }
+        final long offset = offsets.get(bucket);
+        sorter.offset = offset;
+        sorter.sort(0, size);
+
+        final long total = total(offset, size);
+        int merged = 0;
+        double mean = means.get(offset);
+        int count = counts.get(offset);
+        long countSoFar = 0;
+        for (int i = 1; i < size; ++i) {
+            final double nextMean = means.get(offset + i);
+            final int nextCount = counts.get(offset + i);
+            final double qLeft = (double) countSoFar / total;
+            final double qRight = (double) (countSoFar + count + nextCount) / total;
+            if (k(qRight) - k(qLeft) <= 1) {
+                count += nextCount;
+                mean += (nextMean - mean) * nextCount / count;
+            } else {
+                means.set(offset + merged, mean);
+                counts.set(offset + merged, count);
+                merged++;
+                countSoFar += count;
+                mean = nextMean;
+                count = nextCount;
+            }
+        }
+        means.set(offset + merged, mean);
+        counts.set(offset + merged, count);
+        merged++;
+        sizes.set(bucket, merged);
+        mergedSizes.set(bucket, merged);
+        return merged;
+    }
+
+    /**
+     * The {@code k1} scale function, centroids may only cover an interval of quantiles whose scale is at most 1.
+     */
+    private double k(double q) {
+        return compression / (2 * Math.PI) * Math.asin(2 * q - 1);
+    }
+
+    /**
+     * The number of centroids of the bucket.
+     */
+    int centroidCount(long bucket) {
+        return bucket < sizes.size() ? sizes.get(bucket) : 0;
+    }
+
+    private long total(long offset, int size) {
+        long total = 0;
+        for (int i = 0; i < size; ++i) {
+            total += counts.get(offset + i);
+        }
+        return total;
+    }
+
+    /**
+     * Build a {@link TDigestState} out of the centroids of the bucket.
+     */
+    public TDigestState toTDigestState(long bucket) {
+        final TDigestState state = new TDigestState(compression);
+        final int size = centroidCount(bucket);
+        if (size > 0) {
+            merge(bucket);
+            final long offset = offsets.get(bucket);
+            for (int i = 0; i < sizes.get(bucket); ++i) {
+                state.add(means.get(offset + i), counts.get(offset + i));
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Return the memory used by the digests.
+     */
+    public long ramBytesUsed() {
+        return offsets.ramBytesUsed() + capacities.ramBytesUsed() + sizes.ramBytesUsed() + mergedSizes.ramBytesUsed()
+            + means.ramBytesUsed() + counts.ramBytesUsed();
+    }
+
+    @Override
+    public void close() {
+        Releasables.close(offsets, capacities, sizes, mergedSizes, means, counts);
+    }
+
+    /**
+     * Sorts the centroids of a region by mean.
+     */
+    private class CentroidSorter extends IntroSorter {
+
+        long offset;
+        double pivot;
+
+        @Override
+        protected void swap(int i, int j) {
+            final double mean = means.get(offset + i);
+            means.set(offset + i, means.get(offset + j));
+            means.set(offset + j, mean);
+            final int count = counts.get(offset + i);
+            counts.set(offset + i, counts.get(offset + j));
+            counts.set(offset + j, count);
+        }
+
+        @Override
+        protected int compare(int i, int j) {
+            return Double.compare(means.get(offset + i), means.get(offset + j));
+        }
+
+        @Override
+        protected void setPivot(int i) {
+            pivot = means.get(offset + i);
+        }
+
+        @Override
+        protected int comparePivot(int j) {
+            return Double.compare(pivot, means.get(offset + j));
+        }
+    }
+}
@@ -29,6 +29,7 @@ import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.LeafBucketCollector;
 import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
+import org.elasticsearch.search.aggregations.metrics.DoubleValuesBuffer;
 import org.elasticsearch.search.aggregations.metrics.NumericMetricsAggregator;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.support.ValuesSource;
@@ -80,9 +81,9 @@ public class StatsAggregator extends NumericMetricsAggregator.MultiValue {
         }
         final BigArrays bigArrays = context.bigArrays();
         final SortedNumericDoubleValues values = valuesSource.doubleValues(ctx);
+        final DoubleValuesBuffer buffer = new DoubleValuesBuffer();
         return new LeafBucketCollectorBase(sub, values) {
-            @Override
-            public void collect(int doc, long bucket) throws IOException {
+            private void maybeGrow(long bucket) {
                 if (bucket >= counts.size()) {
                     final long from = counts.size();
                     final long overSize = BigArrays.overSize(bucket + 1);
@@ -93,6 +94,11 @@ public class StatsAggregator extends NumericMetricsAggregator.MultiValue {
                     mins.fill(from, overSize, Double.POSITIVE_INFINITY);
                     maxes.fill(from, overSize, Double.NEGATIVE_INFINITY);
                 }
+            }
+
+            @Override
+            public void collect(int doc, long bucket) throws IOException {
+                maybeGrow(bucket);
 
                 if (values.advanceExact(doc)) {
                     final int valuesCount = values.docValueCount();
@@ -111,6 +117,26 @@ public class StatsAggregator extends NumericMetricsAggregator.MultiValue {
                     maxes.set(bucket, max);
                 }
             }
+
+            @Override
+            public void collect(int[] docs, int count, long bucket) throws IOException {
+                maybeGrow(bucket);
+                final int valuesCount = buffer.read(values, docs, count);
+                final double[] buffered = buffer.values();
+                counts.increment(bucket, valuesCount);
+                double sum = 0;
+                double min = mins.get(bucket);
+                double max = maxes.get(bucket);
+                for (int i = 0; i < valuesCount; i++) {
+                    final double value = buffered[i];
+                    sum += value;
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                }
+                sums.increment(bucket, sum);
+                mins.set(bucket, min);
+                maxes.set(bucket, max);
+            }
         };
     }
 
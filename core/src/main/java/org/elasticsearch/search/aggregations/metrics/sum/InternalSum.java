@@ -80,6 +80,11 @@ public class InternalSum extends InternalNumericMetricsAggregation.SingleValue i
         return new InternalSum(name, sum, format, pipelineAggregators(), getMetaData());
     }
 
+    @Override
+    public InternalSum scale(double factor) {
+        return new InternalSum(name, sum * factor, format, pipelineAggregators(), getMetaData());
+    }
+
     @Override
     public XContentBuilder doXContentBody(XContentBuilder builder, Params params) throws IOException {
         builder.field(CommonFields.VALUE.getPreferredName(), sum);
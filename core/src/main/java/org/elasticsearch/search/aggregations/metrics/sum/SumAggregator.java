@@ -28,6 +28,7 @@ import org.elasticsearch.search.aggregations.Aggregator;
 import org.elasticsearch.search.aggregations.InternalAggregation;
 import org.elasticsearch.search.aggregations.LeafBucketCollector;
 import org.elasticsearch.search.aggregations.LeafBucketCollectorBase;
+import org.elasticsearch.search.aggregations.metrics.DoubleValuesBuffer;
 import org.elasticsearch.search.aggregations.metrics.NumericMetricsAggregator;
 import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
 import org.elasticsearch.search.aggregations.support.ValuesSource;
@@ -67,6 +68,7 @@ public class SumAggregator extends NumericMetricsAggregator.SingleValue {
         }
         final BigArrays bigArrays = context.bigArrays();
         final SortedNumericDoubleValues values = valuesSource.doubleValues(ctx);
+        final DoubleValuesBuffer buffer = new DoubleValuesBuffer();
         return new LeafBucketCollectorBase(sub, values) {
             @Override
             public void collect(int doc, long bucket) throws IOException {
@@ -80,6 +82,18 @@ public class SumAggregator extends NumericMetricsAggregator.SingleValue {
                     sums.increment(bucket, sum);
                 }
             }
+
+            @Override
+            public void collect(int[] docs, int count, long bucket) throws IOException {
+                sums = bigArrays.grow(sums, bucket + 1);
+                final int valuesCount = buffer.read(values, docs, count);
+                final double[] buffered = buffer.values();
+                double sum = 0;
+                for (int i = 0; i < valuesCount; i++) {
+                    sum += buffered[i];
+                }
+                sums.increment(bucket, sum);
+            }
         };
     }
 
@@ -79,6 +79,11 @@ public class InternalValueCount extends InternalNumericMetricsAggregation.Single
         return new InternalValueCount(name, valueCount, pipelineAggregators(), getMetaData());
     }
 
+    @Override
+    public InternalValueCount scale(double factor) {
+        return new InternalValueCount(name, scaleCount(value, factor), pipelineAggregators(), getMetaData());
+    }
+
     @Override
     public XContentBuilder doXContentBody(XContentBuilder builder, Params params) throws IOException {
         builder.field(CommonFields.VALUE.getPreferredName(), value);
@@ -36,6 +36,7 @@ public class RequestHandlerRegistry<Request extends TransportRequest> {
     private final String executor;
     private final TaskManager taskManager;
     private final Writeable.Reader<Request> requestReader;
+    private final TransportActionStatsTracker statsTracker = new TransportActionStatsTracker();
 
     public RequestHandlerRegistry(String action, Writeable.Reader<Request> requestReader, TaskManager taskManager,
                                   TransportRequestHandler<Request> handler, String executor, boolean forceExecution,
@@ -58,19 +59,24 @@ public class RequestHandlerRegistry<Request extends TransportRequest> {
     }
 
     public void processMessageReceived(Request request, TransportChannel channel) throws Exception {
-        final Task task = taskManager.register(channel.getChannelType(), action, request);
-        if (task == null) {
-            handler.messageReceived(request, channel);
-        } else {
-            boolean success = false;
-            try {
-                handler.messageReceived(request, new TransportChannelWrapper(taskManager, task, channel), task);
-                success = true;
-            } finally {
-                if (success == false) {
-                    taskManager.unregister(task);
+        final long startNanos = System.nanoTime();
+        try {
+            final Task task = taskManager.register(channel.getChannelType(), action, request);
+            if (task == null) {
+                handler.messageReceived(request, channel);
+            } else {
+                boolean success = false;
+                try {
+                    handler.messageReceived(request, new TransportChannelWrapper(taskManager, task, channel), task);
+                    success = true;
+                } finally {
+                    if (success == false) {
+                        taskManager.unregister(task);
+                    }
                 }
             }
+        } finally {
+            statsTracker.onExecuted(System.nanoTime() - startNanos);
         }
     }
 
@@ -86,6 +92,13 @@ public class RequestHandlerRegistry<Request extends TransportRequest> {
         return executor;
     }
 
+    /**
+     * Returns the tracker recording the request, response and timing statistics of this action
+     */
+    public TransportActionStatsTracker getStatsTracker() {
+        return statsTracker;
+    }
+
     @Override
     public String toString() {
         return handler.toString();
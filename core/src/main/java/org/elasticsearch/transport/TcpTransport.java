@@ -1139,6 +1139,7 @@ public abstract class TcpTransport<Channel> extends AbstractLifecycleComponent i
             CompositeBytesReference message = new CompositeBytesReference(header, bytes);
             SendListener onResponseSent = new SendListener(null,
                 () -> transportService.onResponseSent(requestId, action, error), message.length());
+            onResponseSent(action, message.length());
             internalSendMessage(channel, message, onResponseSent);
         }
     }
@@ -1171,6 +1172,7 @@ public abstract class TcpTransport<Channel> extends AbstractLifecycleComponent i
             BytesReference message = buildMessage(requestId, status, nodeVersion, response, stream);
 
             final TransportResponseOptions finalOptions = options;
+            onResponseSent(action, message.length());
             // this might be called in a different thread
             SendListener listener = new SendListener(stream,
                 () -> transportService.onResponseSent(requestId, action, response, finalOptions), message.length());
@@ -1183,6 +1185,13 @@ public abstract class TcpTransport<Channel> extends AbstractLifecycleComponent i
         }
     }
 
+    private void onResponseSent(String action, int messageLength) {
+        final RequestHandlerRegistry reg = transportService.getRequestHandler(action);
+        if (reg != null) { // handshakes have no registered handler
+            reg.getStatsTracker().onResponseSent(messageLength);
+        }
+    }
+
     /**
      * Writes the Tcp message header into a bytes reference.
      *
@@ -1481,6 +1490,7 @@ public abstract class TcpTransport<Channel> extends AbstractLifecycleComponent i
                 if (reg == null) {
                     throw new ActionNotFoundTransportException(action);
                 }
+                reg.getStatsTracker().onRequestReceived(messageLengthBytes + TcpHeader.MARKER_BYTES_SIZE + TcpHeader.MESSAGE_LENGTH_SIZE);
                 if (reg.canTripCircuitBreaker()) {
                     getInFlightRequestBreaker().addEstimateBytesAndMaybeBreak(messageLengthBytes, "<transport_request>");
                 } else {
@@ -1525,6 +1535,7 @@ public abstract class TcpTransport<Channel> extends AbstractLifecycleComponent i
         private final RequestHandlerRegistry reg;
         private final TransportRequest request;
         private final TransportChannel transportChannel;
+        private final long enqueuedNanos = System.nanoTime();
 
         RequestHandler(RequestHandlerRegistry reg, TransportRequest request, TransportChannel transportChannel) {
             this.reg = reg;
@@ -1535,6 +1546,7 @@ public abstract class TcpTransport<Channel> extends AbstractLifecycleComponent i
         @SuppressWarnings({"unchecked"})
         @Override
         protected void doRun() throws Exception {
+            reg.getStatsTracker().onQueued(System.nanoTime() - enqueuedNanos);
             reg.processMessageReceived(request, transportChannel);
         }
 
@@ -1716,11 +1728,26 @@ public abstract class TcpTransport<Channel> extends AbstractLifecycleComponent i
      */
     protected abstract long getNumOpenServerConnections();
 
+    /**
+     * Returns the number of flushes issued on all channels of this transport. Transports that flush every message on its own
+     * issue one flush per sent message.
+     */
+    protected long getFlushCount() {
+        return transmittedBytesMetric.count();
+    }
+
+    /**
+     * Returns the number of messages flushed on all channels of this transport.
+     */
+    protected long getFlushedMessageCount() {
+        return transmittedBytesMetric.count();
+    }
+
     @Override
     public final TransportStats getStats() {
         return new TransportStats(
             getNumOpenServerConnections(), readBytesMetric.count(), readBytesMetric.sum(), transmittedBytesMetric.count(),
-            transmittedBytesMetric.sum());
+            transmittedBytesMetric.sum(), getFlushCount(), getFlushedMessageCount());
     }
 
     /**
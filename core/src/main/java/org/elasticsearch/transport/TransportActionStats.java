@@ -0,0 +1,169 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.transport;
+
+import org.HdrHistogram.Histogram;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.xcontent.ToXContentFragment;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+
+/**
+ * Statistics of a single transport action: how many requests were received and responses sent along with their size in bytes,
+ * and histograms of the time requests spent waiting in the queue of the handler's executor and of the time it took the handler
+ * to process them. Times are recorded in microseconds.
+ */
+public class TransportActionStats implements Writeable, ToXContentFragment {
+
+    static final double[] PERCENTILES = new double[] { 50.0, 90.0, 99.0, 99.9 };
+
+    private final long rxCount;
+    private final long rxSize;
+    private final long txCount;
+    private final long txSize;
+    private final Histogram queueTime;
+    private final Histogram executionTime;
+
+    public TransportActionStats(long rxCount, long rxSize, long txCount, long txSize, Histogram queueTime, Histogram executionTime) {
+        this.rxCount = rxCount;
+        this.rxSize = rxSize;
+        this.txCount = txCount;
+        this.txSize = txSize;
+        this.queueTime = queueTime;
+        this.executionTime = executionTime;
+    }
+
+    public TransportActionStats(StreamInput in) throws IOException {
+        rxCount = in.readVLong();
+        rxSize = in.readVLong();
+        txCount = in.readVLong();
+        txSize = in.readVLong();
+        queueTime = readHistogram(in);
+        executionTime = readHistogram(in);
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVLong(rxCount);
+        out.writeVLong(rxSize);
+        out.writeVLong(txCount);
+        out.writeVLong(txSize);
+        writeHistogram(queueTime, out);
+        writeHistogram(executionTime, out);
+    }
+
+    private static Histogram readHistogram(StreamInput in) throws IOException {
+        final int serializedLen = in.readVInt();
+        byte[] bytes = new byte[serializedLen];
+        in.readBytes(bytes, 0, serializedLen);
+        try {
+            return Histogram.decodeFromCompressedByteBuffer(ByteBuffer.wrap(bytes), 0);
+        } catch (DataFormatException e) {
+            throw new IOException("Failed to decode transport action histogram", e);
+        }
+    }
+
+    private static void writeHistogram(Histogram histogram, StreamOutput out) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(histogram.getNeededByteBufferCapacity());
+        final int serializedLen = histogram.encodeIntoCompressedByteBuffer(buffer);
+        out.writeVInt(serializedLen);
+        out.writeBytes(buffer.array(), 0, serializedLen);
+    }
+
+    public long getRxCount() {
+        return rxCount;
+    }
+
+    public ByteSizeValue getRxSize() {
+        return new ByteSizeValue(rxSize);
+    }
+
+    public long getTxCount() {
+        return txCount;
+    }
+
+    public ByteSizeValue getTxSize() {
+        return new ByteSizeValue(txSize);
+    }
+
+    /**
+     * Histogram of the time in microseconds requests waited in the queue of the handler's executor
+     */
+    public Histogram getQueueTime() {
+        return queueTime;
+    }
+
+    /**
+     * Histogram of the time in microseconds the handler took to process requests
+     */
+    public Histogram getExecutionTime() {
+        return executionTime;
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.field(Fields.RX_COUNT, rxCount);
+        builder.byteSizeField(Fields.RX_SIZE_IN_BYTES, Fields.RX_SIZE, rxSize);
+        builder.field(Fields.TX_COUNT, txCount);
+        builder.byteSizeField(Fields.TX_SIZE_IN_BYTES, Fields.TX_SIZE, txSize);
+        histogramToXContent(Fields.QUEUE_TIME, queueTime, builder);
+        histogramToXContent(Fields.EXECUTION_TIME, executionTime, builder);
+        return builder;
+    }
+
+    private static void histogramToXContent(String name, Histogram histogram, XContentBuilder builder) throws IOException {
+        builder.startObject(name);
+        builder.field(Fields.COUNT, histogram.getTotalCount());
+        if (histogram.getTotalCount() > 0) {
+            builder.field(Fields.MIN_IN_MICROS, histogram.getMinValue());
+            builder.field(Fields.MAX_IN_MICROS, histogram.getMaxValue());
+            builder.field(Fields.MEAN_IN_MICROS, histogram.getMean());
+            builder.startObject(Fields.PERCENTILES_IN_MICROS);
+            for (double percentile : PERCENTILES) {
+                builder.field(String.valueOf(percentile), histogram.getValueAtPercentile(percentile));
+            }
+            builder.endObject();
+        }
+        builder.endObject();
+    }
+
+    static final class Fields {
+        static final String RX_COUNT = "rx_count";
+        static final String RX_SIZE = "rx_size";
+        static final String RX_SIZE_IN_BYTES = "rx_size_in_bytes";
+        static final String TX_COUNT = "tx_count";
+        static final String TX_SIZE = "tx_size";
+        static final String TX_SIZE_IN_BYTES = "tx_size_in_bytes";
+        static final String QUEUE_TIME = "queue_time";
+        static final String EXECUTION_TIME = "execution_time";
+        static final String COUNT = "count";
+        static final String MIN_IN_MICROS = "min_in_micros";
+        static final String MAX_IN_MICROS = "max_in_micros";
+        static final String MEAN_IN_MICROS = "mean_in_micros";
+        static final String PERCENTILES_IN_MICROS = "percentiles_in_micros";
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.transport;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.metrics.MeanMetric;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records the statistics of a single transport action. Recording is wait-free so it can be done on the network threads, the
+ * histograms are only merged when a {@link TransportActionStats} snapshot is taken.
+ */
+public final class TransportActionStatsTracker {
+
+    private static final int SIGNIFICANT_VALUE_DIGITS = 2;
+
+    private final MeanMetric rxMetric = new MeanMetric();
+    private final MeanMetric txMetric = new MeanMetric();
+    private final CounterMetric executions = new CounterMetric();
+    private final Recorder queueTimeRecorder = new Recorder(SIGNIFICANT_VALUE_DIGITS);
+    private final Recorder executionTimeRecorder = new Recorder(SIGNIFICANT_VALUE_DIGITS);
+    private final Histogram queueTime = new Histogram(SIGNIFICANT_VALUE_DIGITS);
+    private final Histogram executionTime = new Histogram(SIGNIFICANT_VALUE_DIGITS);
+
+    /**
+     * Records a received request of the given size in bytes
+     */
+    public void onRequestReceived(long bytes) {
+        rxMetric.inc(bytes);
+    }
+
+    /**
+     * Records a sent response of the given size in bytes
+     */
+    public void onResponseSent(long bytes) {
+        txMetric.inc(bytes);
+    }
+
+    /**
+     * Records the time in nanoseconds a request waited to be executed
+     */
+    public void onQueued(long nanos) {
+        queueTimeRecorder.recordValue(toMicros(nanos));
+    }
+
+    /**
+     * Records the time in nanoseconds the handler took to process a request
+     */
+    public void onExecuted(long nanos) {
+        executions.inc();
+        executionTimeRecorder.recordValue(toMicros(nanos));
+    }
+
+    private static long toMicros(long nanos) {
+        // System#nanoTime is not guaranteed to be monotonic on all platforms
+        return Math.max(0L, TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    /**
+     * Returns <code>true</code> if anything was recorded for this action yet
+     */
+    public boolean hasActivity() {
+        return rxMetric.count() > 0 || txMetric.count() > 0 || executions.count() > 0;
+    }
+
+    public synchronized TransportActionStats stats() {
+        queueTime.add(queueTimeRecorder.getIntervalHistogram());
+        executionTime.add(executionTimeRecorder.getIntervalHistogram());
+        return new TransportActionStats(rxMetric.count(), rxMetric.sum(), txMetric.count(), txMetric.sum(),
+            queueTime.copy(), executionTime.copy());
+    }
+}
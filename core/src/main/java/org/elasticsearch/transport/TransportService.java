@@ -57,6 +57,7 @@ import java.io.IOException;
 import java.net.UnknownHostException;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -294,7 +295,15 @@ public class TransportService extends AbstractLifecycleComponent {
     }
 
     public TransportStats stats() {
-        return transport.getStats();
+        final TransportStats stats = transport.getStats();
+        final Map<String, TransportActionStats> actionStats = new HashMap<>();
+        for (RequestHandlerRegistry reg : requestHandlers.values()) {
+            if (reg.getStatsTracker().hasActivity()) {
+                actionStats.put(reg.getAction(), reg.getStatsTracker().stats());
+            }
+        }
+        return new TransportStats(stats.getServerOpen(), stats.getRxCount(), stats.getRxSize().getBytes(), stats.getTxCount(),
+            stats.getTxSize().getBytes(), stats.getFlushCount(), stats.getFlushedMessages(), Collections.unmodifiableMap(actionStats));
     }
 
     public BoundTransportAddress boundAddress() {
@@ -647,9 +656,11 @@ public class TransportService extends AbstractLifecycleComponent {
                 //noinspection unchecked
                 reg.processMessageReceived(request, channel);
             } else {
+                final long enqueuedNanos = System.nanoTime();
                 threadPool.executor(executor).execute(new AbstractRunnable() {
                     @Override
                     protected void doRun() throws Exception {
+                        reg.getStatsTracker().onQueued(System.nanoTime() - enqueuedNanos);
                         //noinspection unchecked
                         reg.processMessageReceived(request, channel);
                     }
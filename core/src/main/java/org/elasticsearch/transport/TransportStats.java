@@ -19,6 +19,7 @@
 
 package org.elasticsearch.transport;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Writeable;
@@ -28,6 +29,9 @@ import org.elasticsearch.common.xcontent.ToXContentFragment;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
 
 public class TransportStats implements Writeable, ToXContentFragment {
 
@@ -36,13 +40,25 @@ public class TransportStats implements Writeable, ToXContentFragment {
     private final long rxSize;
     private final long txCount;
     private final long txSize;
+    private final long flushCount;
+    private final long flushedMessages;
+    private final Map<String, TransportActionStats> actionStats;
 
-    public TransportStats(long serverOpen, long rxCount, long rxSize, long txCount, long txSize) {
+    public TransportStats(long serverOpen, long rxCount, long rxSize, long txCount, long txSize, long flushCount,
+                          long flushedMessages) {
+        this(serverOpen, rxCount, rxSize, txCount, txSize, flushCount, flushedMessages, Collections.emptyMap());
+    }
+
+    public TransportStats(long serverOpen, long rxCount, long rxSize, long txCount, long txSize, long flushCount,
+                          long flushedMessages, Map<String, TransportActionStats> actionStats) {
         this.serverOpen = serverOpen;
         this.rxCount = rxCount;
         this.rxSize = rxSize;
         this.txCount = txCount;
         this.txSize = txSize;
+        this.flushCount = flushCount;
+        this.flushedMessages = flushedMessages;
+        this.actionStats = actionStats;
     }
 
     public TransportStats(StreamInput in) throws IOException {
@@ -51,6 +67,15 @@ public class TransportStats implements Writeable, ToXContentFragment {
         rxSize = in.readVLong();
         txCount = in.readVLong();
         txSize = in.readVLong();
+        if (in.getVersion().onOrAfter(Version.V_7_0_0_alpha1)) {
+            flushCount = in.readVLong();
+            flushedMessages = in.readVLong();
+            actionStats = in.readMap(StreamInput::readString, TransportActionStats::new);
+        } else {
+            flushCount = 0;
+            flushedMessages = 0;
+            actionStats = Collections.emptyMap();
+        }
     }
 
     @Override
@@ -60,6 +85,11 @@ public class TransportStats implements Writeable, ToXContentFragment {
         out.writeVLong(rxSize);
         out.writeVLong(txCount);
         out.writeVLong(txSize);
+        if (out.getVersion().onOrAfter(Version.V_7_0_0_alpha1)) {
+            out.writeVLong(flushCount);
+            out.writeVLong(flushedMessages);
+            out.writeMap(actionStats, StreamOutput::writeString, (o, stats) -> stats.writeTo(o));
+        }
     }
 
     public long serverOpen() {
@@ -102,6 +132,28 @@ public class TransportStats implements Writeable, ToXContentFragment {
         return txSize();
     }
 
+    /**
+     * Returns the number of flushes issued on the channels of this node. Transports that coalesce the flushes of messages sent
+     * in a burst issue fewer flushes than they send messages.
+     */
+    public long getFlushCount() {
+        return flushCount;
+    }
+
+    /**
+     * Returns the number of messages flushed on the channels of this node.
+     */
+    public long getFlushedMessages() {
+        return flushedMessages;
+    }
+
+    /**
+     * Returns the statistics of all actions this node received requests for or executed, keyed by action name
+     */
+    public Map<String, TransportActionStats> getActionStats() {
+        return actionStats;
+    }
+
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startObject(Fields.TRANSPORT);
@@ -110,6 +162,17 @@ public class TransportStats implements Writeable, ToXContentFragment {
         builder.byteSizeField(Fields.RX_SIZE_IN_BYTES, Fields.RX_SIZE, rxSize);
         builder.field(Fields.TX_COUNT, txCount);
         builder.byteSizeField(Fields.TX_SIZE_IN_BYTES, Fields.TX_SIZE, txSize);
+        builder.field(Fields.FLUSH_COUNT, flushCount);
+        builder.field(Fields.FLUSHED_MESSAGES, flushedMessages);
+        if (actionStats.isEmpty() == false) {
+            builder.startObject(Fields.ACTIONS);
+            for (Map.Entry<String, TransportActionStats> entry : new TreeMap<>(actionStats).entrySet()) {
+                builder.startObject(entry.getKey());
+                entry.getValue().toXContent(builder, params);
+                builder.endObject();
+            }
+            builder.endObject();
+        }
         builder.endObject();
         return builder;
     }
@@ -123,5 +186,8 @@ public class TransportStats implements Writeable, ToXContentFragment {
         static final String TX_COUNT = "tx_count";
         static final String TX_SIZE = "tx_size";
         static final String TX_SIZE_IN_BYTES = "tx_size_in_bytes";
+        static final String FLUSH_COUNT = "flush_count";
+        static final String FLUSHED_MESSAGES = "flushed_messages";
+        static final String ACTIONS = "actions";
     }
 }
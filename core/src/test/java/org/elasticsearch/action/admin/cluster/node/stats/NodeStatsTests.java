@@ -25,6 +25,7 @@ import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.discovery.DiscoveryStats;
 import org.elasticsearch.discovery.zen.PendingClusterStateStats;
 import org.elasticsearch.discovery.zen.PublishClusterStateStats;
+import org.elasticsearch.gateway.GatewayStats;
 import org.elasticsearch.http.HttpStats;
 import org.elasticsearch.indices.breaker.AllCircuitBreakerStats;
 import org.elasticsearch.indices.breaker.CircuitBreakerStats;
@@ -39,6 +40,8 @@ import org.elasticsearch.script.ScriptStats;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.test.VersionUtils;
 import org.elasticsearch.threadpool.ThreadPoolStats;
+import org.elasticsearch.transport.TransportActionStats;
+import org.elasticsearch.transport.TransportActionStatsTracker;
 import org.elasticsearch.transport.TransportStats;
 
 import java.io.IOException;
@@ -48,6 +51,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import static com.carrotsearch.randomizedtesting.RandomizedTest.randomLongBetween;
 import static java.util.Collections.emptyMap;
@@ -220,12 +224,31 @@ public class NodeStatsTests extends ESTestCase {
                     assertEquals(nodeStats.getTransport().getServerOpen(), deserializedNodeStats.getTransport().getServerOpen());
                     assertEquals(nodeStats.getTransport().getTxCount(), deserializedNodeStats.getTransport().getTxCount());
                     assertEquals(nodeStats.getTransport().getTxSize(), deserializedNodeStats.getTransport().getTxSize());
+                    assertEquals(nodeStats.getTransport().getFlushCount(), deserializedNodeStats.getTransport().getFlushCount());
+                    assertEquals(nodeStats.getTransport().getFlushedMessages(),
+                        deserializedNodeStats.getTransport().getFlushedMessages());
+                    assertEquals(nodeStats.getTransport().getActionStats().keySet(),
+                        deserializedNodeStats.getTransport().getActionStats().keySet());
+                    for (Map.Entry<String, TransportActionStats> entry : nodeStats.getTransport().getActionStats().entrySet()) {
+                        TransportActionStats actionStats = entry.getValue();
+                        TransportActionStats deserializedActionStats =
+                            deserializedNodeStats.getTransport().getActionStats().get(entry.getKey());
+                        assertEquals(actionStats.getRxCount(), deserializedActionStats.getRxCount());
+                        assertEquals(actionStats.getRxSize(), deserializedActionStats.getRxSize());
+                        assertEquals(actionStats.getTxCount(), deserializedActionStats.getTxCount());
+                        assertEquals(actionStats.getTxSize(), deserializedActionStats.getTxSize());
+                        assertEquals(actionStats.getQueueTime(), deserializedActionStats.getQueueTime());
+                        assertEquals(actionStats.getExecutionTime(), deserializedActionStats.getExecutionTime());
+                    }
                 }
                 if (nodeStats.getHttp() == null) {
                     assertNull(deserializedNodeStats.getHttp());
                 } else {
                     assertEquals(nodeStats.getHttp().getServerOpen(), deserializedNodeStats.getHttp().getServerOpen());
                     assertEquals(nodeStats.getHttp().getTotalOpen(), deserializedNodeStats.getHttp().getTotalOpen());
+                    assertEquals(nodeStats.getHttp().getInFlightRequests(), deserializedNodeStats.getHttp().getInFlightRequests());
+                    assertEquals(nodeStats.getHttp().getInFlightBytes(), deserializedNodeStats.getHttp().getInFlightBytes());
+                    assertEquals(nodeStats.getHttp().getRejectedRequests(), deserializedNodeStats.getHttp().getRejectedRequests());
                 }
                 if (nodeStats.getBreaker() == null) {
                     assertNull(deserializedNodeStats.getBreaker());
@@ -298,6 +321,18 @@ public class NodeStatsTests extends ESTestCase {
                         assertEquals(aStats.responseTime, bStats.responseTime, 0.01);
                     });
                 }
+                GatewayStats gatewayStats = nodeStats.getGatewayStats();
+                GatewayStats deserializedGatewayStats = deserializedNodeStats.getGatewayStats();
+                if (gatewayStats == null) {
+                    assertNull(deserializedGatewayStats);
+                } else {
+                    assertEquals(gatewayStats.getFetchRequests(), deserializedGatewayStats.getFetchRequests());
+                    assertEquals(gatewayStats.getFetchedShards(), deserializedGatewayStats.getFetchedShards());
+                    assertEquals(gatewayStats.getFetchTimeInMillis(), deserializedGatewayStats.getFetchTimeInMillis());
+                    assertEquals(gatewayStats.getStoreMetaDataCacheCount(), deserializedGatewayStats.getStoreMetaDataCacheCount());
+                    assertEquals(gatewayStats.getStoreMetaDataCacheHits(), deserializedGatewayStats.getStoreMetaDataCacheHits());
+                    assertEquals(gatewayStats.getStoreMetaDataCacheMisses(), deserializedGatewayStats.getStoreMetaDataCacheMisses());
+                }
             }
         }
     }
@@ -397,9 +432,27 @@ public class NodeStatsTests extends ESTestCase {
             }
             fsInfo = new FsInfo(randomNonNegativeLong(), ioStats, paths);
         }
-        TransportStats transportStats = frequently() ? new TransportStats(randomNonNegativeLong(), randomNonNegativeLong(),
-                randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong()) : null;
-        HttpStats httpStats = frequently() ? new HttpStats(randomNonNegativeLong(), randomNonNegativeLong()) : null;
+        TransportStats transportStats = null;
+        if (frequently()) {
+            Map<String, TransportActionStats> actionStats = new HashMap<>();
+            int numActions = randomIntBetween(0, 5);
+            for (int i = 0; i < numActions; i++) {
+                TransportActionStatsTracker tracker = new TransportActionStatsTracker();
+                int numRequests = randomIntBetween(0, 10);
+                for (int j = 0; j < numRequests; j++) {
+                    tracker.onRequestReceived(randomIntBetween(0, 1 << 20));
+                    tracker.onResponseSent(randomIntBetween(0, 1 << 20));
+                    tracker.onQueued(randomLongBetween(0, TimeUnit.SECONDS.toNanos(10)));
+                    tracker.onExecuted(randomLongBetween(0, TimeUnit.SECONDS.toNanos(10)));
+                }
+                actionStats.put(randomAlphaOfLengthBetween(3, 10), tracker.stats());
+            }
+            transportStats = new TransportStats(randomNonNegativeLong(), randomNonNegativeLong(),
+                randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong(),
+                randomNonNegativeLong(), actionStats);
+        }
+        HttpStats httpStats = frequently() ? new HttpStats(randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong(),
+            randomNonNegativeLong(), randomNonNegativeLong()) : null;
         AllCircuitBreakerStats allCircuitBreakerStats = null;
         if (frequently()) {
             int numCircuitBreakerStats = randomIntBetween(0, 10);
@@ -459,9 +512,11 @@ public class NodeStatsTests extends ESTestCase {
             }
             adaptiveSelectionStats = new AdaptiveSelectionStats(nodeConnections, nodeStats);
         }
+        GatewayStats gatewayStats = frequently() ? new GatewayStats(randomNonNegativeLong(), randomNonNegativeLong(),
+                randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong(), randomNonNegativeLong()) : null;
         //TODO NodeIndicesStats are not tested here, way too complicated to create, also they need to be migrated to Writeable yet
         return new NodeStats(node, randomNonNegativeLong(), null, osStats, processStats, jvmStats, threadPoolStats,
                 fsInfo, transportStats, httpStats, allCircuitBreakerStats, scriptStats, discoveryStats,
-                ingestStats, adaptiveSelectionStats);
+                ingestStats, adaptiveSelectionStats, gatewayStats);
     }
 }
@@ -0,0 +1,57 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.action.admin.cluster.tasks;
+
+import org.elasticsearch.cluster.service.PendingClusterTask;
+import org.elasticsearch.common.Priority;
+import org.elasticsearch.common.text.Text;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+
+public class PendingClusterTasksResponseTests extends ESTestCase {
+
+    public void testSourceKind() {
+        assertThat(PendingClusterTasksResponse.sourceKind("shard-started shard id [[index][0]]"), equalTo("shard-started"));
+        assertThat(PendingClusterTasksResponse.sourceKind("create-index [index], cause [api]"), equalTo("create-index"));
+        assertThat(PendingClusterTasksResponse.sourceKind("put-mapping[type]"), equalTo("put-mapping"));
+        assertThat(PendingClusterTasksResponse.sourceKind("cluster_reroute(api)"), equalTo("cluster_reroute"));
+        assertThat(PendingClusterTasksResponse.sourceKind("local-gateway-elected-state"), equalTo("local-gateway-elected-state"));
+        assertThat(PendingClusterTasksResponse.sourceKind("[weird]"), equalTo("[weird]"));
+    }
+
+    public void testSummarizeBySource() {
+        PendingClusterTasksResponse response = new PendingClusterTasksResponse(Arrays.asList(
+            new PendingClusterTask(1, Priority.URGENT, new Text("shard-started shard id [[a][0]]"), 10, false),
+            new PendingClusterTask(2, Priority.URGENT, new Text("shard-started shard id [[a][1]]"), 30, false),
+            new PendingClusterTask(3, Priority.HIGH, new Text("put-mapping [type]"), 20, false)));
+        Map<String, PendingClusterTasksResponse.SourceSummary> summaries = response.summarizeBySource();
+        assertThat(summaries.keySet(), contains("put-mapping", "shard-started"));
+        assertThat(summaries.get("shard-started").count, equalTo(2));
+        assertThat(summaries.get("shard-started").maxTimeInQueue, equalTo(30L));
+        assertThat(summaries.get("put-mapping").count, equalTo(1));
+        assertThat(summaries.get("put-mapping").maxTimeInQueue, equalTo(20L));
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.action.bulk;
+
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+
+public class AdaptiveBulkSizingTests extends ESTestCase {
+
+    public void testValidation() {
+        TimeValue targetTook = TimeValue.timeValueMillis(100);
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+            () -> new AdaptiveBulkSizing(-1, 100, 1, 1, targetTook));
+        assertThat(e.getMessage(), equalTo("adaptive sizing requires the number of bulk actions to be set"));
+        e = expectThrows(IllegalArgumentException.class, () -> new AdaptiveBulkSizing(100, 10, 1, 1, targetTook));
+        assertThat(e.getMessage(), equalTo("maxBulkActions [10] must be greater than or equal to bulkActions [100]"));
+        e = expectThrows(IllegalArgumentException.class, () -> new AdaptiveBulkSizing(100, 100, 0, 0, targetTook));
+        assertThat(e.getMessage(),
+            equalTo("maxConcurrentRequests [0] must be greater than or equal to concurrentRequests [0] and greater than 0"));
+        e = expectThrows(IllegalArgumentException.class, () -> new AdaptiveBulkSizing(100, 100, 1, 1, TimeValue.ZERO));
+        assertThat(e.getMessage(), equalTo("targetTook must be positive but was [0s]"));
+    }
+
+    public void testGrowsSizeThenConcurrencyWhileFast() {
+        AdaptiveBulkSizing sizing = new AdaptiveBulkSizing(100, 200, 1, 4, TimeValue.timeValueMillis(100));
+        sizing.onResponse(response(10), 0, TimeUnit.MILLISECONDS.toNanos(10));
+        assertThat(sizing.bulkActions(), equalTo(110));
+        assertThat(sizing.concurrentRequests(), equalTo(1));
+        for (int i = 0; i < 20; i++) {
+            sizing.onResponse(response(10), 0, TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        assertThat(sizing.bulkActions(), equalTo(200));
+        assertThat(sizing.concurrentRequests(), equalTo(4));
+    }
+
+    public void testShrinksSizeWhenSlow() {
+        AdaptiveBulkSizing sizing = new AdaptiveBulkSizing(100, 200, 2, 4, TimeValue.timeValueMillis(100));
+        sizing.onResponse(response(150), 0, TimeUnit.MILLISECONDS.toNanos(150));
+        assertThat(sizing.bulkActions(), equalTo(75));
+        assertThat(sizing.concurrentRequests(), equalTo(2));
+    }
+
+    public void testLowersConcurrencyWhenResponsesWait() {
+        AdaptiveBulkSizing sizing = new AdaptiveBulkSizing(100, 200, 2, 4, TimeValue.timeValueMillis(100));
+        sizing.onResponse(response(50), 0, TimeUnit.MILLISECONDS.toNanos(200));
+        assertThat(sizing.bulkActions(), equalTo(100));
+        assertThat(sizing.concurrentRequests(), equalTo(1));
+    }
+
+    public void testBacksOffOnRejections() {
+        AdaptiveBulkSizing sizing = new AdaptiveBulkSizing(100, 200, 3, 4, TimeValue.timeValueMillis(100));
+        sizing.onResponse(response(10), randomIntBetween(1, 10), TimeUnit.MILLISECONDS.toNanos(10));
+        assertThat(sizing.bulkActions(), equalTo(50));
+        assertThat(sizing.concurrentRequests(), equalTo(2));
+        sizing.onRejected();
+        assertThat(sizing.bulkActions(), equalTo(25));
+        assertThat(sizing.concurrentRequests(), equalTo(1));
+        for (int i = 0; i < 10; i++) {
+            sizing.onRejected();
+        }
+        assertThat(sizing.bulkActions(), equalTo(AdaptiveBulkSizing.MIN_BULK_ACTIONS));
+        assertThat(sizing.concurrentRequests(), equalTo(1));
+    }
+
+    public void testProcessorAdaptsToRejections() throws InterruptedException {
+        final int rejectAbove = randomIntBetween(20, 50);
+        BulkProcessor bulkProcessor = BulkProcessor.builder((request, listener) -> {
+            // rejects the items over a fixed queue size, like a full write thread pool would
+            BulkItemResponse[] items = new BulkItemResponse[request.numberOfActions()];
+            for (int i = 0; i < items.length; i++) {
+                if (i < rejectAbove) {
+                    items[i] = new BulkItemResponse(i, DocWriteRequest.OpType.INDEX,
+                        new IndexResponse(new ShardId("index", "_na_", 0), "type", "id", 1, 1, 1, true));
+                } else {
+                    items[i] = new BulkItemResponse(i, DocWriteRequest.OpType.INDEX,
+                        new BulkItemResponse.Failure("index", "type", "id", new EsRejectedExecutionException("queue full")));
+                }
+            }
+            listener.onResponse(new BulkResponse(items, 1));
+        }, new BulkProcessor.Listener() {
+            @Override
+            public void beforeBulk(long executionId, BulkRequest request) {
+            }
+
+            @Override
+            public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
+            }
+
+            @Override
+            public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
+            }
+        }).setBulkActions(200)
+            .setConcurrentRequests(0)
+            .setBackoffPolicy(BackoffPolicy.constantBackoff(TimeValue.ZERO, 10))
+            .setAdaptiveSizing(TimeValue.timeValueSeconds(1), 400, 2)
+            .build();
+        try {
+            int numDocs = randomIntBetween(1000, 2000);
+            for (int i = 0; i < numDocs; i++) {
+                bulkProcessor.add(new IndexRequest("index", "type").source("field", i));
+            }
+            bulkProcessor.flush();
+            assertTrue(bulkProcessor.awaitClose(10, TimeUnit.SECONDS));
+            BulkProcessor.Stats stats = bulkProcessor.stats();
+            assertThat(stats.getRejectedItems(), greaterThan(0L));
+            assertThat(stats.getBulkActions(), lessThan(200));
+            assertThat(stats.getSucceededItems() + stats.getFailedItems(), equalTo((long) numDocs));
+            assertThat(stats.getInFlightRequests(), equalTo(0));
+            assertThat(stats.getDocsPerSecond(), greaterThan(0d));
+        } finally {
+            bulkProcessor.close();
+        }
+    }
+
+    private static BulkResponse response(long tookInMillis) {
+        return new BulkResponse(new BulkItemResponse[0], tookInMillis);
+    }
+}
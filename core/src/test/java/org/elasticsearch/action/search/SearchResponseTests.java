@@ -21,12 +21,14 @@ package org.elasticsearch.action.search;
 
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.text.Text;
 import org.elasticsearch.common.xcontent.NamedXContentRegistry;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentHelper;
 import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.rest.ChunkedRestResponseBody;
 import org.elasticsearch.rest.action.search.RestSearchAction;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHits;
@@ -40,6 +42,8 @@ import org.elasticsearch.search.suggest.Suggest;
 import org.elasticsearch.search.suggest.SuggestTests;
 import org.elasticsearch.test.ESTestCase;
 import org.elasticsearch.test.InternalAggregationTestCase;
+import org.elasticsearch.test.rest.FakeRestChannel;
+import org.elasticsearch.test.rest.FakeRestRequest;
 import org.junit.After;
 import org.junit.Before;
 
@@ -51,6 +55,7 @@ import java.util.List;
 import static java.util.Collections.singletonMap;
 import static org.elasticsearch.test.XContentTestUtils.insertRandomFields;
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertToXContentEquivalent;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 
 public class SearchResponseTests extends ESTestCase {
 
@@ -189,6 +194,34 @@ public class SearchResponseTests extends ESTestCase {
         }
     }
 
+    public void testToXContentChunked() throws IOException {
+        SearchResponse response = createTestItem();
+        final ToXContent.Params params = new ToXContent.MapParams(singletonMap(RestSearchAction.TYPED_KEYS_PARAM, "true"));
+        FakeRestChannel channel = new FakeRestChannel(new FakeRestRequest(), false, 1);
+        BytesStreamOutput chunks = new BytesStreamOutput();
+        int numChunks = 0;
+        try (ChunkedRestResponseBody body = ChunkedRestResponseBody.fromXContent(response, params, channel)) {
+            assertEquals(XContentType.JSON.mediaType(), body.getResponseContentTypeString());
+            while (body.isDone() == false) {
+                body.encodeChunk(randomIntBetween(1, 256)).writeTo(chunks);
+                numChunks++;
+            }
+        }
+        assertThat(numChunks, greaterThanOrEqualTo(response.getHits().getHits().length));
+        assertEquals(XContentHelper.toXContent(response, XContentType.JSON, params, false).utf8ToString(), chunks.bytes().utf8ToString());
+    }
+
+    public void testToXContentChunkedReleasedBeforeDone() throws IOException {
+        SearchResponse response = createTestItem();
+        FakeRestChannel channel = new FakeRestChannel(new FakeRestRequest(), false, 1);
+        ChunkedRestResponseBody body = ChunkedRestResponseBody.fromXContent(response, ToXContent.EMPTY_PARAMS, channel);
+        body.encodeChunk(1);
+        assertFalse(body.isDone());
+        body.close();
+        // releasing twice is a noop
+        body.close();
+    }
+
     public void testToXContent() {
         SearchHit hit = new SearchHit(1, "id1", new Text("type"), Collections.emptyMap());
         hit.score(2.0f);
@@ -18,11 +18,13 @@
  */
 package org.elasticsearch.cluster;
 
+import org.elasticsearch.Version;
 import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.cluster.routing.ShardRoutingState;
 import org.elasticsearch.cluster.routing.TestShardRouting;
 import org.elasticsearch.common.collect.ImmutableOpenMap;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.test.ESTestCase;
 
@@ -30,7 +32,7 @@ public class ClusterInfoTests extends ESTestCase {
 
     public void testSerialization() throws Exception {
         ClusterInfo clusterInfo = new ClusterInfo(
-                randomDiskUsage(), randomDiskUsage(), randomShardSizes(), randomRoutingToDataPath()
+                randomDiskUsage(), randomDiskUsage(), randomShardSizes(), randomRoutingToDataPath(), randomShardGrowthRates()
         );
         BytesStreamOutput output = new BytesStreamOutput();
         clusterInfo.writeTo(output);
@@ -40,6 +42,23 @@ public class ClusterInfoTests extends ESTestCase {
         assertEquals(clusterInfo.getNodeMostAvailableDiskUsages(), result.getNodeMostAvailableDiskUsages());
         assertEquals(clusterInfo.shardSizes, result.shardSizes);
         assertEquals(clusterInfo.routingToDataPath, result.routingToDataPath);
+        assertEquals(clusterInfo.shardGrowthRates, result.shardGrowthRates);
+    }
+
+    public void testSerializationToPreviousVersion() throws Exception {
+        ClusterInfo clusterInfo = new ClusterInfo(
+                randomDiskUsage(), randomDiskUsage(), randomShardSizes(), randomRoutingToDataPath(), randomShardGrowthRates()
+        );
+        BytesStreamOutput output = new BytesStreamOutput();
+        output.setVersion(Version.V_6_0_0);
+        clusterInfo.writeTo(output);
+
+        StreamInput in = output.bytes().streamInput();
+        in.setVersion(Version.V_6_0_0);
+        ClusterInfo result = new ClusterInfo(in);
+        assertEquals(clusterInfo.shardSizes, result.shardSizes);
+        assertEquals(clusterInfo.routingToDataPath, result.routingToDataPath);
+        assertTrue(result.shardGrowthRates.isEmpty());
     }
 
     private static ImmutableOpenMap<String, DiskUsage> randomDiskUsage() {
@@ -67,6 +86,15 @@ public class ClusterInfoTests extends ESTestCase {
         return builder.build();
     }
 
+    private static ImmutableOpenMap<String, Double> randomShardGrowthRates() {
+        int numEntries = randomIntBetween(0, 128);
+        ImmutableOpenMap.Builder<String, Double> builder = ImmutableOpenMap.builder(numEntries);
+        for (int i = 0; i < numEntries; i++) {
+            builder.put(randomAlphaOfLength(32), randomDoubleBetween(-1024, 1024, true));
+        }
+        return builder.build();
+    }
+
     private static ImmutableOpenMap<ShardRouting, String> randomRoutingToDataPath() {
         int numEntries = randomIntBetween(0, 128);
         ImmutableOpenMap.Builder<ShardRouting, String> builder = ImmutableOpenMap.builder(numEntries);
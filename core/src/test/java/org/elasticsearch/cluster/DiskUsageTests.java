@@ -45,6 +45,7 @@ import java.util.List;
 
 import static java.util.Collections.emptyMap;
 import static java.util.Collections.emptySet;
+import static org.hamcrest.Matchers.closeTo;
 import static org.hamcrest.Matchers.equalTo;
 
 public class DiskUsageTests extends ESTestCase {
@@ -134,6 +135,33 @@ public class DiskUsageTests extends ESTestCase {
         assertEquals(test1Path.getParent().getParent().getParent().toAbsolutePath().toString(), routingToPath.get(test_1));
     }
 
+    public void testUpdateShardGrowthRates() {
+        ImmutableOpenMap<String, Long> firstSizes = ImmutableOpenMap.<String, Long>builder()
+            .fPut("[test][0][p]", 1000L).fPut("[test][1][p]", 1000L).build();
+        // nothing to compare the first sizes against
+        ImmutableOpenMap<String, Double> rates = InternalClusterInfoService.updateShardGrowthRates(ImmutableOpenMap.of(), firstSizes,
+            10000, ImmutableOpenMap.of());
+        assertTrue(rates.isEmpty());
+
+        ImmutableOpenMap<String, Long> secondSizes = ImmutableOpenMap.<String, Long>builder()
+            .fPut("[test][0][p]", 2000L).fPut("[test][1][p]", 500L).fPut("[test][2][p]", 1000L).build();
+        rates = InternalClusterInfoService.updateShardGrowthRates(firstSizes, secondSizes, 10000, rates);
+        assertThat(rates.size(), equalTo(2));
+        assertThat(rates.get("[test][0][p]"), equalTo(100.0d));
+        assertThat(rates.get("[test][1][p]"), equalTo(-50.0d));
+        assertNull(rates.get("[test][2][p]"));
+
+        ImmutableOpenMap<String, Long> thirdSizes = ImmutableOpenMap.<String, Long>builder()
+            .fPut("[test][0][p]", 2000L).fPut("[test][2][p]", 2000L).build();
+        rates = InternalClusterInfoService.updateShardGrowthRates(secondSizes, thirdSizes, 10000, rates);
+        assertThat(rates.size(), equalTo(2));
+        assertThat(rates.get("[test][0][p]"), closeTo(100.0d * (1 - InternalClusterInfoService.GROWTH_RATE_SMOOTHING_FACTOR), 0.0001d));
+        assertThat(rates.get("[test][2][p]"), equalTo(100.0d));
+
+        // no time passed, keep the previous rates
+        assertSame(rates, InternalClusterInfoService.updateShardGrowthRates(thirdSizes, thirdSizes, 0, rates));
+    }
+
     public void testFillDiskUsage() {
         ImmutableOpenMap.Builder<String, DiskUsage> newLeastAvaiableUsages = ImmutableOpenMap.builder();
         ImmutableOpenMap.Builder<String, DiskUsage> newMostAvaiableUsages = ImmutableOpenMap.builder();
@@ -152,11 +180,11 @@ public class DiskUsageTests extends ESTestCase {
         };
         List<NodeStats> nodeStats = Arrays.asList(
                 new NodeStats(new DiscoveryNode("node_1", buildNewFakeTransportAddress(), emptyMap(), emptySet(), Version.CURRENT), 0,
-                        null,null,null,null,null,new FsInfo(0, null, node1FSInfo), null,null,null,null,null, null, null),
+                        null,null,null,null,null,new FsInfo(0, null, node1FSInfo), null,null,null,null,null, null, null, null),
                 new NodeStats(new DiscoveryNode("node_2", buildNewFakeTransportAddress(), emptyMap(), emptySet(), Version.CURRENT), 0,
-                        null,null,null,null,null, new FsInfo(0, null, node2FSInfo), null,null,null,null,null, null, null),
+                        null,null,null,null,null, new FsInfo(0, null, node2FSInfo), null,null,null,null,null, null, null, null),
                 new NodeStats(new DiscoveryNode("node_3", buildNewFakeTransportAddress(), emptyMap(), emptySet(), Version.CURRENT), 0,
-                        null,null,null,null,null, new FsInfo(0, null, node3FSInfo), null,null,null,null,null, null, null)
+                        null,null,null,null,null, new FsInfo(0, null, node3FSInfo), null,null,null,null,null, null, null, null)
         );
         InternalClusterInfoService.fillDiskUsagePerNode(logger, nodeStats, newLeastAvaiableUsages, newMostAvaiableUsages);
         DiskUsage leastNode_1 = newLeastAvaiableUsages.get("node_1");
@@ -193,11 +221,11 @@ public class DiskUsageTests extends ESTestCase {
         };
         List<NodeStats> nodeStats = Arrays.asList(
                 new NodeStats(new DiscoveryNode("node_1", buildNewFakeTransportAddress(), emptyMap(), emptySet(), Version.CURRENT), 0,
-                        null,null,null,null,null,new FsInfo(0, null, node1FSInfo), null,null,null,null,null, null, null),
+                        null,null,null,null,null,new FsInfo(0, null, node1FSInfo), null,null,null,null,null, null, null, null),
                 new NodeStats(new DiscoveryNode("node_2", buildNewFakeTransportAddress(), emptyMap(), emptySet(), Version.CURRENT), 0,
-                        null,null,null,null,null, new FsInfo(0, null, node2FSInfo), null,null,null,null,null, null, null),
+                        null,null,null,null,null, new FsInfo(0, null, node2FSInfo), null,null,null,null,null, null, null, null),
                 new NodeStats(new DiscoveryNode("node_3", buildNewFakeTransportAddress(), emptyMap(), emptySet(), Version.CURRENT), 0,
-                        null,null,null,null,null, new FsInfo(0, null, node3FSInfo), null,null,null,null,null, null, null)
+                        null,null,null,null,null, new FsInfo(0, null, node3FSInfo), null,null,null,null,null, null, null, null)
         );
         InternalClusterInfoService.fillDiskUsagePerNode(logger, nodeStats, newLeastAvailableUsages, newMostAvailableUsages);
         DiskUsage leastNode_1 = newLeastAvailableUsages.get("node_1");
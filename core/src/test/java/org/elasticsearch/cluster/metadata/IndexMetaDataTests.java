@@ -19,6 +19,9 @@
 
 package org.elasticsearch.cluster.metadata;
 
+import org.apache.lucene.util.RamUsageTester;
+import org.elasticsearch.Version;
+import org.elasticsearch.common.UUIDs;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.set.Sets;
@@ -34,6 +37,7 @@ import java.util.Collections;
 import java.util.Set;
 
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
 import static org.hamcrest.Matchers.nullValue;
 
 public class IndexMetaDataTests extends ESTestCase {
@@ -228,4 +232,62 @@ public class IndexMetaDataTests extends ESTestCase {
             () -> IndexMetaData.INDEX_NUMBER_OF_ROUTING_SHARDS_SETTING.get(notAFactorySettings));
         assertEquals("the number of source shards [2] must be a must be a factor of [3]", iae.getMessage());
     }
+
+    public void testSettingsAreSharedAcrossIndices() throws IOException {
+        Settings template = Settings.builder()
+            .put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT)
+            .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 2)
+            .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 1)
+            .put("index.refresh_interval", "5s")
+            .build();
+        IndexMetaData first = IndexMetaData.builder("first")
+            .settings(Settings.builder().put(template).put(IndexMetaData.SETTING_INDEX_UUID, UUIDs.randomBase64UUID()))
+            .creationDate(randomNonNegativeLong())
+            .build();
+        IndexMetaData second = IndexMetaData.builder("second")
+            .settings(Settings.builder().put(template).put(IndexMetaData.SETTING_INDEX_UUID, UUIDs.randomBase64UUID()))
+            .creationDate(randomNonNegativeLong())
+            .build();
+        assertSame(first.getSettings().getOverlayBase(), second.getSettings().getOverlayBase());
+        assertEquals("5s", second.getSettings().get("index.refresh_interval"));
+        assertEquals(second.getIndexUUID(), second.getSettings().get(IndexMetaData.SETTING_INDEX_UUID));
+        assertEquals(second.getCreationDate(), second.getSettings().getAsLong(IndexMetaData.SETTING_CREATION_DATE, -1L).longValue());
+
+        BytesStreamOutput out = new BytesStreamOutput();
+        second.writeTo(out);
+        IndexMetaData deserialized = IndexMetaData.readFrom(out.bytes().streamInput());
+        assertEquals(second.getSettings(), deserialized.getSettings());
+        assertSame(first.getSettings().getOverlayBase(), deserialized.getSettings().getOverlayBase());
+
+        IndexMetaData updated = IndexMetaData.builder(first)
+            .settings(Settings.builder().put(first.getSettings()).put("index.refresh_interval", "1s"))
+            .build();
+        assertNotSame(first.getSettings().getOverlayBase(), updated.getSettings().getOverlayBase());
+        assertEquals("1s", updated.getSettings().get("index.refresh_interval"));
+        assertEquals(first.getIndexUUID(), updated.getIndexUUID());
+    }
+
+    public void testSharedSettingsDoNotRetainTheFullSettings() {
+        Settings.Builder template = Settings.builder()
+            .put(IndexMetaData.SETTING_VERSION_CREATED, Version.CURRENT)
+            .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1)
+            .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0);
+        for (int i = 0; i < 100; i++) {
+            template.put("index.custom.setting_" + i, randomAlphaOfLength(10));
+        }
+        Settings templateSettings = template.build();
+        IndexMetaData first = IndexMetaData.builder("first")
+            .settings(Settings.builder().put(templateSettings).put(IndexMetaData.SETTING_INDEX_UUID, UUIDs.randomBase64UUID()))
+            .build();
+        IndexMetaData second = IndexMetaData.builder("second")
+            .settings(Settings.builder().put(templateSettings).put(IndexMetaData.SETTING_INDEX_UUID, UUIDs.randomBase64UUID()))
+            .build();
+        Settings base = second.getSettings().getOverlayBase();
+        assertSame(first.getSettings().getOverlayBase(), base);
+        assertNull(base.get(IndexMetaData.SETTING_INDEX_UUID));
+        // the per-index part only holds the few settings that are unique to the index, not a view over all of them
+        long baseSize = RamUsageTester.sizeOf(base);
+        long perIndexSize = RamUsageTester.sizeOf(second.getSettings()) - baseSize;
+        assertThat(perIndexSize, lessThan(baseSize / 4));
+    }
 }
@@ -39,10 +39,12 @@ import org.elasticsearch.cluster.routing.ShardRoutingHelper;
 import org.elasticsearch.cluster.routing.ShardRoutingState;
 import org.elasticsearch.cluster.routing.UnassignedInfo;
 import org.elasticsearch.cluster.routing.allocation.AllocationService;
+import org.elasticsearch.cluster.routing.allocation.DiskThresholdSettings;
 import org.elasticsearch.cluster.routing.allocation.RoutingAllocation;
 import org.elasticsearch.common.collect.ImmutableOpenMap;
 import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.shard.ShardId;
 
@@ -208,6 +210,84 @@ public class DiskThresholdDeciderUnitTests extends ESAllocationTestCase {
     }
 
 
+    public void testForecastShardGrowth() {
+        ClusterSettings nss = new ClusterSettings(Settings.EMPTY, ClusterSettings.BUILT_IN_CLUSTER_SETTINGS);
+        DiskThresholdDecider decider = new DiskThresholdDecider(Settings.EMPTY, nss);
+
+        DiscoveryNode node_0 = new DiscoveryNode("node_0", buildNewFakeTransportAddress(), Collections.emptyMap(),
+                new HashSet<>(Arrays.asList(DiscoveryNode.Role.values())), Version.CURRENT);
+        DiscoveryNode node_1 = new DiscoveryNode("node_1", buildNewFakeTransportAddress(), Collections.emptyMap(),
+                new HashSet<>(Arrays.asList(DiscoveryNode.Role.values())), Version.CURRENT);
+
+        MetaData metaData = MetaData.builder()
+                .put(IndexMetaData.builder("test").settings(settings(Version.CURRENT)).numberOfShards(2).numberOfReplicas(0))
+                .build();
+        final IndexMetaData indexMetaData = metaData.index("test");
+
+        ShardRouting test_0 = ShardRouting.newUnassigned(new ShardId(indexMetaData.getIndex(), 0), true,
+            StoreRecoverySource.EMPTY_STORE_INSTANCE, new UnassignedInfo(UnassignedInfo.Reason.INDEX_CREATED, "foo"));
+        test_0 = ShardRoutingHelper.initialize(test_0, node_0.getId());
+        test_0 = ShardRoutingHelper.moveToStarted(test_0);
+        ShardRouting test_1 = ShardRouting.newUnassigned(new ShardId(indexMetaData.getIndex(), 1), true,
+            StoreRecoverySource.EMPTY_STORE_INSTANCE, new UnassignedInfo(UnassignedInfo.Reason.INDEX_CREATED, "foo"));
+        test_1 = ShardRoutingHelper.initialize(test_1, node_1.getId());
+        test_1 = ShardRoutingHelper.moveToStarted(test_1);
+        ImmutableOpenMap.Builder<ShardRouting, String> shardRoutingMap = ImmutableOpenMap.builder();
+        shardRoutingMap.put(test_0, "/node0");
+        shardRoutingMap.put(test_1, "/node1");
+
+        RoutingTable routingTable = RoutingTable.builder()
+                .addAsNew(indexMetaData)
+                .build();
+        ClusterState clusterState = ClusterState.builder(org.elasticsearch.cluster.ClusterName.CLUSTER_NAME_SETTING
+            .getDefault(Settings.EMPTY)).metaData(metaData).routingTable(routingTable)
+            .nodes(DiscoveryNodes.builder().add(node_0).add(node_1)).build();
+
+        ImmutableOpenMap.Builder<String, DiskUsage> usages = ImmutableOpenMap.builder();
+        usages.put("node_0", new DiskUsage("node_0", "node_0", "/node0", 1000, 200)); // 80% used
+        usages.put("node_1", new DiskUsage("node_1", "node_1", "/node1", 1000, 500)); // 50% used
+        ImmutableOpenMap.Builder<String, Long> shardSizes = ImmutableOpenMap.builder();
+        shardSizes.put("[test][0][p]", 100L);
+        shardSizes.put("[test][1][p]", 100L);
+        ImmutableOpenMap.Builder<String, Double> shardGrowthRates = ImmutableOpenMap.builder();
+        shardGrowthRates.put("[test][0][p]", 10.0d); // 10 bytes per second
+        shardGrowthRates.put("[test][1][p]", -10.0d); // shrinking shards are not expected to free up space
+
+        final ImmutableOpenMap<String, DiskUsage> diskUsages = usages.build();
+        final ClusterInfo clusterInfo = new ClusterInfo(diskUsages, diskUsages, shardSizes.build(), shardRoutingMap.build(),
+            shardGrowthRates.build());
+        RoutingAllocation allocation = new RoutingAllocation(new AllocationDeciders(Settings.EMPTY, Collections.singleton(decider)),
+            clusterState.getRoutingNodes(), clusterState, clusterInfo, System.nanoTime());
+        allocation.debugDecision(true);
+
+        final RoutingNode routingNode_0 = new RoutingNode("node_0", node_0, test_0);
+        final RoutingNode routingNode_1 = new RoutingNode("node_1", node_1, test_1);
+        assertEquals(Decision.Type.YES, decider.canRemain(test_0, routingNode_0, allocation).type());
+        assertEquals(Decision.Type.YES, decider.canAllocate(test_0, routingNode_1, allocation).type());
+
+        assertEquals(0L, DiskThresholdDecider.forecastShardGrowth(routingNode_1, allocation, "/node1", TimeValue.timeValueMinutes(1)));
+        assertEquals(600L, DiskThresholdDecider.forecastShardGrowth(routingNode_0, allocation, "/node0", TimeValue.timeValueMinutes(1)));
+        assertEquals(0L, DiskThresholdDecider.forecastShardGrowth(routingNode_0, allocation, "/node0", TimeValue.ZERO));
+
+        // within 15 seconds the first shard grows by 150 bytes, leaving less than 10% of free disk on its node
+        nss.applySettings(Settings.builder()
+            .put(DiskThresholdSettings.CLUSTER_ROUTING_ALLOCATION_DISK_FORECAST_HORIZON_SETTING.getKey(), "15s").build());
+        Decision decision = decider.canRemain(test_0, routingNode_0, allocation);
+        assertEquals(Decision.Type.NO, decision.type());
+        assertThat(((Decision.Single) decision).getExplanation(), containsString("actual free: [5.0%], projected over the " +
+            "forecast horizon [cluster.routing.allocation.disk.forecast_horizon=15s] which includes [150b] of expected shard growth"));
+
+        // the first shard is expected to be 250 bytes in size by the time it would be relocated to the second node
+        decision = decider.canAllocate(test_0, routingNode_1, allocation);
+        assertEquals(Decision.Type.YES, decision.type());
+        assertThat(((Decision.Single) decision).getExplanation(), containsString("shard size: [250b]"));
+
+        // a second shard growing on the first node leaves no space for another shard to be allocated
+        decision = decider.canAllocate(test_1, routingNode_0, allocation);
+        assertEquals(Decision.Type.NO, decision.type());
+        assertThat(((Decision.Single) decision).getExplanation(), containsString("[150b] of expected shard growth"));
+    }
+
     public void testShardSizeAndRelocatingSize() {
         ImmutableOpenMap.Builder<String, Long> shardSizes = ImmutableOpenMap.builder();
         shardSizes.put("[test][0][r]", 10L);
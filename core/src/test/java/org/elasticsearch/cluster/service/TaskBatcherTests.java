@@ -35,6 +35,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.BrokenBarrierException;
@@ -42,12 +43,15 @@ import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasToString;
+import static org.hamcrest.Matchers.instanceOf;
 
 public class TaskBatcherTests extends TaskExecutorTests {
 
@@ -60,10 +64,23 @@ public class TaskBatcherTests extends TaskExecutorTests {
 
     class TestTaskBatcher extends TaskBatcher {
 
+        volatile int maxBatchSize = Integer.MAX_VALUE;
+        volatile TimeValue promotionInterval = TimeValue.ZERO;
+
         TestTaskBatcher(Logger logger, PrioritizedEsThreadPoolExecutor threadExecutor) {
             super(logger, threadExecutor);
         }
 
+        @Override
+        protected int maxBatchSize() {
+            return maxBatchSize;
+        }
+
+        @Override
+        protected TimeValue promotionInterval() {
+            return promotionInterval;
+        }
+
         @Override
         protected void run(Object batchingKey, List<? extends BatchedTask> tasks, String tasksSummary) {
             List<UpdateTask> updateTasks = (List) tasks;
@@ -183,6 +200,158 @@ public class TaskBatcherTests extends TaskExecutorTests {
         assertThat(executionOrder, equalTo(Arrays.asList("A0", "A1", "A2", "B3", "B4", "A5", "A6")));
     }
 
+    public void testMaxBatchSizeLetsOtherExecutorsRun() throws InterruptedException {
+        taskBatcher.maxBatchSize = 2;
+        final List<List<String>> batches = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch latch = new CountDownLatch(3);
+        final TestExecutor<String> executorA = tasks -> {
+            batches.add(new ArrayList<>(tasks));
+            latch.countDown();
+        };
+        final TestExecutor<String> executorB = tasks -> {
+            batches.add(new ArrayList<>(tasks));
+            latch.countDown();
+        };
+        final TestListener noopListener = (source, e) -> {
+            throw new AssertionError(e);
+        };
+        try (BlockingTask blockingTask = new BlockingTask(Priority.IMMEDIATE)) {
+            submitTask("blocking", blockingTask);
+            final Map<String, TestListener> tasksA = new LinkedHashMap<>();
+            for (String task : Arrays.asList("A1", "A2", "A3", "A4")) {
+                tasksA.put(task, noopListener);
+            }
+            submitTasks("a", tasksA, ClusterStateTaskConfig.build(Priority.NORMAL), executorA);
+            submitTask("b", "B1", ClusterStateTaskConfig.build(Priority.NORMAL), executorB, noopListener);
+        }
+        latch.await();
+        assertThat(batches, equalTo(Arrays.asList(Arrays.asList("A1", "A2"), Collections.singletonList("B1"),
+            Arrays.asList("A3", "A4"))));
+        synchronized (taskBatcher.tasksPerBatchingKey) {
+            assertTrue(taskBatcher.tasksPerBatchingKey.isEmpty());
+        }
+    }
+
+    public void testMaxBatchSizeYieldsToTasksSubmittedOneByOne() throws InterruptedException {
+        taskBatcher.maxBatchSize = 2;
+        final List<List<String>> batches = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger pendingWhileRunningB = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(3);
+        final TestExecutor<String> executorA = tasks -> {
+            batches.add(new ArrayList<>(tasks));
+            latch.countDown();
+        };
+        final TestExecutor<String> executorB = tasks -> {
+            batches.add(new ArrayList<>(tasks));
+            pendingWhileRunningB.set(threadExecutor.getNumberOfPendingTasks());
+            latch.countDown();
+        };
+        final TestListener noopListener = (source, e) -> {
+            throw new AssertionError(e);
+        };
+        final ClusterStateTaskConfig config = ClusterStateTaskConfig.build(Priority.NORMAL);
+        try (BlockingTask blockingTask = new BlockingTask(Priority.IMMEDIATE)) {
+            submitTask("blocking", blockingTask);
+            // every task has its own runnable queued, the ones of A3 and A4 are ahead of the tasks of B
+            for (String task : Arrays.asList("A1", "A2", "A3", "A4")) {
+                submitTask("a", task, config, executorA, noopListener);
+            }
+            submitTask("b", "B1", config, executorB, noopListener);
+            submitTask("b", "B2", config, executorB, noopListener);
+        }
+        latch.await();
+        assertThat(batches, equalTo(Arrays.asList(Arrays.asList("A1", "A2"), Arrays.asList("B1", "B2"),
+            Arrays.asList("A3", "A4"))));
+        // the running batch of B, the no-op runnable of B2 and the moved runnables of A3 and A4: nothing was duplicated
+        assertThat(pendingWhileRunningB.get(), equalTo(4));
+        synchronized (taskBatcher.tasksPerBatchingKey) {
+            assertTrue(taskBatcher.tasksPerBatchingKey.isEmpty());
+            assertTrue(taskBatcher.yieldingBatchingKeys.isEmpty());
+        }
+    }
+
+    public void testTaskThatYieldsKeepsItsTimeout() throws Exception {
+        taskBatcher.maxBatchSize = 1;
+        final CountDownLatch timedOut = new CountDownLatch(1);
+        final List<String> executed = Collections.synchronizedList(new ArrayList<>());
+        final TestExecutor<String> executor = executed::addAll;
+        final TestListener noopListener = (source, e) -> {
+            throw new AssertionError(e);
+        };
+        final TestListener timeoutListener = new TestListener() {
+            @Override
+            public void onFailure(String source, Exception e) {
+                assertThat(e, instanceOf(ProcessClusterEventTimeoutException.class));
+                timedOut.countDown();
+            }
+
+            @Override
+            public void processed(String source) {
+                throw new AssertionError("task should have timed out");
+            }
+        };
+        final BlockingTask yieldTo = new BlockingTask(Priority.NORMAL);
+        try (BlockingTask blockingTask = new BlockingTask(Priority.IMMEDIATE)) {
+            submitTask("blocking", blockingTask);
+            submitTask("first", "first", ClusterStateTaskConfig.build(Priority.NORMAL), executor, noopListener);
+            submitTask("second", "second", ClusterStateTaskConfig.build(Priority.NORMAL, TimeValue.timeValueMillis(100)), executor,
+                timeoutListener);
+            // blocks the executor once the second task yielded to it
+            submitTask("yield-to", yieldTo);
+        }
+        try {
+            assertTrue(timedOut.await(10, TimeUnit.SECONDS));
+        } finally {
+            yieldTo.close();
+        }
+        assertBusy(() -> assertThat(executed, equalTo(Collections.singletonList("first"))));
+    }
+
+    public void testWaitingTasksArePromoted() throws InterruptedException {
+        taskBatcher.promotionInterval = TimeValue.timeValueMillis(100);
+        final List<String> executionOrder = Collections.synchronizedList(new ArrayList<>());
+        final CountDownLatch latch = new CountDownLatch(3);
+        final TestExecutor<String> executor = tasks -> {
+            executionOrder.addAll(tasks);
+            tasks.forEach(t -> latch.countDown());
+        };
+        final TestListener noopListener = (source, e) -> {
+            throw new AssertionError(e);
+        };
+        try (BlockingTask blockingTask = new BlockingTask(Priority.IMMEDIATE)) {
+            submitTask("blocking", blockingTask);
+            submitTask("low", "low", ClusterStateTaskConfig.build(Priority.LOW), executor, noopListener);
+            // let the low priority task wait long enough to be promoted to URGENT, the high priority ones are submitted
+            // afterwards and are still too young to be promoted when the blocking task completes
+            Thread.sleep(400);
+            submitTask("high1", "high1", ClusterStateTaskConfig.build(Priority.HIGH), new TestExecutor<String>() {
+                @Override
+                public void execute(List<String> tasks) {
+                    executor.execute(tasks);
+                }
+            }, noopListener);
+            submitTask("high2", "high2", ClusterStateTaskConfig.build(Priority.HIGH), new TestExecutor<String>() {
+                @Override
+                public void execute(List<String> tasks) {
+                    executor.execute(tasks);
+                }
+            }, noopListener);
+        }
+        latch.await();
+        assertThat(executionOrder, equalTo(Arrays.asList("low", "high1", "high2")));
+    }
+
+    public void testPromotedPriority() {
+        final TimeValue interval = TimeValue.timeValueSeconds(30);
+        assertThat(TaskBatcher.promotedPriority(Priority.HIGH, 29_999, interval), equalTo(Priority.HIGH));
+        assertThat(TaskBatcher.promotedPriority(Priority.HIGH, 30_000, interval), equalTo(Priority.URGENT));
+        assertThat(TaskBatcher.promotedPriority(Priority.LANGUID, 60_000, interval), equalTo(Priority.NORMAL));
+        assertThat(TaskBatcher.promotedPriority(Priority.LANGUID, 600_000, interval), equalTo(Priority.URGENT));
+        assertThat(TaskBatcher.promotedPriority(Priority.URGENT, 600_000, interval), equalTo(Priority.URGENT));
+        assertThat(TaskBatcher.promotedPriority(Priority.IMMEDIATE, 600_000, interval), equalTo(Priority.IMMEDIATE));
+        assertThat(TaskBatcher.promotedPriority(Priority.LOW, 600_000, TimeValue.ZERO), equalTo(Priority.LOW));
+    }
+
     static class TaskExecutor implements TestExecutor<Integer> {
         List<Integer> tasks = new ArrayList<>();
 
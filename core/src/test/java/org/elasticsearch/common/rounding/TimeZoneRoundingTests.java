@@ -349,6 +349,64 @@ public class TimeZoneRoundingTests extends ESTestCase {
         }
     }
 
+    /**
+     * randomized test that a prepared rounding rounds all values, within and out of the bounds it was prepared for, like
+     * the rounding it was prepared from
+     */
+    public void testPreparedRoundingRandom() {
+        for (int i = 0; i < 100; i++) {
+            DateTimeZone tz = randomDateTimeZone();
+            Rounding rounding;
+            long unitMillis;
+            if (randomBoolean()) {
+                DateTimeUnit timeUnit = randomTimeUnit();
+                rounding = new Rounding.TimeUnitRounding(timeUnit, tz);
+                unitMillis = timeUnit.field(tz).getDurationField().getUnitMillis();
+            } else {
+                unitMillis = randomFrom(TimeUnit.MINUTES, TimeUnit.HOURS, TimeUnit.DAYS).toMillis(randomIntBetween(1, 100));
+                rounding = new Rounding.TimeIntervalRounding(unitMillis, tz);
+            }
+            long min = Math.abs(randomLong() % (2 * (long) 10e11)); // 1970-01-01T00:00:00Z - 2033-05-18T05:33:20.000+02:00
+            if (randomBoolean()) {
+                min = nastyDate(min, tz, unitMillis);
+            }
+            long max = min + Math.abs(randomLong() % TimeUnit.DAYS.toMillis(randomFrom(1, 30, 365, 3650)));
+            Rounding.Prepared prepared = rounding.prepare(min, max);
+            for (int j = 0; j < 100; j++) {
+                long date = dateBetween(min - unitMillis, max + unitMillis);
+                if (randomBoolean()) {
+                    date = nastyDate(date, tz, unitMillis);
+                }
+                assertRoundsLike(rounding, prepared, date, tz);
+            }
+        }
+    }
+
+    /**
+     * Checks every minute around the dst transitions of a year in Europe/Berlin with minute and 15 minute buckets.
+     */
+    public void testPreparedRoundingDST() {
+        DateTimeZone tz = DateTimeZone.forID("Europe/Berlin");
+        long min = time("2016-01-01T00:00:00", tz);
+        long max = time("2016-12-31T23:59:59", tz);
+        for (Rounding rounding : new Rounding[] {
+                new Rounding.TimeUnitRounding(DateTimeUnit.MINUTES_OF_HOUR, tz),
+                new Rounding.TimeIntervalRounding(TimeUnit.MINUTES.toMillis(15), tz) }) {
+            Rounding.Prepared prepared = rounding.prepare(min, max);
+            for (long transition = tz.nextTransition(min); transition < max; transition = tz.nextTransition(transition)) {
+                for (long date = transition - TimeUnit.HOURS.toMillis(3); date < transition + TimeUnit.HOURS.toMillis(3);
+                        date += TimeUnit.SECONDS.toMillis(30)) {
+                    assertRoundsLike(rounding, prepared, date, tz);
+                }
+            }
+        }
+    }
+
+    private static void assertRoundsLike(Rounding rounding, Rounding.Prepared prepared, long date, DateTimeZone tz) {
+        assertThat("Prepared rounding of " + new DateTime(date, tz) + " with " + rounding + " should round like the rounding",
+                prepared.round(date), equalTo(rounding.round(date)));
+    }
+
     /**
      * Test that rounded values are always greater or equal to last rounded value if date is increasing.
      * The example covers an interval around 2011-10-30T02:10:00+01:00, time zone CET, interval: 2700000ms
@@ -38,6 +38,7 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -729,4 +730,49 @@ public class SettingsTests extends ESTestCase {
         IllegalArgumentException iae = expectThrows(IllegalArgumentException.class, () -> Settings.builder().copy("not_there", settings));
         assertEquals("source key not found in the source settings", iae.getMessage());
     }
+
+    public void testOverlay() {
+        Settings base = Settings.builder().put("a", "1").put("c", "3").putList("d", "x", "y").put("e", "5").build();
+        Settings overrides = Settings.builder().put("b", "2").put("c", "overridden").putNull("e").build();
+        Settings overlay = Settings.overlay(base, overrides);
+        Settings expected = Settings.builder().put(base).put(overrides).build();
+
+        assertEquals(expected, overlay);
+        assertEquals(overlay, expected);
+        assertEquals(expected.hashCode(), overlay.hashCode());
+        assertEquals(Arrays.asList("a", "b", "c", "d", "e"), new ArrayList<>(overlay.keySet()));
+        assertEquals("overridden", overlay.get("c"));
+        assertEquals(Arrays.asList("x", "y"), overlay.getAsList("d"));
+        assertNull(overlay.get("e"));
+        assertEquals("2", overlay.get("b"));
+        assertEquals(5, overlay.size());
+        assertSame(base, overlay.getOverlayBase());
+        assertSame(expected, expected.getOverlayBase());
+        assertSame(base, Settings.overlay(base, Settings.EMPTY));
+        assertEquals(Settings.builder().put("c", "overridden").build(), overlay.filter(key -> key.startsWith("c")));
+        assertEquals(expected, Settings.builder().put(overlay).build());
+    }
+
+    public void testOverlayRandom() {
+        Settings.Builder baseBuilder = Settings.builder();
+        Settings.Builder overridesBuilder = Settings.builder();
+        int numKeys = randomIntBetween(0, 20);
+        for (int i = 0; i < numKeys; i++) {
+            String key = "key" + randomIntBetween(0, 30);
+            if (randomBoolean()) {
+                baseBuilder.put(key, randomAlphaOfLength(5));
+            } else {
+                overridesBuilder.put(key, randomAlphaOfLength(5));
+            }
+        }
+        Settings base = baseBuilder.build();
+        Settings overrides = overridesBuilder.build();
+        Settings overlay = Settings.overlay(base, overrides);
+        Settings expected = Settings.builder().put(base).put(overrides).build();
+        assertEquals(expected, overlay);
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(overlay.keySet()));
+        for (String key : expected.keySet()) {
+            assertEquals(expected.get(key), overlay.get(key));
+        }
+    }
 }
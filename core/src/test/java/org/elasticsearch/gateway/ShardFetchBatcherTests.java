@@ -0,0 +1,320 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.gateway;
+
+import org.elasticsearch.Version;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.FailedNodeException;
+import org.elasticsearch.action.support.PlainActionFuture;
+import org.elasticsearch.action.support.nodes.BaseNodeResponse;
+import org.elasticsearch.action.support.nodes.BaseNodesResponse;
+import org.elasticsearch.cluster.ClusterName;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.test.VersionUtils;
+import org.elasticsearch.test.transport.MockTransportService;
+import org.elasticsearch.threadpool.TestThreadPool;
+import org.elasticsearch.threadpool.ThreadPool;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
+
+public class ShardFetchBatcherTests extends ESTestCase {
+
+    private final DiscoveryNode node1 = newNode("node1", Version.CURRENT);
+    private final DiscoveryNode node2 = newNode("node2", Version.CURRENT);
+    private final ShardId shard1 = new ShardId("test", "_na_", 0);
+    private final ShardId shard2 = new ShardId("test", "_na_", 1);
+
+    public void testListsAreBufferedUntilFlush() {
+        TestLister lister = new TestLister();
+        ShardFetchBatcher<TestNodesResponse, TestResponse> batcher = new ShardFetchBatcher<>(logger, "test", lister);
+        AtomicReference<TestNodesResponse> result = new AtomicReference<>();
+        batcher.list(shard1, new DiscoveryNode[] {node1}, listener(result));
+        assertThat(batcher.getNumberOfPendingFetches(), equalTo(1));
+        assertThat(lister.batches, equalTo(Collections.emptyMap()));
+        assertThat(result.get(), nullValue());
+
+        batcher.flush();
+        assertThat(batcher.getNumberOfPendingFetches(), equalTo(0));
+        assertThat(lister.batches.get(node1), contains(Collections.singletonList(shard1)));
+        assertThat(result.get().getNodes().size(), equalTo(1));
+        assertThat(result.get().getNodes().get(0).shardId, equalTo(shard1));
+        assertThat(result.get().failures(), empty());
+
+        // nothing left to send
+        batcher.flush();
+        assertThat(lister.batches.get(node1).size(), equalTo(1));
+    }
+
+    public void testOneRequestPerNode() {
+        TestLister lister = new TestLister();
+        ShardFetchBatcher<TestNodesResponse, TestResponse> batcher = new ShardFetchBatcher<>(logger, "test", lister);
+        AtomicReference<TestNodesResponse> result1 = new AtomicReference<>();
+        AtomicReference<TestNodesResponse> result2 = new AtomicReference<>();
+        batcher.list(shard1, new DiscoveryNode[] {node1, node2}, listener(result1));
+        batcher.list(shard2, new DiscoveryNode[] {node2}, listener(result2));
+        batcher.flush();
+
+        assertThat(lister.batches.get(node1), contains(Collections.singletonList(shard1)));
+        assertThat(lister.batches.get(node2), contains(Arrays.asList(shard1, shard2)));
+        assertThat(batcher.getNodeRequestCount(), equalTo(2L));
+        assertThat(batcher.getShardRequestCount(), equalTo(3L));
+
+        assertThat(result1.get().getNodes().size(), equalTo(2));
+        List<DiscoveryNode> nodes = new ArrayList<>();
+        for (TestResponse response : result1.get().getNodes()) {
+            assertThat(response.shardId, equalTo(shard1));
+            nodes.add(response.getNode());
+        }
+        assertThat(nodes, containsInAnyOrder(node1, node2));
+        assertThat(result2.get().getNodes().size(), equalTo(1));
+        assertThat(result2.get().getNodes().get(0).shardId, equalTo(shard2));
+    }
+
+    public void testFailures() {
+        TestLister lister = new TestLister();
+        lister.failingShards.put(node2, shard2);
+        lister.failingNode = node1;
+        ShardFetchBatcher<TestNodesResponse, TestResponse> batcher = new ShardFetchBatcher<>(logger, "test", lister);
+        AtomicReference<TestNodesResponse> result1 = new AtomicReference<>();
+        AtomicReference<TestNodesResponse> result2 = new AtomicReference<>();
+        batcher.list(shard1, new DiscoveryNode[] {node1, node2}, listener(result1));
+        batcher.list(shard2, new DiscoveryNode[] {node1, node2}, listener(result2));
+        batcher.flush();
+
+        // node1 failed as a whole, node2 only failed to list shard2
+        assertThat(result1.get().getNodes().size(), equalTo(1));
+        assertThat(result1.get().getNodes().get(0).getNode(), equalTo(node2));
+        assertThat(result1.get().failures().size(), equalTo(1));
+        assertThat(result1.get().failures().get(0).nodeId(), equalTo(node1.getId()));
+
+        assertThat(result2.get().getNodes(), empty());
+        assertThat(result2.get().failures().size(), equalTo(2));
+        List<String> failedNodes = new ArrayList<>();
+        for (FailedNodeException failure : result2.get().failures()) {
+            failedNodes.add(failure.nodeId());
+        }
+        assertThat(failedNodes, containsInAnyOrder(node1.getId(), node2.getId()));
+    }
+
+    public void testNodesWithoutBatchSupportAreListedPerShard() {
+        DiscoveryNode oldNode = newNode("old", VersionUtils.getPreviousVersion(Version.V_7_0_0_alpha1));
+        TestLister lister = new TestLister();
+        ShardFetchBatcher<TestNodesResponse, TestResponse> batcher = new ShardFetchBatcher<>(logger, "test", lister);
+        AtomicReference<TestNodesResponse> result1 = new AtomicReference<>();
+        AtomicReference<TestNodesResponse> result2 = new AtomicReference<>();
+        batcher.list(shard1, new DiscoveryNode[] {node1, oldNode}, listener(result1));
+        batcher.list(shard2, new DiscoveryNode[] {oldNode}, listener(result2));
+        batcher.flush();
+
+        assertThat(lister.batches.keySet(), contains(node1));
+        assertThat(lister.singleShardLists, containsInAnyOrder(shard1, shard2));
+        assertThat(result1.get().getNodes().size(), equalTo(2));
+        assertThat(result2.get().getNodes().size(), equalTo(1));
+        assertThat(result2.get().getNodes().get(0).getNode(), equalTo(oldNode));
+    }
+
+    public void testShardsResponseSerialization() throws IOException {
+        Object[] results = new Object[] {
+            new TestResponse(node1, shard1),
+            new IllegalStateException("simulated"),
+            new TestResponse(node1, shard2)
+        };
+        ShardFetchBatcher.ShardsResponse<TestResponse> response = new ShardFetchBatcher.ShardsResponse<>(results);
+        BytesStreamOutput out = new BytesStreamOutput();
+        response.writeTo(out);
+        ShardFetchBatcher.ShardsResponse<TestResponse> read = new ShardFetchBatcher.ShardsResponse<>(TestResponse::new);
+        read.readFrom(out.bytes().streamInput());
+        assertThat(read.size(), equalTo(3));
+        assertThat(read.getResponse(0).shardId, equalTo(shard1));
+        assertThat(read.getFailure(0), nullValue());
+        assertThat(read.getResponse(1), nullValue());
+        assertThat(read.getFailure(1), instanceOf(IllegalStateException.class));
+        assertThat(read.getResponse(2).getNode(), equalTo(node1));
+        assertThat(read.getResponse(2).shardId, equalTo(shard2));
+
+        ShardFetchBatcher.ShardsRequest request = new ShardFetchBatcher.ShardsRequest(Arrays.asList(shard1, shard2));
+        out = new BytesStreamOutput();
+        request.writeTo(out);
+        ShardFetchBatcher.ShardsRequest readRequest = new ShardFetchBatcher.ShardsRequest();
+        readRequest.readFrom(out.bytes().streamInput());
+        assertThat(readRequest.shardIds(), contains(shard1, shard2));
+    }
+
+    public void testHandlerListsShardsConcurrently() throws Exception {
+        ThreadPool threadPool = new TestThreadPool(getTestName());
+        try (MockTransportService transportService = MockTransportService.createNewService(Settings.EMPTY, Version.CURRENT,
+                threadPool, null)) {
+            transportService.start();
+            transportService.acceptIncomingRequests();
+            Set<String> threads = ConcurrentCollections.newConcurrentSet();
+            ShardFetchBatcher.registerHandler(logger, transportService, threadPool, "internal:test[batch]",
+                ThreadPool.Names.FETCH_SHARD_STORE, shardId -> {
+                    threads.add(Thread.currentThread().getName());
+                    if (shardId.id() % 3 == 0) {
+                        throw new IllegalArgumentException("simulated failure for " + shardId);
+                    }
+                    return new TestResponse(transportService.getLocalNode(), shardId);
+                });
+
+            List<ShardId> shardIds = new ArrayList<>();
+            int numShards = randomIntBetween(1, 50);
+            for (int i = 0; i < numShards; i++) {
+                shardIds.add(new ShardId("test", "_na_", i));
+            }
+            PlainActionFuture<ShardFetchBatcher.ShardsResponse<TestResponse>> future = new PlainActionFuture<>();
+            ShardFetchBatcher.sendRequest(transportService, transportService.getLocalNode(), "internal:test[batch]", shardIds,
+                TestResponse::new, future);
+            ShardFetchBatcher.ShardsResponse<TestResponse> response = future.get();
+            assertThat(response.size(), equalTo(numShards));
+            for (int i = 0; i < numShards; i++) {
+                if (i % 3 == 0) {
+                    assertThat(response.getResponse(i), nullValue());
+                    assertThat(response.getFailure(i), instanceOf(IllegalArgumentException.class));
+                } else {
+                    assertThat(response.getFailure(i), nullValue());
+                    assertThat(response.getResponse(i).shardId, equalTo(shardIds.get(i)));
+                }
+            }
+            assertThat(threads.size(), lessThanOrEqualTo(threadPool.info(ThreadPool.Names.FETCH_SHARD_STORE).getMax()));
+        } finally {
+            terminate(threadPool);
+        }
+    }
+
+    private static DiscoveryNode newNode(String id, Version version) {
+        return new DiscoveryNode(id, buildNewFakeTransportAddress(), Collections.emptyMap(),
+            Collections.singleton(DiscoveryNode.Role.DATA), version);
+    }
+
+    private static ActionListener<TestNodesResponse> listener(AtomicReference<TestNodesResponse> result) {
+        return ActionListener.wrap(response -> assertTrue(result.compareAndSet(null, response)), e -> { throw new AssertionError(e); });
+    }
+
+    /**
+     * Answers list requests inline, recording how they were sent.
+     */
+    private class TestLister implements AsyncShardFetch.BatchLister<TestNodesResponse, TestResponse> {
+
+        final Map<DiscoveryNode, List<List<ShardId>>> batches = new HashMap<>();
+        final List<ShardId> singleShardLists = new ArrayList<>();
+        final Map<DiscoveryNode, ShardId> failingShards = new HashMap<>();
+        DiscoveryNode failingNode;
+
+        @Override
+        public void list(ShardId shardId, DiscoveryNode[] nodes, ActionListener<TestNodesResponse> listener) {
+            singleShardLists.add(shardId);
+            List<TestResponse> responses = new ArrayList<>();
+            for (DiscoveryNode node : nodes) {
+                responses.add(new TestResponse(node, shardId));
+            }
+            listener.onResponse(newNodesResponse(responses, Collections.emptyList()));
+        }
+
+        @Override
+        public void listBatch(DiscoveryNode node, List<ShardId> shardIds,
+                              ActionListener<ShardFetchBatcher.ShardsResponse<TestResponse>> listener) {
+            batches.computeIfAbsent(node, n -> new ArrayList<>()).add(shardIds);
+            if (node.equals(failingNode)) {
+                listener.onFailure(new IllegalStateException("simulated node failure"));
+                return;
+            }
+            Object[] results = new Object[shardIds.size()];
+            for (int i = 0; i < results.length; i++) {
+                if (shardIds.get(i).equals(failingShards.get(node))) {
+                    results[i] = new IllegalStateException("simulated shard failure");
+                } else {
+                    results[i] = new TestResponse(node, shardIds.get(i));
+                }
+            }
+            listener.onResponse(new ShardFetchBatcher.ShardsResponse<>(results));
+        }
+
+        @Override
+        public TestNodesResponse newNodesResponse(List<TestResponse> responses, List<FailedNodeException> failures) {
+            return new TestNodesResponse(responses, failures);
+        }
+    }
+
+    static class TestResponse extends BaseNodeResponse {
+
+        ShardId shardId;
+
+        TestResponse() {
+        }
+
+        TestResponse(DiscoveryNode node, ShardId shardId) {
+            super(node);
+            this.shardId = shardId;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            super.readFrom(in);
+            shardId = ShardId.readShardId(in);
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            shardId.writeTo(out);
+        }
+    }
+
+    static class TestNodesResponse extends BaseNodesResponse<TestResponse> {
+
+        TestNodesResponse(List<TestResponse> nodes, List<FailedNodeException> failures) {
+            super(ClusterName.DEFAULT, nodes, failures);
+        }
+
+        @Override
+        protected List<TestResponse> readNodesFrom(StreamInput in) throws IOException {
+            return in.readStreamableList(TestResponse::new);
+        }
+
+        @Override
+        protected void writeNodesTo(StreamOutput out, List<TestResponse> nodes) throws IOException {
+            out.writeStreamableList(nodes);
+        }
+    }
+}
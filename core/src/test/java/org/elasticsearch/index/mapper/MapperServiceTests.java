@@ -319,4 +319,42 @@ public class MapperServiceTests extends ESSingleNodeTestCase {
         assertWarnings("[_default_] mapping is deprecated since it is not useful anymore now that indexes " +
                 "cannot have more than one type");
     }
+
+    public void testFieldTypesAreSharedAcrossIndices() throws IOException {
+        String mapping = XContentFactory.jsonBuilder().startObject().startObject("type").startObject("properties")
+            .startObject("count").field("type", "long").endObject()
+            .startObject("tag").field("type", "keyword").endObject()
+            .startObject("body").field("type", "text").endObject()
+            .endObject().endObject().endObject().string();
+        MapperService first = createIndex("test1").mapperService();
+        first.merge("type", new CompressedXContent(mapping), MergeReason.MAPPING_UPDATE, randomBoolean());
+        MapperService second = createIndex("test2").mapperService();
+        second.merge("type", new CompressedXContent(mapping), MergeReason.MAPPING_UPDATE, randomBoolean());
+
+        assertSame(first.fullName("count"), second.fullName("count"));
+        assertSame(first.fullName("tag"), second.fullName("tag"));
+        // text fields use the index level default analyzer
+        assertNotSame(first.fullName("body"), second.fullName("body"));
+        assertSame(first.documentMapper("type").mappingSource(), second.documentMapper("type").mappingSource());
+        // the document mappers must use the shared field types too
+        assertSame(first.fullName("count"), first.documentMapper("type").mappers().getMapper("count").fieldType());
+
+        MappingStats stats = second.mappingStats();
+        assertEquals(first.mappingStats().getFieldCount(), stats.getFieldCount());
+        assertThat(stats.getSharedFieldCount(), Matchers.greaterThanOrEqualTo(2L));
+        assertThat(stats.getSharedFieldCount(), Matchers.lessThan(stats.getFieldCount()));
+        assertThat(stats.getSourceSizeInBytes(), Matchers.greaterThan(0L));
+        assertThat(stats.getMemorySizeInBytes(), Matchers.greaterThan(stats.getSourceSizeInBytes()));
+    }
+
+    public void testFieldTypesWithDifferentTypeAreNotShared() throws IOException {
+        MapperService first = createIndex("test1").mapperService();
+        first.merge("type", new CompressedXContent("{\"type\":{\"properties\":{\"field\":{\"type\":\"long\"}}}}"),
+            MergeReason.MAPPING_UPDATE, randomBoolean());
+        MapperService second = createIndex("test2").mapperService();
+        second.merge("type", new CompressedXContent("{\"type\":{\"properties\":{\"field\":{\"type\":\"integer\"}}}}"),
+            MergeReason.MAPPING_UPDATE, randomBoolean());
+        assertEquals("long", first.fullName("field").typeName());
+        assertEquals("integer", second.fullName("field").typeName());
+    }
 }
@@ -0,0 +1,94 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.indices.mapper;
+
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.elasticsearch.common.compress.CompressedXContent;
+import org.elasticsearch.index.analysis.AnalyzerScope;
+import org.elasticsearch.index.analysis.NamedAnalyzer;
+import org.elasticsearch.index.mapper.KeywordFieldMapper.KeywordFieldType;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.NumberFieldMapper.NumberFieldType;
+import org.elasticsearch.index.mapper.NumberFieldMapper.NumberType;
+import org.elasticsearch.index.mapper.TextFieldMapper.TextFieldType;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+
+public class MappingInternerTests extends ESTestCase {
+
+    private static MappedFieldType keyword(String name) {
+        KeywordFieldType fieldType = new KeywordFieldType();
+        fieldType.setName(name);
+        fieldType.freeze();
+        return fieldType;
+    }
+
+    public void testInternFieldType() {
+        MappingInterner interner = new MappingInterner();
+        MappedFieldType first = keyword("field");
+        MappedFieldType second = keyword("field");
+        assertNotSame(first, second);
+        assertSame(first, interner.intern(first));
+        assertSame(first, interner.intern(second));
+        assertTrue(interner.isInterned(first));
+        assertFalse(interner.isInterned(second));
+        MappedFieldType other = keyword("other");
+        assertSame(other, interner.intern(other));
+        assertEquals(2, interner.fieldTypeCount());
+    }
+
+    public void testDifferentTypeNamesAreNotShared() {
+        MappingInterner interner = new MappingInterner();
+        NumberFieldType longType = new NumberFieldType(NumberType.LONG);
+        longType.setName("field");
+        NumberFieldType intType = new NumberFieldType(NumberType.INTEGER);
+        intType.setName("field");
+        assertEquals(longType, intType);
+        assertSame(longType, interner.intern(longType));
+        assertSame(intType, interner.intern(intType));
+    }
+
+    public void testIndexLevelAnalysisIsNotShared() {
+        MappingInterner interner = new MappingInterner();
+        KeywordFieldType fieldType = new KeywordFieldType();
+        fieldType.setName("field");
+        fieldType.setNormalizer(new NamedAnalyzer("my_normalizer", AnalyzerScope.INDEX, new KeywordAnalyzer()));
+        assertFalse(fieldType.isShareable());
+        assertSame(fieldType, interner.intern(fieldType));
+        assertFalse(interner.isInterned(fieldType));
+
+        TextFieldType text = new TextFieldType();
+        text.setName("text");
+        assertFalse(text.isShareable());
+        assertSame(text, interner.intern(text));
+        assertEquals(0, interner.fieldTypeCount());
+    }
+
+    public void testInternMappingSource() throws IOException {
+        MappingInterner interner = new MappingInterner();
+        CompressedXContent first = new CompressedXContent("{\"type\":{}}");
+        CompressedXContent second = new CompressedXContent("{\"type\":{}}");
+        assertSame(first, interner.intern(first));
+        assertSame(first, interner.intern(second));
+        assertEquals(1, interner.mappingSourceCount());
+    }
+}
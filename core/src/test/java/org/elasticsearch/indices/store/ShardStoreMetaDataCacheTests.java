@@ -0,0 +1,141 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.indices.store;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.IOUtils;
+import org.elasticsearch.common.CheckedSupplier;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.store.Store;
+import org.elasticsearch.test.DummyShardLock;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class ShardStoreMetaDataCacheTests extends ESTestCase {
+
+    private final ShardId shardId = new ShardId("test", "_na_", 0);
+
+    public void testCachesUntilNewCommit() throws IOException {
+        final Path indexLocation = createTempDir();
+        final AtomicInteger loads = new AtomicInteger();
+        final CheckedSupplier<Store.MetadataSnapshot, IOException> loader = () -> {
+            loads.incrementAndGet();
+            return Store.readMetadataSnapshot(indexLocation, shardId, (id, timeout) -> new DummyShardLock(id), logger);
+        };
+        final ShardStoreMetaDataCache cache = new ShardStoreMetaDataCache(Settings.EMPTY);
+
+        // nothing on disk yet, nothing to cache
+        assertThat(cache.getOrLoad(shardId, indexLocation, loader).size(), equalTo(0));
+        assertThat(cache.count(), equalTo(0));
+
+        try (Directory dir = newFSDirectory(indexLocation)) {
+            commit(dir);
+            final Store.MetadataSnapshot first = cache.getOrLoad(shardId, indexLocation, loader);
+            assertThat(first.size(), not(equalTo(0)));
+            assertThat(cache.getOrLoad(shardId, indexLocation, loader), sameInstance(first));
+            assertThat(loads.get(), equalTo(2));
+            assertThat(cache.getHitCount(), equalTo(1L));
+
+            // a new commit point must not be served from the cache
+            commit(dir);
+            final Store.MetadataSnapshot second = cache.getOrLoad(shardId, indexLocation, loader);
+            assertThat(second, not(sameInstance(first)));
+            assertThat(second.getNumDocs(), equalTo(first.getNumDocs() + 1));
+            assertThat(loads.get(), equalTo(3));
+
+            // shard lifecycle events drop the entry
+            if (randomBoolean()) {
+                cache.beforeIndexShardCreated(shardId, Settings.EMPTY);
+            } else {
+                cache.afterIndexShardClosed(shardId, null, Settings.EMPTY);
+            }
+            assertThat(cache.count(), equalTo(0));
+            assertThat(cache.getOrLoad(shardId, indexLocation, loader), not(sameInstance(second)));
+            assertThat(loads.get(), equalTo(4));
+            assertThat(cache.count(), equalTo(1));
+        }
+
+        // the shard directory is wiped without going through the shard lifecycle
+        IOUtils.rm(indexLocation);
+        assertThat(cache.getOrLoad(shardId, indexLocation, loader).size(), equalTo(0));
+        assertThat(loads.get(), equalTo(5));
+        assertThat(cache.count(), equalTo(0));
+    }
+
+    public void testInvalidationDuringLoadIsNotCached() throws IOException {
+        final Path indexLocation = createTempDir();
+        final ShardStoreMetaDataCache cache = new ShardStoreMetaDataCache(Settings.EMPTY);
+        try (Directory dir = newFSDirectory(indexLocation)) {
+            commit(dir);
+            cache.getOrLoad(shardId, indexLocation, () -> {
+                cache.afterIndexShardDeleted(shardId, Settings.EMPTY);
+                return Store.readMetadataSnapshot(indexLocation, shardId, (id, timeout) -> new DummyShardLock(id), logger);
+            });
+            assertThat(cache.count(), equalTo(0));
+        }
+    }
+
+    public void testSizeIsBounded() throws IOException {
+        final Settings settings = Settings.builder().put(ShardStoreMetaDataCache.INDICES_STORE_METADATA_CACHE_SIZE.getKey(), 1).build();
+        final ShardStoreMetaDataCache cache = new ShardStoreMetaDataCache(settings);
+        final ShardId otherShardId = new ShardId("test", "_na_", 1);
+        final Path indexLocation = createTempDir();
+        final Path otherIndexLocation = createTempDir();
+        try (Directory dir = newFSDirectory(indexLocation); Directory otherDir = newFSDirectory(otherIndexLocation)) {
+            commit(dir);
+            commit(otherDir);
+            cache.getOrLoad(shardId, indexLocation,
+                () -> Store.readMetadataSnapshot(indexLocation, shardId, (id, timeout) -> new DummyShardLock(id), logger));
+            cache.getOrLoad(otherShardId, otherIndexLocation,
+                () -> Store.readMetadataSnapshot(otherIndexLocation, otherShardId, (id, timeout) -> new DummyShardLock(id), logger));
+            assertThat(cache.count(), equalTo(1));
+
+            // the least recently used entry was evicted
+            cache.getOrLoad(shardId, indexLocation,
+                () -> Store.readMetadataSnapshot(indexLocation, shardId, (id, timeout) -> new DummyShardLock(id), logger));
+            assertThat(cache.getHitCount(), equalTo(0L));
+            assertThat(cache.getMissCount(), equalTo(3L));
+            assertThat(cache.count(), equalTo(1));
+        }
+    }
+
+    private void commit(Directory dir) throws IOException {
+        try (IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(null))) {
+            Document doc = new Document();
+            doc.add(new StringField("id", randomAlphaOfLength(5), Field.Store.NO));
+            writer.addDocument(doc);
+            writer.commit();
+        }
+    }
+}
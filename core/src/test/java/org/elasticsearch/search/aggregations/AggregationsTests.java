@@ -45,6 +45,7 @@ import org.elasticsearch.search.aggregations.bucket.range.InternalBinaryRangeTes
 import org.elasticsearch.search.aggregations.bucket.range.InternalDateRangeTests;
 import org.elasticsearch.search.aggregations.bucket.range.InternalGeoDistanceTests;
 import org.elasticsearch.search.aggregations.bucket.range.InternalRangeTests;
+import org.elasticsearch.search.aggregations.bucket.sampler.InternalRandomSamplerTests;
 import org.elasticsearch.search.aggregations.bucket.sampler.InternalSamplerTests;
 import org.elasticsearch.search.aggregations.bucket.significant.SignificantLongTermsTests;
 import org.elasticsearch.search.aggregations.bucket.significant.SignificantStringTermsTests;
@@ -132,6 +133,7 @@ public class AggregationsTests extends ESTestCase {
         aggsTests.add(new InternalGlobalTests());
         aggsTests.add(new InternalFilterTests());
         aggsTests.add(new InternalSamplerTests());
+        aggsTests.add(new InternalRandomSamplerTests());
         aggsTests.add(new InternalGeoHashGridTests());
         aggsTests.add(new InternalRangeTests());
         aggsTests.add(new InternalDateRangeTests());
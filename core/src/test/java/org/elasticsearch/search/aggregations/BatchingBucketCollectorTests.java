@@ -0,0 +1,178 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.util.NumericUtils;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.NumberFieldMapper;
+import org.elasticsearch.search.aggregations.bucket.global.GlobalAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.global.InternalGlobal;
+import org.elasticsearch.search.aggregations.metrics.avg.AvgAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.avg.InternalAvg;
+import org.elasticsearch.search.aggregations.metrics.max.InternalMax;
+import org.elasticsearch.search.aggregations.metrics.max.MaxAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.min.InternalMin;
+import org.elasticsearch.search.aggregations.metrics.min.MinAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.stats.InternalStats;
+import org.elasticsearch.search.aggregations.metrics.stats.StatsAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.sum.InternalSum;
+import org.elasticsearch.search.aggregations.metrics.sum.SumAggregationBuilder;
+
+import java.io.IOException;
+
+public class BatchingBucketCollectorTests extends AggregatorTestCase {
+
+    private static final String FIELD_NAME = "field";
+
+    private Directory directory;
+    private IndexReader indexReader;
+    private IndexSearcher indexSearcher;
+    private MappedFieldType fieldType;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        directory = newDirectory();
+        try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory)) {
+            final boolean multiValued = randomBoolean();
+            final int numDocs = randomIntBetween(1, 1000);
+            for (int i = 0; i < numDocs; i++) {
+                Document document = new Document();
+                final int numValues = frequently() ? (multiValued ? randomIntBetween(1, 3) : 1) : 0;
+                for (int j = 0; j < numValues; j++) {
+                    final double value = randomDoubleBetween(-1000, 1000, true);
+                    document.add(new SortedNumericDocValuesField(FIELD_NAME, NumericUtils.doubleToSortableLong(value)));
+                }
+                indexWriter.addDocument(document);
+            }
+        }
+        indexReader = DirectoryReader.open(directory);
+        indexSearcher = newSearcher(indexReader, true, true);
+        fieldType = new NumberFieldMapper.NumberFieldType(NumberFieldMapper.NumberType.DOUBLE);
+        fieldType.setName(FIELD_NAME);
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        indexReader.close();
+        directory.close();
+        super.tearDown();
+    }
+
+    public void testSum() throws IOException {
+        SumAggregationBuilder builder = new SumAggregationBuilder("_name").field(FIELD_NAME);
+        InternalSum expected = search(indexSearcher, new MatchAllDocsQuery(), builder, fieldType);
+        InternalSum actual = searchInBatches(new MatchAllDocsQuery(), builder);
+        assertEquals(expected.getValue(), actual.getValue(), 1e-6);
+    }
+
+    public void testAvg() throws IOException {
+        AvgAggregationBuilder builder = new AvgAggregationBuilder("_name").field(FIELD_NAME);
+        InternalAvg expected = search(indexSearcher, new MatchAllDocsQuery(), builder, fieldType);
+        InternalAvg actual = searchInBatches(new MatchAllDocsQuery(), builder);
+        if (Double.isNaN(expected.getValue())) {
+            assertTrue(Double.isNaN(actual.getValue()));
+        } else {
+            assertEquals(expected.getValue(), actual.getValue(), 1e-6);
+        }
+    }
+
+    public void testStats() throws IOException {
+        StatsAggregationBuilder builder = new StatsAggregationBuilder("_name").field(FIELD_NAME);
+        InternalStats expected = search(indexSearcher, new MatchAllDocsQuery(), builder, fieldType);
+        InternalStats actual = searchInBatches(new MatchAllDocsQuery(), builder);
+        assertEquals(expected.getCount(), actual.getCount());
+        assertEquals(expected.getSum(), actual.getSum(), 1e-6);
+        assertEquals(expected.getMin(), actual.getMin(), 0d);
+        assertEquals(expected.getMax(), actual.getMax(), 0d);
+    }
+
+    public void testMin() throws IOException {
+        MinAggregationBuilder builder = new MinAggregationBuilder("_name").field(FIELD_NAME);
+        InternalMin expected = search(indexSearcher, new MatchAllDocsQuery(), builder, fieldType);
+        InternalMin actual = searchInBatches(new MatchAllDocsQuery(), builder);
+        assertEquals(expected.getValue(), actual.getValue(), 0d);
+    }
+
+    public void testMax() throws IOException {
+        MaxAggregationBuilder builder = new MaxAggregationBuilder("_name").field(FIELD_NAME);
+        InternalMax expected = search(indexSearcher, new MatchAllDocsQuery(), builder, fieldType);
+        InternalMax actual = searchInBatches(new MatchAllDocsQuery(), builder);
+        assertEquals(expected.getValue(), actual.getValue(), 0d);
+    }
+
+    public void testGlobal() throws IOException {
+        GlobalAggregationBuilder builder = new GlobalAggregationBuilder("_name")
+            .subAggregation(new MaxAggregationBuilder("max").field(FIELD_NAME));
+        InternalGlobal expected = search(indexSearcher, new MatchAllDocsQuery(), builder, fieldType);
+        InternalGlobal actual = searchInBatches(new MatchAllDocsQuery(), builder);
+        assertEquals(expected.getDocCount(), actual.getDocCount());
+        InternalMax expectedMax = expected.getAggregations().get("max");
+        InternalMax actualMax = actual.getAggregations().get("max");
+        assertEquals(expectedMax.getValue(), actualMax.getValue(), 0d);
+    }
+
+    public void testNeedsScores() throws IOException {
+        Aggregator aggregator = createAggregator(new MatchAllDocsQuery(), new MaxAggregationBuilder("_name").field(FIELD_NAME),
+            indexSearcher, fieldType);
+        BucketCollector needsScores = new BucketCollector() {
+            @Override
+            public LeafBucketCollector getLeafCollector(LeafReaderContext ctx) throws IOException {
+                return aggregator.getLeafCollector(ctx);
+            }
+
+            @Override
+            public void preCollection() throws IOException {
+            }
+
+            @Override
+            public void postCollection() throws IOException {
+            }
+
+            @Override
+            public boolean needsScores() {
+                return true;
+            }
+        };
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class, () -> new BatchingBucketCollector(needsScores));
+        assertTrue(e.getMessage(), e.getMessage().contains("since it needs scores"));
+        aggregator.close();
+    }
+
+    private <A extends InternalAggregation> A searchInBatches(Query query, AggregationBuilder builder) throws IOException {
+        Aggregator aggregator = createAggregator(query, builder, indexSearcher, fieldType);
+        BatchingBucketCollector collector = new BatchingBucketCollector(aggregator, randomIntBetween(1, 200));
+        collector.preCollection();
+        indexSearcher.search(query, collector);
+        collector.postCollection();
+        @SuppressWarnings("unchecked")
+        A internalAgg = (A) aggregator.buildAggregation(0L);
+        return internalAgg;
+    }
+}
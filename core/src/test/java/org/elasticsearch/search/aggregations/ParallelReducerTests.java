@@ -0,0 +1,144 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.search.aggregations;
+
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.common.util.concurrent.ThreadContext;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.greaterThan;
+
+public class ParallelReducerTests extends ESTestCase {
+
+    private ExecutorService executor;
+    private int numThreads;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        numThreads = randomIntBetween(1, 4);
+        executor = EsExecutors.newFixed(getTestName(), numThreads, randomIntBetween(1, 100),
+            EsExecutors.daemonThreadFactory(getTestName()), new ThreadContext(Settings.EMPTY));
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        super.tearDown();
+    }
+
+    private static List<Integer> groups(int size) {
+        final List<Integer> groups = new ArrayList<>(size);
+        for (int i = 0; i < size; ++i) {
+            groups.add(i);
+        }
+        return groups;
+    }
+
+    public void testResultsAreInOrder() {
+        final ParallelReducer reducer = new ParallelReducer(executor, numThreads, randomIntBetween(-1, 100));
+        for (int iter = 0; iter < 10; ++iter) {
+            final int size = randomIntBetween(0, 1000);
+            final List<Integer> groups = groups(size);
+            final List<String> results = reducer.reduce(groups, i -> "bucket" + i);
+            assertEquals(size, results.size());
+            for (int i = 0; i < size; ++i) {
+                assertEquals("bucket" + i, results.get(i));
+            }
+        }
+    }
+
+    public void testUsesPoolThreads() throws Exception {
+        final ParallelReducer reducer = new ParallelReducer(executor, numThreads, 2);
+        final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        assertBusy(() -> {
+            reducer.reduce(groups(100), i -> {
+                threads.add(Thread.currentThread());
+                if (threads.size() == 1) {
+                    // give other threads a chance to start
+                    try {
+                        Thread.sleep(1);
+                    } catch (InterruptedException e) {
+                        throw new AssertionError(e);
+                    }
+                }
+                return i;
+            });
+            assertThat(threads.size(), greaterThan(1));
+        });
+    }
+
+    public void testBelowMinBuckets() {
+        final int minBuckets = randomBoolean() ? -1 : randomIntBetween(2, 1000);
+        final ParallelReducer reducer = new ParallelReducer(executor, numThreads, minBuckets);
+        final int size = minBuckets == -1 ? randomIntBetween(0, 1000) : randomIntBetween(0, minBuckets - 1);
+        final Thread current = Thread.currentThread();
+        final List<Integer> results = reducer.reduce(groups(size), i -> {
+            assertSame(current, Thread.currentThread());
+            return i;
+        });
+        assertEquals(groups(size), results);
+    }
+
+    public void testNestedReductions() {
+        // pool threads may start parallel reductions too, which must not wait for the chunks they queued
+        final ParallelReducer reducer = new ParallelReducer(executor, numThreads, 2);
+        final List<Integer> results = reducer.reduce(groups(100),
+            i -> reducer.reduce(groups(100), j -> i * j).stream().mapToInt(Integer::intValue).sum());
+        for (int i = 0; i < 100; ++i) {
+            assertEquals(i * 4950, (int) results.get(i));
+        }
+    }
+
+    public void testRejections() {
+        final ParallelReducer reducer = new ParallelReducer(command -> {
+            throw new EsRejectedExecutionException("rejected");
+        }, numThreads, 2);
+        final Thread current = Thread.currentThread();
+        final List<Integer> results = reducer.reduce(groups(100), i -> {
+            assertSame(current, Thread.currentThread());
+            return i;
+        });
+        assertEquals(groups(100), results);
+    }
+
+    public void testFailures() {
+        final ParallelReducer reducer = new ParallelReducer(executor, numThreads, 2);
+        final int failing = randomInt(99);
+        final IllegalArgumentException e = expectThrows(IllegalArgumentException.class, () -> reducer.reduce(groups(100), i -> {
+            if (i == failing) {
+                throw new IllegalArgumentException("failed to reduce [" + i + "]");
+            }
+            return i;
+        }));
+        assertEquals("failed to reduce [" + failing + "]", e.getMessage());
+    }
+}
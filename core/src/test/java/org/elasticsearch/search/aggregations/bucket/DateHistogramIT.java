@@ -41,6 +41,7 @@ import org.elasticsearch.search.aggregations.bucket.histogram.Histogram.Bucket;
 import org.elasticsearch.search.aggregations.metrics.avg.Avg;
 import org.elasticsearch.search.aggregations.metrics.sum.Sum;
 import org.elasticsearch.search.aggregations.BucketOrder;
+import org.elasticsearch.search.aggregations.ParallelReducer;
 import org.elasticsearch.test.ESIntegTestCase;
 import org.hamcrest.Matchers;
 import org.joda.time.DateTime;
@@ -112,6 +113,16 @@ public class DateHistogramIT extends ESIntegTestCase {
                 .endObject());
     }
 
+    @Override
+    protected Settings nodeSettings(int nodeOrdinal) {
+        return Settings.builder()
+            .put(super.nodeSettings(nodeOrdinal))
+            // sometimes share the reduction of the buckets with the search_reduce thread pool
+            .put(ParallelReducer.MIN_BUCKETS_SETTING.getKey(),
+                randomFrom(-1, 2, ParallelReducer.MIN_BUCKETS_SETTING.getDefault(Settings.EMPTY)))
+            .build();
+    }
+
     @Override
     public void setupSuiteScopeCluster() throws Exception {
         createIndex("idx", "idx_unmapped");
@@ -0,0 +1,42 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket;
+
+import org.elasticsearch.search.aggregations.BaseAggregationTestCase;
+import org.elasticsearch.search.aggregations.bucket.sampler.RandomSamplerAggregationBuilder;
+
+public class RandomSamplerTests extends BaseAggregationTestCase<RandomSamplerAggregationBuilder> {
+
+    @Override
+    protected final RandomSamplerAggregationBuilder createTestAggregatorBuilder() {
+        RandomSamplerAggregationBuilder factory = new RandomSamplerAggregationBuilder("foo", randomDoubleBetween(0.0001, 1, false));
+        if (randomBoolean()) {
+            factory.seed(randomInt());
+        }
+        return factory;
+    }
+
+    public void testInvalidProbability() {
+        double probability = randomBoolean() ? -randomDouble() : 1 + randomDoubleBetween(0.0001, 10, false);
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+            () -> new RandomSamplerAggregationBuilder("foo", probability));
+        assertEquals("[probability] must be greater than 0 and less than or equal to 1, got [" + probability + "]: [foo]",
+            e.getMessage());
+    }
+}
@@ -34,6 +34,7 @@ import org.elasticsearch.search.aggregations.AggregationExecutionException;
 import org.elasticsearch.search.aggregations.AggregationTestScriptsPlugin;
 import org.elasticsearch.search.aggregations.Aggregator.SubAggCollectionMode;
 import org.elasticsearch.search.aggregations.BucketOrder;
+import org.elasticsearch.search.aggregations.ParallelReducer;
 import org.elasticsearch.search.aggregations.bucket.filter.Filter;
 import org.elasticsearch.search.aggregations.bucket.terms.IncludeExclude;
 import org.elasticsearch.search.aggregations.bucket.terms.Terms;
@@ -109,6 +110,16 @@ public class StringTermsIT extends AbstractTermsTestCase {
         }
     }
 
+    @Override
+    protected Settings nodeSettings(int nodeOrdinal) {
+        return Settings.builder()
+            .put(super.nodeSettings(nodeOrdinal))
+            // sometimes share the reduction of the buckets with the search_reduce thread pool
+            .put(ParallelReducer.MIN_BUCKETS_SETTING.getKey(),
+                randomFrom(-1, 2, ParallelReducer.MIN_BUCKETS_SETTING.getDefault(Settings.EMPTY)))
+            .build();
+    }
+
     @Override
     public void setupSuiteScopeCluster() throws Exception {
         assertAcked(client().admin().indices().prepareCreate("idx")
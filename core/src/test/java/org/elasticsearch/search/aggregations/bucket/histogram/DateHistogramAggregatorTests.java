@@ -19,16 +19,23 @@
 
 package org.elasticsearch.search.aggregations.bucket.histogram;
 
+import com.carrotsearch.randomizedtesting.generators.RandomNumbers;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.LongPoint;
 import org.apache.lucene.document.SortedNumericDocValuesField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.NoMergePolicy;
 import org.apache.lucene.index.RandomIndexWriter;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
 import org.apache.lucene.search.MatchNoDocsQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.SortedNumericSortField;
 import org.apache.lucene.store.Directory;
 import org.elasticsearch.index.mapper.DateFieldMapper;
 import org.elasticsearch.search.aggregations.AggregatorTestCase;
@@ -335,6 +342,63 @@ public class DateHistogramAggregatorTests extends AggregatorTestCase {
         );
     }
 
+    public void testCountSegmentsWithoutCollecting() throws IOException {
+        try (Directory directory = newDirectory()) {
+            IndexWriterConfig config = newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE);
+            if (randomBoolean()) {
+                config.setIndexSort(new Sort(new SortedNumericSortField(DATE_FIELD, SortField.Type.LONG, randomBoolean())));
+            }
+            long start = asLong("2017-01-01T00:00:00");
+            long end = asLong("2017-03-01T00:00:00");
+            try (IndexWriter indexWriter = new IndexWriter(directory, config)) {
+                int numDocs = randomIntBetween(1, 500);
+                for (int i = 0; i < numDocs; i++) {
+                    if (rarely()) {
+                        indexWriter.commit();
+                    }
+                    long instant = RandomNumbers.randomLongBetween(random(), start, end);
+                    Document document = new Document();
+                    document.add(new SortedNumericDocValuesField(DATE_FIELD, instant));
+                    document.add(new LongPoint(DATE_FIELD, instant));
+                    indexWriter.addDocument(document);
+                }
+            }
+
+            try (IndexReader indexReader = DirectoryReader.open(directory)) {
+                IndexSearcher indexSearcher = new IndexSearcher(indexReader);
+
+                DateHistogramInterval interval = randomFrom(DateHistogramInterval.DAY, DateHistogramInterval.WEEK,
+                    DateHistogramInterval.MONTH, DateHistogramInterval.hours(randomIntBetween(1, 12)));
+                DateHistogramAggregationBuilder aggregationBuilder = new DateHistogramAggregationBuilder("_name")
+                    .field(DATE_FIELD)
+                    .dateHistogramInterval(interval);
+                if (randomBoolean()) {
+                    aggregationBuilder.timeZone(randomDateTimeZone());
+                }
+                if (randomBoolean()) {
+                    aggregationBuilder.offset(RandomNumbers.randomLongBetween(random(), -3600000, 3600000));
+                }
+                DateFieldMapper.Builder builder = new DateFieldMapper.Builder("_name");
+                DateFieldMapper.DateFieldType fieldType = builder.fieldType();
+                fieldType.setHasDocValues(true);
+                fieldType.setName(DATE_FIELD);
+
+                Query query = randomBoolean() ? new MatchAllDocsQuery()
+                    : LongPoint.newRangeQuery(DATE_FIELD, RandomNumbers.randomLongBetween(random(), start, end),
+                        RandomNumbers.randomLongBetween(random(), start, end));
+
+                // the aggregation only sees the query, and may count segments without collecting them, when it is exposed
+                InternalDateHistogram collected = search(indexSearcher, query, aggregationBuilder, false, fieldType);
+                InternalDateHistogram counted = search(indexSearcher, query, aggregationBuilder, true, fieldType);
+                assertEquals(collected.getBuckets(), counted.getBuckets());
+
+                InternalDateHistogram reducedCollected = searchAndReduce(indexSearcher, query, aggregationBuilder, false, fieldType);
+                InternalDateHistogram reducedCounted = searchAndReduce(indexSearcher, query, aggregationBuilder, true, fieldType);
+                assertEquals(reducedCollected.getBuckets(), reducedCounted.getBuckets());
+            }
+        }
+    }
+
     private void testSearchCase(Query query, List<String> dataset,
                                 Consumer<DateHistogramAggregationBuilder> configure,
                                 Consumer<Histogram> verify) throws IOException {
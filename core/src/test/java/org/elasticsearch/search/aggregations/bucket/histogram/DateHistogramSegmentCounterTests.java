@@ -0,0 +1,188 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.aggregations.bucket.histogram;
+
+import com.carrotsearch.hppc.LongArrayList;
+import com.carrotsearch.randomizedtesting.generators.RandomNumbers;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.IndexOrDocValuesQuery;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.SortedNumericSortField;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.common.rounding.DateTimeUnit;
+import org.elasticsearch.common.rounding.Rounding;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.fielddata.SortedBinaryDocValues;
+import org.elasticsearch.index.fielddata.SortedNumericDoubleValues;
+import org.elasticsearch.search.aggregations.support.ValuesSource;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+public class DateHistogramSegmentCounterTests extends ESTestCase {
+
+    private static final String FIELD = "date";
+
+    public void testCreate() {
+        Rounding rounding = Rounding.builder(DateTimeUnit.DAY_OF_MONTH).build();
+        Query rangeQuery = LongPoint.newRangeQuery(FIELD, 0, 100);
+        assertNotNull(DateHistogramSegmentCounter.create(new MatchAllDocsQuery(), FIELD, rounding, 0));
+        assertNotNull(DateHistogramSegmentCounter.create(rangeQuery, FIELD, rounding, 0));
+        assertNotNull(DateHistogramSegmentCounter.create(new ConstantScoreQuery(rangeQuery), FIELD, rounding, 0));
+        assertNotNull(DateHistogramSegmentCounter.create(
+            new IndexOrDocValuesQuery(rangeQuery, SortedNumericDocValuesField.newSlowRangeQuery(FIELD, 0, 100)), FIELD, rounding, 0));
+        assertNotNull(DateHistogramSegmentCounter.create(
+            new BooleanQuery.Builder().add(rangeQuery, BooleanClause.Occur.FILTER).build(), FIELD, rounding, 0));
+
+        assertNull(DateHistogramSegmentCounter.create(LongPoint.newRangeQuery("other", 0, 100), FIELD, rounding, 0));
+        assertNull(DateHistogramSegmentCounter.create(new TermQuery(new Term(FIELD, "value")), FIELD, rounding, 0));
+        assertNull(DateHistogramSegmentCounter.create(
+            new BooleanQuery.Builder().add(rangeQuery, BooleanClause.Occur.MUST_NOT).build(), FIELD, rounding, 0));
+        assertNull(DateHistogramSegmentCounter.create(
+            new BooleanQuery.Builder()
+                .add(rangeQuery, BooleanClause.Occur.MUST)
+                .add(new MatchAllDocsQuery(), BooleanClause.Occur.FILTER)
+                .build(), FIELD, rounding, 0));
+    }
+
+    public void testCount() throws IOException {
+        try (Directory directory = newDirectory()) {
+            IndexWriterConfig config = newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE);
+            if (randomBoolean()) {
+                config.setIndexSort(new Sort(new SortedNumericSortField(FIELD, SortField.Type.LONG, randomBoolean())));
+            }
+            long start = RandomNumbers.randomLongBetween(random(), 0, TimeValue.timeValueHours(24 * 365 * 50).millis());
+            long end = start + TimeValue.timeValueHours(24 * 30).millis();
+            try (IndexWriter indexWriter = new IndexWriter(directory, config)) {
+                int numDocs = randomIntBetween(1, 1000);
+                for (int i = 0; i < numDocs; i++) {
+                    if (rarely()) {
+                        indexWriter.commit();
+                    }
+                    indexWriter.addDocument(document(RandomNumbers.randomLongBetween(random(), start, end)));
+                }
+            }
+            Rounding rounding = Rounding.builder(randomFrom(DateTimeUnit.HOUR_OF_DAY, DateTimeUnit.DAY_OF_MONTH,
+                DateTimeUnit.WEEK_OF_WEEKYEAR, DateTimeUnit.MONTH_OF_YEAR)).timeZone(randomDateTimeZone()).build();
+            long offset = randomBoolean() ? 0 : RandomNumbers.randomLongBetween(random(), -3600000, 3600000);
+            long queryMin = randomBoolean() ? Long.MIN_VALUE : RandomNumbers.randomLongBetween(random(), start, end);
+            long queryMax = randomBoolean() ? Long.MAX_VALUE : RandomNumbers.randomLongBetween(random(), start, end);
+            Query query = queryMin == Long.MIN_VALUE && queryMax == Long.MAX_VALUE ? new MatchAllDocsQuery()
+                : LongPoint.newRangeQuery(FIELD, queryMin, queryMax);
+            DateHistogramSegmentCounter counter = DateHistogramSegmentCounter.create(query, FIELD, rounding, offset);
+
+            try (IndexReader reader = DirectoryReader.open(directory)) {
+                for (LeafReaderContext ctx : reader.leaves()) {
+                    Map<Long, Long> expected = new HashMap<>();
+                    SortedNumericDocValues values = DocValues.getSortedNumeric(ctx.reader(), FIELD);
+                    while (values.nextDoc() != SortedNumericDocValues.NO_MORE_DOCS) {
+                        long value = values.nextValue();
+                        if (value >= queryMin && value <= queryMax) {
+                            expected.merge(rounding.round(value - offset) + offset, 1L, Long::sum);
+                        }
+                    }
+                    LongArrayList keys = new LongArrayList();
+                    LongArrayList docCounts = new LongArrayList();
+                    assertTrue(counter.count(ctx, new FieldValuesSource(), keys, docCounts));
+                    Map<Long, Long> actual = new HashMap<>();
+                    for (int i = 0; i < keys.size(); i++) {
+                        assertNull(actual.put(keys.get(i), docCounts.get(i)));
+                    }
+                    assertEquals(expected, actual);
+                }
+            }
+        }
+    }
+
+    public void testCollectSegmentsWithDeletionsOrMultipleValues() throws IOException {
+        try (Directory directory = newDirectory()) {
+            try (IndexWriter indexWriter = new IndexWriter(directory, newIndexWriterConfig())) {
+                Document document = document(randomNonNegativeLong());
+                if (randomBoolean()) {
+                    long value = randomNonNegativeLong();
+                    document.add(new SortedNumericDocValuesField(FIELD, value));
+                    document.add(new LongPoint(FIELD, value));
+                    indexWriter.addDocument(document);
+                } else {
+                    document.add(new StringField("id", "1", StringField.Store.NO));
+                    indexWriter.addDocument(document);
+                    indexWriter.addDocument(document(randomNonNegativeLong()));
+                    indexWriter.deleteDocuments(new Term("id", "1"));
+                }
+            }
+            Rounding rounding = Rounding.builder(DateTimeUnit.DAY_OF_MONTH).build();
+            DateHistogramSegmentCounter counter = DateHistogramSegmentCounter.create(new MatchAllDocsQuery(), FIELD, rounding, 0);
+            try (IndexReader reader = DirectoryReader.open(directory)) {
+                assertEquals(1, reader.leaves().size());
+                assertFalse(counter.count(reader.leaves().get(0), new FieldValuesSource(), new LongArrayList(), new LongArrayList()));
+            }
+        }
+    }
+
+    private static Document document(long value) {
+        Document document = new Document();
+        document.add(new SortedNumericDocValuesField(FIELD, value));
+        document.add(new LongPoint(FIELD, value));
+        return document;
+    }
+
+    private static class FieldValuesSource extends ValuesSource.Numeric {
+        @Override
+        public boolean isFloatingPoint() {
+            return false;
+        }
+
+        @Override
+        public SortedNumericDocValues longValues(LeafReaderContext context) throws IOException {
+            return DocValues.getSortedNumeric(context.reader(), FIELD);
+        }
+
+        @Override
+        public SortedNumericDoubleValues doubleValues(LeafReaderContext context) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public SortedBinaryDocValues bytesValues(LeafReaderContext context) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket.sampler;
+
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.MockBigArrays;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.InternalSingleBucketAggregationTestCase;
+import org.elasticsearch.search.aggregations.ParsedAggregation;
+import org.elasticsearch.search.aggregations.bucket.ParsedSingleBucketAggregation;
+import org.elasticsearch.search.aggregations.metrics.sum.InternalSum;
+import org.elasticsearch.search.aggregations.metrics.valuecount.InternalValueCount;
+import org.elasticsearch.search.aggregations.pipeline.PipelineAggregator;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class InternalRandomSamplerTests extends InternalSingleBucketAggregationTestCase<InternalRandomSampler> {
+
+    private double probability;
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        probability = randomBoolean() ? 1 : randomDoubleBetween(0.0001, 1, false);
+    }
+
+    @Override
+    protected InternalRandomSampler createTestInstance(String name, long docCount, InternalAggregations aggregations,
+                                                       List<PipelineAggregator> pipelineAggregators, Map<String, Object> metaData) {
+        return new InternalRandomSampler(name, docCount, docCount, probability, aggregations, pipelineAggregators, metaData);
+    }
+
+    @Override
+    protected long reducedDocCount(List<InternalRandomSampler> inputs) {
+        return Math.round(super.reducedDocCount(inputs) * (1 / probability));
+    }
+
+    @Override
+    protected void extraAssertReduced(InternalRandomSampler reduced, List<InternalRandomSampler> inputs) {
+        assertEquals(inputs.stream().mapToLong(InternalRandomSampler::getSampledDocCount).sum(), reduced.getSampledDocCount());
+        assertEquals(probability, reduced.getProbability(), 0d);
+        assertThat(reduced.getDocCountLowerBound(), lessThanOrEqualTo(reduced.getDocCount()));
+        assertThat(reduced.getDocCountLowerBound(), greaterThanOrEqualTo(reduced.getSampledDocCount()));
+        assertThat(reduced.getDocCountUpperBound(), greaterThanOrEqualTo(reduced.getDocCount()));
+    }
+
+    @Override
+    protected void assertFromXContent(InternalRandomSampler aggregation, ParsedAggregation parsedAggregation) throws IOException {
+        super.assertFromXContent(aggregation, parsedAggregation);
+        ParsedRandomSampler parsed = (ParsedRandomSampler) parsedAggregation;
+        assertEquals(aggregation.getSampledDocCount(), parsed.getSampledDocCount());
+        assertEquals(aggregation.getProbability(), parsed.getProbability(), 0d);
+        assertEquals(aggregation.getDocCountLowerBound(), parsed.getDocCountLowerBound());
+        assertEquals(aggregation.getDocCountUpperBound(), parsed.getDocCountUpperBound());
+    }
+
+    @Override
+    protected Writeable.Reader<InternalRandomSampler> instanceReader() {
+        return InternalRandomSampler::new;
+    }
+
+    @Override
+    protected Class<? extends ParsedSingleBucketAggregation> implementationClass() {
+        return ParsedRandomSampler.class;
+    }
+
+    public void testConfidenceInterval() {
+        InternalRandomSampler sampler = new InternalRandomSampler("sampler", 10000, 100, 0.01, InternalAggregations.EMPTY,
+            emptyList(), emptyMap());
+        // 10000 +/- 1.96 * sqrt(100 * 0.99) / 0.01
+        assertEquals(8049, sampler.getDocCountLowerBound());
+        assertEquals(11951, sampler.getDocCountUpperBound());
+
+        sampler = new InternalRandomSampler("sampler", 100, 100, 1, InternalAggregations.EMPTY, emptyList(), emptyMap());
+        assertEquals(100, sampler.getDocCountLowerBound());
+        assertEquals(100, sampler.getDocCountUpperBound());
+    }
+
+    public void testScalesSubAggregationsOnFinalReduce() {
+        List<InternalAggregation> samplers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            InternalAggregations subAggregations = new InternalAggregations(Arrays.asList(
+                new InternalSum("sum", 2.5, DocValueFormat.RAW, emptyList(), emptyMap()),
+                new InternalValueCount("count", 10, emptyList(), emptyMap())));
+            samplers.add(new InternalRandomSampler("sampler", 20, 20, 0.25, subAggregations, emptyList(), emptyMap()));
+        }
+        MockBigArrays bigArrays = new MockBigArrays(Settings.EMPTY, new NoneCircuitBreakerService());
+
+        InternalRandomSampler partial = (InternalRandomSampler) samplers.get(0).reduce(samplers,
+            new InternalAggregation.ReduceContext(bigArrays, null, false));
+        assertEquals(60, partial.getDocCount());
+        assertEquals(60, partial.getSampledDocCount());
+        assertEquals(7.5, ((InternalSum) partial.getAggregations().get("sum")).getValue(), 0d);
+        assertEquals(30, ((InternalValueCount) partial.getAggregations().get("count")).getValue());
+
+        InternalRandomSampler reduced = (InternalRandomSampler) partial.reduce(Arrays.asList(partial),
+            new InternalAggregation.ReduceContext(bigArrays, null, true));
+        assertEquals(240, reduced.getDocCount());
+        assertEquals(60, reduced.getSampledDocCount());
+        assertEquals(30, ((InternalSum) reduced.getAggregations().get("sum")).getValue(), 0d);
+        assertEquals(120, ((InternalValueCount) reduced.getAggregations().get("count")).getValue());
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.search.aggregations.bucket.sampler;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.index.mapper.MappedFieldType;
+import org.elasticsearch.index.mapper.NumberFieldMapper;
+import org.elasticsearch.search.aggregations.AggregatorTestCase;
+import org.elasticsearch.search.aggregations.bucket.histogram.HistogramAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.elasticsearch.search.aggregations.bucket.terms.TermsAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.terms.UnmappedTerms;
+import org.elasticsearch.search.aggregations.metrics.max.Max;
+import org.elasticsearch.search.aggregations.metrics.max.MaxAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.stats.StatsAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.valuecount.ValueCount;
+import org.elasticsearch.search.aggregations.metrics.valuecount.ValueCountAggregationBuilder;
+import org.elasticsearch.search.aggregations.pipeline.derivative.DerivativePipelineAggregationBuilder;
+import org.elasticsearch.search.aggregations.support.ValueType;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class RandomSamplerAggregatorTests extends AggregatorTestCase {
+
+    private static final int NUM_DOCS = 1000;
+
+    public void testSample() throws IOException {
+        final int seed = randomInt();
+        testCase(0.1, seed, sampler -> {
+            assertEquals(0.1, sampler.getProbability(), 0d);
+            assertThat(sampler.getSampledDocCount(), allOf(greaterThan(50L), lessThan(150L)));
+            assertEquals(Math.round(sampler.getSampledDocCount() * 10d), sampler.getDocCount());
+            assertThat(sampler.getDocCountLowerBound(), lessThanOrEqualTo(sampler.getDocCount()));
+            assertThat(sampler.getDocCountUpperBound(), greaterThanOrEqualTo(sampler.getDocCount()));
+            ValueCount count = sampler.getAggregations().get("count");
+            assertEquals(sampler.getDocCount(), count.getValue());
+            Max max = sampler.getAggregations().get("max");
+            assertThat(max.getValue(), lessThan((double) NUM_DOCS));
+        });
+    }
+
+    public void testSameSeedSamplesSameDocuments() throws IOException {
+        final double probability = randomDoubleBetween(0.01, 1, false);
+        final int seed = randomInt();
+        try (Directory directory = newDirectory()) {
+            indexDocs(directory);
+            try (IndexReader reader = DirectoryReader.open(directory)) {
+                IndexSearcher searcher = newSearcher(reader, true, true);
+                InternalRandomSampler first = search(searcher, probability, seed);
+                InternalRandomSampler second = search(searcher, probability, seed);
+                assertEquals(first.getSampledDocCount(), second.getSampledDocCount());
+                assertEquals(((Max) first.getAggregations().get("max")).getValue(),
+                    ((Max) second.getAggregations().get("max")).getValue(), 0d);
+            }
+        }
+    }
+
+    public void testProbabilityOne() throws IOException {
+        testCase(1, randomInt(), sampler -> {
+            assertEquals(NUM_DOCS, sampler.getSampledDocCount());
+            assertEquals(NUM_DOCS, sampler.getDocCount());
+            assertEquals(NUM_DOCS, sampler.getDocCountLowerBound());
+            assertEquals(NUM_DOCS, sampler.getDocCountUpperBound());
+            Max max = sampler.getAggregations().get("max");
+            assertEquals(NUM_DOCS - 1, max.getValue(), 0d);
+        });
+    }
+
+    public void testUnmappedTerms() throws IOException {
+        MappedFieldType fieldType = new NumberFieldMapper.NumberFieldType(NumberFieldMapper.NumberType.LONG);
+        fieldType.setName("number");
+        try (Directory directory = newDirectory()) {
+            indexDocs(directory);
+            try (IndexReader reader = DirectoryReader.open(directory)) {
+                IndexSearcher searcher = newSearcher(reader, true, true);
+                RandomSamplerAggregationBuilder aggregationBuilder = new RandomSamplerAggregationBuilder("sampler", 0.1)
+                    .seed(randomInt())
+                    .subAggregation(new TermsAggregationBuilder("terms", ValueType.STRING).field("unmapped"));
+                InternalRandomSampler sampler = searchAndReduce(searcher, new MatchAllDocsQuery(), aggregationBuilder, fieldType);
+                Terms terms = sampler.getAggregations().get("terms");
+                assertThat(terms, instanceOf(UnmappedTerms.class));
+                assertTrue(terms.getBuckets().isEmpty());
+            }
+        }
+    }
+
+    public void testRejectsAggregationsThatAreNotScaled() throws IOException {
+        MappedFieldType fieldType = new NumberFieldMapper.NumberFieldType(NumberFieldMapper.NumberType.LONG);
+        fieldType.setName("number");
+        try (Directory directory = newDirectory()) {
+            indexDocs(directory);
+            try (IndexReader reader = DirectoryReader.open(directory)) {
+                IndexSearcher searcher = newSearcher(reader, true, true);
+
+                RandomSamplerAggregationBuilder stats = new RandomSamplerAggregationBuilder("sampler", 0.1)
+                    .subAggregation(new HistogramAggregationBuilder("histo").field("number").interval(10)
+                        .subAggregation(new StatsAggregationBuilder("stats").field("number")));
+                IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+                    () -> createAggregator(stats, searcher, fieldType));
+                assertEquals("[random_sampler] doesn't support sub-aggregations of type [stats], got [stats]: [sampler]", e.getMessage());
+
+                RandomSamplerAggregationBuilder pipeline = new RandomSamplerAggregationBuilder("sampler", 0.1)
+                    .subAggregation(new HistogramAggregationBuilder("histo").field("number").interval(10)
+                        .subAggregation(new DerivativePipelineAggregationBuilder("derivative", "_count")));
+                e = expectThrows(IllegalArgumentException.class, () -> createAggregator(pipeline, searcher, fieldType));
+                assertEquals("[random_sampler] doesn't support pipeline aggregations, got [derivative]: [sampler]", e.getMessage());
+
+                RandomSamplerAggregationBuilder minDocCount = new RandomSamplerAggregationBuilder("sampler", 0.1)
+                    .subAggregation(new TermsAggregationBuilder("terms", ValueType.LONG).field("number").minDocCount(2));
+                e = expectThrows(IllegalArgumentException.class, () -> createAggregator(minDocCount, searcher, fieldType));
+                assertEquals("[random_sampler] doesn't support sub-aggregations with a [min_doc_count] greater than 1, got [terms]: "
+                    + "[sampler]", e.getMessage());
+            }
+        }
+    }
+
+    private void testCase(double probability, int seed, Consumer<InternalRandomSampler> verify) throws IOException {
+        try (Directory directory = newDirectory()) {
+            indexDocs(directory);
+            try (IndexReader reader = DirectoryReader.open(directory)) {
+                verify.accept(search(newSearcher(reader, true, true), probability, seed));
+            }
+        }
+    }
+
+    private void indexDocs(Directory directory) throws IOException {
+        try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory)) {
+            for (int i = 0; i < NUM_DOCS; i++) {
+                Document document = new Document();
+                document.add(new SortedNumericDocValuesField("number", i));
+                indexWriter.addDocument(document);
+            }
+        }
+    }
+
+    private InternalRandomSampler search(IndexSearcher searcher, double probability, int seed) throws IOException {
+        MappedFieldType fieldType = new NumberFieldMapper.NumberFieldType(NumberFieldMapper.NumberType.LONG);
+        fieldType.setName("number");
+        RandomSamplerAggregationBuilder aggregationBuilder = new RandomSamplerAggregationBuilder("sampler", probability)
+            .seed(seed)
+            .subAggregation(new ValueCountAggregationBuilder("count", null).field("number"))
+            .subAggregation(new MaxAggregationBuilder("max").field("number"));
+        return searchAndReduce(searcher, new MatchAllDocsQuery(), aggregationBuilder, fieldType);
+    }
+}
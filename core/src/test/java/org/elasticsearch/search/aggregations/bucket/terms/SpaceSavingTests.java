@@ -0,0 +1,87 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.search.aggregations.bucket.terms;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class SpaceSavingTests extends ESTestCase {
+
+    public void testExactBelowMaxCounters() {
+        int maxCounters = randomIntBetween(1, 100);
+        SpaceSaving counts = new SpaceSaving(maxCounters);
+        Map<BytesRef, Long> expected = new HashMap<>();
+        int numValues = randomIntBetween(0, 1000);
+        for (int i = 0; i < numValues; i++) {
+            BytesRef term = new BytesRef("term" + randomInt(maxCounters - 1));
+            expected.merge(term, 1L, Long::sum);
+            counts.add(term);
+        }
+        assertEquals(numValues, counts.total());
+        assertEquals(expected.size(), counts.size());
+        assertEquals(0, counts.minCount());
+        for (int i = 0; i < counts.size(); i++) {
+            assertEquals((long) expected.get(counts.term(i)), counts.count(i));
+            assertEquals(0, counts.error(i));
+        }
+    }
+
+    public void testErrorBounds() {
+        int maxCounters = randomIntBetween(1, 50);
+        SpaceSaving counts = new SpaceSaving(maxCounters);
+        Map<BytesRef, Long> expected = new HashMap<>();
+        int numTerms = randomIntBetween(maxCounters, 10 * maxCounters);
+        int numValues = randomIntBetween(1, 10000);
+        for (int i = 0; i < numValues; i++) {
+            // skewed so that some terms are much more frequent than others
+            int value = (int) (numTerms * Math.pow(randomDouble(), 3));
+            BytesRef term = new BytesRef("term" + value);
+            expected.merge(term, 1L, Long::sum);
+            counts.add(term);
+        }
+        assertEquals(numValues, counts.total());
+        assertTrue(counts.size() <= maxCounters);
+        assertTrue(counts.capacity() <= maxCounters);
+
+        Map<BytesRef, Integer> counters = new HashMap<>();
+        long sum = 0;
+        for (int i = 0; i < counts.size(); i++) {
+            assertNull(counters.put(counts.term(i), i));
+            long trueCount = expected.get(counts.term(i));
+            assertTrue(counts.count(i) - counts.error(i) <= trueCount);
+            assertTrue(trueCount <= counts.count(i));
+            assertTrue(counts.minCount() <= counts.count(i));
+            sum += counts.count(i);
+        }
+        // every occurrence is accounted to exactly one counter
+        assertEquals(numValues, sum);
+        for (Map.Entry<BytesRef, Long> entry : expected.entrySet()) {
+            if (counters.containsKey(entry.getKey()) == false) {
+                assertTrue(entry.getValue() <= counts.minCount());
+                // terms that are more frequent than total / maxCounters always have a counter
+                assertTrue(entry.getValue() <= numValues / maxCounters);
+            }
+        }
+    }
+}
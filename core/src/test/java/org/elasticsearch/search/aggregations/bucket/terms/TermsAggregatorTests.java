@@ -28,10 +28,15 @@ import org.apache.lucene.document.SortedSetDocValuesField;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.NoMergePolicy;
 import org.apache.lucene.index.RandomIndexWriter;
+import org.apache.lucene.index.Term;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.NumericUtils;
@@ -106,6 +111,170 @@ public class TermsAggregatorTests extends AggregatorTestCase {
         directory.close();
     }
 
+    public void testSegmentOrdinalsExecutionHint() throws Exception {
+        try (Directory directory = newDirectory()) {
+            IndexWriterConfig config = newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE);
+            try (IndexWriter indexWriter = new IndexWriter(directory, config)) {
+                for (int i = 0; i < 3; i++) {
+                    Document document = new Document();
+                    document.add(new SortedSetDocValuesField("string", new BytesRef("value" + i)));
+                    indexWriter.addDocument(document);
+                    indexWriter.commit();
+                }
+            }
+            try (IndexReader indexReader = DirectoryReader.open(directory)) {
+                assertEquals(3, indexReader.leaves().size());
+                IndexSearcher indexSearcher = new IndexSearcher(indexReader);
+                TermsAggregationBuilder aggregationBuilder = new TermsAggregationBuilder("_name", ValueType.STRING)
+                    .field("string");
+                MappedFieldType fieldType = new KeywordFieldMapper.KeywordFieldType();
+                fieldType.setName("string");
+                fieldType.setHasDocValues(true);
+
+                TermsAggregator aggregator = createAggregator(aggregationBuilder, indexSearcher, fieldType);
+                assertThat(aggregator, instanceOf(SegmentOrdinalsStringTermsAggregator.class));
+
+                // global ordinals are already built on refresh
+                MappedFieldType eagerFieldType = fieldType.clone();
+                eagerFieldType.setEagerGlobalOrdinals(true);
+                aggregator = createAggregator(aggregationBuilder, indexSearcher, eagerFieldType);
+                assertThat(aggregator, instanceOf(GlobalOrdinalsStringTermsAggregator.class));
+
+                aggregationBuilder.subAggregation(AggregationBuilders.cardinality("card").field("string"));
+                aggregator = createAggregator(aggregationBuilder, indexSearcher, fieldType);
+                assertThat(aggregator, instanceOf(GlobalOrdinalsStringTermsAggregator.class));
+
+                // sub-aggregations are not supported by the segment ordinals execution mode
+                aggregationBuilder.executionHint(TermsAggregatorFactory.ExecutionMode.SEGMENT_ORDINALS.toString());
+                aggregator = createAggregator(aggregationBuilder, indexSearcher, fieldType);
+                assertThat(aggregator, instanceOf(GlobalOrdinalsStringTermsAggregator.class));
+            }
+        }
+    }
+
+    public void testSegmentOrdinalsMatchGlobalOrdinals() throws Exception {
+        try (Directory directory = newDirectory()) {
+            IndexWriterConfig config = newIndexWriterConfig().setMergePolicy(NoMergePolicy.INSTANCE);
+            try (IndexWriter indexWriter = new IndexWriter(directory, config)) {
+                int numSegments = randomIntBetween(2, 5);
+                for (int i = 0; i < numSegments; i++) {
+                    int numDocs = randomIntBetween(1, 50);
+                    for (int j = 0; j < numDocs; j++) {
+                        Document document = new Document();
+                        document.add(new StringField("filter", randomBoolean() ? "yes" : "no", Field.Store.NO));
+                        int numValues = randomIntBetween(0, 3);
+                        for (int k = 0; k < numValues; k++) {
+                            document.add(new SortedSetDocValuesField("string", new BytesRef("value" + randomIntBetween(0, 20))));
+                        }
+                        indexWriter.addDocument(document);
+                    }
+                    indexWriter.commit();
+                }
+            }
+            try (IndexReader indexReader = DirectoryReader.open(directory)) {
+                IndexSearcher indexSearcher = new IndexSearcher(indexReader);
+                MappedFieldType fieldType = new KeywordFieldMapper.KeywordFieldType();
+                fieldType.setName("string");
+                fieldType.setHasDocValues(true);
+                int minDocCount = randomIntBetween(0, 2);
+                IncludeExclude includeExclude = randomBoolean() ? null : new IncludeExclude("value1.*", null);
+                Terms expected = null;
+                for (TermsAggregatorFactory.ExecutionMode executionMode : new TermsAggregatorFactory.ExecutionMode[] {
+                        TermsAggregatorFactory.ExecutionMode.GLOBAL_ORDINALS, TermsAggregatorFactory.ExecutionMode.SEGMENT_ORDINALS}) {
+                    TermsAggregationBuilder aggregationBuilder = new TermsAggregationBuilder("_name", ValueType.STRING)
+                        .executionHint(executionMode.toString())
+                        .field("string")
+                        .size(25)
+                        .minDocCount(minDocCount)
+                        .includeExclude(includeExclude)
+                        .order(BucketOrder.key(true));
+                    TermsAggregator aggregator = createAggregator(aggregationBuilder, indexSearcher, fieldType);
+                    aggregator.preCollection();
+                    indexSearcher.search(new TermQuery(new Term("filter", "yes")), aggregator);
+                    aggregator.postCollection();
+                    Terms result = (Terms) aggregator.buildAggregation(0L);
+                    if (expected == null) {
+                        expected = result;
+                        continue;
+                    }
+                    assertEquals(expected.getBuckets().size(), result.getBuckets().size());
+                    for (int i = 0; i < expected.getBuckets().size(); i++) {
+                        assertEquals(expected.getBuckets().get(i).getKeyAsString(), result.getBuckets().get(i).getKeyAsString());
+                        assertEquals(expected.getBuckets().get(i).getDocCount(), result.getBuckets().get(i).getDocCount());
+                    }
+                    assertEquals(expected.getSumOfOtherDocCounts(), result.getSumOfOtherDocCounts());
+                }
+            }
+        }
+    }
+
+    public void testSpaceSavingMatchesMap() throws Exception {
+        try (Directory directory = newDirectory()) {
+            try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory)) {
+                int numDocs = randomIntBetween(1, 200);
+                for (int i = 0; i < numDocs; i++) {
+                    Document document = new Document();
+                    int numValues = randomIntBetween(0, 3);
+                    for (int j = 0; j < numValues; j++) {
+                        // skewed so that some terms are much more frequent than others
+                        int value = (int) Math.pow(randomIntBetween(0, 10), 2);
+                        document.add(new SortedSetDocValuesField("string", new BytesRef("value" + value)));
+                    }
+                    indexWriter.addDocument(document);
+                }
+            }
+            try (IndexReader indexReader = DirectoryReader.open(directory)) {
+                IndexSearcher indexSearcher = newSearcher(indexReader, true, true);
+                MappedFieldType fieldType = new KeywordFieldMapper.KeywordFieldType();
+                fieldType.setName("string");
+                fieldType.setHasDocValues(true);
+                int size = randomIntBetween(1, 20);
+                Terms expected = null;
+                for (TermsAggregatorFactory.ExecutionMode executionMode : new TermsAggregatorFactory.ExecutionMode[] {
+                        TermsAggregatorFactory.ExecutionMode.MAP, TermsAggregatorFactory.ExecutionMode.SPACE_SAVING}) {
+                    TermsAggregationBuilder aggregationBuilder = new TermsAggregationBuilder("_name", ValueType.STRING)
+                        .executionHint(executionMode.toString())
+                        .field("string")
+                        .size(size)
+                        .shardSize(size)
+                        .showTermDocCountError(true);
+                    TermsAggregator aggregator = createAggregator(aggregationBuilder, indexSearcher, fieldType);
+                    if (executionMode == TermsAggregatorFactory.ExecutionMode.SPACE_SAVING) {
+                        assertThat(aggregator, instanceOf(SpaceSavingStringTermsAggregator.class));
+                    }
+                    aggregator.preCollection();
+                    indexSearcher.search(new MatchAllDocsQuery(), aggregator);
+                    aggregator.postCollection();
+                    Terms result = (Terms) aggregator.buildAggregation(0L);
+                    if (expected == null) {
+                        expected = result;
+                        continue;
+                    }
+                    // there are less terms than counters so counts are exact
+                    assertEquals(expected.getBuckets().size(), result.getBuckets().size());
+                    for (int i = 0; i < expected.getBuckets().size(); i++) {
+                        assertEquals(expected.getBuckets().get(i).getKeyAsString(), result.getBuckets().get(i).getKeyAsString());
+                        assertEquals(expected.getBuckets().get(i).getDocCount(), result.getBuckets().get(i).getDocCount());
+                        assertEquals(0, result.getBuckets().get(i).getDocCountError());
+                    }
+                    assertEquals(expected.getSumOfOtherDocCounts(), result.getSumOfOtherDocCounts());
+                }
+
+                // sub-aggregations and other orders need all terms
+                TermsAggregationBuilder aggregationBuilder = new TermsAggregationBuilder("_name", ValueType.STRING)
+                    .executionHint(TermsAggregatorFactory.ExecutionMode.SPACE_SAVING.toString())
+                    .field("string")
+                    .order(BucketOrder.key(true));
+                TermsAggregator aggregator = createAggregator(aggregationBuilder, indexSearcher, fieldType);
+                assertThat(aggregator, instanceOf(StringTermsAggregator.class));
+                aggregationBuilder.order(BucketOrder.count(false));
+                aggregationBuilder.subAggregation(AggregationBuilders.cardinality("card").field("string"));
+                aggregator = createAggregator(aggregationBuilder, indexSearcher, fieldType);
+                assertThat(aggregator, instanceOf(StringTermsAggregator.class));
+            }
+        }
+    }
+
     public void testSimple() throws Exception {
         try (Directory directory = newDirectory()) {
             try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory)) {
@@ -27,6 +27,7 @@ import org.elasticsearch.test.ESTestCase;
 import static org.elasticsearch.search.aggregations.metrics.cardinality.HyperLogLogPlusPlus.MAX_PRECISION;
 import static org.elasticsearch.search.aggregations.metrics.cardinality.HyperLogLogPlusPlus.MIN_PRECISION;
 import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.lessThan;
 
 public class HyperLogLogPlusPlusTests extends ESTestCase {
     public void testEncodeDecode() {
@@ -117,6 +118,27 @@ public class HyperLogLogPlusPlusTests extends ESTestCase {
         assertEquals(1, counts.cardinality(0));
     }
 
+    public void testManyBucketsWithFewValues() {
+        final int p = randomIntBetween(10, MAX_PRECISION);
+        final int numBuckets = randomIntBetween(1000, 5000);
+        try (HyperLogLogPlusPlus counts = new HyperLogLogPlusPlus(p, BigArrays.NON_RECYCLING_INSTANCE, 1)) {
+            final int[] numValues = new int[numBuckets];
+            for (int bucket = 0; bucket < numBuckets; ++bucket) {
+                numValues[bucket] = randomIntBetween(1, 10);
+                for (int i = 0; i < numValues[bucket]; ++i) {
+                    // collect every value twice
+                    counts.collect(bucket, BitMixer.mix64(i));
+                    counts.collect(bucket, BitMixer.mix64(i));
+                }
+            }
+            for (int bucket = 0; bucket < numBuckets; ++bucket) {
+                assertEquals(numValues[bucket], counts.cardinality(bucket));
+            }
+            // buckets that use linear counting don't allocate registers
+            assertThat(counts.ramBytesUsed(), lessThan(numBuckets * HyperLogLogPlusPlus.memoryUsage(p) / 10));
+        }
+    }
+
     public void testPrecisionFromThreshold() {
         assertEquals(4, HyperLogLogPlusPlus.precisionFromThreshold(0));
         assertEquals(6, HyperLogLogPlusPlus.precisionFromThreshold(10));
@@ -0,0 +1,125 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.search.aggregations.metrics.percentiles.tdigest;
+
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.test.ESTestCase;
+
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class MergingTDigestsTests extends ESTestCase {
+
+    public void testEmptyBucket() {
+        try (MergingTDigests digests = new MergingTDigests(randomIntBetween(1, 200), BigArrays.NON_RECYCLING_INSTANCE, 1)) {
+            digests.add(1, randomDouble());
+            assertEquals(0, digests.centroidCount(0));
+            assertEquals(0, digests.toTDigestState(0).size());
+            assertEquals(0, digests.toTDigestState(randomIntBetween(2, 1000)).size());
+        }
+    }
+
+    public void testSingleValue() {
+        try (MergingTDigests digests = new MergingTDigests(randomIntBetween(1, 200), BigArrays.NON_RECYCLING_INSTANCE, 1)) {
+            final double value = randomDouble();
+            final int count = randomIntBetween(1, 100);
+            for (int i = 0; i < count; ++i) {
+                digests.add(0, value);
+            }
+            final TDigestState state = digests.toTDigestState(0);
+            assertEquals(count, state.size());
+            assertEquals(value, state.quantile(randomDouble()), 0d);
+            assertEquals(0, state.cdf(value - 1), 0d);
+        }
+    }
+
+    public void testAccuracy() {
+        final double compression = randomIntBetween(50, 500);
+        final int numBuckets = randomIntBetween(1, 20);
+        final double[][] values = new double[numBuckets][];
+        try (MergingTDigests digests = new MergingTDigests(compression, BigArrays.NON_RECYCLING_INSTANCE, 1)) {
+            for (int bucket = 0; bucket < numBuckets; ++bucket) {
+                values[bucket] = new double[randomIntBetween(1, 10000)];
+            }
+            // interleave buckets like a parent bucket aggregation would
+            final int[] collected = new int[numBuckets];
+            for (int remaining = Arrays.stream(values).mapToInt(v -> v.length).sum(); remaining > 0; ) {
+                final int bucket = randomInt(numBuckets - 1);
+                if (collected[bucket] < values[bucket].length) {
+                    final double value = randomBoolean() ? randomDouble() : random().nextGaussian() * 1000;
+                    values[bucket][collected[bucket]++] = value;
+                    digests.add(bucket, value);
+                    remaining--;
+                }
+            }
+            for (int bucket = 0; bucket < numBuckets; ++bucket) {
+                final double[] sorted = values[bucket];
+                Arrays.sort(sorted);
+                assertThat(digests.centroidCount(bucket), lessThanOrEqualTo((int) compression + 2));
+                final TDigestState state = digests.toTDigestState(bucket);
+                assertEquals(sorted.length, state.size());
+                assertEquals(compression, state.compression(), 0d);
+                for (int i = 0; i < 10; ++i) {
+                    final double q = randomDouble();
+                    final double value = state.quantile(q);
+                    // the error is bounded by the size of the centroids, which are smaller on the edges
+                    final double maxError = 4 * Math.PI * Math.sqrt(q * (1 - q)) / compression + 2d / sorted.length;
+                    assertThat(rank(sorted, value), closeTo(q, maxError));
+                }
+            }
+        }
+    }
+
+    private static double rank(double[] sorted, double value) {
+        int index = Arrays.binarySearch(sorted, value);
+        if (index < 0) {
+            index = -1 - index;
+        }
+        return (double) index / sorted.length;
+    }
+
+    public void testMemoryOfSmallBuckets() {
+        final int numBuckets = randomIntBetween(1000, 10000);
+        try (MergingTDigests digests = new MergingTDigests(100, BigArrays.NON_RECYCLING_INSTANCE, 1)) {
+            for (int i = 0; i < 4 * numBuckets; ++i) {
+                digests.add(randomInt(numBuckets - 1), randomDouble());
+            }
+            // buckets with few values only need a few centroids rather than a full digest
+            assertThat(digests.ramBytesUsed() / numBuckets, lessThanOrEqualTo(512L));
+        }
+    }
+
+    public void testMemoryOfGrowingBuckets() {
+        final int numBuckets = randomIntBetween(1000, 5000);
+        try (MergingTDigests digests = new MergingTDigests(100, BigArrays.NON_RECYCLING_INSTANCE, 1)) {
+            for (int i = 0; i < 100 * numBuckets; ++i) {
+                digests.add(i % numBuckets, randomDouble());
+            }
+            // the regions that buckets give up when they grow are reclaimed
+            assertThat(digests.ramBytesUsed() / numBuckets, lessThanOrEqualTo(2500L));
+            for (int bucket = 0; bucket < numBuckets; ++bucket) {
+                assertEquals(100, digests.toTDigestState(bucket).size());
+            }
+        }
+    }
+}
@@ -96,6 +96,37 @@ public class TDigestPercentileRanksAggregatorTests extends AggregatorTestCase {
         }
     }
 
+    public void testMetricMatchesResponse() throws IOException {
+        double[] values = new double[] {randomDouble() * 100, randomDouble() * 100, randomDouble() * 100};
+        try (Directory dir = newDirectory();
+                RandomIndexWriter w = new RandomIndexWriter(random(), dir)) {
+            int numDocs = randomIntBetween(1, 5000);
+            for (int i = 0; i < numDocs; i++) {
+                Document doc = new Document();
+                doc.add(new SortedNumericDocValuesField("field", NumericUtils.doubleToSortableLong(randomDouble() * 100)));
+                w.addDocument(doc);
+            }
+
+            PercentileRanksAggregationBuilder aggBuilder = new PercentileRanksAggregationBuilder("my_agg", values)
+                    .field("field")
+                    .method(PercentilesMethod.TDIGEST);
+            MappedFieldType fieldType = new NumberFieldMapper.NumberFieldType(NumberFieldMapper.NumberType.DOUBLE);
+            fieldType.setName("field");
+            try (IndexReader reader = w.getReader()) {
+                IndexSearcher searcher = new IndexSearcher(reader);
+                TDigestPercentileRanksAggregator aggregator = createAggregator(aggBuilder, searcher, fieldType);
+                aggregator.preCollection();
+                searcher.search(new MatchAllDocsQuery(), aggregator);
+                aggregator.postCollection();
+                // sorting buckets on a percentile rank must agree with the percentile ranks in the response
+                PercentileRanks ranks = (PercentileRanks) aggregator.buildAggregation(0L);
+                for (double value : values) {
+                    assertEquals(ranks.percent(value), aggregator.metric(String.valueOf(value), 0L), 0d);
+                }
+            }
+        }
+    }
+
     public void testNullValues() throws IOException {
         IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
             () -> new PercentileRanksAggregationBuilder("my_agg", null).field("field").method(PercentilesMethod.TDIGEST));
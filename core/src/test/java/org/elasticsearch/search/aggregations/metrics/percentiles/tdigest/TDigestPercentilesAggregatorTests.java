@@ -133,6 +133,36 @@ public class TDigestPercentilesAggregatorTests extends AggregatorTestCase {
         });
     }
 
+    public void testMetricMatchesResponse() throws IOException {
+        try (Directory directory = newDirectory()) {
+            try (RandomIndexWriter indexWriter = new RandomIndexWriter(random(), directory)) {
+                int numDocs = randomIntBetween(1, 5000);
+                for (int i = 0; i < numDocs; i++) {
+                    indexWriter.addDocument(singleton(new SortedNumericDocValuesField("number", randomIntBetween(0, 10000))));
+                }
+            }
+
+            try (IndexReader indexReader = DirectoryReader.open(directory)) {
+                IndexSearcher indexSearcher = newSearcher(indexReader, true, true);
+
+                PercentilesAggregationBuilder builder =
+                        new PercentilesAggregationBuilder("test").field("number").method(PercentilesMethod.TDIGEST);
+
+                MappedFieldType fieldType = new NumberFieldMapper.NumberFieldType(NumberFieldMapper.NumberType.LONG);
+                fieldType.setName("number");
+                TDigestPercentilesAggregator aggregator = createAggregator(builder, indexSearcher, fieldType);
+                aggregator.preCollection();
+                indexSearcher.search(new MatchAllDocsQuery(), aggregator);
+                aggregator.postCollection();
+                // sorting buckets on a percentile must agree with the percentiles in the response
+                InternalTDigestPercentiles tdigest = (InternalTDigestPercentiles) aggregator.buildAggregation(0L);
+                for (double percent : builder.percentiles()) {
+                    assertEquals(tdigest.percentile(percent), aggregator.metric(String.valueOf(percent), 0L), 0d);
+                }
+            }
+        }
+    }
+
     private void testCase(Query query, CheckedConsumer<RandomIndexWriter, IOException> buildIndex,
                           Consumer<InternalTDigestPercentiles> verify) throws IOException {
         try (Directory directory = newDirectory()) {
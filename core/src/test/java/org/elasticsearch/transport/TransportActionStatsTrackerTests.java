@@ -0,0 +1,88 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.transport;
+
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.test.ESTestCase;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.containsString;
+
+public class TransportActionStatsTrackerTests extends ESTestCase {
+
+    public void testSnapshotsAreCumulative() {
+        TransportActionStatsTracker tracker = new TransportActionStatsTracker();
+        assertFalse(tracker.hasActivity());
+        tracker.onRequestReceived(10);
+        tracker.onQueued(TimeUnit.MILLISECONDS.toNanos(1));
+        tracker.onExecuted(TimeUnit.MILLISECONDS.toNanos(5));
+        tracker.onResponseSent(20);
+        assertTrue(tracker.hasActivity());
+
+        TransportActionStats stats = tracker.stats();
+        assertEquals(1, stats.getRxCount());
+        assertEquals(10, stats.getRxSize().getBytes());
+        assertEquals(1, stats.getTxCount());
+        assertEquals(20, stats.getTxSize().getBytes());
+        assertEquals(1, stats.getQueueTime().getTotalCount());
+        assertTrue(stats.getQueueTime().valuesAreEquivalent(1000, stats.getQueueTime().getMaxValue()));
+        assertEquals(1, stats.getExecutionTime().getTotalCount());
+        assertTrue(stats.getExecutionTime().valuesAreEquivalent(5000, stats.getExecutionTime().getMaxValue()));
+
+        tracker.onRequestReceived(30);
+        tracker.onQueued(-1); // nanoTime may go backwards
+        tracker.onExecuted(TimeUnit.MILLISECONDS.toNanos(50));
+        TransportActionStats next = tracker.stats();
+        assertEquals(2, next.getRxCount());
+        assertEquals(40, next.getRxSize().getBytes());
+        assertEquals(2, next.getQueueTime().getTotalCount());
+        assertEquals(0, next.getQueueTime().getMinValue());
+        assertEquals(2, next.getExecutionTime().getTotalCount());
+        // earlier snapshots are not modified
+        assertEquals(1, stats.getExecutionTime().getTotalCount());
+    }
+
+    public void testToXContent() throws IOException {
+        TransportActionStatsTracker tracker = new TransportActionStatsTracker();
+        String empty = toString(tracker.stats());
+        assertThat(empty, containsString("\"queue_time\":{\"count\":0}"));
+
+        tracker.onRequestReceived(10);
+        tracker.onExecuted(TimeUnit.MICROSECONDS.toNanos(100));
+        String json = toString(tracker.stats());
+        assertThat(json, containsString("\"rx_count\":1"));
+        assertThat(json, containsString("\"rx_size_in_bytes\":10"));
+        assertThat(json, containsString("\"execution_time\":{\"count\":1,\"min_in_micros\":100,\"max_in_micros\":100"));
+        assertThat(json, containsString("\"percentiles_in_micros\":{\"50.0\":100,\"90.0\":100,\"99.0\":100,\"99.9\":100}"));
+    }
+
+    private static String toString(TransportActionStats stats) throws IOException {
+        XContentBuilder builder = XContentFactory.jsonBuilder();
+        builder.startObject();
+        stats.toXContent(builder, ToXContent.EMPTY_PARAMS);
+        builder.endObject();
+        return builder.string();
+    }
+}
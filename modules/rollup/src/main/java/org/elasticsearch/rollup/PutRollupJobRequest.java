@@ -0,0 +1,93 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rollup;
+
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ActionRequestValidationException;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+
+import java.io.IOException;
+
+import static org.elasticsearch.action.ValidateActions.addValidationError;
+
+/**
+ * A request to create a rollup job and its rollup index.
+ */
+public class PutRollupJobRequest extends ActionRequest {
+
+    private String jobId;
+    private RollupJobConfig config;
+
+    public PutRollupJobRequest() {
+    }
+
+    public PutRollupJobRequest(String jobId, RollupJobConfig config) {
+        this.jobId = jobId;
+        this.config = config;
+    }
+
+    /**
+     * The id of the job, which is also the name of the rollup index.
+     */
+    public String jobId() {
+        return jobId;
+    }
+
+    public PutRollupJobRequest jobId(String jobId) {
+        this.jobId = jobId;
+        return this;
+    }
+
+    public RollupJobConfig config() {
+        return config;
+    }
+
+    public PutRollupJobRequest config(RollupJobConfig config) {
+        this.config = config;
+        return this;
+    }
+
+    @Override
+    public ActionRequestValidationException validate() {
+        ActionRequestValidationException validationException = null;
+        if (jobId == null) {
+            validationException = addValidationError("job id is missing", validationException);
+        }
+        if (config == null) {
+            validationException = addValidationError("job config is missing", validationException);
+        }
+        return validationException;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        jobId = in.readString();
+        config = new RollupJobConfig(in);
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeString(jobId);
+        config.writeTo(out);
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rollup;
+
+import org.elasticsearch.client.node.NodeClient;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.rest.BaseRestHandler;
+import org.elasticsearch.rest.RestController;
+import org.elasticsearch.rest.RestRequest;
+import org.elasticsearch.rest.action.RestToXContentListener;
+
+import java.io.IOException;
+
+import static org.elasticsearch.rest.RestRequest.Method.POST;
+
+public class RestRunRollupJobAction extends BaseRestHandler {
+
+    public RestRunRollupJobAction(Settings settings, RestController controller) {
+        super(settings);
+        controller.registerHandler(POST, "/_rollup/job/{id}/_run", this);
+    }
+
+    @Override
+    public String getName() {
+        return "run_rollup_job_action";
+    }
+
+    @Override
+    public RestChannelConsumer prepareRequest(RestRequest request, NodeClient client) throws IOException {
+        RunRollupJobRequest runRequest = new RunRollupJobRequest(request.param("id"));
+        runRequest.masterNodeTimeout(request.paramAsTime("master_timeout", runRequest.masterNodeTimeout()));
+        return channel -> client.execute(RunRollupJobAction.INSTANCE, runRequest, new RestToXContentListener<>(channel));
+    }
+}
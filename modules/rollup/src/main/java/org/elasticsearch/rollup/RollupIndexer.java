@@ -0,0 +1,409 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rollup;
+
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.hash.MurmurHash3;
+import org.elasticsearch.common.xcontent.ToXContentObject;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.common.xcontent.support.XContentMapValues;
+import org.elasticsearch.index.mapper.DateFieldMapper;
+import org.elasticsearch.index.mapper.SeqNoFieldMapper;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.Aggregations;
+import org.elasticsearch.search.aggregations.bucket.histogram.Histogram;
+import org.elasticsearch.search.aggregations.bucket.missing.Missing;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.elasticsearch.search.aggregations.metrics.max.Max;
+import org.elasticsearch.search.aggregations.metrics.min.Min;
+import org.elasticsearch.search.aggregations.metrics.sum.Sum;
+import org.elasticsearch.search.aggregations.metrics.valuecount.ValueCount;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.joda.time.DateTime;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Computes the rollup documents of a batch of source documents and merges them into the rollup documents that already
+ * exist. A rollup document holds the rounded timestamp and the values of the terms fields that it groups on, the number
+ * of source documents of the group in {@value #COUNT_FIELD}, the {@code min}, {@code max}, {@code sum} and
+ * {@code value_count} of every metric field under {@code <field>.<metric>}, and the checkpoint of the last batch of
+ * every shard that was merged into it in {@value #CHECKPOINTS_FIELD} so that a batch that is retried after a failure is
+ * never applied twice. The progress of the job is stored in {@value #STATE_FIELD} of the document {@value #STATE_ID} of
+ * the rollup index.
+ */
+public final class RollupIndexer {
+
+    /**
+     * The type of the documents of rollup indices.
+     */
+    public static final String TYPE = "doc";
+
+    public static final String COUNT_FIELD = "_rollup.count";
+    public static final String CHECKPOINTS_FIELD = "_rollup.checkpoints";
+    public static final String STATE_FIELD = "_rollup.state";
+    /**
+     * The id of the document that holds the state of the job, which can't collide with the ids of rollup documents.
+     */
+    public static final String STATE_ID = "_rollup_state";
+    public static final String MIN = "min";
+    public static final String MAX = "max";
+    public static final String SUM = "sum";
+    public static final String VALUE_COUNT = "value_count";
+
+    static final String META_KEY = "rollup";
+    static final String CONFIG_KEY = "config";
+
+    private static final Set<String> TERMS_TYPES = new HashSet<>(Arrays.asList(
+        "keyword", "ip", "long", "integer", "short", "byte", "double", "float", "half_float"));
+    private static final Set<String> METRIC_TYPES = new HashSet<>(Arrays.asList(
+        "long", "integer", "short", "byte", "double", "float", "half_float", "scaled_float"));
+
+    private static final String TIMESTAMP_AGG = "timestamp";
+    private static final String TERMS_AGG = "terms_";
+    private static final String MISSING_AGG = "missing_";
+
+    private RollupIndexer() {}
+
+    /**
+     * A group of source documents that share the same rounded timestamp and terms values.
+     */
+    static final class Record {
+        final long timestamp;
+        final Object[] terms;
+        final long docCount;
+        final double[] min;
+        final double[] max;
+        final double[] sum;
+        final long[] valueCount;
+
+        Record(long timestamp, Object[] terms, long docCount, double[] min, double[] max, double[] sum, long[] valueCount) {
+            this.timestamp = timestamp;
+            this.terms = terms;
+            this.docCount = docCount;
+            this.min = min;
+            this.max = max;
+            this.sum = sum;
+            this.valueCount = valueCount;
+        }
+
+        /**
+         * The id of the rollup document of this group, which only depends on the timestamp and terms values.
+         */
+        String id() {
+            StringBuilder key = new StringBuilder().append(timestamp);
+            for (Object term : terms) {
+                key.append('\u0000');
+                if (term == null) {
+                    key.append('m');
+                } else {
+                    key.append(term instanceof Number ? 'n' : 's').append(term);
+                }
+            }
+            byte[] bytes = key.toString().getBytes(StandardCharsets.UTF_8);
+            MurmurHash3.Hash128 hash = MurmurHash3.hash128(bytes, 0, bytes.length, 0, new MurmurHash3.Hash128());
+            byte[] id = ByteBuffer.allocate(16).putLong(hash.h1).putLong(hash.h2).array();
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(id);
+        }
+    }
+
+    /**
+     * Build the search request that groups the documents of a shard of the source index whose sequence numbers are
+     * in {@code (fromCheckpoint, toCheckpoint]}.
+     */
+    static SearchRequest batchRequest(RollupJobConfig config, int shard, long fromCheckpoint, long toCheckpoint) {
+        AggregationBuilder timestamp = AggregationBuilders.dateHistogram(TIMESTAMP_AGG)
+            .field(config.getTimestampField())
+            .interval(config.getInterval().millis())
+            .minDocCount(1);
+        addGroups(config, timestamp, 0);
+        SearchSourceBuilder source = new SearchSourceBuilder()
+            .size(0)
+            .query(QueryBuilders.rangeQuery(SeqNoFieldMapper.NAME).gt(fromCheckpoint).lte(toCheckpoint))
+            .aggregation(timestamp);
+        return new SearchRequest(config.getIndex())
+            .source(source)
+            .preference("_shards:" + shard)
+            .requestCache(false);
+    }
+
+    private static void addGroups(RollupJobConfig config, AggregationBuilder parent, int level) {
+        if (level == config.getTerms().size()) {
+            for (int i = 0; i < config.getMetrics().size(); i++) {
+                String field = config.getMetrics().get(i);
+                parent.subAggregation(AggregationBuilders.min(MIN + i).field(field));
+                parent.subAggregation(AggregationBuilders.max(MAX + i).field(field));
+                parent.subAggregation(AggregationBuilders.sum(SUM + i).field(field));
+                parent.subAggregation(AggregationBuilders.count(VALUE_COUNT + i).field(field));
+            }
+            return;
+        }
+        String field = config.getTerms().get(level);
+        // a batch never has more groups than sequence numbers, so this returns every term
+        AggregationBuilder terms = AggregationBuilders.terms(TERMS_AGG + level)
+            .field(field)
+            .size(config.getBatchSize())
+            .minDocCount(1);
+        AggregationBuilder missing = AggregationBuilders.missing(MISSING_AGG + level).field(field);
+        addGroups(config, terms, level + 1);
+        addGroups(config, missing, level + 1);
+        parent.subAggregation(terms);
+        parent.subAggregation(missing);
+    }
+
+    /**
+     * Extract the groups of a batch from the aggregations of its {@link #batchRequest(RollupJobConfig, int, long, long) request}.
+     */
+    static List<Record> records(RollupJobConfig config, Aggregations aggregations) {
+        List<Record> records = new ArrayList<>();
+        Histogram timestamps = aggregations.get(TIMESTAMP_AGG);
+        for (Histogram.Bucket bucket : timestamps.getBuckets()) {
+            long timestamp = ((DateTime) bucket.getKey()).getMillis();
+            collect(config, timestamp, new Object[config.getTerms().size()], 0, bucket.getDocCount(), bucket.getAggregations(), records);
+        }
+        return records;
+    }
+
+    private static void collect(RollupJobConfig config, long timestamp, Object[] terms, int level, long docCount,
+                                Aggregations aggregations, List<Record> records) {
+        if (level == terms.length) {
+            int numMetrics = config.getMetrics().size();
+            double[] min = new double[numMetrics];
+            double[] max = new double[numMetrics];
+            double[] sum = new double[numMetrics];
+            long[] valueCount = new long[numMetrics];
+            for (int i = 0; i < numMetrics; i++) {
+                min[i] = ((Min) aggregations.get(MIN + i)).getValue();
+                max[i] = ((Max) aggregations.get(MAX + i)).getValue();
+                sum[i] = ((Sum) aggregations.get(SUM + i)).getValue();
+                valueCount[i] = ((ValueCount) aggregations.get(VALUE_COUNT + i)).getValue();
+            }
+            records.add(new Record(timestamp, terms.clone(), docCount, min, max, sum, valueCount));
+            return;
+        }
+        Terms termsAgg = aggregations.get(TERMS_AGG + level);
+        for (Terms.Bucket bucket : termsAgg.getBuckets()) {
+            terms[level] = bucket.getKey();
+            collect(config, timestamp, terms, level + 1, bucket.getDocCount(), bucket.getAggregations(), records);
+        }
+        Missing missing = aggregations.get(MISSING_AGG + level);
+        if (missing.getDocCount() > 0) {
+            terms[level] = null;
+            collect(config, timestamp, terms, level + 1, missing.getDocCount(), missing.getAggregations(), records);
+        }
+    }
+
+    /**
+     * Whether the batch of the given shard up to the given checkpoint has already been merged into a rollup document.
+     */
+    static boolean isMerged(Map<String, Object> existing, int shard, long checkpoint) {
+        Object merged = XContentMapValues.extractValue(CHECKPOINTS_FIELD, existing);
+        if (merged instanceof Map == false) {
+            return false;
+        }
+        Object shardCheckpoint = ((Map<?, ?>) merged).get(Integer.toString(shard));
+        return shardCheckpoint != null && XContentMapValues.nodeLongValue(shardCheckpoint) >= checkpoint;
+    }
+
+    /**
+     * Build the source of the rollup document of a group, merging it into the existing rollup document if any.
+     */
+    static Map<String, Object> document(RollupJobConfig config, Record record, int shard, long checkpoint,
+                                        @Nullable Map<String, Object> existing) {
+        Map<String, Object> document = new LinkedHashMap<>();
+        put(document, config.getTimestampField(), record.timestamp);
+        for (int i = 0; i < record.terms.length; i++) {
+            if (record.terms[i] != null) {
+                put(document, config.getTerms().get(i), record.terms[i]);
+            }
+        }
+        for (int i = 0; i < config.getMetrics().size(); i++) {
+            String field = config.getMetrics().get(i);
+            double min = record.min[i];
+            double max = record.max[i];
+            double sum = record.sum[i];
+            long valueCount = record.valueCount[i];
+            if (existing != null) {
+                Object existingMin = XContentMapValues.extractValue(field + "." + MIN, existing);
+                if (existingMin != null) {
+                    min = Math.min(min, XContentMapValues.nodeDoubleValue(existingMin));
+                }
+                Object existingMax = XContentMapValues.extractValue(field + "." + MAX, existing);
+                if (existingMax != null) {
+                    max = Math.max(max, XContentMapValues.nodeDoubleValue(existingMax));
+                }
+                sum += XContentMapValues.nodeDoubleValue(XContentMapValues.extractValue(field + "." + SUM, existing), 0);
+                valueCount += XContentMapValues.nodeLongValue(XContentMapValues.extractValue(field + "." + VALUE_COUNT, existing), 0);
+            }
+            if (valueCount > 0) {
+                // min and max are infinite when the group has no value for the field
+                put(document, field + "." + MIN, min);
+                put(document, field + "." + MAX, max);
+            }
+            put(document, field + "." + SUM, sum);
+            put(document, field + "." + VALUE_COUNT, valueCount);
+        }
+        long docCount = record.docCount;
+        Map<String, Object> checkpoints = new HashMap<>();
+        if (existing != null) {
+            docCount += XContentMapValues.nodeLongValue(XContentMapValues.extractValue(COUNT_FIELD, existing), 0);
+            Object existingCheckpoints = XContentMapValues.extractValue(CHECKPOINTS_FIELD, existing);
+            if (existingCheckpoints instanceof Map) {
+                checkpoints.putAll(XContentMapValues.nodeMapValue(existingCheckpoints, CHECKPOINTS_FIELD));
+            }
+        }
+        checkpoints.put(Integer.toString(shard), checkpoint);
+        put(document, COUNT_FIELD, docCount);
+        put(document, CHECKPOINTS_FIELD, checkpoints);
+        return document;
+    }
+
+    /**
+     * Build the source of the state document of a job.
+     */
+    static Map<String, Object> stateDocument(RollupJobState state) {
+        Map<String, Object> document = new LinkedHashMap<>();
+        put(document, STATE_FIELD, toMap(state));
+        return document;
+    }
+
+    /**
+     * Read the state of a job from the source of its state document.
+     */
+    static RollupJobState state(Map<String, Object> stateDocument) {
+        Object state = XContentMapValues.extractValue(STATE_FIELD, stateDocument);
+        return RollupJobState.fromMap(XContentMapValues.nodeMapValue(state, STATE_FIELD));
+    }
+
+    /**
+     * Build the mapping of the rollup index of a job.
+     *
+     * @param sourceFields the mappings of the timestamp and terms fields in the source index, by field name
+     */
+    static Map<String, Object> mapping(RollupJobConfig config, Map<String, Map<String, Object>> sourceFields) {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        Map<String, Object> timestamp = sourceField(sourceFields, config.getTimestampField(), Collections.singleton("date"));
+        Map<String, Object> timestampMapping = new HashMap<>();
+        timestampMapping.put("type", "date");
+        // rollup documents hold rounded timestamps in milliseconds since the epoch
+        String format = XContentMapValues.nodeStringValue(timestamp.get("format"), DateFieldMapper.DEFAULT_DATE_TIME_FORMATTER.format());
+        if (Arrays.asList(format.split("\\|\\|")).contains("epoch_millis") == false) {
+            format = format + "||epoch_millis";
+        }
+        timestampMapping.put("format", format);
+        putField(properties, config.getTimestampField(), timestampMapping);
+        for (String field : config.getTerms()) {
+            Map<String, Object> terms = sourceField(sourceFields, field, TERMS_TYPES);
+            putField(properties, field, Collections.singletonMap("type", terms.get("type")));
+        }
+        for (String field : config.getMetrics()) {
+            sourceField(sourceFields, field, METRIC_TYPES);
+            putField(properties, field + "." + MIN, Collections.singletonMap("type", "double"));
+            putField(properties, field + "." + MAX, Collections.singletonMap("type", "double"));
+            putField(properties, field + "." + SUM, Collections.singletonMap("type", "double"));
+            putField(properties, field + "." + VALUE_COUNT, Collections.singletonMap("type", "long"));
+        }
+        putField(properties, COUNT_FIELD, Collections.singletonMap("type", "long"));
+        Map<String, Object> checkpoints = new HashMap<>();
+        checkpoints.put("type", "object");
+        checkpoints.put("enabled", false);
+        putField(properties, CHECKPOINTS_FIELD, checkpoints);
+        Map<String, Object> state = new HashMap<>();
+        state.put("type", "object");
+        state.put("enabled", false);
+        putField(properties, STATE_FIELD, state);
+
+        Map<String, Object> mapping = new LinkedHashMap<>();
+        mapping.put("_meta", meta(config));
+        mapping.put("dynamic", "strict");
+        mapping.put("properties", properties);
+        return mapping;
+    }
+
+    private static Map<String, Object> sourceField(Map<String, Map<String, Object>> sourceFields, String field, Set<String> types) {
+        Map<String, Object> mapping = sourceFields.get(field);
+        if (mapping == null) {
+            throw new IllegalArgumentException("field [" + field + "] is not mapped in the source index");
+        }
+        Object type = mapping.get("type");
+        if (types.contains(type) == false) {
+            throw new IllegalArgumentException("field [" + field + "] of type [" + type + "] can't be rolled up, expected one of " + types);
+        }
+        return mapping;
+    }
+
+    /**
+     * The {@code _meta} of the mapping of a rollup index, which holds the definition of its job. It is only written when
+     * the job is created.
+     */
+    static Map<String, Object> meta(RollupJobConfig config) {
+        return Collections.singletonMap(META_KEY, Collections.singletonMap(CONFIG_KEY, toMap(config)));
+    }
+
+    private static Map<String, Object> toMap(ToXContentObject object) {
+        try {
+            return XContentHelper.convertToMap(XContentHelper.toXContent(object, XContentType.JSON, false), true, XContentType.JSON).v2();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Put a value in the given map, creating an object for every dot-separated part of the path.
+     */
+    @SuppressWarnings("unchecked")
+    private static void put(Map<String, Object> map, String path, Object value) {
+        String[] parts = path.split("\\.");
+        for (int i = 0; i < parts.length - 1; i++) {
+            map = (Map<String, Object>) map.computeIfAbsent(parts[i], k -> new LinkedHashMap<>());
+        }
+        map.put(parts[parts.length - 1], value);
+    }
+
+    /**
+     * Put a field mapping in the given properties, creating an object mapping for every dot-separated part of the path.
+     */
+    @SuppressWarnings("unchecked")
+    private static void putField(Map<String, Object> properties, String path, Map<String, Object> mapping) {
+        String[] parts = path.split("\\.");
+        for (int i = 0; i < parts.length - 1; i++) {
+            Map<String, Object> object = (Map<String, Object>) properties.computeIfAbsent(parts[i], k -> new LinkedHashMap<>());
+            properties = (Map<String, Object>) object.computeIfAbsent("properties", k -> new LinkedHashMap<>());
+        }
+        properties.put(parts[parts.length - 1], mapping);
+    }
+}
@@ -0,0 +1,236 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rollup;
+
+import org.elasticsearch.ElasticsearchParseException;
+import org.elasticsearch.common.ParseField;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.ToXContentObject;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.support.XContentMapValues;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The definition of a rollup job: which source index is rolled up, the fixed interval that timestamps are rounded down to,
+ * the fields whose values are grouped on and the numeric fields whose {@code min}, {@code max}, {@code sum} and
+ * {@code value_count} are pre-computed for every group.
+ */
+public class RollupJobConfig implements Writeable, ToXContentObject {
+
+    public static final int DEFAULT_BATCH_SIZE = 10000;
+
+    static final ParseField INDEX_FIELD = new ParseField("index");
+    static final ParseField TIMESTAMP_FIELD = new ParseField("timestamp_field");
+    static final ParseField INTERVAL_FIELD = new ParseField("interval");
+    static final ParseField TERMS_FIELD = new ParseField("terms");
+    static final ParseField METRICS_FIELD = new ParseField("metrics");
+    static final ParseField BATCH_SIZE_FIELD = new ParseField("batch_size");
+
+    private final String index;
+    private final String timestampField;
+    private final TimeValue interval;
+    private final List<String> terms;
+    private final List<String> metrics;
+    private final int batchSize;
+
+    public RollupJobConfig(String index, String timestampField, TimeValue interval, List<String> terms, List<String> metrics,
+                           int batchSize) {
+        if (Strings.hasText(index) == false) {
+            throw new IllegalArgumentException("[" + INDEX_FIELD.getPreferredName() + "] is required");
+        }
+        if (Strings.hasText(timestampField) == false) {
+            throw new IllegalArgumentException("[" + TIMESTAMP_FIELD.getPreferredName() + "] is required");
+        }
+        if (interval == null || interval.millis() <= 0) {
+            throw new IllegalArgumentException("[" + INTERVAL_FIELD.getPreferredName() + "] must be a positive time value");
+        }
+        if (metrics == null || metrics.isEmpty()) {
+            throw new IllegalArgumentException("[" + METRICS_FIELD.getPreferredName() + "] must contain at least one field");
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("[" + BATCH_SIZE_FIELD.getPreferredName() + "] must be greater than 0");
+        }
+        terms = terms == null ? Collections.emptyList() : terms;
+        Set<String> fields = new HashSet<>();
+        fields.add(timestampField);
+        for (String field : terms) {
+            if (fields.add(field) == false) {
+                throw new IllegalArgumentException("field [" + field + "] may only be used once in a rollup job");
+            }
+        }
+        for (String field : metrics) {
+            if (fields.add(field) == false) {
+                throw new IllegalArgumentException("field [" + field + "] may only be used once in a rollup job");
+            }
+        }
+        this.index = index;
+        this.timestampField = timestampField;
+        this.interval = interval;
+        this.terms = Collections.unmodifiableList(new ArrayList<>(terms));
+        this.metrics = Collections.unmodifiableList(new ArrayList<>(metrics));
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Read from a stream.
+     */
+    public RollupJobConfig(StreamInput in) throws IOException {
+        index = in.readString();
+        timestampField = in.readString();
+        interval = new TimeValue(in);
+        terms = Collections.unmodifiableList(in.readList(StreamInput::readString));
+        metrics = Collections.unmodifiableList(in.readList(StreamInput::readString));
+        batchSize = in.readVInt();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeString(index);
+        out.writeString(timestampField);
+        interval.writeTo(out);
+        out.writeStringList(terms);
+        out.writeStringList(metrics);
+        out.writeVInt(batchSize);
+    }
+
+    /**
+     * Parse a rollup job from its map representation, as it is sent to the put job API and stored in the rollup index.
+     */
+    public static RollupJobConfig fromMap(Map<String, ?> map) {
+        String index = null;
+        String timestampField = null;
+        TimeValue interval = null;
+        List<String> terms = Collections.emptyList();
+        List<String> metrics = Collections.emptyList();
+        int batchSize = DEFAULT_BATCH_SIZE;
+        for (Map.Entry<String, ?> entry : map.entrySet()) {
+            String name = entry.getKey();
+            Object value = entry.getValue();
+            if (INDEX_FIELD.match(name)) {
+                index = XContentMapValues.nodeStringValue(value, null);
+            } else if (TIMESTAMP_FIELD.match(name)) {
+                timestampField = XContentMapValues.nodeStringValue(value, null);
+            } else if (INTERVAL_FIELD.match(name)) {
+                interval = TimeValue.parseTimeValue(XContentMapValues.nodeStringValue(value, null), null,
+                    INTERVAL_FIELD.getPreferredName());
+            } else if (TERMS_FIELD.match(name)) {
+                terms = Arrays.asList(XContentMapValues.nodeStringArrayValue(value));
+            } else if (METRICS_FIELD.match(name)) {
+                metrics = Arrays.asList(XContentMapValues.nodeStringArrayValue(value));
+            } else if (BATCH_SIZE_FIELD.match(name)) {
+                batchSize = XContentMapValues.nodeIntegerValue(value);
+            } else {
+                throw new ElasticsearchParseException("unknown rollup job parameter [{}]", name);
+            }
+        }
+        return new RollupJobConfig(index, timestampField, interval, terms, metrics, batchSize);
+    }
+
+    /**
+     * The index whose documents are rolled up.
+     */
+    public String getIndex() {
+        return index;
+    }
+
+    /**
+     * The date field whose values are rounded down to the job {@link #getInterval() interval}.
+     */
+    public String getTimestampField() {
+        return timestampField;
+    }
+
+    /**
+     * The fixed interval that timestamps are rounded down to.
+     */
+    public TimeValue getInterval() {
+        return interval;
+    }
+
+    /**
+     * The fields whose values are grouped on, in addition to the rounded timestamp.
+     */
+    public List<String> getTerms() {
+        return terms;
+    }
+
+    /**
+     * The numeric fields that are summarized in every group.
+     */
+    public List<String> getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * The maximum number of sequence numbers of a shard that are rolled up at once.
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject();
+        builder.field(INDEX_FIELD.getPreferredName(), index);
+        builder.field(TIMESTAMP_FIELD.getPreferredName(), timestampField);
+        builder.field(INTERVAL_FIELD.getPreferredName(), interval.getStringRep());
+        builder.field(TERMS_FIELD.getPreferredName(), terms);
+        builder.field(METRICS_FIELD.getPreferredName(), metrics);
+        builder.field(BATCH_SIZE_FIELD.getPreferredName(), batchSize);
+        return builder.endObject();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        RollupJobConfig other = (RollupJobConfig) obj;
+        return Objects.equals(index, other.index)
+            && Objects.equals(timestampField, other.timestampField)
+            && Objects.equals(interval, other.interval)
+            && Objects.equals(terms, other.terms)
+            && Objects.equals(metrics, other.metrics)
+            && batchSize == other.batchSize;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(index, timestampField, interval, terms, metrics, batchSize);
+    }
+
+    @Override
+    public String toString() {
+        return Strings.toString(this);
+    }
+}
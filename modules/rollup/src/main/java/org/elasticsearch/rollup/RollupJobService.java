@@ -0,0 +1,471 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rollup;
+
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.apache.logging.log4j.util.Supplier;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ResourceNotFoundException;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.admin.indices.mapping.get.GetFieldMappingsResponse;
+import org.elasticsearch.action.admin.indices.mapping.get.GetFieldMappingsResponse.FieldMappingMetaData;
+import org.elasticsearch.action.admin.indices.stats.ShardStats;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.get.GetRequest;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.get.MultiGetItemResponse;
+import org.elasticsearch.action.get.MultiGetRequestBuilder;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.support.WriteRequest;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.LocalNodeMasterListener;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.metadata.MappingMetaData;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.lucene.uid.Versions;
+import org.elasticsearch.common.settings.Setting;
+import org.elasticsearch.common.settings.Setting.Property;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.threadpool.ThreadPool.Cancellable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Creates rollup jobs and runs them. A rollup job is identified by the name of its rollup index, whose mapping holds the
+ * definition of the job in its {@code _meta} and which holds the progress of the job in a state document. Jobs only run
+ * on the elected master node, either periodically every {@link #POLL_INTERVAL_SETTING} or when they are explicitly
+ * triggered, and every run rolls up all the operations of the source index up to its global checkpoints, one batch at a time.
+ */
+public class RollupJobService extends AbstractComponent implements LocalNodeMasterListener {
+
+    /**
+     * How often the master node runs all rollup jobs, {@code -1} to only run them when explicitly triggered.
+     */
+    public static final Setting<TimeValue> POLL_INTERVAL_SETTING =
+        Setting.timeSetting("rollup.poll_interval", TimeValue.timeValueMinutes(1), TimeValue.MINUS_ONE, Property.NodeScope);
+
+    /**
+     * The source index of a rollup index, which allows to find the rollup indices of an index without parsing mappings.
+     */
+    public static final Setting<String> SOURCE_INDEX_SETTING = Setting.simpleString("index.rollup.source",
+        Property.IndexScope, Property.Final);
+
+    /**
+     * A rollup job, as it is stored in the cluster state. Its progress is not, see {@link #stateRequest(String)}.
+     */
+    public static final class Job {
+        private final String id;
+        private final RollupJobConfig config;
+
+        Job(String id, RollupJobConfig config) {
+            this.id = id;
+            this.config = config;
+        }
+
+        /**
+         * The id of the job, which is the name of its rollup index.
+         */
+        public String getId() {
+            return id;
+        }
+
+        public RollupJobConfig getConfig() {
+            return config;
+        }
+    }
+
+    private final Client client;
+    private final ClusterService clusterService;
+    private final ThreadPool threadPool;
+    private final TimeValue pollInterval;
+    private final Set<String> runningJobs = ConcurrentCollections.newConcurrentSet();
+    private volatile Cancellable scheduledRuns;
+
+    public RollupJobService(Settings settings, Client client, ClusterService clusterService, ThreadPool threadPool) {
+        super(settings);
+        this.client = client;
+        this.clusterService = clusterService;
+        this.threadPool = threadPool;
+        this.pollInterval = POLL_INTERVAL_SETTING.get(settings);
+        clusterService.addLocalNodeMasterListener(this);
+    }
+
+    /**
+     * Read the rollup job of an index, or {@code null} if the index is not a rollup index.
+     */
+    @SuppressWarnings("unchecked")
+    static Job readJob(IndexMetaData indexMetaData) {
+        if (SOURCE_INDEX_SETTING.exists(indexMetaData.getSettings()) == false) {
+            return null;
+        }
+        MappingMetaData mapping = indexMetaData.mapping(RollupIndexer.TYPE);
+        if (mapping == null) {
+            return null;
+        }
+        Object meta = mapping.sourceAsMap().get("_meta");
+        if (meta instanceof Map == false || ((Map<?, ?>) meta).get(RollupIndexer.META_KEY) instanceof Map == false) {
+            return null;
+        }
+        Map<String, ?> rollup = (Map<String, ?>) ((Map<?, ?>) meta).get(RollupIndexer.META_KEY);
+        RollupJobConfig config = RollupJobConfig.fromMap((Map<String, ?>) rollup.get(RollupIndexer.CONFIG_KEY));
+        return new Job(indexMetaData.getIndex().getName(), config);
+    }
+
+    /**
+     * Get a rollup job from the cluster state.
+     *
+     * @throws ResourceNotFoundException if there is no such job
+     */
+    public static Job getJob(ClusterState state, String jobId) {
+        IndexMetaData indexMetaData = state.metaData().index(jobId);
+        Job job = indexMetaData == null ? null : readJob(indexMetaData);
+        if (job == null) {
+            throw new ResourceNotFoundException("rollup job [{}] does not exist", jobId);
+        }
+        return job;
+    }
+
+    /**
+     * Find a rollup job of the given source index, or {@code null} if the index isn't rolled up.
+     */
+    public static Job findJob(ClusterState state, String sourceIndex) {
+        List<String> jobIds = new ArrayList<>();
+        for (IndexMetaData indexMetaData : state.metaData()) {
+            if (sourceIndex.equals(SOURCE_INDEX_SETTING.get(indexMetaData.getSettings()))) {
+                jobIds.add(indexMetaData.getIndex().getName());
+            }
+        }
+        if (jobIds.isEmpty()) {
+            return null;
+        }
+        // pick the same job on every node when an index is rolled up by several jobs
+        Collections.sort(jobIds);
+        return readJob(state.metaData().index(jobIds.get(0)));
+    }
+
+    /**
+     * Create a rollup job, which creates its rollup index.
+     */
+    public void createJob(String jobId, RollupJobConfig config, ActionListener<PutRollupJobResponse> listener) {
+        List<String> fields = new ArrayList<>();
+        fields.add(config.getTimestampField());
+        fields.addAll(config.getTerms());
+        fields.addAll(config.getMetrics());
+        client.admin().indices().prepareGetFieldMappings(config.getIndex())
+            .setFields(fields.toArray(new String[0]))
+            .execute(ActionListener.wrap(response -> {
+                Map<String, Map<String, Object>> sourceFields = sourceFields(config, response);
+                Settings settings = Settings.builder().put(SOURCE_INDEX_SETTING.getKey(), config.getIndex()).build();
+                client.admin().indices().prepareCreate(jobId)
+                    .setSettings(settings)
+                    .addMapping(RollupIndexer.TYPE, RollupIndexer.mapping(config, sourceFields))
+                    .execute(ActionListener.wrap(
+                        createResponse -> listener.onResponse(new PutRollupJobResponse(createResponse.isAcknowledged())),
+                        listener::onFailure));
+            }, listener::onFailure));
+    }
+
+    private static Map<String, Map<String, Object>> sourceFields(RollupJobConfig config, GetFieldMappingsResponse response) {
+        if (response.mappings().size() != 1) {
+            throw new IllegalArgumentException("the source of a rollup job must be a single index but [" + config.getIndex()
+                + "] resolved to " + response.mappings().keySet());
+        }
+        Map<String, Map<String, Object>> sourceFields = new HashMap<>();
+        for (Map<String, FieldMappingMetaData> typeMappings : response.mappings().values().iterator().next().values()) {
+            for (Map.Entry<String, FieldMappingMetaData> field : typeMappings.entrySet()) {
+                if (field.getValue().isNull() == false) {
+                    // the mapping has a single key, the leaf name of the field
+                    @SuppressWarnings("unchecked")
+                    Map<String, Object> mapping = (Map<String, Object>) field.getValue().sourceAsMap().values().iterator().next();
+                    sourceFields.put(field.getKey(), mapping);
+                }
+            }
+        }
+        return sourceFields;
+    }
+
+    /**
+     * The request that gets the state of a job. It is a realtime get so that it always sees the last state that was written,
+     * even if the rollup index hasn't been refreshed since.
+     */
+    static GetRequest stateRequest(String jobId) {
+        return new GetRequest(jobId, RollupIndexer.TYPE, RollupIndexer.STATE_ID).realtime(true);
+    }
+
+    /**
+     * Read the state of a job from the response to its {@link #stateRequest(String)}. A job that never ran has no state document.
+     */
+    static RollupJobState readState(GetResponse response) {
+        return response.isExists() ? RollupIndexer.state(response.getSourceAsMap()) : RollupJobState.EMPTY;
+    }
+
+    /**
+     * Roll up all the operations of the source index of a job up to its global checkpoints, and notify the listener once the
+     * job is up to date.
+     */
+    public void runJob(String jobId, ActionListener<RunRollupJobResponse> listener) {
+        final RollupJobConfig config;
+        try {
+            config = getJob(clusterService.state(), jobId).getConfig();
+        } catch (Exception e) {
+            listener.onFailure(e);
+            return;
+        }
+        if (runningJobs.add(jobId) == false) {
+            listener.onFailure(new IllegalStateException("rollup job [" + jobId + "] is already running"));
+            return;
+        }
+        ActionListener<RunRollupJobResponse> runListener = ActionListener.wrap(response -> {
+            runningJobs.remove(jobId);
+            listener.onResponse(response);
+        }, e -> {
+            runningJobs.remove(jobId);
+            listener.onFailure(e);
+        });
+        globalCheckpoints(config.getIndex(), ActionListener.wrap(globalCheckpoints ->
+            // all operations up to the global checkpoints are visible to searches on all shard copies after this refresh
+            client.admin().indices().prepareRefresh(config.getIndex()).execute(ActionListener.wrap(refreshResponse ->
+                client.get(stateRequest(jobId), ActionListener.wrap(stateResponse -> {
+                    long stateVersion = stateResponse.isExists() ? stateResponse.getVersion() : Versions.NOT_FOUND;
+                    new Run(jobId, config, globalCheckpoints, readState(stateResponse), stateVersion, runListener).start();
+                }, runListener::onFailure)),
+                runListener::onFailure)),
+            runListener::onFailure));
+    }
+
+    /**
+     * A run of a job, which rolls up one batch at a time and stores the state of the job before and after every batch.
+     */
+    private final class Run {
+        private final String jobId;
+        private final RollupJobConfig config;
+        private final Iterator<Map.Entry<Integer, Long>> globalCheckpoints;
+        private final ActionListener<RunRollupJobResponse> listener;
+        private Map.Entry<Integer, Long> globalCheckpoint;
+        private RollupJobState state;
+        private long stateVersion;
+        private int batches;
+        private long docs;
+
+        Run(String jobId, RollupJobConfig config, Map<Integer, Long> globalCheckpoints, RollupJobState state, long stateVersion,
+            ActionListener<RunRollupJobResponse> listener) {
+            this.jobId = jobId;
+            this.config = config;
+            this.globalCheckpoints = globalCheckpoints.entrySet().iterator();
+            this.state = state;
+            this.stateVersion = stateVersion;
+            this.listener = listener;
+        }
+
+        void start() {
+            if (state.hasPendingBatch()) {
+                // a previous run failed in the middle of a batch, which is safe to apply again
+                int shard = state.getPendingShard();
+                indexBatch(jobId, config, shard, state.getCheckpoint(shard), state.getPendingCheckpoint(),
+                    ActionListener.wrap(this::completeBatch, listener::onFailure));
+            } else {
+                nextBatch();
+            }
+        }
+
+        private void nextBatch() {
+            while (globalCheckpoint == null || state.getCheckpoint(globalCheckpoint.getKey()) >= globalCheckpoint.getValue()) {
+                if (globalCheckpoints.hasNext() == false) {
+                    listener.onResponse(new RunRollupJobResponse(jobId, batches, docs, state));
+                    return;
+                }
+                globalCheckpoint = globalCheckpoints.next();
+            }
+            int shard = globalCheckpoint.getKey();
+            long from = state.getCheckpoint(shard);
+            long to = Math.min(globalCheckpoint.getValue(), from + config.getBatchSize());
+            writeState(state.startBatch(shard, to), ActionListener.wrap(
+                started -> indexBatch(jobId, config, shard, from, to, ActionListener.wrap(this::completeBatch, listener::onFailure)),
+                listener::onFailure));
+        }
+
+        private void completeBatch(long batchDocs) {
+            writeState(state.completeBatch(), ActionListener.wrap(completed -> {
+                batches++;
+                docs += batchDocs;
+                nextBatch();
+            }, listener::onFailure));
+        }
+
+        /**
+         * Store the state of the job in its state document. Writes are conditional on the version of the state that this run
+         * read so that a run that overlaps with another one, for instance on a master node that just stepped down, fails
+         * instead of moving the job backwards.
+         */
+        private void writeState(RollupJobState newState, ActionListener<Void> onStored) {
+            IndexRequest request = new IndexRequest(jobId, RollupIndexer.TYPE, RollupIndexer.STATE_ID)
+                .source(RollupIndexer.stateDocument(newState));
+            if (stateVersion == Versions.NOT_FOUND) {
+                request.opType(DocWriteRequest.OpType.CREATE);
+            } else {
+                request.version(stateVersion);
+            }
+            client.index(request, ActionListener.wrap(response -> {
+                state = newState;
+                stateVersion = response.getVersion();
+                onStored.onResponse(null);
+            }, onStored::onFailure));
+        }
+    }
+
+    private void globalCheckpoints(String index, ActionListener<Map<Integer, Long>> listener) {
+        client.admin().indices().prepareStats(index).clear().execute(ActionListener.wrap(stats -> {
+            Map<Integer, Long> globalCheckpoints = new TreeMap<>();
+            for (ShardStats shardStats : stats.getShards()) {
+                if (shardStats.getShardRouting().primary() && shardStats.getSeqNoStats() != null) {
+                    globalCheckpoints.put(shardStats.getShardRouting().id(), shardStats.getSeqNoStats().getGlobalCheckpoint());
+                }
+            }
+            listener.onResponse(globalCheckpoints);
+        }, listener::onFailure));
+    }
+
+    /**
+     * Merge the operations of a shard whose sequence numbers are in {@code (from, to]} into the rollup index, and notify the
+     * listener with the number of source documents that were rolled up once the rollup documents are visible to searches.
+     */
+    private void indexBatch(String jobId, RollupJobConfig config, int shard, long from, long to, ActionListener<Long> listener) {
+        client.search(RollupIndexer.batchRequest(config, shard, from, to), ActionListener.wrap(response -> {
+            if (response.getFailedShards() > 0 || response.getSuccessfulShards() == 0) {
+                throw new ElasticsearchException("failed to search shard [{}] of [{}] for rollup job [{}]",
+                    shard, config.getIndex(), jobId);
+            }
+            List<RollupIndexer.Record> records = RollupIndexer.records(config, response.getAggregations());
+            if (records.isEmpty()) {
+                listener.onResponse(0L);
+                return;
+            }
+            MultiGetRequestBuilder multiGet = client.prepareMultiGet();
+            for (RollupIndexer.Record record : records) {
+                multiGet.add(jobId, RollupIndexer.TYPE, record.id());
+            }
+            multiGet.execute(ActionListener.wrap(existingDocuments -> {
+                BulkRequestBuilder bulk = client.prepareBulk().setRefreshPolicy(WriteRequest.RefreshPolicy.WAIT_UNTIL);
+                long docs = 0;
+                for (int i = 0; i < records.size(); i++) {
+                    RollupIndexer.Record record = records.get(i);
+                    MultiGetItemResponse item = existingDocuments.getResponses()[i];
+                    if (item.isFailed()) {
+                        throw new ElasticsearchException("failed to get rollup document [{}] of job [{}]", item.getFailure().getFailure(),
+                            record.id(), jobId);
+                    }
+                    GetResponse existing = item.getResponse();
+                    Map<String, Object> existingSource = existing.isExists() ? existing.getSourceAsMap() : null;
+                    docs += record.docCount;
+                    if (existingSource != null && RollupIndexer.isMerged(existingSource, shard, to)) {
+                        // written by a previous attempt at this batch
+                        continue;
+                    }
+                    IndexRequest index = new IndexRequest(jobId, RollupIndexer.TYPE, record.id())
+                        .source(RollupIndexer.document(config, record, shard, to, existingSource));
+                    if (existingSource == null) {
+                        index.opType(DocWriteRequest.OpType.CREATE);
+                    } else {
+                        index.version(existing.getVersion());
+                    }
+                    bulk.add(index);
+                }
+                final long batchDocs = docs;
+                if (bulk.numberOfActions() == 0) {
+                    // make sure that the documents of the previous attempt are visible before the batch is committed
+                    client.admin().indices().prepareRefresh(jobId).execute(ActionListener.wrap(
+                        refreshResponse -> listener.onResponse(batchDocs), listener::onFailure));
+                } else {
+                    bulk.execute(ActionListener.wrap(bulkResponse -> {
+                        if (bulkResponse.hasFailures()) {
+                            throw new ElasticsearchException("failed to write rollup documents of job [{}]: {}", jobId,
+                                bulkResponse.buildFailureMessage());
+                        }
+                        listener.onResponse(batchDocs);
+                    }, listener::onFailure));
+                }
+            }, listener::onFailure));
+        }, listener::onFailure));
+    }
+
+    @Override
+    public void onMaster() {
+        if (pollInterval.millis() > 0) {
+            scheduledRuns = threadPool.scheduleWithFixedDelay(this::runJobs, pollInterval, ThreadPool.Names.GENERIC);
+        }
+    }
+
+    @Override
+    public void offMaster() {
+        Cancellable runs = scheduledRuns;
+        if (runs != null) {
+            runs.cancel();
+            scheduledRuns = null;
+        }
+    }
+
+    @Override
+    public String executorName() {
+        return ThreadPool.Names.SAME;
+    }
+
+    private void runJobs() {
+        List<String> jobIds = new ArrayList<>();
+        for (IndexMetaData indexMetaData : clusterService.state().metaData()) {
+            if (SOURCE_INDEX_SETTING.exists(indexMetaData.getSettings())) {
+                jobIds.add(indexMetaData.getIndex().getName());
+            }
+        }
+        runJobs(jobIds.iterator());
+    }
+
+    /**
+     * Run the given jobs one after the other, skipping the jobs that are already running.
+     */
+    private void runJobs(Iterator<String> jobIds) {
+        while (jobIds.hasNext()) {
+            if (clusterService.state().nodes().isLocalNodeElectedMaster() == false) {
+                return;
+            }
+            String jobId = jobIds.next();
+            if (runningJobs.contains(jobId) == false) {
+                runJob(jobId, ActionListener.wrap(response -> runJobs(jobIds), e -> {
+                    logger.warn((Supplier<?>) () -> new ParameterizedMessage("failed to run rollup job [{}]", jobId), e);
+                    runJobs(jobIds);
+                }));
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rollup;
+
+import org.elasticsearch.ElasticsearchParseException;
+import org.elasticsearch.common.ParseField;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Writeable;
+import org.elasticsearch.common.xcontent.ToXContentObject;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.support.XContentMapValues;
+import org.elasticsearch.index.seqno.SequenceNumbers;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * The progress of a rollup job. For every shard of the source index, the checkpoint is the highest sequence number up to
+ * which all operations have been rolled up. A batch that is being written to the rollup index is recorded as pending
+ * before any rollup document is written and cleared once its checkpoint is committed, and every change bumps the
+ * generation so that searches can detect that the rollup index changed while they were running.
+ */
+public class RollupJobState implements Writeable, ToXContentObject {
+
+    public static final RollupJobState EMPTY = new RollupJobState(Collections.emptyMap(), -1, SequenceNumbers.NO_OPS_PERFORMED, 0);
+
+    static final ParseField CHECKPOINTS_FIELD = new ParseField("checkpoints");
+    static final ParseField PENDING_SHARD_FIELD = new ParseField("pending_shard");
+    static final ParseField PENDING_CHECKPOINT_FIELD = new ParseField("pending_checkpoint");
+    static final ParseField GENERATION_FIELD = new ParseField("generation");
+
+    private final Map<Integer, Long> checkpoints;
+    private final int pendingShard;
+    private final long pendingCheckpoint;
+    private final long generation;
+
+    public RollupJobState(Map<Integer, Long> checkpoints, int pendingShard, long pendingCheckpoint, long generation) {
+        this.checkpoints = Collections.unmodifiableMap(new TreeMap<>(checkpoints));
+        this.pendingShard = pendingShard;
+        this.pendingCheckpoint = pendingCheckpoint;
+        this.generation = generation;
+    }
+
+    /**
+     * Read from a stream.
+     */
+    public RollupJobState(StreamInput in) throws IOException {
+        checkpoints = Collections.unmodifiableMap(new TreeMap<>(in.readMap(StreamInput::readVInt, StreamInput::readZLong)));
+        pendingShard = in.readInt();
+        pendingCheckpoint = in.readZLong();
+        generation = in.readVLong();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeMap(checkpoints, StreamOutput::writeVInt, StreamOutput::writeZLong);
+        out.writeInt(pendingShard);
+        out.writeZLong(pendingCheckpoint);
+        out.writeVLong(generation);
+    }
+
+    /**
+     * Parse the state of a rollup job from the map that is stored in the rollup index.
+     */
+    public static RollupJobState fromMap(Map<String, ?> map) {
+        Map<Integer, Long> checkpoints = new TreeMap<>();
+        int pendingShard = -1;
+        long pendingCheckpoint = SequenceNumbers.NO_OPS_PERFORMED;
+        long generation = 0;
+        for (Map.Entry<String, ?> entry : map.entrySet()) {
+            String name = entry.getKey();
+            Object value = entry.getValue();
+            if (CHECKPOINTS_FIELD.match(name)) {
+                for (Map.Entry<String, Object> checkpoint : XContentMapValues.nodeMapValue(value, name).entrySet()) {
+                    checkpoints.put(Integer.parseInt(checkpoint.getKey()), XContentMapValues.nodeLongValue(checkpoint.getValue()));
+                }
+            } else if (PENDING_SHARD_FIELD.match(name)) {
+                pendingShard = XContentMapValues.nodeIntegerValue(value);
+            } else if (PENDING_CHECKPOINT_FIELD.match(name)) {
+                pendingCheckpoint = XContentMapValues.nodeLongValue(value);
+            } else if (GENERATION_FIELD.match(name)) {
+                generation = XContentMapValues.nodeLongValue(value);
+            } else {
+                throw new ElasticsearchParseException("unknown rollup job state parameter [{}]", name);
+            }
+        }
+        return new RollupJobState(checkpoints, pendingShard, pendingCheckpoint, generation);
+    }
+
+    /**
+     * The highest sequence number of the given shard up to which all operations have been rolled up.
+     */
+    public long getCheckpoint(int shard) {
+        return checkpoints.getOrDefault(shard, SequenceNumbers.NO_OPS_PERFORMED);
+    }
+
+    /**
+     * The checkpoints of all shards that have been rolled up at least once, by shard number.
+     */
+    public Map<Integer, Long> getCheckpoints() {
+        return checkpoints;
+    }
+
+    /**
+     * Whether a batch may be partially written to the rollup index.
+     */
+    public boolean hasPendingBatch() {
+        return pendingShard >= 0;
+    }
+
+    /**
+     * The shard of the pending batch, or {@code -1} if there is no pending batch.
+     */
+    public int getPendingShard() {
+        return pendingShard;
+    }
+
+    /**
+     * The checkpoint that the pending batch rolls its shard up to.
+     */
+    public long getPendingCheckpoint() {
+        return pendingCheckpoint;
+    }
+
+    /**
+     * A number that is incremented on every change of the state.
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Record that the rollup documents of the given shard up to the given checkpoint are about to be written.
+     */
+    public RollupJobState startBatch(int shard, long checkpoint) {
+        if (checkpoint <= getCheckpoint(shard)) {
+            throw new IllegalArgumentException("checkpoint [" + checkpoint + "] of shard [" + shard + "] is already rolled up");
+        }
+        return new RollupJobState(checkpoints, shard, checkpoint, generation + 1);
+    }
+
+    /**
+     * Commit the pending batch: its rollup documents are all written and visible to searches.
+     */
+    public RollupJobState completeBatch() {
+        if (hasPendingBatch() == false) {
+            throw new IllegalStateException("there is no pending batch");
+        }
+        Map<Integer, Long> newCheckpoints = new TreeMap<>(checkpoints);
+        newCheckpoints.put(pendingShard, pendingCheckpoint);
+        return new RollupJobState(newCheckpoints, -1, SequenceNumbers.NO_OPS_PERFORMED, generation + 1);
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject();
+        builder.startObject(CHECKPOINTS_FIELD.getPreferredName());
+        for (Map.Entry<Integer, Long> checkpoint : checkpoints.entrySet()) {
+            builder.field(Integer.toString(checkpoint.getKey()), checkpoint.getValue());
+        }
+        builder.endObject();
+        if (hasPendingBatch()) {
+            builder.field(PENDING_SHARD_FIELD.getPreferredName(), pendingShard);
+            builder.field(PENDING_CHECKPOINT_FIELD.getPreferredName(), pendingCheckpoint);
+        }
+        builder.field(GENERATION_FIELD.getPreferredName(), generation);
+        return builder.endObject();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        RollupJobState other = (RollupJobState) obj;
+        return Objects.equals(checkpoints, other.checkpoints)
+            && pendingShard == other.pendingShard
+            && pendingCheckpoint == other.pendingCheckpoint
+            && generation == other.generation;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(checkpoints, pendingShard, pendingCheckpoint, generation);
+    }
+
+    @Override
+    public String toString() {
+        return Strings.toString(this);
+    }
+}
@@ -0,0 +1,584 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rollup;
+
+import org.elasticsearch.ElasticsearchParseException;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.ShardSearchFailure;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.ConstantScoreQueryBuilder;
+import org.elasticsearch.index.query.ExistsQueryBuilder;
+import org.elasticsearch.index.query.MatchAllQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.query.RangeQueryBuilder;
+import org.elasticsearch.index.query.TermQueryBuilder;
+import org.elasticsearch.index.query.TermsQueryBuilder;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.SearchHits;
+import org.elasticsearch.search.aggregations.Aggregation;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.AggregatorFactories;
+import org.elasticsearch.search.aggregations.BucketOrder;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.InternalAggregation.ReduceContext;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.InternalMultiBucketAggregation;
+import org.elasticsearch.search.aggregations.InternalOrder;
+import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramInterval;
+import org.elasticsearch.search.aggregations.bucket.terms.InternalTerms;
+import org.elasticsearch.search.aggregations.bucket.terms.TermsAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.avg.AvgAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.avg.InternalAvg;
+import org.elasticsearch.search.aggregations.metrics.max.MaxAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.min.MinAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.sum.InternalSum;
+import org.elasticsearch.search.aggregations.metrics.sum.SumAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.valuecount.InternalValueCount;
+import org.elasticsearch.search.aggregations.metrics.valuecount.ValueCountAggregationBuilder;
+import org.elasticsearch.search.aggregations.support.AggregationPath;
+import org.elasticsearch.search.aggregations.support.ValuesSourceAggregationBuilder;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.internal.InternalSearchResponse;
+import org.elasticsearch.search.internal.SearchContext;
+import org.joda.time.DateTimeZone;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Answers an aggregation-only search on a rolled up index from two searches: the original search restricted to the
+ * documents that have not been rolled up yet (the tail) and an equivalent search on the rollup documents. The rollup
+ * side is rewritten to read the pre-computed fields and to count buckets with the {@code _rollup.count} field, and the
+ * two responses are reduced together like the responses of two indices.
+ */
+final class RollupSearchRewriter {
+
+    /**
+     * Hidden sum of {@code _rollup.count} that is added to every bucket aggregation of the rollup side, and that carries the
+     * document count of the buckets of the tail side so that both sides can be ordered by it.
+     */
+    static final String COUNT_AGG = "_rollup_count";
+
+    /**
+     * Prefix of the hidden sum of {@code value_count} that is added next to every {@code avg} of the rollup side.
+     */
+    static final String AVG_COUNT_PREFIX = "_rollup_count_";
+
+    private static final long SECOND = TimeValue.timeValueSeconds(1).millis();
+    private static final long MINUTE = TimeValue.timeValueMinutes(1).millis();
+    private static final long HOUR = TimeValue.timeValueHours(1).millis();
+    private static final long DAY = TimeValue.timeValueHours(24).millis();
+
+    private RollupSearchRewriter() {}
+
+    /**
+     * Whether the given search can be answered from the rollup index of the given job: it may only return aggregations,
+     * its query may only filter on the terms fields of the job and on timestamps aligned on the job interval, and its
+     * aggregations may only be {@code date_histogram}, {@code terms}, {@code min}, {@code max}, {@code sum},
+     * {@code value_count} and {@code avg} on the fields of the job.
+     */
+    static boolean isEligible(RollupJobConfig config, SearchSourceBuilder source) {
+        if (source == null || source.size() != 0 || source.from() > 0) {
+            return false;
+        }
+        if (source.postFilter() != null || source.suggest() != null || source.minScore() != null || source.slice() != null
+                || source.collapse() != null || source.searchAfter() != null
+                || (source.rescores() != null && source.rescores().isEmpty() == false)
+                || source.profile() || source.terminateAfter() != SearchContext.DEFAULT_TERMINATE_AFTER) {
+            return false;
+        }
+        AggregatorFactories.Builder aggregations = source.aggregations();
+        if (aggregations == null || aggregations.count() == 0 || aggregations.getPipelineAggregatorFactories().isEmpty() == false) {
+            return false;
+        }
+        if (isEligible(config, source.query()) == false) {
+            return false;
+        }
+        for (AggregationBuilder aggregation : aggregations.getAggregatorFactories()) {
+            if (translate(config, aggregation, builder -> {}) == false) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean isEligible(RollupJobConfig config, QueryBuilder query) {
+        if (query == null || query instanceof MatchAllQueryBuilder) {
+            return true;
+        } else if (query instanceof TermQueryBuilder) {
+            return config.getTerms().contains(((TermQueryBuilder) query).fieldName());
+        } else if (query instanceof TermsQueryBuilder) {
+            TermsQueryBuilder terms = (TermsQueryBuilder) query;
+            return terms.termsLookup() == null && config.getTerms().contains(terms.fieldName());
+        } else if (query instanceof ExistsQueryBuilder) {
+            return config.getTerms().contains(((ExistsQueryBuilder) query).fieldName());
+        } else if (query instanceof RangeQueryBuilder) {
+            RangeQueryBuilder range = (RangeQueryBuilder) query;
+            if (config.getTerms().contains(range.fieldName())) {
+                return true;
+            }
+            return config.getTimestampField().equals(range.fieldName()) && isAligned(config, range);
+        } else if (query instanceof BoolQueryBuilder) {
+            BoolQueryBuilder bool = (BoolQueryBuilder) query;
+            List<QueryBuilder> clauses = new ArrayList<>();
+            clauses.addAll(bool.must());
+            clauses.addAll(bool.filter());
+            clauses.addAll(bool.mustNot());
+            clauses.addAll(bool.should());
+            return clauses.stream().allMatch(clause -> isEligible(config, clause));
+        } else if (query instanceof ConstantScoreQueryBuilder) {
+            return isEligible(config, ((ConstantScoreQueryBuilder) query).innerQuery());
+        }
+        return false;
+    }
+
+    /**
+     * A range on the timestamp field can only be answered from rollup documents if both of its bounds fall on the edges
+     * of the job interval. Only bounds in milliseconds since the epoch are accepted since dates that are formatted may be
+     * rounded up when they are used as an upper bound.
+     */
+    private static boolean isAligned(RollupJobConfig config, RangeQueryBuilder range) {
+        if (range.timeZone() != null || range.format() != null) {
+            return false;
+        }
+        long interval = config.getInterval().millis();
+        if (range.from() != null) {
+            Long from = epochMillis(range.from());
+            if (from == null || Math.floorMod(range.includeLower() ? from : from + 1, interval) != 0) {
+                return false;
+            }
+        }
+        if (range.to() != null) {
+            Long to = epochMillis(range.to());
+            if (to == null || Math.floorMod(range.includeUpper() ? to + 1 : to, interval) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Long epochMillis(Object value) {
+        if (value instanceof Long || value instanceof Integer) {
+            return ((Number) value).longValue();
+        }
+        try {
+            return Long.parseLong(value.toString());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Translate an aggregation of the source index into the aggregation that computes the same result from the rollup
+     * index, and pass the translated aggregations to the given consumer.
+     *
+     * @return whether the aggregation could be translated
+     */
+    static boolean translate(RollupJobConfig config, AggregationBuilder aggregation, Consumer<AggregationBuilder> consumer) {
+        if (aggregation.getPipelineAggregations().isEmpty() == false) {
+            return false;
+        }
+        if (aggregation instanceof DateHistogramAggregationBuilder) {
+            DateHistogramAggregationBuilder histogram = (DateHistogramAggregationBuilder) aggregation;
+            if (config.getTimestampField().equals(histogram.field()) == false || isPlainField(histogram) == false
+                    || (histogram.timeZone() != null && DateTimeZone.UTC.equals(histogram.timeZone()) == false)
+                    || histogram.offset() != 0 || histogram.minDocCount() > 1 || InternalOrder.isKeyOrder(histogram.order()) == false) {
+                return false;
+            }
+            long interval = fixedInterval(histogram);
+            if (interval <= 0 || interval % config.getInterval().millis() != 0) {
+                return false;
+            }
+            DateHistogramAggregationBuilder translated = new DateHistogramAggregationBuilder(histogram.getName());
+            translated.field(histogram.field());
+            translated.interval(interval);
+            translated.order(histogram.order());
+            translated.keyed(histogram.keyed());
+            translated.minDocCount(histogram.minDocCount());
+            if (histogram.extendedBounds() != null) {
+                translated.extendedBounds(histogram.extendedBounds());
+            }
+            if (histogram.format() != null) {
+                translated.format(histogram.format());
+            }
+            return translateBucket(config, histogram, translated, consumer);
+        } else if (aggregation instanceof TermsAggregationBuilder) {
+            TermsAggregationBuilder terms = (TermsAggregationBuilder) aggregation;
+            if (config.getTerms().contains(terms.field()) == false || terms.script() != null
+                    || terms.minDocCount() > 1 || terms.shardMinDocCount() > 1) {
+                return false;
+            }
+            BucketOrder order = translate(terms.order(), terms);
+            if (order == null) {
+                return false;
+            }
+            TermsAggregationBuilder translated = new TermsAggregationBuilder(terms.getName(), terms.valueType());
+            translated.field(terms.field());
+            translated.order(order);
+            translated.size(terms.size());
+            if (terms.shardSize() > 0) {
+                translated.shardSize(terms.shardSize());
+            }
+            translated.minDocCount(terms.minDocCount());
+            translated.shardMinDocCount(terms.shardMinDocCount());
+            translated.includeExclude(terms.includeExclude());
+            translated.executionHint(terms.executionHint());
+            if (terms.collectMode() != null) {
+                translated.collectMode(terms.collectMode());
+            }
+            translated.showTermDocCountError(terms.showTermDocCountError());
+            if (terms.missing() != null) {
+                translated.missing(terms.missing());
+            }
+            if (terms.format() != null) {
+                translated.format(terms.format());
+            }
+            return translateBucket(config, terms, translated, consumer);
+        } else if (aggregation instanceof MaxAggregationBuilder) {
+            return translateMetric(config, (MaxAggregationBuilder) aggregation, RollupIndexer.MAX,
+                AggregationBuilders.max(aggregation.getName()), consumer);
+        } else if (aggregation instanceof MinAggregationBuilder) {
+            return translateMetric(config, (MinAggregationBuilder) aggregation, RollupIndexer.MIN,
+                AggregationBuilders.min(aggregation.getName()), consumer);
+        } else if (aggregation instanceof SumAggregationBuilder) {
+            return translateMetric(config, (SumAggregationBuilder) aggregation, RollupIndexer.SUM,
+                AggregationBuilders.sum(aggregation.getName()), consumer);
+        } else if (aggregation instanceof ValueCountAggregationBuilder) {
+            return translateMetric(config, (ValueCountAggregationBuilder) aggregation, RollupIndexer.VALUE_COUNT,
+                AggregationBuilders.sum(aggregation.getName()), consumer);
+        } else if (aggregation instanceof AvgAggregationBuilder) {
+            AvgAggregationBuilder avg = (AvgAggregationBuilder) aggregation;
+            return translateMetric(config, avg, RollupIndexer.SUM, AggregationBuilders.sum(avg.getName()), consumer)
+                && translateMetric(config, avg, RollupIndexer.VALUE_COUNT, AggregationBuilders.sum(AVG_COUNT_PREFIX + avg.getName()),
+                    consumer);
+        }
+        return false;
+    }
+
+    private static boolean isPlainField(ValuesSourceAggregationBuilder<?, ?> aggregation) {
+        return aggregation.field() != null && aggregation.script() == null && aggregation.missing() == null;
+    }
+
+    /**
+     * The interval of the given histogram in milliseconds, or {@code -1} if it does not have a fixed length.
+     */
+    private static long fixedInterval(DateHistogramAggregationBuilder histogram) {
+        DateHistogramInterval interval = histogram.dateHistogramInterval();
+        if (interval == null) {
+            return histogram.interval();
+        }
+        String expression = interval.toString();
+        if (DateHistogramAggregationBuilder.DATE_FIELD_UNITS.containsKey(expression)) {
+            // calendar units that have a fixed length in UTC
+            switch (expression) {
+                case "1s":
+                case "second":
+                    return SECOND;
+                case "1m":
+                case "minute":
+                    return MINUTE;
+                case "1h":
+                case "hour":
+                    return HOUR;
+                case "1d":
+                case "day":
+                    return DAY;
+                default:
+                    return -1;
+            }
+        }
+        try {
+            return TimeValue.parseTimeValue(expression, null, "interval").millis();
+        } catch (ElasticsearchParseException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Terms of the rollup index count rollup documents, so ordering by count is translated into ordering by the hidden
+     * {@link #COUNT_AGG}. Orders on a sub-aggregation are only kept if the sub-aggregation has the same value on both sides.
+     */
+    private static BucketOrder translate(BucketOrder order, TermsAggregationBuilder terms) {
+        if (order instanceof InternalOrder.CompoundOrder) {
+            List<BucketOrder> translated = new ArrayList<>();
+            for (BucketOrder element : ((InternalOrder.CompoundOrder) order).orderElements()) {
+                BucketOrder translatedElement = translate(element, terms);
+                if (translatedElement == null) {
+                    return null;
+                }
+                translated.add(translatedElement);
+            }
+            return BucketOrder.compound(translated);
+        } else if (order.equals(BucketOrder.count(true))) {
+            return BucketOrder.aggregation(COUNT_AGG, true);
+        } else if (order.equals(BucketOrder.count(false))) {
+            return BucketOrder.aggregation(COUNT_AGG, false);
+        } else if (InternalOrder.isKeyOrder(order)) {
+            return order;
+        } else if (order instanceof InternalOrder.Aggregation) {
+            List<AggregationPath.PathElement> path = ((InternalOrder.Aggregation) order).path().getPathElements();
+            if (path.size() != 1 || (path.get(0).key != null && "value".equals(path.get(0).key) == false)) {
+                return null;
+            }
+            for (AggregationBuilder sibling : terms.getSubAggregations()) {
+                if (sibling.getName().equals(path.get(0).name)) {
+                    return sibling instanceof MaxAggregationBuilder || sibling instanceof MinAggregationBuilder
+                        || sibling instanceof SumAggregationBuilder || sibling instanceof ValueCountAggregationBuilder ? order : null;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static boolean translateBucket(RollupJobConfig config, AggregationBuilder aggregation, AggregationBuilder translated,
+                                           Consumer<AggregationBuilder> consumer) {
+        for (AggregationBuilder subAggregation : aggregation.getSubAggregations()) {
+            if (translate(config, subAggregation, translated::subAggregation) == false) {
+                return false;
+            }
+        }
+        translated.subAggregation(AggregationBuilders.sum(COUNT_AGG).field(RollupIndexer.COUNT_FIELD));
+        if (aggregation.getMetaData() != null) {
+            translated.setMetaData(aggregation.getMetaData());
+        }
+        consumer.accept(translated);
+        return true;
+    }
+
+    private static boolean translateMetric(RollupJobConfig config, ValuesSourceAggregationBuilder<?, ?> metric, String suffix,
+                                           ValuesSourceAggregationBuilder<?, ?> translated, Consumer<AggregationBuilder> consumer) {
+        if (config.getMetrics().contains(metric.field()) == false || isPlainField(metric) == false) {
+            return false;
+        }
+        translated.field(metric.field() + "." + suffix);
+        if (metric.format() != null) {
+            translated.format(metric.format());
+        }
+        if (metric.getMetaData() != null) {
+            translated.setMetaData(metric.getMetaData());
+        }
+        consumer.accept(translated);
+        return true;
+    }
+
+    /**
+     * The search on the source index that only matches the documents that are not rolled up in the given state.
+     */
+    static SearchRequest tailRequest(SearchRequest request, RollupJobState state) {
+        SearchSourceBuilder source = request.source().copyWithNewSlice(null);
+        BoolQueryBuilder query = QueryBuilders.boolQuery();
+        if (source.query() != null) {
+            query.filter(source.query());
+        }
+        query.filter(new RollupTailQueryBuilder(state.getCheckpoints()));
+        source.query(query);
+        return copy(request, request.indices()).source(source);
+    }
+
+    /**
+     * The search on the rollup index of the given job that computes the aggregations of the given search.
+     */
+    static SearchRequest rollupRequest(SearchRequest request, RollupJobService.Job job) {
+        // only rollup documents have a count, which excludes the state document of the job
+        BoolQueryBuilder query = QueryBuilders.boolQuery().filter(QueryBuilders.existsQuery(RollupIndexer.COUNT_FIELD));
+        if (request.source().query() != null) {
+            query.filter(request.source().query());
+        }
+        SearchSourceBuilder source = new SearchSourceBuilder().size(0).query(query).timeout(request.source().timeout());
+        for (AggregationBuilder aggregation : request.source().aggregations().getAggregatorFactories()) {
+            if (translate(job.getConfig(), aggregation, source::aggregation) == false) {
+                throw new IllegalArgumentException("aggregation [" + aggregation.getName() + "] cannot be answered by rollup job ["
+                    + job.getId() + "]");
+            }
+        }
+        source.aggregation(AggregationBuilders.sum(COUNT_AGG).field(RollupIndexer.COUNT_FIELD));
+        return copy(request, job.getId()).source(source);
+    }
+
+    private static SearchRequest copy(SearchRequest request, String... indices) {
+        SearchRequest copy = new SearchRequest(indices);
+        copy.indicesOptions(request.indicesOptions());
+        copy.preference(request.preference());
+        copy.routing(request.routing());
+        copy.requestCache(request.requestCache());
+        copy.setBatchedReduceSize(request.getBatchedReduceSize());
+        return copy;
+    }
+
+    /**
+     * Whether a {@code terms} aggregation of the rollup side left out terms or may be off. Its {@code sum_other_doc_count}
+     * and {@code doc_count_error_upper_bound} count rollup documents rather than source documents, so such a response can't
+     * be merged with the tail.
+     */
+    static boolean isTruncated(InternalAggregations aggregations) {
+        for (Aggregation aggregation : aggregations) {
+            if (aggregation instanceof InternalTerms) {
+                InternalTerms<?, ?> terms = (InternalTerms<?, ?>) aggregation;
+                if (terms.getSumOfOtherDocCounts() > 0 || terms.getDocCountError() > 0) {
+                    return true;
+                }
+            }
+            if (aggregation instanceof InternalMultiBucketAggregation) {
+                for (Object bucket : ((InternalMultiBucketAggregation<?, ?>) aggregation).getBuckets()) {
+                    InternalAggregations subAggregations =
+                        (InternalAggregations) ((InternalMultiBucketAggregation.InternalBucket) bucket).getAggregations();
+                    if (isTruncated(subAggregations)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Merge the responses of the tail and rollup searches of the given search into the response of the original search.
+     */
+    static SearchResponse merge(SearchRequest request, SearchResponse tail, SearchResponse rollup, ReduceContext reduceContext,
+                                long tookInMillis) {
+        InternalAggregations rollupAggregations = (InternalAggregations) rollup.getAggregations();
+        List<AggregationBuilder> aggregations = request.source().aggregations().getAggregatorFactories();
+        InternalSum rolledUp = rollupAggregations.get(COUNT_AGG);
+        InternalAggregations merged = InternalAggregations.reduce(Arrays.asList(
+            withCounts((InternalAggregations) tail.getAggregations()), fromRollups(rollupAggregations, aggregations)), reduceContext);
+        SearchHits hits = new SearchHits(new SearchHit[0], tail.getHits().getTotalHits() + (long) rolledUp.getValue(),
+            tail.getHits().getMaxScore());
+        Boolean terminatedEarly = tail.isTerminatedEarly() == null && rollup.isTerminatedEarly() == null ? null
+            : Boolean.TRUE.equals(tail.isTerminatedEarly()) || Boolean.TRUE.equals(rollup.isTerminatedEarly());
+        InternalSearchResponse internal = new InternalSearchResponse(hits, withoutCounts(merged), null, null,
+            tail.isTimedOut() || rollup.isTimedOut(), terminatedEarly, tail.getNumReducePhases() + rollup.getNumReducePhases());
+        List<ShardSearchFailure> failures = new ArrayList<>(Arrays.asList(tail.getShardFailures()));
+        failures.addAll(Arrays.asList(rollup.getShardFailures()));
+        return new SearchResponse(internal, null, tail.getTotalShards() + rollup.getTotalShards(),
+            tail.getSuccessfulShards() + rollup.getSuccessfulShards(), tail.getSkippedShards() + rollup.getSkippedShards(),
+            tookInMillis, failures.toArray(new ShardSearchFailure[failures.size()]));
+    }
+
+    /**
+     * Add the document count of every bucket of the tail side as a hidden {@link #COUNT_AGG} sum.
+     */
+    static InternalAggregations withCounts(InternalAggregations aggregations) {
+        List<InternalAggregation> result = new ArrayList<>();
+        for (Aggregation aggregation : aggregations) {
+            if (aggregation instanceof InternalMultiBucketAggregation) {
+                result.add(withCounts((InternalMultiBucketAggregation<?, ?>) aggregation));
+            } else {
+                result.add((InternalAggregation) aggregation);
+            }
+        }
+        return new InternalAggregations(result);
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static InternalAggregation withCounts(InternalMultiBucketAggregation aggregation) {
+        List<InternalMultiBucketAggregation.InternalBucket> buckets = new ArrayList<>();
+        for (Object object : aggregation.getBuckets()) {
+            InternalMultiBucketAggregation.InternalBucket bucket = (InternalMultiBucketAggregation.InternalBucket) object;
+            List<InternalAggregation> subAggregations = new ArrayList<>();
+            for (Aggregation subAggregation : withCounts((InternalAggregations) bucket.getAggregations())) {
+                subAggregations.add((InternalAggregation) subAggregation);
+            }
+            subAggregations.add(new InternalSum(COUNT_AGG, bucket.getDocCount(), DocValueFormat.RAW, Collections.emptyList(), null));
+            buckets.add(aggregation.createBucket(new InternalAggregations(subAggregations), bucket));
+        }
+        return aggregation.create(buckets);
+    }
+
+    /**
+     * Turn the aggregations of the rollup side into the aggregations that the original search expects: the document count
+     * of the buckets is the hidden {@link #COUNT_AGG} sum, value counts are sums of value counts and averages are computed
+     * from a sum and a value count.
+     */
+    static InternalAggregations fromRollups(InternalAggregations aggregations, List<AggregationBuilder> builders) {
+        List<InternalAggregation> result = new ArrayList<>();
+        for (AggregationBuilder builder : builders) {
+            InternalAggregation aggregation = aggregations.get(builder.getName());
+            if (builder instanceof ValueCountAggregationBuilder) {
+                InternalSum sum = (InternalSum) aggregation;
+                result.add(new InternalValueCount(sum.getName(), (long) sum.getValue(), sum.pipelineAggregators(), sum.getMetaData()));
+            } else if (builder instanceof AvgAggregationBuilder) {
+                InternalSum sum = (InternalSum) aggregation;
+                InternalSum count = aggregations.get(AVG_COUNT_PREFIX + builder.getName());
+                String format = ((AvgAggregationBuilder) builder).format();
+                DocValueFormat formatter = format == null ? DocValueFormat.RAW : new DocValueFormat.Decimal(format);
+                result.add(new InternalAvg(sum.getName(), sum.getValue(), (long) count.getValue(), formatter, sum.pipelineAggregators(),
+                    sum.getMetaData()));
+            } else if (aggregation instanceof InternalMultiBucketAggregation) {
+                result.add(fromRollups((InternalMultiBucketAggregation<?, ?>) aggregation, builder.getSubAggregations()));
+            } else {
+                result.add(aggregation);
+            }
+        }
+        InternalAggregation count = aggregations.get(COUNT_AGG);
+        if (count != null) {
+            result.add(count);
+        }
+        return new InternalAggregations(result);
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static InternalAggregation fromRollups(InternalMultiBucketAggregation aggregation, List<AggregationBuilder> builders) {
+        List<InternalMultiBucketAggregation.InternalBucket> buckets = new ArrayList<>();
+        for (Object object : aggregation.getBuckets()) {
+            InternalMultiBucketAggregation.InternalBucket bucket = (InternalMultiBucketAggregation.InternalBucket) object;
+            InternalAggregations subAggregations = (InternalAggregations) bucket.getAggregations();
+            InternalSum count = subAggregations.get(COUNT_AGG);
+            buckets.add(aggregation.createBucket((long) count.getValue(), fromRollups(subAggregations, builders), bucket));
+        }
+        return aggregation.create(buckets);
+    }
+
+    /**
+     * Remove the hidden {@link #COUNT_AGG} sums from the merged aggregations.
+     */
+    static InternalAggregations withoutCounts(InternalAggregations aggregations) {
+        List<InternalAggregation> result = new ArrayList<>();
+        for (Aggregation aggregation : aggregations) {
+            if (COUNT_AGG.equals(aggregation.getName())) {
+                continue;
+            }
+            if (aggregation instanceof InternalMultiBucketAggregation) {
+                result.add(withoutCounts((InternalMultiBucketAggregation<?, ?>) aggregation));
+            } else {
+                result.add((InternalAggregation) aggregation);
+            }
+        }
+        return new InternalAggregations(result);
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private static InternalAggregation withoutCounts(InternalMultiBucketAggregation aggregation) {
+        List<InternalMultiBucketAggregation.InternalBucket> buckets = new ArrayList<>();
+        for (Object object : aggregation.getBuckets()) {
+            InternalMultiBucketAggregation.InternalBucket bucket = (InternalMultiBucketAggregation.InternalBucket) object;
+            buckets.add(aggregation.createBucket(withoutCounts((InternalAggregations) bucket.getAggregations()), bucket));
+        }
+        return aggregation.create(buckets);
+    }
+}
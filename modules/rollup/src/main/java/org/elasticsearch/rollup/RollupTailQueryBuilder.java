@@ -0,0 +1,168 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rollup;
+
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.elasticsearch.common.ParseField;
+import org.elasticsearch.common.ParsingException;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentParser;
+import org.elasticsearch.index.mapper.SeqNoFieldMapper;
+import org.elasticsearch.index.query.AbstractQueryBuilder;
+import org.elasticsearch.index.query.QueryShardContext;
+import org.elasticsearch.index.seqno.SequenceNumbers;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * A query that matches the documents of a source index that have not been rolled up yet: the documents whose sequence
+ * number is above the checkpoint of the shard that holds them.
+ */
+public class RollupTailQueryBuilder extends AbstractQueryBuilder<RollupTailQueryBuilder> {
+    public static final String NAME = "rollup_tail";
+
+    private static final ParseField CHECKPOINTS_FIELD = new ParseField("checkpoints");
+
+    private final Map<Integer, Long> checkpoints;
+
+    public RollupTailQueryBuilder(Map<Integer, Long> checkpoints) {
+        if (checkpoints == null) {
+            throw new IllegalArgumentException("[" + NAME + "] requires checkpoints");
+        }
+        this.checkpoints = Collections.unmodifiableMap(new TreeMap<>(checkpoints));
+    }
+
+    /**
+     * Read from a stream.
+     */
+    public RollupTailQueryBuilder(StreamInput in) throws IOException {
+        super(in);
+        checkpoints = Collections.unmodifiableMap(new TreeMap<>(in.readMap(StreamInput::readVInt, StreamInput::readZLong)));
+    }
+
+    @Override
+    protected void doWriteTo(StreamOutput out) throws IOException {
+        out.writeMap(checkpoints, StreamOutput::writeVInt, StreamOutput::writeZLong);
+    }
+
+    /**
+     * The checkpoints up to which every shard has been rolled up, by shard number.
+     */
+    public Map<Integer, Long> checkpoints() {
+        return checkpoints;
+    }
+
+    @Override
+    protected void doXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(NAME);
+        builder.startObject(CHECKPOINTS_FIELD.getPreferredName());
+        for (Map.Entry<Integer, Long> checkpoint : checkpoints.entrySet()) {
+            builder.field(Integer.toString(checkpoint.getKey()), checkpoint.getValue());
+        }
+        builder.endObject();
+        printBoostAndQueryName(builder);
+        builder.endObject();
+    }
+
+    public static RollupTailQueryBuilder fromXContent(XContentParser parser) throws IOException {
+        float boost = AbstractQueryBuilder.DEFAULT_BOOST;
+        String queryName = null;
+        Map<Integer, Long> checkpoints = null;
+        String currentFieldName = null;
+        XContentParser.Token token;
+        while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+            if (token == XContentParser.Token.FIELD_NAME) {
+                currentFieldName = parser.currentName();
+            } else if (token == XContentParser.Token.START_OBJECT) {
+                if (CHECKPOINTS_FIELD.match(currentFieldName)) {
+                    checkpoints = new TreeMap<>();
+                    while ((token = parser.nextToken()) != XContentParser.Token.END_OBJECT) {
+                        if (token == XContentParser.Token.FIELD_NAME) {
+                            currentFieldName = parser.currentName();
+                        } else if (token.isValue()) {
+                            try {
+                                checkpoints.put(Integer.parseInt(currentFieldName), parser.longValue());
+                            } catch (NumberFormatException e) {
+                                throw new ParsingException(parser.getTokenLocation(),
+                                    "[" + NAME + "] expects shard numbers as keys of [checkpoints], got [" + currentFieldName + "]");
+                            }
+                        } else {
+                            throw new ParsingException(parser.getTokenLocation(), "[" + NAME + "] unexpected token [" + token + "]");
+                        }
+                    }
+                } else {
+                    throw new ParsingException(parser.getTokenLocation(),
+                        "[" + NAME + "] query does not support [" + currentFieldName + "]");
+                }
+            } else if (token.isValue()) {
+                if (AbstractQueryBuilder.BOOST_FIELD.match(currentFieldName)) {
+                    boost = parser.floatValue();
+                } else if (AbstractQueryBuilder.NAME_FIELD.match(currentFieldName)) {
+                    queryName = parser.text();
+                } else {
+                    throw new ParsingException(parser.getTokenLocation(),
+                        "[" + NAME + "] query does not support [" + currentFieldName + "]");
+                }
+            } else {
+                throw new ParsingException(parser.getTokenLocation(), "[" + NAME + "] query does not support [" + currentFieldName + "]");
+            }
+        }
+        if (checkpoints == null) {
+            throw new ParsingException(parser.getTokenLocation(), "[" + NAME + "] requires [checkpoints]");
+        }
+        RollupTailQueryBuilder queryBuilder = new RollupTailQueryBuilder(checkpoints);
+        queryBuilder.queryName(queryName);
+        queryBuilder.boost(boost);
+        return queryBuilder;
+    }
+
+    @Override
+    protected Query doToQuery(QueryShardContext context) throws IOException {
+        long checkpoint = checkpoints.getOrDefault(context.getShardId(), SequenceNumbers.NO_OPS_PERFORMED);
+        if (checkpoint == SequenceNumbers.NO_OPS_PERFORMED) {
+            // nothing of this shard has been rolled up yet
+            return new MatchAllDocsQuery();
+        }
+        return LongPoint.newRangeQuery(SeqNoFieldMapper.NAME, checkpoint + 1, Long.MAX_VALUE);
+    }
+
+    @Override
+    protected boolean doEquals(RollupTailQueryBuilder other) {
+        return Objects.equals(checkpoints, other.checkpoints);
+    }
+
+    @Override
+    protected int doHashCode() {
+        return Objects.hash(checkpoints);
+    }
+
+    @Override
+    public String getWriteableName() {
+        return NAME;
+    }
+}
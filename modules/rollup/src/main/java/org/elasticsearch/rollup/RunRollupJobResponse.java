@@ -0,0 +1,99 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rollup;
+
+import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.xcontent.ToXContentObject;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+import java.io.IOException;
+
+/**
+ * The outcome of a run of a rollup job: how many batches and source documents were rolled up, and the resulting state.
+ */
+public class RunRollupJobResponse extends ActionResponse implements ToXContentObject {
+
+    private String jobId;
+    private int batches;
+    private long documents;
+    private RollupJobState state;
+
+    RunRollupJobResponse() {
+    }
+
+    public RunRollupJobResponse(String jobId, int batches, long documents, RollupJobState state) {
+        this.jobId = jobId;
+        this.batches = batches;
+        this.documents = documents;
+        this.state = state;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    /**
+     * The number of batches that were rolled up.
+     */
+    public int getBatches() {
+        return batches;
+    }
+
+    /**
+     * The number of source documents that were rolled up.
+     */
+    public long getDocuments() {
+        return documents;
+    }
+
+    public RollupJobState getState() {
+        return state;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        super.readFrom(in);
+        jobId = in.readString();
+        batches = in.readVInt();
+        documents = in.readVLong();
+        state = new RollupJobState(in);
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        super.writeTo(out);
+        out.writeString(jobId);
+        out.writeVInt(batches);
+        out.writeVLong(documents);
+        state.writeTo(out);
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject();
+        builder.field("job_id", jobId);
+        builder.field("batches", batches);
+        builder.field("documents", documents);
+        builder.field("state", state);
+        return builder.endObject();
+    }
+}
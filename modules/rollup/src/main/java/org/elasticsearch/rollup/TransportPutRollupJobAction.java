@@ -0,0 +1,48 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rollup;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.support.ActionFilters;
+import org.elasticsearch.action.support.HandledTransportAction;
+import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.TransportService;
+
+public class TransportPutRollupJobAction extends HandledTransportAction<PutRollupJobRequest, PutRollupJobResponse> {
+
+    private final RollupJobService rollupJobService;
+
+    @Inject
+    public TransportPutRollupJobAction(Settings settings, ThreadPool threadPool, ActionFilters actionFilters,
+                                       IndexNameExpressionResolver indexNameExpressionResolver, TransportService transportService,
+                                       RollupJobService rollupJobService) {
+        super(settings, PutRollupJobAction.NAME, threadPool, transportService, actionFilters, indexNameExpressionResolver,
+            PutRollupJobRequest::new);
+        this.rollupJobService = rollupJobService;
+    }
+
+    @Override
+    protected void doExecute(PutRollupJobRequest request, ActionListener<PutRollupJobResponse> listener) {
+        rollupJobService.createJob(request.jobId(), request.config(), listener);
+    }
+}
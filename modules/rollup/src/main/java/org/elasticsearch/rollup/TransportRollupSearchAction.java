@@ -0,0 +1,135 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rollup;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.search.MultiSearchRequest;
+import org.elasticsearch.action.search.MultiSearchResponse;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.support.ActionFilters;
+import org.elasticsearch.action.support.HandledTransportAction;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.script.ScriptService;
+import org.elasticsearch.search.aggregations.InternalAggregation.ReduceContext;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.TransportService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a search on the source index of a rollup job from its rollup index and the documents that are not rolled up yet,
+ * or as a regular search if the search cannot be answered from the rollup index.
+ */
+public class TransportRollupSearchAction extends HandledTransportAction<SearchRequest, SearchResponse> {
+
+    /**
+     * How many times the rollup and tail searches are retried when the rollup job made progress while they were running.
+     */
+    static final int MAX_ATTEMPTS = 3;
+
+    private final Client client;
+    private final ClusterService clusterService;
+    private final BigArrays bigArrays;
+    private final ScriptService scriptService;
+
+    @Inject
+    public TransportRollupSearchAction(Settings settings, ThreadPool threadPool, ActionFilters actionFilters,
+                                       IndexNameExpressionResolver indexNameExpressionResolver, TransportService transportService,
+                                       Client client, ClusterService clusterService, BigArrays bigArrays, ScriptService scriptService) {
+        super(settings, RollupSearchAction.NAME, threadPool, transportService, actionFilters, indexNameExpressionResolver,
+            SearchRequest::new);
+        this.client = client;
+        this.clusterService = clusterService;
+        this.bigArrays = bigArrays;
+        this.scriptService = scriptService;
+    }
+
+    @Override
+    protected void doExecute(SearchRequest request, ActionListener<SearchResponse> listener) {
+        long startNanos = System.nanoTime();
+        final RollupJobService.Job job;
+        try {
+            job = request.indices().length == 1 ? RollupJobService.findJob(clusterService.state(), request.indices()[0]) : null;
+        } catch (Exception e) {
+            listener.onFailure(e);
+            return;
+        }
+        if (job != null && RollupSearchRewriter.isEligible(job.getConfig(), request.source())) {
+            search(request, job, 0, startNanos, listener);
+        } else {
+            client.search(request, listener);
+        }
+    }
+
+    /**
+     * Run the tail and rollup searches of a search, between two reads of the state of the job so that the responses are only
+     * merged if the job made no progress while the searches were running.
+     */
+    private void search(SearchRequest request, RollupJobService.Job job, int attempt, long startNanos,
+                        ActionListener<SearchResponse> listener) {
+        if (attempt == MAX_ATTEMPTS) {
+            client.search(request, listener);
+            return;
+        }
+        client.get(RollupJobService.stateRequest(job.getId()), ActionListener.wrap(beforeResponse -> {
+            RollupJobState before = RollupJobService.readState(beforeResponse);
+            if (before.hasPendingBatch()) {
+                // the rollup index may contain part of a batch whose documents are also matched by the tail search
+                client.search(request, listener);
+                return;
+            }
+            MultiSearchRequest searches = new MultiSearchRequest()
+                .add(RollupSearchRewriter.tailRequest(request, before))
+                .add(RollupSearchRewriter.rollupRequest(request, job));
+            client.multiSearch(searches, ActionListener.wrap(responses -> {
+                for (MultiSearchResponse.Item item : responses.getResponses()) {
+                    if (item.isFailure()) {
+                        throw item.getFailure();
+                    }
+                }
+                SearchResponse tailResponse = responses.getResponses()[0].getResponse();
+                SearchResponse rollupResponse = responses.getResponses()[1].getResponse();
+                if (tailResponse.getAggregations() == null || rollupResponse.getAggregations() == null
+                        || RollupSearchRewriter.isTruncated((InternalAggregations) rollupResponse.getAggregations())) {
+                    client.search(request, listener);
+                    return;
+                }
+                client.get(RollupJobService.stateRequest(job.getId()), ActionListener.wrap(afterResponse -> {
+                    RollupJobState after = RollupJobService.readState(afterResponse);
+                    if (after.getGeneration() == before.getGeneration()) {
+                        ReduceContext reduceContext = new ReduceContext(bigArrays, scriptService, true);
+                        listener.onResponse(RollupSearchRewriter.merge(request, tailResponse, rollupResponse, reduceContext,
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos)));
+                    } else {
+                        logger.debug("rollup job [{}] made progress during a search, retrying", job.getId());
+                        search(request, job, attempt + 1, startNanos, listener);
+                    }
+                }, listener::onFailure));
+            }, listener::onFailure));
+        }, listener::onFailure));
+    }
+}
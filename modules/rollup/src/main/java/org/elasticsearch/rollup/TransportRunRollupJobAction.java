@@ -0,0 +1,70 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rollup;
+
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.support.ActionFilters;
+import org.elasticsearch.action.support.master.TransportMasterNodeAction;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.block.ClusterBlockException;
+import org.elasticsearch.cluster.block.ClusterBlockLevel;
+import org.elasticsearch.cluster.metadata.IndexNameExpressionResolver;
+import org.elasticsearch.cluster.service.ClusterService;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.TransportService;
+
+/**
+ * Runs a rollup job on the master node, which is where jobs also run periodically so that a job never runs twice at once.
+ */
+public class TransportRunRollupJobAction extends TransportMasterNodeAction<RunRollupJobRequest, RunRollupJobResponse> {
+
+    private final RollupJobService rollupJobService;
+
+    @Inject
+    public TransportRunRollupJobAction(Settings settings, TransportService transportService, ClusterService clusterService,
+                                       ThreadPool threadPool, ActionFilters actionFilters,
+                                       IndexNameExpressionResolver indexNameExpressionResolver, RollupJobService rollupJobService) {
+        super(settings, RunRollupJobAction.NAME, transportService, clusterService, threadPool, actionFilters,
+            indexNameExpressionResolver, RunRollupJobRequest::new);
+        this.rollupJobService = rollupJobService;
+    }
+
+    @Override
+    protected String executor() {
+        return ThreadPool.Names.SAME;
+    }
+
+    @Override
+    protected RunRollupJobResponse newResponse() {
+        return new RunRollupJobResponse();
+    }
+
+    @Override
+    protected ClusterBlockException checkBlock(RunRollupJobRequest request, ClusterState state) {
+        return state.blocks().indexBlockedException(ClusterBlockLevel.WRITE, request.jobId());
+    }
+
+    @Override
+    protected void masterOperation(RunRollupJobRequest request, ClusterState state, ActionListener<RunRollupJobResponse> listener) {
+        rollupJobService.runJob(request.jobId(), listener);
+    }
+}
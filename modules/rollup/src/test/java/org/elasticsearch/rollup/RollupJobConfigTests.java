@@ -0,0 +1,101 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rollup;
+
+import org.elasticsearch.ElasticsearchParseException;
+import org.elasticsearch.common.io.stream.Writeable.Reader;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.test.AbstractWireSerializingTestCase;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.containsString;
+
+public class RollupJobConfigTests extends AbstractWireSerializingTestCase<RollupJobConfig> {
+
+    static RollupJobConfig randomConfig() {
+        List<String> terms = Arrays.asList(generateRandomStringArray(3, 5, false, true));
+        List<String> metrics = Arrays.asList(generateRandomStringArray(3, 5, false, false));
+        return new RollupJobConfig(randomAlphaOfLength(5), "@timestamp", TimeValue.timeValueMinutes(randomIntBetween(1, 60)),
+            prefix("terms_", terms), prefix("metric_", metrics), randomIntBetween(1, 100000));
+    }
+
+    private static List<String> prefix(String prefix, List<String> fields) {
+        return Arrays.asList(fields.stream().distinct().map(field -> prefix + field).toArray(String[]::new));
+    }
+
+    @Override
+    protected RollupJobConfig createTestInstance() {
+        return randomConfig();
+    }
+
+    @Override
+    protected Reader<RollupJobConfig> instanceReader() {
+        return RollupJobConfig::new;
+    }
+
+    public void testFromMapRoundTrip() throws IOException {
+        RollupJobConfig config = randomConfig();
+        Map<String, Object> map = XContentHelper.convertToMap(XContentHelper.toXContent(config, XContentType.JSON, false), false,
+            XContentType.JSON).v2();
+        assertEquals(config, RollupJobConfig.fromMap(map));
+    }
+
+    public void testDefaults() {
+        Map<String, Object> map = new HashMap<>();
+        map.put("index", "logs");
+        map.put("timestamp_field", "@timestamp");
+        map.put("interval", "1h");
+        map.put("metrics", Collections.singletonList("bytes"));
+        RollupJobConfig config = RollupJobConfig.fromMap(map);
+        assertEquals(TimeValue.timeValueHours(1), config.getInterval());
+        assertEquals(Collections.emptyList(), config.getTerms());
+        assertEquals(RollupJobConfig.DEFAULT_BATCH_SIZE, config.getBatchSize());
+    }
+
+    public void testValidation() {
+        TimeValue hour = TimeValue.timeValueHours(1);
+        List<String> metrics = Collections.singletonList("bytes");
+        IllegalArgumentException e = expectThrows(IllegalArgumentException.class,
+            () -> new RollupJobConfig(null, "@timestamp", hour, null, metrics, 10));
+        assertThat(e.getMessage(), containsString("[index] is required"));
+        e = expectThrows(IllegalArgumentException.class, () -> new RollupJobConfig("logs", "@timestamp", hour, null, null, 10));
+        assertThat(e.getMessage(), containsString("[metrics] must contain at least one field"));
+        e = expectThrows(IllegalArgumentException.class,
+            () -> new RollupJobConfig("logs", "@timestamp", TimeValue.ZERO, null, metrics, 10));
+        assertThat(e.getMessage(), containsString("[interval] must be a positive time value"));
+        e = expectThrows(IllegalArgumentException.class,
+            () -> new RollupJobConfig("logs", "@timestamp", hour, metrics, metrics, 10));
+        assertThat(e.getMessage(), containsString("field [bytes] may only be used once"));
+
+        Map<String, Object> map = new HashMap<>();
+        map.put("unknown", "value");
+        ElasticsearchParseException parseException = expectThrows(ElasticsearchParseException.class,
+            () -> RollupJobConfig.fromMap(map));
+        assertThat(parseException.getMessage(), containsString("unknown rollup job parameter [unknown]"));
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rollup;
+
+import org.elasticsearch.common.io.stream.Writeable.Reader;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.index.seqno.SequenceNumbers;
+import org.elasticsearch.test.AbstractWireSerializingTestCase;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+public class RollupJobStateTests extends AbstractWireSerializingTestCase<RollupJobState> {
+
+    static RollupJobState randomState() {
+        Map<Integer, Long> checkpoints = new HashMap<>();
+        int numShards = randomIntBetween(0, 5);
+        for (int shard = 0; shard < numShards; shard++) {
+            checkpoints.put(shard, randomLongBetween(0, Integer.MAX_VALUE));
+        }
+        RollupJobState state = new RollupJobState(checkpoints, -1, SequenceNumbers.NO_OPS_PERFORMED, randomLongBetween(0, 1000));
+        if (randomBoolean()) {
+            int shard = randomIntBetween(0, 5);
+            state = state.startBatch(shard, state.getCheckpoint(shard) + randomIntBetween(1, 1000));
+        }
+        return state;
+    }
+
+    @Override
+    protected RollupJobState createTestInstance() {
+        return randomState();
+    }
+
+    @Override
+    protected Reader<RollupJobState> instanceReader() {
+        return RollupJobState::new;
+    }
+
+    public void testFromMapRoundTrip() throws IOException {
+        RollupJobState state = randomState();
+        Map<String, Object> map = XContentHelper.convertToMap(XContentHelper.toXContent(state, XContentType.JSON, false), false,
+            XContentType.JSON).v2();
+        assertEquals(state, RollupJobState.fromMap(map));
+    }
+
+    public void testStateDocumentRoundTrip() throws IOException {
+        RollupJobState state = randomState();
+        XContentBuilder builder = XContentFactory.jsonBuilder().map(RollupIndexer.stateDocument(state));
+        Map<String, Object> document = XContentHelper.convertToMap(builder.bytes(), false, XContentType.JSON).v2();
+        assertEquals(state, RollupIndexer.state(document));
+    }
+
+    public void testBatches() {
+        RollupJobState state = RollupJobState.EMPTY;
+        assertFalse(state.hasPendingBatch());
+        assertEquals(SequenceNumbers.NO_OPS_PERFORMED, state.getCheckpoint(0));
+
+        RollupJobState started = state.startBatch(0, 99);
+        assertTrue(started.hasPendingBatch());
+        assertEquals(0, started.getPendingShard());
+        assertEquals(99, started.getPendingCheckpoint());
+        assertEquals(SequenceNumbers.NO_OPS_PERFORMED, started.getCheckpoint(0));
+        assertEquals(state.getGeneration() + 1, started.getGeneration());
+
+        RollupJobState completed = started.completeBatch();
+        assertFalse(completed.hasPendingBatch());
+        assertEquals(99, completed.getCheckpoint(0));
+        assertEquals(started.getGeneration() + 1, completed.getGeneration());
+
+        expectThrows(IllegalArgumentException.class, () -> completed.startBatch(0, 99));
+        expectThrows(IllegalStateException.class, completed::completeBatch);
+    }
+}
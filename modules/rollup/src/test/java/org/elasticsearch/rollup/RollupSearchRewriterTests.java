@@ -0,0 +1,179 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rollup;
+
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.DocValueFormat;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.BucketOrder;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramInterval;
+import org.elasticsearch.search.aggregations.bucket.terms.StringTerms;
+import org.elasticsearch.search.aggregations.bucket.terms.TermsAggregationBuilder;
+import org.elasticsearch.search.aggregations.metrics.sum.SumAggregationBuilder;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.test.ESTestCase;
+import org.joda.time.DateTimeZone;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.instanceOf;
+
+public class RollupSearchRewriterTests extends ESTestCase {
+
+    private static final RollupJobConfig CONFIG = new RollupJobConfig("logs", "@timestamp", TimeValue.timeValueHours(1),
+        Arrays.asList("host", "status"), Arrays.asList("bytes"), RollupJobConfig.DEFAULT_BATCH_SIZE);
+
+    private static final long HOUR = TimeValue.timeValueHours(1).millis();
+
+    private static SearchSourceBuilder source(AggregationBuilder aggregation) {
+        return new SearchSourceBuilder().size(0).aggregation(aggregation);
+    }
+
+    public void testEligibleSearch() {
+        SearchSourceBuilder source = source(AggregationBuilders.dateHistogram("per_day").field("@timestamp")
+            .dateHistogramInterval(DateHistogramInterval.DAY)
+            .subAggregation(AggregationBuilders.terms("hosts").field("host")
+                .subAggregation(AggregationBuilders.avg("bytes").field("bytes"))))
+            .query(QueryBuilders.boolQuery()
+                .filter(QueryBuilders.termQuery("status", 200))
+                .filter(QueryBuilders.rangeQuery("@timestamp").gte(3 * HOUR).lt(5 * HOUR)));
+        assertTrue(RollupSearchRewriter.isEligible(CONFIG, source));
+    }
+
+    public void testIneligibleSources() {
+        AggregationBuilder max = AggregationBuilders.max("max").field("bytes");
+        assertFalse(RollupSearchRewriter.isEligible(CONFIG, null));
+        assertFalse(RollupSearchRewriter.isEligible(CONFIG, new SearchSourceBuilder().size(0)));
+        assertFalse(RollupSearchRewriter.isEligible(CONFIG, new SearchSourceBuilder().aggregation(max)));
+        assertFalse(RollupSearchRewriter.isEligible(CONFIG, source(max).postFilter(QueryBuilders.matchAllQuery())));
+        assertFalse(RollupSearchRewriter.isEligible(CONFIG, source(max).terminateAfter(10)));
+        assertFalse(RollupSearchRewriter.isEligible(CONFIG, source(max).profile(true)));
+        assertTrue(RollupSearchRewriter.isEligible(CONFIG, source(max)));
+    }
+
+    public void testIneligibleQueries() {
+        assertTrue(RollupSearchRewriter.isEligible(CONFIG, QueryBuilders.matchAllQuery()));
+        assertTrue(RollupSearchRewriter.isEligible(CONFIG, QueryBuilders.termsQuery("host", "a", "b")));
+        assertTrue(RollupSearchRewriter.isEligible(CONFIG, QueryBuilders.existsQuery("status")));
+        assertTrue(RollupSearchRewriter.isEligible(CONFIG,
+            QueryBuilders.constantScoreQuery(QueryBuilders.rangeQuery("@timestamp").gt(HOUR - 1).lte(2 * HOUR - 1))));
+        assertTrue(RollupSearchRewriter.isEligible(CONFIG, QueryBuilders.rangeQuery("@timestamp").gte(Long.toString(HOUR))));
+
+        // metrics are summarized, so documents can't be filtered on them
+        assertFalse(RollupSearchRewriter.isEligible(CONFIG, QueryBuilders.termQuery("bytes", 12)));
+        assertFalse(RollupSearchRewriter.isEligible(CONFIG, QueryBuilders.matchQuery("host", "a")));
+        assertFalse(RollupSearchRewriter.isEligible(CONFIG,
+            QueryBuilders.boolQuery().filter(QueryBuilders.termQuery("host", "a")).must(QueryBuilders.termQuery("bytes", 12))));
+        // ranges on the timestamp must be aligned on the interval of the job
+        assertFalse(RollupSearchRewriter.isEligible(CONFIG, QueryBuilders.rangeQuery("@timestamp").gte(HOUR + 1)));
+        assertFalse(RollupSearchRewriter.isEligible(CONFIG, QueryBuilders.rangeQuery("@timestamp").lte(2 * HOUR)));
+        assertFalse(RollupSearchRewriter.isEligible(CONFIG, QueryBuilders.rangeQuery("@timestamp").gte("now-1d")));
+        assertFalse(RollupSearchRewriter.isEligible(CONFIG, QueryBuilders.rangeQuery("@timestamp").gte(HOUR).timeZone("+01:00")));
+    }
+
+    public void testIneligibleAggregations() {
+        assertFalse(RollupSearchRewriter.isEligible(CONFIG, source(AggregationBuilders.dateHistogram("histo").field("@timestamp")
+            .dateHistogramInterval(DateHistogramInterval.MONTH))));
+        assertFalse(RollupSearchRewriter.isEligible(CONFIG, source(AggregationBuilders.dateHistogram("histo").field("@timestamp")
+            .dateHistogramInterval(DateHistogramInterval.minutes(30)))));
+        assertFalse(RollupSearchRewriter.isEligible(CONFIG, source(AggregationBuilders.dateHistogram("histo").field("@timestamp")
+            .dateHistogramInterval(DateHistogramInterval.DAY).timeZone(DateTimeZone.forOffsetHours(2)))));
+        assertFalse(RollupSearchRewriter.isEligible(CONFIG, source(AggregationBuilders.dateHistogram("histo").field("@timestamp")
+            .dateHistogramInterval(DateHistogramInterval.DAY).offset(HOUR))));
+        assertFalse(RollupSearchRewriter.isEligible(CONFIG, source(AggregationBuilders.terms("terms").field("bytes"))));
+        assertFalse(RollupSearchRewriter.isEligible(CONFIG, source(AggregationBuilders.terms("terms").field("host").minDocCount(2))));
+        assertFalse(RollupSearchRewriter.isEligible(CONFIG, source(AggregationBuilders.cardinality("hosts").field("host"))));
+        assertFalse(RollupSearchRewriter.isEligible(CONFIG, source(AggregationBuilders.max("max").field("host"))));
+        assertFalse(RollupSearchRewriter.isEligible(CONFIG, source(AggregationBuilders.max("max").field("bytes").missing(0))));
+        // an average is not summarized by a single field of the rollup documents, so buckets can't be sorted on it
+        assertFalse(RollupSearchRewriter.isEligible(CONFIG, source(AggregationBuilders.terms("terms").field("host")
+            .order(BucketOrder.aggregation("avg", false)).subAggregation(AggregationBuilders.avg("avg").field("bytes")))));
+        assertTrue(RollupSearchRewriter.isEligible(CONFIG, source(AggregationBuilders.terms("terms").field("host")
+            .order(BucketOrder.aggregation("max", false)).subAggregation(AggregationBuilders.max("max").field("bytes")))));
+    }
+
+    public void testTranslate() {
+        TermsAggregationBuilder terms = AggregationBuilders.terms("hosts").field("host").size(7)
+            .order(BucketOrder.count(false))
+            .subAggregation(AggregationBuilders.avg("avg").field("bytes"))
+            .subAggregation(AggregationBuilders.count("count").field("bytes"));
+        DateHistogramAggregationBuilder histogram = AggregationBuilders.dateHistogram("histo").field("@timestamp")
+            .dateHistogramInterval(DateHistogramInterval.DAY).minDocCount(0).subAggregation(terms);
+        List<AggregationBuilder> translated = new ArrayList<>();
+        assertTrue(RollupSearchRewriter.translate(CONFIG, histogram, translated::add));
+        assertThat(translated, hasSize(1));
+
+        DateHistogramAggregationBuilder translatedHistogram = (DateHistogramAggregationBuilder) translated.get(0);
+        assertEquals(TimeValue.timeValueHours(24).millis(), translatedHistogram.interval());
+        assertNull(translatedHistogram.dateHistogramInterval());
+        assertEquals(0, translatedHistogram.minDocCount());
+        assertThat(translatedHistogram.getSubAggregations(), hasSize(2));
+
+        TermsAggregationBuilder translatedTerms = (TermsAggregationBuilder) translatedHistogram.getSubAggregations().get(0);
+        assertEquals("host", translatedTerms.field());
+        assertEquals(7, translatedTerms.size());
+        assertEquals(BucketOrder.compound(Collections.singletonList(
+            BucketOrder.aggregation(RollupSearchRewriter.COUNT_AGG, false))), translatedTerms.order());
+        List<AggregationBuilder> metrics = translatedTerms.getSubAggregations();
+        assertThat(metrics, hasSize(4));
+        assertSum(metrics.get(0), "avg", "bytes.sum");
+        assertSum(metrics.get(1), RollupSearchRewriter.AVG_COUNT_PREFIX + "avg", "bytes.value_count");
+        assertSum(metrics.get(2), "count", "bytes.value_count");
+        assertSum(metrics.get(3), RollupSearchRewriter.COUNT_AGG, RollupIndexer.COUNT_FIELD);
+        assertSum(translatedHistogram.getSubAggregations().get(1), RollupSearchRewriter.COUNT_AGG, RollupIndexer.COUNT_FIELD);
+    }
+
+    private static void assertSum(AggregationBuilder aggregation, String name, String field) {
+        assertThat(aggregation, instanceOf(SumAggregationBuilder.class));
+        assertThat(aggregation.getName(), equalTo(name));
+        assertThat(((SumAggregationBuilder) aggregation).field(), equalTo(field));
+    }
+
+    public void testIsTruncated() {
+        assertFalse(RollupSearchRewriter.isTruncated(aggregations(terms("host", 0, 0, InternalAggregations.EMPTY))));
+        assertTrue(RollupSearchRewriter.isTruncated(aggregations(terms("host", randomIntBetween(1, 10), 0, InternalAggregations.EMPTY))));
+        assertTrue(RollupSearchRewriter.isTruncated(aggregations(terms("host", 0, randomIntBetween(1, 10), InternalAggregations.EMPTY))));
+        // terms that are not sorted by count have an unknown error, which doesn't mean that terms were left out
+        assertFalse(RollupSearchRewriter.isTruncated(aggregations(terms("host", 0, -1, InternalAggregations.EMPTY))));
+        InternalAggregations truncatedStatus = aggregations(terms("status", randomIntBetween(1, 10), 0, InternalAggregations.EMPTY));
+        assertTrue(RollupSearchRewriter.isTruncated(aggregations(terms("host", 0, 0, truncatedStatus))));
+    }
+
+    private static InternalAggregations aggregations(InternalAggregation aggregation) {
+        return new InternalAggregations(Collections.singletonList(aggregation));
+    }
+
+    private static StringTerms terms(String name, long otherDocCount, long docCountError, InternalAggregations subAggregations) {
+        StringTerms.Bucket bucket = new StringTerms.Bucket(new BytesRef("a"), 3, subAggregations, false, 0, DocValueFormat.RAW);
+        return new StringTerms(name, BucketOrder.count(false), 1, 1, Collections.emptyList(), null, DocValueFormat.RAW, 1, false,
+            otherDocCount, Collections.singletonList(bucket), docCountError);
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rollup;
+
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.elasticsearch.common.ParsingException;
+import org.elasticsearch.index.mapper.SeqNoFieldMapper;
+import org.elasticsearch.plugins.Plugin;
+import org.elasticsearch.search.internal.SearchContext;
+import org.elasticsearch.test.AbstractQueryTestCase;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+
+public class RollupTailQueryBuilderTests extends AbstractQueryTestCase<RollupTailQueryBuilder> {
+
+    @Override
+    protected Collection<Class<? extends Plugin>> getPlugins() {
+        return Collections.singletonList(RollupPlugin.class);
+    }
+
+    @Override
+    protected RollupTailQueryBuilder doCreateTestQueryBuilder() {
+        Map<Integer, Long> checkpoints = new HashMap<>();
+        int numShards = randomIntBetween(0, 5);
+        for (int shard = 0; shard < numShards; shard++) {
+            if (randomBoolean()) {
+                checkpoints.put(shard, randomLongBetween(0, Integer.MAX_VALUE));
+            }
+        }
+        return new RollupTailQueryBuilder(checkpoints);
+    }
+
+    @Override
+    protected void doAssertLuceneQuery(RollupTailQueryBuilder queryBuilder, Query query, SearchContext context) throws IOException {
+        Long checkpoint = queryBuilder.checkpoints().get(context.getQueryShardContext().getShardId());
+        if (checkpoint == null) {
+            assertThat(query, equalTo(new MatchAllDocsQuery()));
+        } else {
+            assertThat(query, equalTo(LongPoint.newRangeQuery(SeqNoFieldMapper.NAME, checkpoint + 1, Long.MAX_VALUE)));
+        }
+    }
+
+    public void testFromJson() throws IOException {
+        String json =
+            "{\n" +
+            "  \"rollup_tail\" : {\n" +
+            "    \"checkpoints\" : {\n" +
+            "      \"0\" : 12,\n" +
+            "      \"1\" : 7\n" +
+            "    },\n" +
+            "    \"boost\" : 1.0\n" +
+            "  }\n" +
+            "}";
+        RollupTailQueryBuilder parsed = (RollupTailQueryBuilder) parseQuery(json);
+        checkGeneratedJson(json, parsed);
+        assertEquals(Long.valueOf(12), parsed.checkpoints().get(0));
+        assertEquals(Long.valueOf(7), parsed.checkpoints().get(1));
+    }
+
+    public void testRequiresCheckpoints() throws IOException {
+        ParsingException e = expectThrows(ParsingException.class, () -> parseQuery("{\"rollup_tail\" : {}}"));
+        assertThat(e.getMessage(), containsString("requires [checkpoints]"));
+        e = expectThrows(ParsingException.class, () -> parseQuery("{\"rollup_tail\" : {\"checkpoints\" : {\"a\" : 1}}}"));
+        assertThat(e.getMessage(), containsString("expects shard numbers"));
+    }
+}
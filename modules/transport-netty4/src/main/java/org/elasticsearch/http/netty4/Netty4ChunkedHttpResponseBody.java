@@ -0,0 +1,81 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.http.netty4;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.stream.ChunkedInput;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.rest.ChunkedRestResponseBody;
+import org.elasticsearch.transport.netty4.Netty4Utils;
+
+/**
+ * Adapts a {@link ChunkedRestResponseBody} to netty's {@link ChunkedInput} so that the next chunk of the body is only
+ * serialized once the channel is writable again.
+ */
+final class Netty4ChunkedHttpResponseBody implements ChunkedInput<ByteBuf> {
+
+    private final ChunkedRestResponseBody body;
+    private final int chunkSizeHint;
+    private long progress;
+
+    Netty4ChunkedHttpResponseBody(ChunkedRestResponseBody body, int chunkSizeHint) {
+        this.body = body;
+        this.chunkSizeHint = chunkSizeHint;
+    }
+
+    @Override
+    public boolean isEndOfInput() {
+        return body.isDone();
+    }
+
+    @Override
+    public void close() {
+        body.close();
+    }
+
+    @Deprecated
+    @Override
+    public ByteBuf readChunk(ChannelHandlerContext ctx) throws Exception {
+        return readChunk(ctx.alloc());
+    }
+
+    @Override
+    public ByteBuf readChunk(ByteBufAllocator allocator) throws Exception {
+        if (body.isDone()) {
+            return null;
+        }
+        final BytesReference chunk = body.encodeChunk(chunkSizeHint);
+        progress += chunk.length();
+        return Netty4Utils.toByteBuf(chunk);
+    }
+
+    @Override
+    public long length() {
+        return -1;
+    }
+
+    @Override
+    public long progress() {
+        return progress;
+    }
+}
@@ -25,16 +25,20 @@ import io.netty.channel.Channel;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelPromise;
 import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpResponse;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpChunkedInput;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpHeaderValues;
 import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpResponse;
 import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
 import io.netty.handler.codec.http.HttpVersion;
 import io.netty.handler.codec.http.cookie.ServerCookieDecoder;
 import io.netty.handler.codec.http.cookie.ServerCookieEncoder;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
@@ -43,10 +47,12 @@ import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.http.netty4.cors.Netty4CorsHandler;
 import org.elasticsearch.http.netty4.pipelining.HttpPipelinedRequest;
 import org.elasticsearch.rest.AbstractRestChannel;
+import org.elasticsearch.rest.ChunkedRestResponseBody;
 import org.elasticsearch.rest.RestResponse;
 import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.transport.netty4.Netty4Utils;
 
+import java.io.IOException;
 import java.util.Collections;
 import java.util.EnumMap;
 import java.util.List;
@@ -55,6 +61,11 @@ import java.util.Set;
 
 final class Netty4HttpChannel extends AbstractRestChannel {
 
+    /**
+     * The size of the chunks chunked responses are sent in
+     */
+    static final int CHUNK_SIZE_HINT = 128 * 1024;
+
     private final Netty4HttpServerTransport transport;
     private final Channel channel;
     private final FullHttpRequest nettyRequest;
@@ -100,17 +111,7 @@ final class Netty4HttpChannel extends AbstractRestChannel {
             resp = newResponse(buffer);
         }
         resp.setStatus(getStatus(response.status()));
-
-        Netty4CorsHandler.setCorsResponseHeaders(nettyRequest, resp, transport.getCorsConfig());
-
-        String opaque = nettyRequest.headers().get("X-Opaque-Id");
-        if (opaque != null) {
-            setHeaderField(resp, "X-Opaque-Id", opaque);
-        }
-
-        // Add all custom headers
-        addCustomHeaders(resp, response.getHeaders());
-        addCustomHeaders(resp, threadContext.getResponseHeaders());
+        addResponseHeaders(resp, response.getHeaders());
 
         BytesReference content = response.content();
         boolean releaseContent = content instanceof Releasable;
@@ -159,6 +160,64 @@ final class Netty4HttpChannel extends AbstractRestChannel {
         }
     }
 
+    /**
+     * Sends the response with chunked transfer encoding. The body is serialized chunk by chunk on the network thread whenever
+     * the channel is writable, so only a bounded part of it is held in memory at any time. HTTP/1.0 clients and HEAD requests
+     * get the whole body serialized upfront.
+     */
+    @Override
+    public void sendChunkedResponse(RestStatus status, ChunkedRestResponseBody body) throws IOException {
+        if (isHttp10() || HttpMethod.HEAD.equals(nettyRequest.method())) {
+            super.sendChunkedResponse(status, body);
+            return;
+        }
+        boolean success = false;
+        try {
+            final HttpResponse resp = new DefaultHttpResponse(HttpVersion.HTTP_1_1, getStatus(status));
+            addResponseHeaders(resp, null);
+            setHeaderField(resp, HttpHeaderNames.CONTENT_TYPE.toString(), body.getResponseContentTypeString(), false);
+            HttpUtil.setTransferEncodingChunked(resp, true);
+            addCookies(resp);
+
+            final HttpChunkedInput content = new HttpChunkedInput(new Netty4ChunkedHttpResponseBody(body, CHUNK_SIZE_HINT));
+            final ChannelPromise promise = channel.newPromise();
+            if (isCloseConnection()) {
+                promise.addListener(ChannelFutureListener.CLOSE);
+            } else {
+                // the client cannot tell a truncated body from a complete one unless we close the connection
+                promise.addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
+            }
+
+            if (pipelinedRequest != null) {
+                channel.writeAndFlush(pipelinedRequest.createHttpResponse(resp, content, promise), promise);
+            } else {
+                channel.write(resp);
+                channel.writeAndFlush(content, promise);
+            }
+            success = true;
+        } finally {
+            if (success == false) {
+                body.close();
+            }
+            if (pipelinedRequest != null) {
+                pipelinedRequest.release();
+            }
+        }
+    }
+
+    private void addResponseHeaders(HttpResponse resp, @Nullable Map<String, List<String>> responseHeaders) {
+        Netty4CorsHandler.setCorsResponseHeaders(nettyRequest, resp, transport.getCorsConfig());
+
+        String opaque = nettyRequest.headers().get("X-Opaque-Id");
+        if (opaque != null) {
+            setHeaderField(resp, "X-Opaque-Id", opaque);
+        }
+
+        // Add all custom headers
+        addCustomHeaders(resp, responseHeaders);
+        addCustomHeaders(resp, threadContext.getResponseHeaders());
+    }
+
     private void setHeaderField(HttpResponse resp, String headerField, String value) {
         setHeaderField(resp, headerField, value, true);
     }
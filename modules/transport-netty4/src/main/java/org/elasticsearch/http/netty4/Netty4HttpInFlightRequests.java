@@ -0,0 +1,129 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.http.netty4;
+
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+
+import java.net.InetAddress;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Node-wide accounting of the HTTP requests that have been received but not yet responded to. It decides whether a new
+ * request is admitted, based on the bytes in flight across all connections and on the number of requests in flight per
+ * client address. The declared length of a request is reserved when it is admitted so that an admitted request is never
+ * held back while its body is received: pausing connections in the middle of a body could stall all of them, since none
+ * could complete its request and release its bytes.
+ */
+final class Netty4HttpInFlightRequests {
+
+    private final long maxInFlightBytes;
+    private final int maxInFlightRequestsPerClient;
+
+    private final AtomicLong inFlightBytes = new AtomicLong();
+    private final AtomicLong inFlightRequests = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final ConcurrentMap<InetAddress, Integer> inFlightRequestsPerClient = ConcurrentCollections.newConcurrentMap();
+
+    /**
+     * @param maxInFlightBytes             the bytes in flight above which new requests are rejected, a negative value disables
+     *                                     the limit
+     * @param maxInFlightRequestsPerClient the number of requests a single client address may have in flight, a negative value
+     *                                     disables the limit
+     */
+    Netty4HttpInFlightRequests(long maxInFlightBytes, int maxInFlightRequestsPerClient) {
+        this.maxInFlightBytes = maxInFlightBytes;
+        this.maxInFlightRequestsPerClient = maxInFlightRequestsPerClient;
+    }
+
+    /**
+     * Tries to admit a request from the given client that declares the given content length, <code>-1</code> if the length is
+     * not known upfront. The declared length is reserved if the request is admitted and must be released with
+     * {@link #release(InetAddress, long)}. Returns <code>null</code> if the request was admitted, otherwise the reason for
+     * rejecting it. Requests are always admitted while nothing else is in flight so that a single large request cannot be
+     * starved.
+     */
+    String tryAdmit(InetAddress client, long contentLength) {
+        final long reserved = Math.max(0, contentLength);
+        long bytes;
+        do {
+            bytes = inFlightBytes.get();
+            if (maxInFlightBytes >= 0 && bytes > 0 && bytes + reserved > maxInFlightBytes) {
+                rejected.incrementAndGet();
+                return "rejected request of [" + contentLength + "] bytes, [" + bytes + "] bytes of requests are already in " +
+                    "flight, which is larger than the limit of [" + maxInFlightBytes + "] bytes";
+            }
+        } while (inFlightBytes.compareAndSet(bytes, bytes + reserved) == false);
+        if (maxInFlightRequestsPerClient >= 0 && client != null) {
+            final boolean[] admitted = new boolean[1];
+            inFlightRequestsPerClient.compute(client, (address, count) -> {
+                final int current = count == null ? 0 : count;
+                if (current < maxInFlightRequestsPerClient) {
+                    admitted[0] = true;
+                    return current + 1;
+                }
+                return count;
+            });
+            if (admitted[0] == false) {
+                inFlightBytes.addAndGet(-reserved);
+                rejected.incrementAndGet();
+                return "rejected request, client [" + client.getHostAddress() + "] already has [" + maxInFlightRequestsPerClient +
+                    "] requests in flight";
+            }
+        }
+        inFlightRequests.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Accounts for bytes of the body of an admitted request whose length was not declared, and therefore not reserved, as
+     * they are received. They count towards the limit for the requests that are admitted later on.
+     */
+    void addBytes(long bytes) {
+        inFlightBytes.addAndGet(bytes);
+    }
+
+    /**
+     * Releases a request that was admitted once it has been responded to or its connection was closed, along with the bytes
+     * that were reserved or added for it.
+     */
+    void release(InetAddress client, long bytes) {
+        inFlightRequests.decrementAndGet();
+        if (maxInFlightRequestsPerClient >= 0 && client != null) {
+            inFlightRequestsPerClient.computeIfPresent(client, (address, count) -> count == 1 ? null : count - 1);
+        }
+        if (bytes > 0) {
+            inFlightBytes.addAndGet(-bytes);
+        }
+    }
+
+    long getInFlightBytes() {
+        return inFlightBytes.get();
+    }
+
+    long getInFlightRequests() {
+        return inFlightRequests.get();
+    }
+
+    long getRejected() {
+        return rejected.get();
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.http.netty4;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.DecoderResult;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.EmptyHttpHeaders;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpStatusClass;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.ReferenceCountUtil;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * Accounts for the requests of a single connection in {@link Netty4HttpInFlightRequests}. It sits between the decoder and the
+ * aggregator so that it sees the headers of a request before its body is read:
+ * <ul>
+ *     <li>a request that is not admitted is replaced by an empty request that fails with an
+ *     {@link EsRejectedExecutionException}, which is answered with a <code>429</code> response in order with the responses to
+ *     earlier requests. Its body is discarded without being aggregated and the connection is closed after the response if the
+ *     request had a body.</li>
+ *     <li>the body of an admitted request counts towards the bytes in flight until its response is written. Its declared
+ *     length is reserved upfront, the body of a request of unknown length is counted as it is received. Reading an admitted
+ *     request is never paused, so that it can always complete and release its bytes.</li>
+ * </ul>
+ * Responses to the requests of a connection are written in the order the requests were received, so each final response
+ * releases the oldest request of the connection.
+ */
+final class Netty4HttpInFlightRequestsHandler extends ChannelDuplexHandler {
+
+    private final Netty4HttpInFlightRequests inFlightRequests;
+    private final Queue<InFlightRequest> pending = new ArrayDeque<>();
+    private InFlightRequest receiving;
+    private boolean discarding;
+
+    Netty4HttpInFlightRequestsHandler(Netty4HttpInFlightRequests inFlightRequests) {
+        this.inFlightRequests = inFlightRequests;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+        if (msg instanceof HttpRequest) {
+            onRequestStart(ctx, (HttpRequest) msg);
+        } else if (msg instanceof HttpContent) {
+            onContent(ctx, (HttpContent) msg);
+        } else {
+            ctx.fireChannelRead(msg);
+        }
+    }
+
+    private void onRequestStart(ChannelHandlerContext ctx, HttpRequest request) {
+        final long contentLength = HttpUtil.isTransferEncodingChunked(request) ? -1 : HttpUtil.getContentLength(request, 0L);
+        final InetAddress client = clientAddress(ctx);
+        final String rejection = inFlightRequests.tryAdmit(client, contentLength);
+        if (rejection == null) {
+            receiving = new InFlightRequest(client, true, contentLength < 0, Math.max(0, contentLength));
+            pending.add(receiving);
+            onContent(ctx, request);
+        } else {
+            final boolean last = request instanceof LastHttpContent;
+            final FullHttpRequest rejected = rejectedRequest(request, contentLength != 0 && last == false, rejection);
+            ReferenceCountUtil.release(request);
+            pending.add(new InFlightRequest(client, false, false, 0));
+            discarding = last == false;
+            ctx.fireChannelRead(rejected);
+        }
+    }
+
+    private void onContent(ChannelHandlerContext ctx, Object msg) {
+        if (discarding) {
+            ReferenceCountUtil.release(msg);
+            discarding = msg instanceof LastHttpContent == false;
+            return;
+        }
+        if (receiving != null && msg instanceof HttpContent) {
+            if (receiving.unknownLength) {
+                final int bytes = ((HttpContent) msg).content().readableBytes();
+                receiving.bytes += bytes;
+                inFlightRequests.addBytes(bytes);
+            }
+            if (msg instanceof LastHttpContent) {
+                receiving = null;
+            }
+        }
+        ctx.fireChannelRead(msg);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (msg instanceof LastHttpContent && isInformational(msg) == false) {
+            final InFlightRequest request = pending.poll();
+            if (request != null) {
+                request.release(inFlightRequests);
+            }
+        }
+        ctx.write(msg, promise);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        InFlightRequest request;
+        while ((request = pending.poll()) != null) {
+            request.release(inFlightRequests);
+        }
+        receiving = null;
+        super.channelInactive(ctx);
+    }
+
+    private static boolean isInformational(Object msg) {
+        // e.g. 100-continue, which is written by the aggregator before the body of a request is read
+        return msg instanceof HttpResponse && ((HttpResponse) msg).status().codeClass() == HttpStatusClass.INFORMATIONAL;
+    }
+
+    private static InetAddress clientAddress(ChannelHandlerContext ctx) {
+        final SocketAddress address = ctx.channel().remoteAddress();
+        return address instanceof InetSocketAddress ? ((InetSocketAddress) address).getAddress() : null;
+    }
+
+    /**
+     * Creates the empty request that replaces a rejected request, it must not announce a body that will never arrive nor ask
+     * the aggregator to let the client continue sending it.
+     */
+    private static FullHttpRequest rejectedRequest(HttpRequest request, boolean closeConnection, String reason) {
+        final HttpHeaders headers = new DefaultHttpHeaders().set(request.headers());
+        headers.remove(HttpHeaderNames.CONTENT_LENGTH);
+        headers.remove(HttpHeaderNames.TRANSFER_ENCODING);
+        headers.remove(HttpHeaderNames.EXPECT);
+        if (closeConnection) {
+            headers.set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
+        }
+        final FullHttpRequest rejected = new DefaultFullHttpRequest(request.protocolVersion(), request.method(), request.uri(),
+            Unpooled.EMPTY_BUFFER, headers, EmptyHttpHeaders.INSTANCE);
+        rejected.setDecoderResult(DecoderResult.failure(new EsRejectedExecutionException(reason)));
+        return rejected;
+    }
+
+    private static final class InFlightRequest {
+
+        private final InetAddress client;
+        private final boolean admitted;
+        private final boolean unknownLength;
+        private long bytes;
+
+        InFlightRequest(InetAddress client, boolean admitted, boolean unknownLength, long reservedBytes) {
+            this.client = client;
+            this.admitted = admitted;
+            this.unknownLength = unknownLength;
+            this.bytes = reservedBytes;
+        }
+
+        void release(Netty4HttpInFlightRequests inFlightRequests) {
+            if (admitted) {
+                inFlightRequests.release(client, bytes);
+            }
+        }
+    }
+}
@@ -25,6 +25,7 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.codec.http.DefaultFullHttpRequest;
 import io.netty.handler.codec.http.FullHttpRequest;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.http.netty4.pipelining.HttpPipelinedRequest;
 import org.elasticsearch.transport.netty4.Netty4Utils;
@@ -78,6 +79,9 @@ class Netty4HttpRequestHandler extends SimpleChannelInboundHandler<Object> {
 
         if (request.decoderResult().isSuccess()) {
             serverTransport.dispatchRequest(httpRequest, channel);
+        } else if (request.decoderResult().cause() instanceof EsRejectedExecutionException) {
+            // the request was not admitted before its body was read, see Netty4HttpInFlightRequestsHandler
+            serverTransport.dispatchRejectedRequest(httpRequest, channel, (EsRejectedExecutionException) request.decoderResult().cause());
         } else {
             assert request.decoderResult().isFailure();
             serverTransport.dispatchBadRequest(httpRequest, channel, request.decoderResult().cause());
@@ -39,10 +39,12 @@ import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpRequestDecoder;
 import io.netty.handler.codec.http.HttpResponseEncoder;
+import io.netty.handler.stream.ChunkedWriteHandler;
 import io.netty.handler.timeout.ReadTimeoutException;
 import org.apache.logging.log4j.message.ParameterizedMessage;
 import org.apache.logging.log4j.util.Supplier;
 import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.network.NetworkAddress;
 import org.elasticsearch.common.network.NetworkService;
@@ -57,6 +59,7 @@ import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.common.util.concurrent.ThreadContext;
 import org.elasticsearch.common.xcontent.NamedXContentRegistry;
 import org.elasticsearch.common.xcontent.XContentParser;
@@ -68,8 +71,10 @@ import org.elasticsearch.http.netty4.cors.Netty4CorsConfig;
 import org.elasticsearch.http.netty4.cors.Netty4CorsConfigBuilder;
 import org.elasticsearch.http.netty4.cors.Netty4CorsHandler;
 import org.elasticsearch.http.netty4.pipelining.HttpPipeliningHandler;
+import org.elasticsearch.rest.BytesRestResponse;
 import org.elasticsearch.rest.RestChannel;
 import org.elasticsearch.rest.RestRequest;
+import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.rest.RestUtils;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.BindTransportException;
@@ -131,6 +136,12 @@ public class Netty4HttpServerTransport extends AbstractLifecycleComponent implem
     public static final Setting<ByteSizeValue> SETTING_HTTP_NETTY_RECEIVE_PREDICTOR_SIZE =
         Setting.byteSizeSetting("http.netty.receive_predictor_size", new ByteSizeValue(64, ByteSizeUnit.KB), Property.NodeScope);
 
+    public static final Setting<ByteSizeValue> SETTING_HTTP_NETTY_MAX_IN_FLIGHT_BYTES =
+        Setting.memorySizeSetting("http.netty.max_in_flight_bytes", "10%", Property.NodeScope);
+
+    public static final Setting<Integer> SETTING_HTTP_NETTY_MAX_IN_FLIGHT_REQUESTS_PER_CLIENT =
+        Setting.intSetting("http.netty.max_in_flight_requests_per_client", -1, -1, Property.NodeScope);
+
 
     protected final NetworkService networkService;
     protected final BigArrays bigArrays;
@@ -176,6 +187,9 @@ public class Netty4HttpServerTransport extends AbstractLifecycleComponent implem
     protected final int maxCompositeBufferComponents;
     private final Dispatcher dispatcher;
 
+    // package private for testing
+    final Netty4HttpInFlightRequests inFlightRequests;
+
     protected volatile ServerBootstrap serverBootstrap;
 
     protected volatile BoundTransportAddress boundAddress;
@@ -229,6 +243,8 @@ public class Netty4HttpServerTransport extends AbstractLifecycleComponent implem
         this.pipelining = SETTING_PIPELINING.get(settings);
         this.pipeliningMaxEvents = SETTING_PIPELINING_MAX_EVENTS.get(settings);
         this.corsConfig = buildCorsConfig(settings);
+        this.inFlightRequests = new Netty4HttpInFlightRequests(SETTING_HTTP_NETTY_MAX_IN_FLIGHT_BYTES.get(settings).getBytes(),
+            SETTING_HTTP_NETTY_MAX_IN_FLIGHT_REQUESTS_PER_CLIENT.get(settings));
 
         // validate max content length
         if (maxContentLength.getBytes() > Integer.MAX_VALUE) {
@@ -456,7 +472,8 @@ public class Netty4HttpServerTransport extends AbstractLifecycleComponent implem
     @Override
     public HttpStats stats() {
         Netty4OpenChannelsHandler channels = serverOpenChannels;
-        return new HttpStats(channels == null ? 0 : channels.numberOfOpenChannels(), channels == null ? 0 : channels.totalChannels());
+        return new HttpStats(channels == null ? 0 : channels.numberOfOpenChannels(), channels == null ? 0 : channels.totalChannels(),
+            inFlightRequests.getInFlightRequests(), inFlightRequests.getInFlightBytes(), inFlightRequests.getRejected());
     }
 
     public Netty4CorsConfig getCorsConfig() {
@@ -477,6 +494,18 @@ public class Netty4HttpServerTransport extends AbstractLifecycleComponent implem
         }
     }
 
+    void dispatchRejectedRequest(final RestRequest request, final RestChannel channel, final EsRejectedExecutionException cause) {
+        final ThreadContext threadContext = threadPool.getThreadContext();
+        try (ThreadContext.StoredContext ignore = threadContext.stashContext()) {
+            channel.sendResponse(new BytesRestResponse(channel, cause));
+        } catch (final IOException e) {
+            e.addSuppressed(cause);
+            logger.warn("failed to send rejected request response", e);
+            channel.sendResponse(new BytesRestResponse(RestStatus.TOO_MANY_REQUESTS, BytesRestResponse.TEXT_CONTENT_TYPE,
+                BytesArray.EMPTY));
+        }
+    }
+
     protected void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
         if (cause instanceof ReadTimeoutException) {
             if (logger.isTraceEnabled()) {
@@ -532,6 +561,8 @@ public class Netty4HttpServerTransport extends AbstractLifecycleComponent implem
             ch.pipeline().addLast("decoder", decoder);
             ch.pipeline().addLast("decoder_compress", new HttpContentDecompressor());
             ch.pipeline().addLast("encoder", new HttpResponseEncoder());
+            // admits requests before their body is aggregated
+            ch.pipeline().addLast("in_flight_requests", new Netty4HttpInFlightRequestsHandler(transport.inFlightRequests));
             final HttpObjectAggregator aggregator = new HttpObjectAggregator(Math.toIntExact(transport.maxContentLength.getBytes()));
             if (transport.maxCompositeBufferComponents != -1) {
                 aggregator.setMaxCumulationBufferComponents(transport.maxCompositeBufferComponents);
@@ -543,6 +574,9 @@ public class Netty4HttpServerTransport extends AbstractLifecycleComponent implem
             if (SETTING_CORS_ENABLED.get(transport.settings())) {
                 ch.pipeline().addLast("cors", new Netty4CorsHandler(transport.getCorsConfig()));
             }
+            // writes chunked responses as the channel permits, it must come before the pipelining handler so that it receives
+            // the responses in order
+            ch.pipeline().addLast("chunked_writer", new ChunkedWriteHandler());
             if (transport.pipelining) {
                 ch.pipeline().addLast("pipelining", new HttpPipeliningHandler(transport.logger, transport.pipeliningMaxEvents));
             }
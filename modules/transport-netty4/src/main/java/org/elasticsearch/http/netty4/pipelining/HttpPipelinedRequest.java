@@ -21,6 +21,8 @@ package org.elasticsearch.http.netty4.pipelining;
 
 import io.netty.channel.ChannelPromise;
 import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpChunkedInput;
+import io.netty.handler.codec.http.HttpResponse;
 import io.netty.handler.codec.http.LastHttpContent;
 import io.netty.util.ReferenceCounted;
 
@@ -46,6 +48,11 @@ public class HttpPipelinedRequest implements ReferenceCounted {
         return new HttpPipelinedResponse(response, promise, sequence);
     }
 
+    public HttpPipelinedResponse createHttpResponse(final HttpResponse response, final HttpChunkedInput content,
+                                                   final ChannelPromise promise) {
+        return new HttpPipelinedResponse(response, content, promise, sequence);
+    }
+
     @Override
     public int refCnt() {
         return last.refCnt();
@@ -21,24 +21,47 @@ package org.elasticsearch.http.netty4.pipelining;
 
 import io.netty.channel.ChannelPromise;
 import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpChunkedInput;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.util.ReferenceCountUtil;
 import io.netty.util.ReferenceCounted;
+import org.elasticsearch.common.Nullable;
 
 class HttpPipelinedResponse implements Comparable<HttpPipelinedResponse>, ReferenceCounted {
 
-    private final FullHttpResponse response;
+    private final HttpResponse response;
+    private final HttpChunkedInput content;
     private final ChannelPromise promise;
     private final int sequence;
 
     HttpPipelinedResponse(FullHttpResponse response, ChannelPromise promise, int sequence) {
+        this(response, null, promise, sequence);
+    }
+
+    /**
+     * @param response the response, or only its headers if the content is sent in chunks
+     * @param content  the content to send in chunks after the headers or null if the response is a full response
+     */
+    HttpPipelinedResponse(HttpResponse response, @Nullable HttpChunkedInput content, ChannelPromise promise, int sequence) {
+        assert content != null || response instanceof FullHttpResponse : "either a full response or chunked content is required";
         this.response = response;
+        this.content = content;
         this.promise = promise;
         this.sequence = sequence;
     }
 
-    public FullHttpResponse response() {
+    public HttpResponse response() {
         return response;
     }
 
+    /**
+     * Returns the content that follows the response headers in chunks, or null if the response is a full response
+     */
+    @Nullable
+    public HttpChunkedInput content() {
+        return content;
+    }
+
     public ChannelPromise promise() {
         return promise;
     }
@@ -54,41 +77,49 @@ class HttpPipelinedResponse implements Comparable<HttpPipelinedResponse>, Refere
 
     @Override
     public int refCnt() {
-        return response.refCnt();
+        return content == null ? ((FullHttpResponse) response).refCnt() : 1;
     }
 
     @Override
     public ReferenceCounted retain() {
-        response.retain();
+        ReferenceCountUtil.retain(response);
         return this;
     }
 
     @Override
     public ReferenceCounted retain(int increment) {
-        response.retain(increment);
+        ReferenceCountUtil.retain(response, increment);
         return this;
     }
 
     @Override
     public ReferenceCounted touch() {
-        response.touch();
+        ReferenceCountUtil.touch(response);
         return this;
     }
 
     @Override
     public ReferenceCounted touch(Object hint) {
-        response.touch(hint);
+        ReferenceCountUtil.touch(response, hint);
         return this;
     }
 
     @Override
     public boolean release() {
-        return response.release();
+        return release(1);
     }
 
     @Override
     public boolean release(int decrement) {
-        return response.release(decrement);
+        if (content == null) {
+            return ((FullHttpResponse) response).release(decrement);
+        }
+        try {
+            content.close();
+        } catch (Exception e) {
+            throw new IllegalStateException("failed to release chunked response content", e);
+        }
+        return true;
     }
 
 }
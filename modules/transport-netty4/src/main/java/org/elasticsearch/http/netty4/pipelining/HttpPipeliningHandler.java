@@ -104,7 +104,13 @@ public class HttpPipeliningHandler extends ChannelDuplexHandler {
                          * responses that precede it in the pipeline are written first. Note that the promise from the method invocation is
                          * not ignored, it will already be attached to an existing response and consumed when that response is drained.
                          */
-                        ctx.write(top.response(), top.promise());
+                        if (top.content() == null) {
+                            ctx.write(top.response(), top.promise());
+                        } else {
+                            // the headers go first, followed by the content that is written in chunks as the channel permits
+                            ctx.write(top.response(), ctx.newPromise());
+                            ctx.write(top.content(), top.promise());
+                        }
                         writeSequence++;
                     }
                 } else {
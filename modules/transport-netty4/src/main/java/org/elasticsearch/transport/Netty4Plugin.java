@@ -56,11 +56,15 @@ public class Netty4Plugin extends Plugin implements NetworkPlugin {
             Netty4HttpServerTransport.SETTING_HTTP_NETTY_MAX_COMPOSITE_BUFFER_COMPONENTS,
             Netty4HttpServerTransport.SETTING_HTTP_WORKER_COUNT,
             Netty4HttpServerTransport.SETTING_HTTP_NETTY_RECEIVE_PREDICTOR_SIZE,
+            Netty4HttpServerTransport.SETTING_HTTP_NETTY_MAX_IN_FLIGHT_BYTES,
+            Netty4HttpServerTransport.SETTING_HTTP_NETTY_MAX_IN_FLIGHT_REQUESTS_PER_CLIENT,
             Netty4Transport.WORKER_COUNT,
             Netty4Transport.NETTY_RECEIVE_PREDICTOR_SIZE,
             Netty4Transport.NETTY_RECEIVE_PREDICTOR_MIN,
             Netty4Transport.NETTY_RECEIVE_PREDICTOR_MAX,
-            Netty4Transport.NETTY_BOSS_COUNT
+            Netty4Transport.NETTY_BOSS_COUNT,
+            Netty4Transport.NETTY_FLUSH_AGGREGATION_MAX_BYTES,
+            Netty4Transport.NETTY_FLUSH_AGGREGATION_WINDOW
         );
     }
 
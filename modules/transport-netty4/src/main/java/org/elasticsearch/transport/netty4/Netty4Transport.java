@@ -46,6 +46,7 @@ import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.io.stream.NamedWriteableRegistry;
 import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.metrics.CounterMetric;
 import org.elasticsearch.common.network.NetworkService;
 import org.elasticsearch.common.settings.Setting;
 import org.elasticsearch.common.settings.Setting.Property;
@@ -104,12 +105,20 @@ public class Netty4Transport extends TcpTransport<Channel> {
         byteSizeSetting("transport.netty.receive_predictor_max", NETTY_RECEIVE_PREDICTOR_SIZE, Property.NodeScope);
     public static final Setting<Integer> NETTY_BOSS_COUNT =
         intSetting("transport.netty.boss_count", 1, 1, Property.NodeScope);
+    public static final Setting<ByteSizeValue> NETTY_FLUSH_AGGREGATION_MAX_BYTES =
+        byteSizeSetting("transport.netty.flush_aggregation.max_bytes", new ByteSizeValue(64, ByteSizeUnit.KB), Property.NodeScope);
+    public static final Setting<TimeValue> NETTY_FLUSH_AGGREGATION_WINDOW =
+        Setting.positiveTimeSetting("transport.netty.flush_aggregation.window", TimeValue.ZERO, Property.NodeScope);
 
 
     protected final RecvByteBufAllocator recvByteBufAllocator;
     protected final int workerCount;
     protected final ByteSizeValue receivePredictorMin;
     protected final ByteSizeValue receivePredictorMax;
+    protected final ByteSizeValue flushAggregationMaxBytes;
+    protected final TimeValue flushAggregationWindow;
+    private final CounterMetric flushes = new CounterMetric();
+    private final CounterMetric flushedMessages = new CounterMetric();
     // package private for testing
     volatile Netty4OpenChannelsHandler serverOpenChannels;
     protected volatile Bootstrap bootstrap;
@@ -124,6 +133,8 @@ public class Netty4Transport extends TcpTransport<Channel> {
         // See AdaptiveReceiveBufferSizePredictor#DEFAULT_XXX for default values in netty..., we can use higher ones for us, even fixed one
         this.receivePredictorMin = NETTY_RECEIVE_PREDICTOR_MIN.get(settings);
         this.receivePredictorMax = NETTY_RECEIVE_PREDICTOR_MAX.get(settings);
+        this.flushAggregationMaxBytes = NETTY_FLUSH_AGGREGATION_MAX_BYTES.get(settings);
+        this.flushAggregationWindow = NETTY_FLUSH_AGGREGATION_WINDOW.get(settings);
         if (receivePredictorMax.getBytes() == receivePredictorMin.getBytes()) {
             recvByteBufAllocator = new FixedRecvByteBufAllocator((int) receivePredictorMax.getBytes());
         } else {
@@ -313,6 +324,20 @@ public class Netty4Transport extends TcpTransport<Channel> {
         return nodeChannels;
     }
 
+    private Netty4WriteAggregator newWriteAggregator() {
+        return new Netty4WriteAggregator(logger, flushAggregationMaxBytes, flushAggregationWindow, flushes, flushedMessages);
+    }
+
+    @Override
+    protected long getFlushCount() {
+        return flushes.count();
+    }
+
+    @Override
+    protected long getFlushedMessageCount() {
+        return flushedMessages.count();
+    }
+
     @Override
     protected void sendMessage(Channel channel, BytesReference reference, ActionListener<Channel> listener) {
         final ChannelFuture future = channel.writeAndFlush(Netty4Utils.toByteBuf(reference));
@@ -410,6 +435,7 @@ public class Netty4Transport extends TcpTransport<Channel> {
         @Override
         protected void initChannel(Channel ch) throws Exception {
             ch.pipeline().addLast("logging", new ESLoggingHandler());
+            ch.pipeline().addLast("write_aggregator", newWriteAggregator());
             ch.pipeline().addLast("size", new Netty4SizeHeaderFrameDecoder());
             // using a dot as a prefix means this cannot come from any settings parsed
             ch.pipeline().addLast("dispatcher", new Netty4MessageChannelHandler(Netty4Transport.this, ".client"));
@@ -435,6 +461,7 @@ public class Netty4Transport extends TcpTransport<Channel> {
         protected void initChannel(Channel ch) throws Exception {
             ch.pipeline().addLast("logging", new ESLoggingHandler());
             ch.pipeline().addLast("open_channels", Netty4Transport.this.serverOpenChannels);
+            ch.pipeline().addLast("write_aggregator", newWriteAggregator());
             ch.pipeline().addLast("size", new Netty4SizeHeaderFrameDecoder());
             ch.pipeline().addLast("dispatcher", new Netty4MessageChannelHandler(Netty4Transport.this, name));
         }
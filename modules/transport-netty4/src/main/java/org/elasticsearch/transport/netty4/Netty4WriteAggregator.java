@@ -0,0 +1,141 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.transport.netty4;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import org.apache.logging.log4j.Logger;
+import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+
+import java.util.Locale;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces the flushes of the messages written to a channel. Rather than flushing every message on its own, a flush is deferred
+ * until the event loop of the channel processed the writes that are already queued, or until the aggregation window elapsed, so
+ * that small messages sent in a burst from several threads end up in a single flush and so in a single system call. Messages are
+ * flushed right away once the bytes pending a flush reach the configured threshold.
+ *
+ * Instances keep per-channel state and must not be shared between channels. All methods are called on the event loop of the
+ * channel.
+ */
+final class Netty4WriteAggregator extends ChannelDuplexHandler {
+
+    private final Logger logger;
+    private final long maxPendingBytes;
+    private final long windowNanos;
+    private final CounterMetric totalFlushes;
+    private final CounterMetric totalFlushedMessages;
+
+    private ChannelHandlerContext ctx;
+    private long pendingBytes;
+    private int pendingMessages;
+    private boolean flushScheduled;
+    private long flushes;
+    private long flushedMessages;
+
+    Netty4WriteAggregator(Logger logger, ByteSizeValue maxPendingBytes, TimeValue window, CounterMetric totalFlushes,
+                          CounterMetric totalFlushedMessages) {
+        this.logger = logger;
+        this.maxPendingBytes = maxPendingBytes.getBytes();
+        this.windowNanos = window.nanos();
+        this.totalFlushes = totalFlushes;
+        this.totalFlushedMessages = totalFlushedMessages;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        this.ctx = ctx;
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        flushNow();
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+        if (msg instanceof ByteBuf) {
+            pendingBytes += ((ByteBuf) msg).readableBytes();
+        }
+        pendingMessages++;
+        ctx.write(msg, promise);
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx) throws Exception {
+        if (pendingBytes >= maxPendingBytes) {
+            flushNow();
+        } else if (flushScheduled == false) {
+            flushScheduled = true;
+            try {
+                if (windowNanos > 0) {
+                    ctx.executor().schedule(this::flushNow, windowNanos, TimeUnit.NANOSECONDS);
+                } else {
+                    // runs once the tasks already queued on the event loop, which includes writes from other threads, are done
+                    ctx.executor().execute(this::flushNow);
+                }
+            } catch (RejectedExecutionException e) {
+                // the event loop is shutting down
+                flushNow();
+            }
+        }
+    }
+
+    @Override
+    public void close(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+        flushNow();
+        ctx.close(promise);
+    }
+
+    @Override
+    public void disconnect(ChannelHandlerContext ctx, ChannelPromise promise) throws Exception {
+        flushNow();
+        ctx.disconnect(promise);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        if (logger.isDebugEnabled() && flushes > 0) {
+            logger.debug("channel [{}] flushed [{}] messages in [{}] flushes ([{}] messages per flush)", ctx.channel(),
+                flushedMessages, flushes, String.format(Locale.ROOT, "%.2f", (double) flushedMessages / flushes));
+        }
+        super.channelInactive(ctx);
+    }
+
+    private void flushNow() {
+        flushScheduled = false;
+        if (pendingMessages > 0) {
+            flushes++;
+            flushedMessages += pendingMessages;
+            totalFlushes.inc();
+            totalFlushedMessages.inc(pendingMessages);
+            pendingMessages = 0;
+            pendingBytes = 0;
+            ctx.flush();
+        }
+    }
+}
@@ -19,6 +19,7 @@
 
 package org.elasticsearch.http.netty4;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
@@ -34,11 +35,16 @@ import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.handler.codec.http.DefaultFullHttpRequest;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpContent;
 import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpHeaderValues;
 import io.netty.handler.codec.http.HttpMethod;
 import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
 import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.stream.ChunkedWriteHandler;
 import io.netty.util.Attribute;
 import io.netty.util.AttributeKey;
 import org.elasticsearch.common.bytes.BytesReference;
@@ -52,15 +58,19 @@ import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.BigArrays;
 import org.elasticsearch.common.util.ByteArray;
 import org.elasticsearch.common.util.MockBigArrays;
+import org.elasticsearch.common.xcontent.ChunkedToXContent;
 import org.elasticsearch.common.xcontent.NamedXContentRegistry;
+import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.json.JsonXContent;
 import org.elasticsearch.http.HttpTransportSettings;
 import org.elasticsearch.http.NullDispatcher;
 import org.elasticsearch.http.netty4.cors.Netty4CorsHandler;
 import org.elasticsearch.http.netty4.pipelining.HttpPipelinedRequest;
+import org.elasticsearch.http.netty4.pipelining.HttpPipeliningHandler;
 import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
 import org.elasticsearch.rest.BytesRestResponse;
+import org.elasticsearch.rest.ChunkedRestResponseBody;
 import org.elasticsearch.rest.RestResponse;
 import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.test.ESTestCase;
@@ -83,6 +93,7 @@ import static org.elasticsearch.http.HttpTransportSettings.SETTING_CORS_ALLOW_ME
 import static org.elasticsearch.http.HttpTransportSettings.SETTING_CORS_ALLOW_ORIGIN;
 import static org.elasticsearch.http.HttpTransportSettings.SETTING_CORS_ENABLED;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
@@ -313,6 +324,96 @@ public class Netty4HttpChannelTests extends ESTestCase {
         }
     }
 
+    public void testChunkedResponse() throws Exception {
+        final Settings settings = Settings.builder().build();
+        try (Netty4HttpServerTransport httpServerTransport =
+                 new Netty4HttpServerTransport(settings, networkService, bigArrays, threadPool, xContentRegistry(), new NullDispatcher())) {
+            httpServerTransport.start();
+            final FullHttpRequest httpRequest = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/");
+            final boolean pipelined = randomBoolean();
+            final EmbeddedChannel embeddedChannel = pipelined
+                ? new EmbeddedChannel(new ChunkedWriteHandler(), new HttpPipeliningHandler(logger, 10000))
+                : new EmbeddedChannel(new ChunkedWriteHandler());
+            final Netty4HttpRequest request = new Netty4HttpRequest(xContentRegistry(), httpRequest, embeddedChannel);
+            final HttpPipelinedRequest pipelinedRequest = pipelined ? new HttpPipelinedRequest(request.request(), 0) : null;
+            final Netty4HttpChannel channel =
+                new Netty4HttpChannel(httpServerTransport, request, pipelinedRequest, randomBoolean(), threadPool.getThreadContext());
+
+            final int numValues = scaledRandomIntBetween(Netty4HttpChannel.CHUNK_SIZE_HINT / 4, Netty4HttpChannel.CHUNK_SIZE_HINT / 2);
+            final ChunkedToXContent values = valuesToXContent(numValues);
+            channel.sendChunkedResponse(RestStatus.OK, ChunkedRestResponseBody.fromXContent(values, ToXContent.EMPTY_PARAMS, channel));
+
+            final HttpResponse response = embeddedChannel.readOutbound();
+            assertThat(response, not(instanceOf(FullHttpResponse.class)));
+            assertThat(response.status(), equalTo(HttpResponseStatus.OK));
+            assertTrue(HttpUtil.isTransferEncodingChunked(response));
+            assertThat(response.headers().get(HttpHeaderNames.CONTENT_TYPE), equalTo("application/json; charset=UTF-8"));
+
+            final ByteBuf content = Unpooled.buffer();
+            int numChunks = 0;
+            HttpContent chunk;
+            do {
+                chunk = embeddedChannel.readOutbound();
+                assertThat(chunk, notNullValue());
+                content.writeBytes(chunk.content());
+                chunk.release();
+                numChunks++;
+            } while (chunk instanceof LastHttpContent == false);
+            assertThat(embeddedChannel.readOutbound(), nullValue());
+            assertThat(numChunks, greaterThan(2));
+            assertThat(content.toString(StandardCharsets.UTF_8), equalTo(valuesToJson(numValues)));
+            assertTrue(embeddedChannel.isOpen());
+        }
+    }
+
+    public void testChunkedResponseFallsBackToFullResponseForHttp10() throws Exception {
+        final Settings settings = Settings.builder().build();
+        try (Netty4HttpServerTransport httpServerTransport =
+                 new Netty4HttpServerTransport(settings, networkService, BigArrays.NON_RECYCLING_INSTANCE, threadPool, xContentRegistry(),
+                     new NullDispatcher())) {
+            httpServerTransport.start();
+            final FullHttpRequest httpRequest = new DefaultFullHttpRequest(HttpVersion.HTTP_1_0, HttpMethod.GET, "/");
+            httpRequest.headers().add(HttpHeaderNames.CONNECTION, HttpHeaderValues.KEEP_ALIVE);
+            final EmbeddedChannel embeddedChannel = new EmbeddedChannel(new ChunkedWriteHandler());
+            final Netty4HttpRequest request = new Netty4HttpRequest(xContentRegistry(), httpRequest, embeddedChannel);
+            final Netty4HttpChannel channel =
+                new Netty4HttpChannel(httpServerTransport, request, null, randomBoolean(), threadPool.getThreadContext());
+
+            final int numValues = randomIntBetween(0, 100);
+            channel.sendChunkedResponse(RestStatus.OK,
+                ChunkedRestResponseBody.fromXContent(valuesToXContent(numValues), ToXContent.EMPTY_PARAMS, channel));
+
+            // the response is released once written, the non-recycling big arrays keep its content readable
+            final FullHttpResponse response = embeddedChannel.readOutbound();
+            assertFalse(HttpUtil.isTransferEncodingChunked(response));
+            assertThat(response.content().toString(StandardCharsets.UTF_8), equalTo(valuesToJson(numValues)));
+        }
+    }
+
+    private static ChunkedToXContent valuesToXContent(int numValues) {
+        return () -> {
+            final List<ToXContent> pieces = new ArrayList<>();
+            pieces.add((builder, params) -> builder.startObject().startArray("values"));
+            for (int i = 0; i < numValues; i++) {
+                final int value = i;
+                pieces.add((builder, params) -> builder.value("value-" + value));
+            }
+            pieces.add((builder, params) -> builder.endArray().endObject());
+            return pieces.iterator();
+        };
+    }
+
+    private static String valuesToJson(int numValues) {
+        final StringBuilder json = new StringBuilder("{\"values\":[");
+        for (int i = 0; i < numValues; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("\"value-").append(i).append('"');
+        }
+        return json.append("]}").toString();
+    }
+
     private FullHttpResponse executeRequest(final Settings settings, final String host) {
         return executeRequest(settings, null, host);
     }
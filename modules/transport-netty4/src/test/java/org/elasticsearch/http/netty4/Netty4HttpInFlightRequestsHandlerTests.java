@@ -0,0 +1,320 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.http.netty4;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpContent;
+import io.netty.handler.codec.http.DefaultHttpRequest;
+import io.netty.handler.codec.http.DefaultLastHttpContent;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.elasticsearch.test.ESTestCase;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.nullValue;
+
+public class Netty4HttpInFlightRequestsHandlerTests extends ESTestCase {
+
+    public void testAdmittedRequestIsAccountedUntilResponded() {
+        final Netty4HttpInFlightRequests inFlightRequests = new Netty4HttpInFlightRequests(-1, -1);
+        final EmbeddedChannel channel = newChannel(inFlightRequests, "127.0.0.1");
+
+        final int length = randomIntBetween(1, 1024);
+        channel.writeInbound(request(length));
+        // the declared length is reserved as soon as the request is admitted
+        assertThat(inFlightRequests.getInFlightRequests(), equalTo(1L));
+        assertThat(inFlightRequests.getInFlightBytes(), equalTo((long) length));
+        final int firstChunk = randomIntBetween(0, length);
+        channel.writeInbound(new DefaultHttpContent(content(firstChunk)));
+        assertThat(inFlightRequests.getInFlightBytes(), equalTo((long) length));
+        channel.writeInbound(new DefaultLastHttpContent(content(length - firstChunk)));
+        assertThat(inFlightRequests.getInFlightBytes(), equalTo((long) length));
+
+        final FullHttpRequest aggregated = channel.readInbound();
+        assertTrue(aggregated.decoderResult().isSuccess());
+        assertThat(aggregated.content().readableBytes(), equalTo(length));
+        aggregated.release();
+
+        channel.writeOutbound(new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK));
+        assertThat(inFlightRequests.getInFlightRequests(), equalTo(0L));
+        assertThat(inFlightRequests.getInFlightBytes(), equalTo(0L));
+        assertThat(inFlightRequests.getRejected(), equalTo(0L));
+        channel.finishAndReleaseAll();
+    }
+
+    public void testRejectsRequestThatExceedsInFlightBytes() {
+        final Netty4HttpInFlightRequests inFlightRequests = new Netty4HttpInFlightRequests(100, -1);
+        final EmbeddedChannel first = newChannel(inFlightRequests, "127.0.0.1");
+        final EmbeddedChannel second = newChannel(inFlightRequests, "127.0.0.2");
+
+        first.writeInbound(request(80));
+        first.writeInbound(new DefaultLastHttpContent(content(80)));
+        ((FullHttpRequest) first.readInbound()).release();
+
+        // even a request that is larger than the limit is admitted while nothing else is in flight, but this one is not
+        final HttpRequest request = request(50);
+        request.headers().set(HttpHeaderNames.EXPECT, HttpHeaderValues.CONTINUE);
+        second.writeInbound(request);
+        assertRejected(second.readInbound(), true);
+        // the aggregator must not let the client continue sending the body
+        assertThat(second.readOutbound(), nullValue());
+        final HttpContent body = new DefaultLastHttpContent(content(50));
+        second.writeInbound(body);
+        assertThat(body.refCnt(), equalTo(0));
+        assertThat(second.readInbound(), nullValue());
+        assertThat(inFlightRequests.getInFlightRequests(), equalTo(1L));
+        assertThat(inFlightRequests.getInFlightBytes(), equalTo(80L));
+        assertThat(inFlightRequests.getRejected(), equalTo(1L));
+
+        // the response to the rejected request does not release anything
+        second.writeOutbound(new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.TOO_MANY_REQUESTS));
+        assertThat(inFlightRequests.getInFlightBytes(), equalTo(80L));
+
+        first.writeOutbound(new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK));
+        assertThat(inFlightRequests.getInFlightBytes(), equalTo(0L));
+        second.writeInbound(request(50));
+        second.writeInbound(new DefaultLastHttpContent(content(50)));
+        final FullHttpRequest admitted = second.readInbound();
+        assertTrue(admitted.decoderResult().isSuccess());
+        admitted.release();
+        first.finishAndReleaseAll();
+        second.finishAndReleaseAll();
+    }
+
+    public void testRejectsRequestsOverPerClientLimit() {
+        final int maxPerClient = randomIntBetween(1, 5);
+        final Netty4HttpInFlightRequests inFlightRequests = new Netty4HttpInFlightRequests(-1, maxPerClient);
+        final EmbeddedChannel channel = newChannel(inFlightRequests, "127.0.0.1");
+        final EmbeddedChannel otherChannel = newChannel(inFlightRequests, "127.0.0.1");
+        final EmbeddedChannel otherClient = newChannel(inFlightRequests, "127.0.0.2");
+
+        int onChannel = 0;
+        for (int i = 0; i < maxPerClient; i++) {
+            if (randomBoolean()) {
+                sendRequestWithoutBody(channel);
+                onChannel++;
+            } else {
+                sendRequestWithoutBody(otherChannel);
+            }
+        }
+        sendRequestWithoutBody(otherClient);
+        assertThat(inFlightRequests.getInFlightRequests(), equalTo(maxPerClient + 1L));
+
+        final HttpRequest request = request(0);
+        channel.writeInbound(request);
+        channel.writeInbound(new DefaultLastHttpContent());
+        assertRejected(channel.readInbound(), false);
+        assertThat(inFlightRequests.getRejected(), equalTo(1L));
+
+        // responding to one of the requests of the client frees a slot
+        final EmbeddedChannel responding = onChannel > 0 ? channel : otherChannel;
+        responding.writeOutbound(new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK));
+        assertThat(inFlightRequests.getInFlightRequests(), equalTo((long) maxPerClient));
+        sendRequestWithoutBody(otherChannel);
+        assertThat(inFlightRequests.getRejected(), equalTo(1L));
+
+        channel.finishAndReleaseAll();
+        otherChannel.finishAndReleaseAll();
+        otherClient.finishAndReleaseAll();
+        assertThat(inFlightRequests.getInFlightRequests(), equalTo(0L));
+    }
+
+    public void testCountsBodyOfUnknownLengthAsItIsReceived() {
+        final Netty4HttpInFlightRequests inFlightRequests = new Netty4HttpInFlightRequests(100, -1);
+        final EmbeddedChannel first = newChannel(inFlightRequests, "127.0.0.1");
+        final EmbeddedChannel second = newChannel(inFlightRequests, "127.0.0.2");
+
+        first.writeInbound(request(80));
+        assertThat(inFlightRequests.getInFlightBytes(), equalTo(80L));
+
+        // a request of unknown length reserves nothing, so it is admitted and counted as its body arrives
+        second.writeInbound(chunkedRequest());
+        second.writeInbound(new DefaultHttpContent(content(10)));
+        assertThat(inFlightRequests.getInFlightBytes(), equalTo(90L));
+        second.writeInbound(new DefaultHttpContent(content(200)));
+        second.writeInbound(new DefaultLastHttpContent());
+        assertTrue(second.config().isAutoRead());
+        assertThat(inFlightRequests.getInFlightBytes(), equalTo(290L));
+        ((FullHttpRequest) second.readInbound()).release();
+
+        second.writeOutbound(new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK));
+        assertThat(inFlightRequests.getInFlightBytes(), equalTo(80L));
+        first.finishAndReleaseAll();
+        second.finishAndReleaseAll();
+        assertThat(inFlightRequests.getInFlightBytes(), equalTo(0L));
+        assertThat(inFlightRequests.getInFlightRequests(), equalTo(0L));
+    }
+
+    public void testConcurrentPartialBodiesOverLimitAllComplete() {
+        final int limit = 100;
+        final Netty4HttpInFlightRequests inFlightRequests = new Netty4HttpInFlightRequests(limit, -1);
+        final int numChannels = randomIntBetween(2, 5);
+        final EmbeddedChannel[] channels = new EmbeddedChannel[numChannels];
+        final int[] remaining = new int[numChannels];
+        for (int i = 0; i < numChannels; i++) {
+            channels[i] = newChannel(inFlightRequests, "127.0.0." + (i + 1));
+            if (i == 0) {
+                remaining[i] = randomIntBetween(limit / 2, limit);
+                channels[i].writeInbound(request(remaining[i]));
+            } else if (i == 1) {
+                // a body of unknown length that pushes the bytes in flight over the limit on its own
+                remaining[i] = randomIntBetween(limit, 2 * limit);
+                channels[i].writeInbound(chunkedRequest());
+            } else if (randomBoolean()) {
+                remaining[i] = randomIntBetween(1, limit / 2);
+                channels[i].writeInbound(request(remaining[i]));
+            } else {
+                remaining[i] = randomIntBetween(1, limit);
+                channels[i].writeInbound(chunkedRequest());
+            }
+        }
+
+        // interleave the bodies until all of them are complete, together they exceed the limit
+        long maxInFlightBytes = 0;
+        boolean receiving = true;
+        while (receiving) {
+            receiving = false;
+            for (int i = 0; i < numChannels; i++) {
+                if (remaining[i] > 0) {
+                    final int chunk = randomIntBetween(1, remaining[i]);
+                    remaining[i] -= chunk;
+                    channels[i].writeInbound(new DefaultHttpContent(content(chunk)));
+                    assertTrue("reading an admitted request must never be paused", channels[i].config().isAutoRead());
+                    maxInFlightBytes = Math.max(maxInFlightBytes, inFlightRequests.getInFlightBytes());
+                    receiving = true;
+                } else if (remaining[i] == 0) {
+                    channels[i].writeInbound(new DefaultLastHttpContent());
+                    remaining[i] = -1;
+                }
+            }
+        }
+
+        assertThat(maxInFlightBytes, greaterThan((long) limit));
+
+        long admitted = 0;
+        for (EmbeddedChannel channel : channels) {
+            final FullHttpRequest request = channel.readInbound();
+            if (request.decoderResult().isSuccess()) {
+                admitted++;
+            }
+            request.release();
+            assertThat(channel.readInbound(), nullValue());
+        }
+        assertThat(inFlightRequests.getInFlightRequests(), equalTo(admitted));
+        assertThat(admitted + inFlightRequests.getRejected(), equalTo((long) numChannels));
+
+        for (EmbeddedChannel channel : channels) {
+            channel.writeOutbound(new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK));
+            channel.finishAndReleaseAll();
+        }
+        assertThat(inFlightRequests.getInFlightRequests(), equalTo(0L));
+        assertThat(inFlightRequests.getInFlightBytes(), equalTo(0L));
+    }
+
+    public void testCloseReleasesPendingRequests() {
+        final Netty4HttpInFlightRequests inFlightRequests = new Netty4HttpInFlightRequests(randomBoolean() ? -1 : 1024, -1);
+        final EmbeddedChannel channel = newChannel(inFlightRequests, "127.0.0.1");
+        final int numRequests = randomIntBetween(1, 5);
+        long bytes = 0;
+        for (int i = 0; i < numRequests; i++) {
+            final int length = randomIntBetween(0, 100);
+            channel.writeInbound(request(length));
+            channel.writeInbound(new DefaultLastHttpContent(content(length)));
+            bytes += length;
+        }
+        // the last request is still being received
+        channel.writeInbound(request(100));
+        channel.writeInbound(new DefaultHttpContent(content(10)));
+        assertThat(inFlightRequests.getInFlightRequests(), equalTo(numRequests + 1L));
+        assertThat(inFlightRequests.getInFlightBytes(), equalTo(bytes + 100));
+
+        channel.finishAndReleaseAll();
+        assertThat(inFlightRequests.getInFlightRequests(), equalTo(0L));
+        assertThat(inFlightRequests.getInFlightBytes(), equalTo(0L));
+    }
+
+    private static void sendRequestWithoutBody(EmbeddedChannel channel) {
+        channel.writeInbound(request(0));
+        channel.writeInbound(new DefaultLastHttpContent());
+        final FullHttpRequest request = channel.readInbound();
+        assertTrue(request.decoderResult().isSuccess());
+        request.release();
+    }
+
+    private static void assertRejected(FullHttpRequest request, boolean closeConnection) {
+        assertTrue(request.decoderResult().isFailure());
+        assertThat(request.decoderResult().cause(), instanceOf(EsRejectedExecutionException.class));
+        assertThat(request.content().readableBytes(), equalTo(0));
+        assertFalse(request.headers().contains(HttpHeaderNames.CONTENT_LENGTH));
+        assertFalse(request.headers().contains(HttpHeaderNames.EXPECT));
+        assertThat(HttpUtil.isKeepAlive(request), equalTo(closeConnection == false));
+        request.release();
+    }
+
+    private static HttpRequest request(int contentLength) {
+        final HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/");
+        HttpUtil.setContentLength(request, contentLength);
+        return request;
+    }
+
+    private static HttpRequest chunkedRequest() {
+        final HttpRequest request = new DefaultHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/");
+        HttpUtil.setTransferEncodingChunked(request, true);
+        return request;
+    }
+
+    private static ByteBuf content(int length) {
+        return Unpooled.wrappedBuffer(new byte[length]);
+    }
+
+    private static EmbeddedChannel newChannel(Netty4HttpInFlightRequests inFlightRequests, String clientAddress) {
+        final InetSocketAddress remoteAddress;
+        try {
+            remoteAddress = new InetSocketAddress(InetAddress.getByName(clientAddress), 9200);
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+        return new EmbeddedChannel(new Netty4HttpInFlightRequestsHandler(inFlightRequests), new HttpObjectAggregator(1024 * 1024)) {
+            @Override
+            protected SocketAddress remoteAddress0() {
+                return remoteAddress;
+            }
+        };
+    }
+}
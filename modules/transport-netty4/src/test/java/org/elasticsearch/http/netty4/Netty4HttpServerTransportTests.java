@@ -63,6 +63,8 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
@@ -280,6 +282,74 @@ public class Netty4HttpServerTransportTests extends ESTestCase {
         assertThat(causeReference.get(), instanceOf(TooLongFrameException.class));
     }
 
+    public void testRejectsRequestsOverPerClientLimit() throws Exception {
+        final CountDownLatch held = new CountDownLatch(1);
+        final AtomicReference<RestChannel> heldChannel = new AtomicReference<>();
+        final HttpServerTransport.Dispatcher dispatcher = new HttpServerTransport.Dispatcher() {
+
+            @Override
+            public void dispatchRequest(final RestRequest request, final RestChannel channel, final ThreadContext threadContext) {
+                if (request.uri().equals("/hold")) {
+                    heldChannel.set(channel);
+                    held.countDown();
+                } else {
+                    channel.sendResponse(new BytesRestResponse(OK, BytesRestResponse.TEXT_CONTENT_TYPE, BytesArray.EMPTY));
+                }
+            }
+
+            @Override
+            public void dispatchBadRequest(final RestRequest request,
+                                           final RestChannel channel,
+                                           final ThreadContext threadContext,
+                                           final Throwable cause) {
+                throw new AssertionError();
+            }
+
+        };
+
+        final Settings settings = Settings.builder()
+            .put(Netty4HttpServerTransport.SETTING_HTTP_NETTY_MAX_IN_FLIGHT_REQUESTS_PER_CLIENT.getKey(), 1)
+            .build();
+        try (Netty4HttpServerTransport transport =
+                     new Netty4HttpServerTransport(settings, networkService, bigArrays, threadPool, xContentRegistry(), dispatcher);
+             Netty4HttpClient holdingClient = new Netty4HttpClient();
+             Netty4HttpClient client = new Netty4HttpClient()) {
+            transport.start();
+            final TransportAddress remoteAddress = randomFrom(transport.boundAddress.boundAddresses());
+
+            final AtomicReference<FullHttpResponse> heldResponse = new AtomicReference<>();
+            final Thread holder = new Thread(() -> {
+                try {
+                    heldResponse.set(holdingClient.post(remoteAddress.address(),
+                        new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/hold")));
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+            });
+            holder.start();
+            assertTrue(held.await(10, TimeUnit.SECONDS));
+
+            final FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.POST, "/",
+                Unpooled.copiedBuffer("{}", StandardCharsets.UTF_8));
+            HttpUtil.setContentLength(request, 2);
+            final FullHttpResponse response = client.post(remoteAddress.address(), request);
+            try {
+                assertThat(response.status(), equalTo(HttpResponseStatus.TOO_MANY_REQUESTS));
+                assertThat(response.content().toString(StandardCharsets.UTF_8), containsString("es_rejected_execution_exception"));
+            } finally {
+                response.release();
+            }
+            assertThat(transport.stats().getRejectedRequests(), equalTo(1L));
+            assertThat(transport.stats().getInFlightRequests(), equalTo(1L));
+
+            heldChannel.get().sendResponse(new BytesRestResponse(OK, BytesRestResponse.TEXT_CONTENT_TYPE, BytesArray.EMPTY));
+            holder.join();
+            assertThat(heldResponse.get().status(), equalTo(HttpResponseStatus.OK));
+            heldResponse.get().release();
+            assertBusy(() -> assertThat(transport.stats().getInFlightRequests(), equalTo(0L)));
+        }
+    }
+
     public void testDispatchDoesNotModifyThreadContext() throws InterruptedException {
         final HttpServerTransport.Dispatcher dispatcher = new HttpServerTransport.Dispatcher() {
 
@@ -0,0 +1,95 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+
+package org.elasticsearch.transport.netty4;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.test.ESTestCase;
+
+public class Netty4WriteAggregatorTests extends ESTestCase {
+
+    private final CounterMetric flushes = new CounterMetric();
+    private final CounterMetric flushedMessages = new CounterMetric();
+
+    private Netty4WriteAggregator newAggregator(int maxPendingBytes) {
+        return new Netty4WriteAggregator(logger, new ByteSizeValue(maxPendingBytes), TimeValue.ZERO, flushes, flushedMessages);
+    }
+
+    public void testFlushesAreCoalesced() {
+        final EmbeddedChannel channel = new EmbeddedChannel(newAggregator(1024));
+        final int messages = randomIntBetween(2, 10);
+        for (int i = 0; i < messages; i++) {
+            channel.writeAndFlush(Unpooled.wrappedBuffer(new byte[] {(byte) i}));
+        }
+        // nothing is flushed before the event loop got to the deferred flush
+        assertTrue(channel.outboundMessages().isEmpty());
+
+        channel.runPendingTasks();
+        assertEquals(messages, channel.outboundMessages().size());
+        for (int i = 0; i < messages; i++) {
+            ByteBuf buf = channel.readOutbound();
+            assertEquals(i, buf.readByte());
+            buf.release();
+        }
+        assertEquals(1, flushes.count());
+        assertEquals(messages, flushedMessages.count());
+        assertFalse(channel.finish());
+    }
+
+    public void testFlushesOnceThresholdIsReached() {
+        final EmbeddedChannel channel = new EmbeddedChannel(newAggregator(16));
+        channel.writeAndFlush(Unpooled.wrappedBuffer(new byte[8]));
+        assertTrue(channel.outboundMessages().isEmpty());
+        channel.writeAndFlush(Unpooled.wrappedBuffer(new byte[8]));
+        // the second message brings the pending bytes to the threshold
+        assertEquals(2, channel.outboundMessages().size());
+        assertEquals(1, flushes.count());
+
+        // the deferred flush has nothing left to do
+        channel.runPendingTasks();
+        assertEquals(1, flushes.count());
+        assertTrue(channel.finishAndReleaseAll());
+    }
+
+    public void testZeroThresholdFlushesEveryMessage() {
+        final EmbeddedChannel channel = new EmbeddedChannel(newAggregator(0));
+        channel.writeAndFlush(Unpooled.wrappedBuffer(new byte[1]));
+        channel.writeAndFlush(Unpooled.wrappedBuffer(new byte[1]));
+        assertEquals(2, channel.outboundMessages().size());
+        assertEquals(2, flushes.count());
+        assertTrue(channel.finishAndReleaseAll());
+    }
+
+    public void testPendingMessagesAreFlushedOnClose() {
+        final EmbeddedChannel channel = new EmbeddedChannel(newAggregator(1024));
+        channel.write(Unpooled.wrappedBuffer(new byte[1]));
+        channel.flush();
+        assertTrue(channel.outboundMessages().isEmpty());
+        channel.close();
+        assertEquals(1, channel.outboundMessages().size());
+        assertEquals(1, flushes.count());
+        assertTrue(channel.finishAndReleaseAll());
+    }
+}
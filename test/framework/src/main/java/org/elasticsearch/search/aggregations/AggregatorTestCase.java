@@ -97,8 +97,17 @@ public abstract class AggregatorTestCase extends ESTestCase {
     protected AggregatorFactory<?> createAggregatorFactory(AggregationBuilder aggregationBuilder,
             IndexSearcher indexSearcher,
             MappedFieldType... fieldTypes) throws IOException {
+        return createAggregatorFactory(null, aggregationBuilder, indexSearcher, fieldTypes);
+    }
+
+    /** Create a factory for the given aggregation builder, executed as part of a search request with the given query. */
+    protected AggregatorFactory<?> createAggregatorFactory(Query query,
+            AggregationBuilder aggregationBuilder,
+            IndexSearcher indexSearcher,
+            MappedFieldType... fieldTypes) throws IOException {
         IndexSettings indexSettings = createIndexSettings();
         SearchContext searchContext = createSearchContext(indexSearcher, indexSettings);
+        when(searchContext.query()).thenReturn(query);
         CircuitBreakerService circuitBreakerService = new NoneCircuitBreakerService();
         when(searchContext.bigArrays()).thenReturn(new MockBigArrays(Settings.EMPTY, circuitBreakerService));
         // TODO: now just needed for top_hits, this will need to be revised for other agg unit tests:
@@ -132,8 +141,15 @@ public abstract class AggregatorTestCase extends ESTestCase {
     protected <A extends Aggregator> A createAggregator(AggregationBuilder aggregationBuilder,
                                                         IndexSearcher indexSearcher,
                                                         MappedFieldType... fieldTypes) throws IOException {
+        return createAggregator(null, aggregationBuilder, indexSearcher, fieldTypes);
+    }
+
+    protected <A extends Aggregator> A createAggregator(Query query,
+                                                        AggregationBuilder aggregationBuilder,
+                                                        IndexSearcher indexSearcher,
+                                                        MappedFieldType... fieldTypes) throws IOException {
         @SuppressWarnings("unchecked")
-        A aggregator = (A) createAggregatorFactory(aggregationBuilder, indexSearcher, fieldTypes).create(null, true);
+        A aggregator = (A) createAggregatorFactory(query, aggregationBuilder, indexSearcher, fieldTypes).create(null, true);
         return aggregator;
     }
 
@@ -218,7 +234,20 @@ public abstract class AggregatorTestCase extends ESTestCase {
                                                                              Query query,
                                                                              AggregationBuilder builder,
                                                                              MappedFieldType... fieldTypes) throws IOException {
-        C a = createAggregator(builder, searcher, fieldTypes);
+        return search(searcher, query, builder, false, fieldTypes);
+    }
+
+    /**
+     * Like {@link #search(IndexSearcher, Query, AggregationBuilder, MappedFieldType...)}, but optionally exposes the query to
+     * the aggregator through {@link SearchContext#query()}, which allows it to compute its result without collecting the
+     * matching documents. Aggregators are tested on the collection path unless {@code exposeQuery} is set.
+     */
+    protected <A extends InternalAggregation, C extends Aggregator> A search(IndexSearcher searcher,
+                                                                             Query query,
+                                                                             AggregationBuilder builder,
+                                                                             boolean exposeQuery,
+                                                                             MappedFieldType... fieldTypes) throws IOException {
+        C a = createAggregator(exposeQuery ? query : null, builder, searcher, fieldTypes);
         a.preCollection();
         searcher.search(query, a);
         a.postCollection();
@@ -237,6 +266,18 @@ public abstract class AggregatorTestCase extends ESTestCase {
                                                                                       Query query,
                                                                                       AggregationBuilder builder,
                                                                                       MappedFieldType... fieldTypes) throws IOException {
+        return searchAndReduce(searcher, query, builder, false, fieldTypes);
+    }
+
+    /**
+     * Like {@link #searchAndReduce(IndexSearcher, Query, AggregationBuilder, MappedFieldType...)}, but optionally exposes the
+     * query to the aggregators, see {@link #search(IndexSearcher, Query, AggregationBuilder, boolean, MappedFieldType...)}.
+     */
+    protected <A extends InternalAggregation, C extends Aggregator> A searchAndReduce(IndexSearcher searcher,
+                                                                                      Query query,
+                                                                                      AggregationBuilder builder,
+                                                                                      boolean exposeQuery,
+                                                                                      MappedFieldType... fieldTypes) throws IOException {
         final IndexReaderContext ctx = searcher.getTopReaderContext();
 
         final ShardSearcher[] subSearchers;
@@ -259,7 +300,7 @@ public abstract class AggregatorTestCase extends ESTestCase {
         C root = createAggregator(builder, searcher, fieldTypes);
 
         for (ShardSearcher subSearcher : subSearchers) {
-            C a = createAggregator(builder, subSearcher, fieldTypes);
+            C a = createAggregator(exposeQuery ? rewritten : null, builder, subSearcher, fieldTypes);
             a.preCollection();
             subSearcher.search(weight, a);
             a.postCollection();
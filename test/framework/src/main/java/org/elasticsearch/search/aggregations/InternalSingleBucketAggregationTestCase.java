@@ -112,9 +112,16 @@ public abstract class InternalSingleBucketAggregationTestCase<T extends Internal
         return createTestInstance(name, docCount, aggregations, pipelineAggregators, metaData);
     }
 
+    /**
+     * The expected document count of the final reduction of the given aggregations.
+     */
+    protected long reducedDocCount(List<T> inputs) {
+        return inputs.stream().mapToLong(InternalSingleBucketAggregation::getDocCount).sum();
+    }
+
     @Override
     protected final void assertReduced(T reduced, List<T> inputs) {
-        assertEquals(inputs.stream().mapToLong(InternalSingleBucketAggregation::getDocCount).sum(), reduced.getDocCount());
+        assertEquals(reducedDocCount(inputs), reduced.getDocCount());
         if (hasInternalMax) {
             double expected = inputs.stream().mapToDouble(i -> {
                         InternalMax max = i.getAggregations().get("max");
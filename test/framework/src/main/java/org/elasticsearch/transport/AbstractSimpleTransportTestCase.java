@@ -2340,6 +2340,15 @@ public abstract class AbstractSimpleTransportTestCase extends ESTestCase {
             assertEquals(2, stats.getTxCount());
             assertEquals(46, stats.getRxSize().getBytes());
             assertEquals(91, stats.getTxSize().getBytes());
+
+            TransportActionStats actionStats = serviceB.stats().getActionStats().get("action");
+            assertNotNull(actionStats);
+            assertEquals(1, actionStats.getRxCount());
+            assertEquals(46, actionStats.getRxSize().getBytes());
+            assertEquals(1, actionStats.getTxCount());
+            assertEquals(21, actionStats.getTxSize().getBytes());
+            assertEquals(1, actionStats.getQueueTime().getTotalCount());
+            assertEquals(1, actionStats.getExecutionTime().getTotalCount());
         } finally {
             serviceC.close();
         }
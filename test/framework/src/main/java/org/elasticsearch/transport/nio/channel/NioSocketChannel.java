@@ -51,7 +51,13 @@ public class NioSocketChannel extends AbstractNioChannel<SocketChannel> {
             writeContext.clearQueuedWriteOps(new ClosedChannelException());
         }
 
-        super.closeFromSelector();
+        try {
+            super.closeFromSelector();
+        } finally {
+            if (readContext != null) {
+                readContext.close();
+            }
+        }
     }
 
     @Override
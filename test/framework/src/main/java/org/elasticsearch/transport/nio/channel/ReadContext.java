@@ -19,10 +19,18 @@
 
 package org.elasticsearch.transport.nio.channel;
 
+import org.elasticsearch.common.lease.Releasable;
+
 import java.io.IOException;
 
-public interface ReadContext {
+public interface ReadContext extends Releasable {
 
     int read() throws IOException;
 
+    /**
+     * Releases the resources held by this context. Only called by the selector thread once the channel is closed.
+     */
+    @Override
+    void close();
+
 }
@@ -19,9 +19,13 @@
 
 package org.elasticsearch.transport.nio.channel;
 
+import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.bytes.CompositeBytesReference;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.ByteArray;
 import org.elasticsearch.transport.nio.NetworkBytesReference;
 import org.elasticsearch.transport.nio.TcpReadHandler;
 
@@ -29,14 +33,22 @@ import java.io.IOException;
 import java.util.Iterator;
 import java.util.LinkedList;
 
+/**
+ * Reads bytes from a {@link NioSocketChannel} into pages obtained from {@link BigArrays} and hands every complete message to the
+ * {@link TcpReadHandler}. A page is given back as soon as all the messages it holds have been handled, so with a recycling
+ * {@link BigArrays} instance the channels of a transport read into a shared pool of pages rather than allocating new buffers.
+ */
 public class TcpReadContext implements ReadContext {
 
-    private static final int DEFAULT_READ_LENGTH = 1 << 14;
+    private static final int DEFAULT_READ_LENGTH = BigArrays.BYTE_PAGE_SIZE;
 
     private final TcpReadHandler handler;
     private final NioSocketChannel channel;
     private final TcpFrameDecoder frameDecoder;
+    private final BigArrays bigArrays;
     private final LinkedList<NetworkBytesReference> references = new LinkedList<>();
+    // the pages backing the references, in the same order
+    private final LinkedList<ByteArray> pages = new LinkedList<>();
     private int rawBytesCount = 0;
 
     public TcpReadContext(NioSocketChannel channel, TcpReadHandler handler) {
@@ -44,17 +56,21 @@ public class TcpReadContext implements ReadContext {
     }
 
     public TcpReadContext(NioSocketChannel channel, TcpReadHandler handler, TcpFrameDecoder frameDecoder) {
+        this(channel, handler, frameDecoder, BigArrays.NON_RECYCLING_INSTANCE);
+    }
+
+    public TcpReadContext(NioSocketChannel channel, TcpReadHandler handler, TcpFrameDecoder frameDecoder, BigArrays bigArrays) {
         this.handler = handler;
         this.channel = channel;
         this.frameDecoder = frameDecoder;
-        this.references.add(NetworkBytesReference.wrap(new BytesArray(new byte[DEFAULT_READ_LENGTH])));
+        this.bigArrays = bigArrays;
     }
 
     @Override
     public int read() throws IOException {
         NetworkBytesReference last = references.peekLast();
         if (last == null || last.hasWriteRemaining() == false) {
-            this.references.add(NetworkBytesReference.wrap(new BytesArray(new byte[DEFAULT_READ_LENGTH])));
+            addPage();
         }
 
         int bytesRead = channel.read(references.getLast());
@@ -71,9 +87,6 @@ public class TcpReadContext implements ReadContext {
         // or the message is corrupted
         while ((message = frameDecoder.decode(createCompositeBuffer(), rawBytesCount)) != null) {
             int messageLengthWithHeader = message.length();
-            NetworkBytesReference.vectorizedIncrementReadIndexes(references, messageLengthWithHeader);
-            trimDecodedMessages(messageLengthWithHeader);
-            rawBytesCount -= messageLengthWithHeader;
 
             try {
                 BytesReference messageWithoutHeader = message.slice(6, message.length() - 6);
@@ -85,11 +98,40 @@ public class TcpReadContext implements ReadContext {
             } catch (Exception e) {
                 handler.handleException(channel, e);
             }
+
+            // the message has been handled, so the pages holding only this message can be released
+            NetworkBytesReference.vectorizedIncrementReadIndexes(references, messageLengthWithHeader);
+            trimDecodedMessages(messageLengthWithHeader);
+            rawBytesCount -= messageLengthWithHeader;
         }
 
         return bytesRead;
     }
 
+    @Override
+    public void close() {
+        references.clear();
+        Releasables.close(pages);
+        pages.clear();
+    }
+
+    private void addPage() {
+        final ByteArray page = bigArrays.newByteArray(DEFAULT_READ_LENGTH, false);
+        boolean success = false;
+        try {
+            final BytesRef bytes = new BytesRef();
+            final boolean copied = page.get(0, DEFAULT_READ_LENGTH, bytes);
+            assert copied == false : "a single page must be backed by a single array";
+            references.add(NetworkBytesReference.wrap(new BytesArray(bytes)));
+            pages.add(page);
+            success = true;
+        } finally {
+            if (success == false) {
+                page.close();
+            }
+        }
+    }
+
     private CompositeBytesReference createCompositeBuffer() {
         return new CompositeBytesReference(references.toArray(new BytesReference[references.size()]));
     }
@@ -101,6 +143,7 @@ public class TcpReadContext implements ReadContext {
             bytesToTrim -= readIndex;
             if (readIndex == ref.length()) {
                 references.removeFirst();
+                pages.removeFirst().close();
             } else {
                 assert bytesToTrim == 0;
                 if (readIndex != 0) {
@@ -21,15 +21,26 @@ package org.elasticsearch.transport.nio.channel;
 
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.transport.nio.NetworkBytesReference;
 import org.elasticsearch.transport.nio.SocketSelector;
 import org.elasticsearch.transport.nio.WriteOperation;
 
 import java.io.IOException;
 import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
 
+/**
+ * Queues the messages sent on a {@link NioSocketChannel} until the selector flushes them. When several messages are queued their
+ * buffers are coalesced into a single gathering write, which avoids issuing one system call per message when many small messages
+ * such as pings or responses are sent on the same channel.
+ */
 public class TcpWriteContext implements WriteContext {
 
+    // the maximum number of buffers handed to a single gathering write, as operating systems limit the number of buffers per call
+    static final int MAX_BUFFERS_PER_WRITE = 1024;
+
     private final NioSocketChannel channel;
     private final LinkedList<WriteOperation> queued = new LinkedList<>();
 
@@ -103,11 +114,35 @@ public class TcpWriteContext implements WriteContext {
     }
 
     private void multiFlush() throws IOException {
-        boolean lastOpCompleted = true;
-        while (lastOpCompleted && queued.isEmpty() == false) {
-            WriteOperation op = queued.pop();
-            singleFlush(op);
-            lastOpCompleted = op.isFullyFlushed();
+        boolean allOpsCompleted = true;
+        while (allOpsCompleted && queued.isEmpty() == false) {
+            final ArrayList<NetworkBytesReference> references = new ArrayList<>();
+            int opsToFlush = 0;
+            for (WriteOperation op : queued) {
+                NetworkBytesReference[] opReferences = op.getByteReferences();
+                if (opsToFlush > 0 && references.size() + opReferences.length > MAX_BUFFERS_PER_WRITE) {
+                    break;
+                }
+                Collections.addAll(references, opReferences);
+                ++opsToFlush;
+            }
+
+            try {
+                channel.write(references.toArray(new NetworkBytesReference[references.size()]));
+            } catch (IOException e) {
+                queued.pop().getListener().onFailure(e);
+                throw e;
+            }
+
+            for (int i = 0; i < opsToFlush; i++) {
+                WriteOperation op = queued.peek();
+                if (op.isFullyFlushed() == false) {
+                    allOpsCompleted = false;
+                    break;
+                }
+                queued.pop();
+                op.getListener().onResponse(channel);
+            }
         }
     }
 }
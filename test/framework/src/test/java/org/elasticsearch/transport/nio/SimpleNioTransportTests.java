@@ -27,7 +27,7 @@ import org.elasticsearch.common.settings.ClusterSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.transport.TransportAddress;
 import org.elasticsearch.common.unit.TimeValue;
-import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.MockBigArrays;
 import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
 import org.elasticsearch.node.Node;
 import org.elasticsearch.test.transport.MockTransportService;
@@ -58,7 +58,8 @@ public class SimpleNioTransportTests extends AbstractSimpleTransportTestCase {
         NetworkService networkService = new NetworkService(Collections.emptyList());
         Transport transport = new NioTransport(settings, threadPool,
             networkService,
-            BigArrays.NON_RECYCLING_INSTANCE, namedWriteableRegistry, new NoneCircuitBreakerService()) {
+            new MockBigArrays(Settings.EMPTY, new NoneCircuitBreakerService()), namedWriteableRegistry,
+            new NoneCircuitBreakerService()) {
 
             @Override
             protected Version executeHandshake(DiscoveryNode node, NioChannel channel, TimeValue timeout) throws IOException,
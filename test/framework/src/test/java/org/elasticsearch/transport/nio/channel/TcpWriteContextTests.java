@@ -22,6 +22,7 @@ package org.elasticsearch.transport.nio.channel;
 import org.elasticsearch.action.ActionListener;
 import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.test.ESTestCase;
+import org.elasticsearch.transport.nio.NetworkBytesReference;
 import org.elasticsearch.transport.nio.SocketSelector;
 import org.elasticsearch.transport.nio.WriteOperation;
 import org.junit.Before;
@@ -162,8 +163,12 @@ public class TcpWriteContextTests extends ESTestCase {
         ActionListener listener2 = mock(ActionListener.class);
         WriteOperation writeOperation1 = mock(WriteOperation.class);
         WriteOperation writeOperation2 = mock(WriteOperation.class);
+        NetworkBytesReference[] references1 = {NetworkBytesReference.wrap(new BytesArray(generateBytes(10)))};
+        NetworkBytesReference[] references2 = {NetworkBytesReference.wrap(new BytesArray(generateBytes(10)))};
         when(writeOperation1.getListener()).thenReturn(listener);
         when(writeOperation2.getListener()).thenReturn(listener2);
+        when(writeOperation1.getByteReferences()).thenReturn(references1);
+        when(writeOperation2.getByteReferences()).thenReturn(references2);
         writeContext.queueWriteOperations(writeOperation1);
         writeContext.queueWriteOperations(writeOperation2);
 
@@ -173,6 +178,8 @@ public class TcpWriteContextTests extends ESTestCase {
         when(writeOperation2.isFullyFlushed()).thenReturn(false);
         writeContext.flushChannel();
 
+        // both operations are flushed with a single write
+        verify(channel).write(new NetworkBytesReference[] {references1[0], references2[0]});
         verify(listener).onResponse(channel);
         verify(listener2, times(0)).onResponse(channel);
         assertTrue(writeContext.hasQueuedWriteOps());